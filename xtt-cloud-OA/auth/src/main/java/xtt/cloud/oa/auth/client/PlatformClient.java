@@ -1,9 +1,13 @@
 package xtt.cloud.oa.auth.client;
 
+import xtt.cloud.oa.common.dto.LoginCredentialsDto;
+import xtt.cloud.oa.common.dto.LoginProfileDto;
 import xtt.cloud.oa.common.dto.UserInfoDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 /**
@@ -27,4 +31,16 @@ public interface PlatformClient {
     @GetMapping("/api/platform/external/users/validate")
     boolean validateUserPassword(@RequestParam("username") String username, 
                                 @RequestParam("password") String password);
+
+    /**
+     * 登录认证并获取登录资料（用户、角色、主角色、部门）
+     */
+    @PostMapping("/api/platform/external/users/login-profile")
+    LoginProfileDto getLoginProfile(@RequestBody LoginCredentialsDto credentials);
+
+    /**
+     * 获取当前的登录资料（不校验密码，刷新令牌时使用）
+     */
+    @GetMapping("/api/platform/external/users/username/{username}/login-profile")
+    LoginProfileDto getCurrentLoginProfile(@PathVariable("username") String username);
 }
\ No newline at end of file
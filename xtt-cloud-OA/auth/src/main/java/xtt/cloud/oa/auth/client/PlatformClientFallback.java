@@ -3,6 +3,8 @@ package xtt.cloud.oa.auth.client;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import xtt.cloud.oa.common.dto.LoginCredentialsDto;
+import xtt.cloud.oa.common.dto.LoginProfileDto;
 import xtt.cloud.oa.common.dto.UserInfoDto;
 
 /**
@@ -27,4 +29,16 @@ public class PlatformClientFallback implements PlatformClient {
         logger.warn("Platform service is unavailable, fallback triggered for username: {}", username);
         return false;
     }
+
+    @Override
+    public LoginProfileDto getLoginProfile(LoginCredentialsDto credentials) {
+        logger.warn("Platform service is unavailable, fallback triggered for username: {}", credentials.getUsername());
+        return null;
+    }
+
+    @Override
+    public LoginProfileDto getCurrentLoginProfile(String username) {
+        logger.warn("Platform service is unavailable, fallback triggered for username: {}", username);
+        return null;
+    }
 }
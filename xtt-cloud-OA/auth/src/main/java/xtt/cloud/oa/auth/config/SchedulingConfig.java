@@ -0,0 +1,15 @@
+package xtt.cloud.oa.auth.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置（Token 黑名单全量同步等）
+ * 
+ * @author xtt
+ * @since 2023.0.3.3
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
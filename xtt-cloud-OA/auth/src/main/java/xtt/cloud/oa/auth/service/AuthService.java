@@ -3,6 +3,7 @@ package xtt.cloud.oa.auth.service;
 import xtt.cloud.oa.auth.dto.LoginRequest;
 import xtt.cloud.oa.auth.dto.LoginResponse;
 import xtt.cloud.oa.common.BusinessException;
+import xtt.cloud.oa.common.dto.LoginProfileDto;
 import xtt.cloud.oa.common.dto.UserInfoDto;
 import xtt.cloud.oa.auth.util.JwtUtil;
 import org.slf4j.Logger;
@@ -43,19 +44,15 @@ public class AuthService {
         String username = loginRequest.getUsername();
         String password = loginRequest.getPassword();
 
-        // 验证用户凭据
-        if (!userService.authenticate(username, password)) {
+        // 验证用户凭据并获取登录资料（一次调用 Platform 服务）
+        Optional<LoginProfileDto> profileOpt = userService.authenticateWithProfile(username, password);
+        if (!profileOpt.isPresent()) {
             throw new BusinessException("用户名或密码错误");
         }
 
-        // 获取用户信息
-        Optional<UserInfoDto> userOpt = userService.findByUsername(username);
-        if (!userOpt.isPresent()) {
-            throw new BusinessException("用户不存在");
-        }
-
-        UserInfoDto user = userOpt.get();
-        String role = userService.getUserPrimaryRole(username);
+        LoginProfileDto profile = profileOpt.get();
+        UserInfoDto user = profile.getUser();
+        String role = profile.getPrimaryRole() != null ? profile.getPrimaryRole() : "USER"; // 默认角色
 
         // 生成 JWT token（包含用户 ID）
         String token = jwtUtil.generateToken(username, role, user.getId());
@@ -82,14 +79,13 @@ public class AuthService {
                 throw new BusinessException("刷新令牌已失效");
             }
 
-            // 获取用户信息
-            Optional<UserInfoDto> userOpt = userService.findByUsername(username);
-            if (!userOpt.isPresent()) {
+            // 获取当前的用户信息和角色（不使用缓存，角色变更或用户被禁用后刷新即生效）
+            Optional<LoginProfileDto> profileOpt = userService.loadCurrentProfile(username);
+            if (!profileOpt.isPresent()) {
                 throw new BusinessException("用户不存在");
             }
-
-            UserInfoDto user = userOpt.get();
-            String role = userService.getUserPrimaryRole(username);
+            UserInfoDto user = profileOpt.get().getUser();
+            String role = profileOpt.get().getPrimaryRole() != null ? profileOpt.get().getPrimaryRole() : "USER"; // 默认角色
 
             // 生成新的 token（包含用户 ID）
             String newToken = jwtUtil.generateToken(username, role, user.getId());
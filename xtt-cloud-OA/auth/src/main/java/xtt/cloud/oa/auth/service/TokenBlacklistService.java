@@ -1,18 +1,46 @@
 package xtt.cloud.oa.auth.service;
 
+import io.jsonwebtoken.ExpiredJwtException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import xtt.cloud.oa.auth.util.JwtUtil;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Token 黑名单服务
  * 用于管理已注销或需要失效的 Token
  * 
+ * Redis 中的结构（与网关共用）：
+ * 1. 有序集合 token:revoked：成员为 token 的 SHA-256（Base64URL），分数为 token 过期时间（epoch 秒），
+ *    每个撤销的 token 只占一个 43 字节的成员，过期的成员在写入时清理
+ * 2. 频道 token:revoked：加入黑名单时发布 "+{hash} {exp}"，移除时发布 "-{hash}"
+ * 
+ * 本地保存未过期的黑名单，订阅频道增量同步，订阅（包括断线重连后的重新订阅）确认后
+ * 和每隔 token.revocation.resync-interval 秒全量同步一次。
+ * 同步完成后检查不访问 Redis；订阅取消或最近一次全量同步失败期间回退为按 token 查询 Redis
+ * 
  * @author xtt
  * @since 2023.0.3.3
  */
@@ -21,14 +49,64 @@ public class TokenBlacklistService {
 
     private static final Logger log = LoggerFactory.getLogger(TokenBlacklistService.class);
     
-    private static final String BLACKLIST_PREFIX = "token:blacklist:";
+    private static final String REVOKED_KEY = "token:revoked";
+    private static final String REVOKED_CHANNEL = "token:revoked";
+    
+    /**
+     * 旧版黑名单键前缀（token:blacklist:{token}），启动时迁移到有序集合
+     */
+    private static final String LEGACY_BLACKLIST_PREFIX = "token:blacklist:";
+    
+    /**
+     * 旧版黑名单键已迁移的标记，只有第一个设置成功的实例扫描一次
+     */
+    private static final String LEGACY_MIGRATED_KEY = "token:revoked:migrated";
 
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
     @Value("${jwt.expiration:86400000}")
     private Long tokenExpiration;
 
+    /**
+     * token 哈希 -> 过期时间（epoch 秒）
+     */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private final BlacklistListener listener = new BlacklistListener();
+
+    /**
+     * 订阅已建立
+     */
+    private volatile boolean subscribed;
+
+    /**
+     * 订阅建立后完成全量同步，且最近一次全量同步成功
+     */
+    private volatile boolean synced;
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener(listener, new ChannelTopic(REVOKED_CHANNEL));
+        try {
+            migrateLegacyKeys();
+        } catch (Exception e) {
+            log.warn("Failed to migrate legacy token blacklist keys", e);
+        }
+        resync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        listenerContainer.removeMessageListener(listener);
+    }
+
     /**
      * 将 Token 加入黑名单
      * 
@@ -36,11 +114,15 @@ public class TokenBlacklistService {
      */
     public void addToBlacklist(String token) {
         try {
-            String key = BLACKLIST_PREFIX + token;
-            // 将 token 存入 Redis，过期时间设置为 token 的剩余有效期
-            // 这里简化处理，使用配置的过期时间
-            long expirationSeconds = tokenExpiration / 1000;
-            redisTemplate.opsForValue().set(key, "1", expirationSeconds, TimeUnit.SECONDS);
+            // 黑名单记录保留到 token 自身过期为止
+            long expiresAt;
+            try {
+                expiresAt = jwtUtil.extractExpiration(token).toInstant().getEpochSecond();
+            } catch (ExpiredJwtException e) {
+                log.debug("Token already expired, skip blacklist");
+                return;
+            }
+            revoke(JwtUtil.tokenHash(token), expiresAt);
             log.info("Token added to blacklist: {}", token.substring(0, Math.min(20, token.length())) + "...");
         } catch (Exception e) {
             log.error("Failed to add token to blacklist", e);
@@ -55,10 +137,13 @@ public class TokenBlacklistService {
      * @return true 如果在黑名单中，false 如果不在
      */
     public boolean isBlacklisted(String token) {
+        String tokenHash = JwtUtil.tokenHash(token);
+        if (synced) {
+            return revoked.containsKey(tokenHash);
+        }
         try {
-            String key = BLACKLIST_PREFIX + token;
-            String value = redisTemplate.opsForValue().get(key);
-            return value != null;
+            Double expiresAt = redisTemplate.opsForZSet().score(REVOKED_KEY, tokenHash);
+            return expiresAt != null && expiresAt > Instant.now().getEpochSecond();
         } catch (Exception e) {
             log.error("Failed to check token blacklist", e);
             // Redis 异常时，为了安全起见，返回 true（拒绝访问）
@@ -73,8 +158,10 @@ public class TokenBlacklistService {
      */
     public void removeFromBlacklist(String token) {
         try {
-            String key = BLACKLIST_PREFIX + token;
-            redisTemplate.delete(key);
+            String tokenHash = JwtUtil.tokenHash(token);
+            redisTemplate.opsForZSet().remove(REVOKED_KEY, tokenHash);
+            redisTemplate.convertAndSend(REVOKED_CHANNEL, "-" + tokenHash);
+            revoked.remove(tokenHash);
             log.info("Token removed from blacklist: {}", token.substring(0, Math.min(20, token.length())) + "...");
         } catch (Exception e) {
             log.error("Failed to remove token from blacklist", e);
@@ -92,5 +179,129 @@ public class TokenBlacklistService {
             log.error("Failed to clear blacklist", e);
         }
     }
-}
 
+    /**
+     * 全量同步未过期的黑名单，补齐订阅期间可能丢失的消息并清理已过期的记录
+     */
+    @Scheduled(fixedDelayString = "${token.revocation.resync-interval:60}",
+            initialDelayString = "${token.revocation.resync-interval:60}", timeUnit = TimeUnit.SECONDS)
+    public void resync() {
+        long now = Instant.now().getEpochSecond();
+        // 同步开始时订阅已建立，同步结果才包含订阅之前的全部撤销
+        boolean subscribedAtStart = subscribed;
+        try {
+            Set<ZSetOperations.TypedTuple<String>> entries =
+                    redisTemplate.opsForZSet().rangeByScoreWithScores(REVOKED_KEY, now, Double.POSITIVE_INFINITY);
+            if (entries != null) {
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    revoked.put(entry.getValue(), entry.getScore().longValue());
+                }
+            }
+            revoked.values().removeIf(expiresAt -> expiresAt <= now);
+            boolean nowSynced = subscribedAtStart && subscribed;
+            if (nowSynced && !synced) {
+                log.info("Token blacklist synced, revoked tokens: {}", revoked.size());
+            }
+            synced = nowSynced;
+        } catch (Exception e) {
+            synced = false;
+            log.warn("Failed to resync token blacklist, falling back to Redis lookups: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 写入有序集合并通知其他实例
+     */
+    private void revoke(String tokenHash, long expiresAt) {
+        redisTemplate.opsForZSet().add(REVOKED_KEY, tokenHash, expiresAt);
+        // 顺带清理已过期的成员，集合大小受 token 有效期限制
+        redisTemplate.opsForZSet().removeRangeByScore(REVOKED_KEY, Double.NEGATIVE_INFINITY,
+                Instant.now().getEpochSecond());
+        redisTemplate.convertAndSend(REVOKED_CHANNEL, "+" + tokenHash + " " + expiresAt);
+        revoked.put(tokenHash, expiresAt);
+    }
+
+    /**
+     * 将旧版 token:blacklist:{token} 键迁移到有序集合（按键的剩余 TTL 计算过期时间）
+     * 
+     * 扫描整个键空间，只执行一次：先 SETNX 迁移标记，标记已存在时跳过，迁移失败时删除标记，下次启动重试
+     */
+    private void migrateLegacyKeys() {
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue()
+                .setIfAbsent(LEGACY_MIGRATED_KEY, Instant.now().toString()))) {
+            return;
+        }
+        try {
+            scanLegacyKeys();
+        } catch (RuntimeException e) {
+            redisTemplate.delete(LEGACY_MIGRATED_KEY);
+            throw e;
+        }
+    }
+
+    private void scanLegacyKeys() {
+        ScanOptions options = ScanOptions.scanOptions().match(LEGACY_BLACKLIST_PREFIX + "*").count(1000).build();
+        int migrated = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
+                if (ttl == null || ttl == -2) {
+                    // 已过期
+                    continue;
+                }
+                long expiresAt = Instant.now().getEpochSecond() + (ttl > 0 ? ttl : tokenExpiration / 1000);
+                revoke(JwtUtil.tokenHash(key.substring(LEGACY_BLACKLIST_PREFIX.length())), expiresAt);
+                redisTemplate.delete(key);
+                migrated++;
+            }
+        }
+        if (migrated > 0) {
+            log.info("Migrated {} legacy token blacklist keys", migrated);
+        }
+    }
+
+    /**
+     * 黑名单频道监听：消息增量更新本地视图，订阅状态变化时切换本地视图和 Redis 查询
+     */
+    private class BlacklistListener implements MessageListener, SubscriptionListener {
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            apply(new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void onChannelSubscribed(byte[] channel, long count) {
+            // 断开期间的消息已丢失，重新全量同步前不使用本地视图（回调在连接线程上，同步放到其他线程执行）
+            synced = false;
+            subscribed = true;
+            CompletableFuture.runAsync(TokenBlacklistService.this::resync);
+        }
+
+        @Override
+        public void onChannelUnsubscribed(byte[] channel, long count) {
+            subscribed = false;
+            synced = false;
+            log.warn("Token blacklist subscription lost, falling back to Redis lookups");
+        }
+    }
+
+    /**
+     * 应用增量消息："+{hash} {exp}" 加入，"-{hash}" 移除
+     */
+    private void apply(String message) {
+        try {
+            if (message.startsWith("+")) {
+                int index = message.indexOf(' ');
+                revoked.put(message.substring(1, index), Long.parseLong(message.substring(index + 1)));
+            } else if (message.startsWith("-")) {
+                revoked.remove(message.substring(1));
+            } else {
+                log.warn("Unknown token blacklist message: {}", message);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Invalid token blacklist message: {}", message);
+        }
+    }
+}
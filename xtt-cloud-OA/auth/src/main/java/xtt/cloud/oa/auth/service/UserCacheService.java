@@ -8,8 +8,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
+import xtt.cloud.oa.common.dto.LoginProfileDto;
 import xtt.cloud.oa.common.dto.UserInfoDto;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -26,6 +28,8 @@ public class UserCacheService {
     private static final Logger log = LoggerFactory.getLogger(UserCacheService.class);
     
     private static final String USER_CACHE_PREFIX = "user:cache:";
+    
+    private static final String PROFILE_CACHE_PREFIX = "user:profile:";
 
     @Autowired
     private StringRedisTemplate redisTemplate;
@@ -82,14 +86,60 @@ public class UserCacheService {
     }
 
     /**
-     * 从缓存中删除用户信息
+     * 从缓存中获取登录资料
+     * 
+     * @param username 用户名
+     * @return 登录资料，如果缓存不存在则返回 empty
+     */
+    public Optional<LoginProfileDto> getProfileFromCache(String username) {
+        try {
+            String value = redisTemplate.opsForValue().get(PROFILE_CACHE_PREFIX + username);
+            if (value != null) {
+                log.debug("Profile cache hit for username: {}", username);
+                return Optional.of(objectMapper.readValue(value, LoginProfileDto.class));
+            }
+            log.debug("Profile cache miss for username: {}", username);
+            return Optional.empty();
+        } catch (JsonProcessingException e) {
+            log.error("Failed to deserialize profile from cache for username: {}", username, e);
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("Failed to get profile from cache for username: {}", username, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 将登录资料存入缓存（只缓存用户信息部分，不包含认证结果）
+     * 
+     * @param username 用户名
+     * @param profile 登录资料
+     */
+    public void cacheProfile(String username, LoginProfileDto profile) {
+        try {
+            LoginProfileDto cached = new LoginProfileDto();
+            cached.setUser(profile.getUser());
+            cached.setPrimaryRole(profile.getPrimaryRole());
+            cached.setRoleCodes(profile.getRoleCodes());
+            cached.setDepartmentIds(profile.getDepartmentIds());
+            String value = objectMapper.writeValueAsString(cached);
+            redisTemplate.opsForValue().set(PROFILE_CACHE_PREFIX + username, value, cacheExpiration, TimeUnit.SECONDS);
+            log.debug("Profile cached for username: {}", username);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize profile for cache for username: {}", username, e);
+        } catch (Exception e) {
+            log.error("Failed to cache profile for username: {}", username, e);
+        }
+    }
+
+    /**
+     * 从缓存中删除用户信息（包括登录资料）
      * 
      * @param username 用户名
      */
     public void evictUser(String username) {
         try {
-            String key = USER_CACHE_PREFIX + username;
-            redisTemplate.delete(key);
+            redisTemplate.delete(List.of(USER_CACHE_PREFIX + username, PROFILE_CACHE_PREFIX + username));
             log.debug("User cache evicted for username: {}", username);
         } catch (Exception e) {
             log.error("Failed to evict user cache for username: {}", username, e);
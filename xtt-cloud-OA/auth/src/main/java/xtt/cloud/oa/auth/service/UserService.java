@@ -1,6 +1,8 @@
 package xtt.cloud.oa.auth.service;
 
 import xtt.cloud.oa.auth.client.PlatformClient;
+import xtt.cloud.oa.common.dto.LoginCredentialsDto;
+import xtt.cloud.oa.common.dto.LoginProfileDto;
 import xtt.cloud.oa.common.dto.UserInfoDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,12 +33,18 @@ public class UserService {
      */
     public Optional<UserInfoDto> findByUsername(String username) {
         try {
-            // 先检查 Redis 缓存
+            // 先检查 Redis 缓存（用户信息缓存，其次是登录时缓存的登录资料）
             Optional<UserInfoDto> cachedUser = userCacheService.getUserFromCache(username);
             if (cachedUser.isPresent()) {
                 log.debug("User found in cache: {}", username);
                 return cachedUser;
             }
+            Optional<UserInfoDto> profileUser = userCacheService.getProfileFromCache(username)
+                    .map(LoginProfileDto::getUser);
+            if (profileUser.isPresent()) {
+                log.debug("User found in profile cache: {}", username);
+                return profileUser;
+            }
             
             // 从 Platform 服务获取用户信息
             UserInfoDto user = platformClient.getUserByUsername(username);
@@ -68,6 +76,46 @@ public class UserService {
         }
     }
 
+    /**
+     * Authenticate user and load login profile in one Platform call, caching the profile
+     * 
+     * @return login profile, empty if the credentials are invalid or Platform is unavailable
+     */
+    public Optional<LoginProfileDto> authenticateWithProfile(String username, String password) {
+        try {
+            LoginProfileDto profile = platformClient.getLoginProfile(new LoginCredentialsDto(username, password));
+            if (profile == null || !profile.isAuthenticated() || profile.getUser() == null) {
+                return Optional.empty();
+            }
+            userCacheService.cacheProfile(username, profile);
+            return Optional.of(profile);
+        } catch (Exception e) {
+            log.error("Failed to authenticate user via Platform service for username: {}", username, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Load the current login profile from Platform service, bypassing the cache (for token refresh),
+     * and refresh the cached profile
+     * 
+     * @return login profile, empty if the user no longer exists, is disabled or Platform is unavailable
+     */
+    public Optional<LoginProfileDto> loadCurrentProfile(String username) {
+        try {
+            LoginProfileDto profile = platformClient.getCurrentLoginProfile(username);
+            if (profile == null || !profile.isAuthenticated() || profile.getUser() == null) {
+                userCacheService.evictUser(username);
+                return Optional.empty();
+            }
+            userCacheService.cacheProfile(username, profile);
+            return Optional.of(profile);
+        } catch (Exception e) {
+            log.error("Failed to load login profile via Platform service for username: {}", username, e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * Get user's primary role (for JWT token generation)
      */
@@ -0,0 +1,27 @@
+package xtt.cloud.oa.common.dto;
+
+/**
+ * 登录凭据 DTO - 对外服务使用（放在请求体中传输，不出现在 URL 和访问日志中）
+ * 
+ * @author xtt
+ * @since 2023.0.3.3
+ */
+public class LoginCredentialsDto {
+    
+    private String username;
+    private String password;
+
+    public LoginCredentialsDto() {
+    }
+
+    public LoginCredentialsDto(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public String getPassword() { return password; }
+    public void setPassword(String password) { this.password = password; }
+}
@@ -0,0 +1,45 @@
+package xtt.cloud.oa.common.dto;
+
+import java.util.List;
+
+/**
+ * 登录资料 DTO - 对外服务使用
+ * 一次调用完成密码校验，并返回签发 token 所需的用户信息
+ * 
+ * @author xtt
+ * @since 2023.0.3.3
+ */
+public class LoginProfileDto {
+    
+    /**
+     * 用户名和密码是否正确（用户不存在、已禁用或密码错误时为 false，其余字段为空）
+     */
+    private boolean authenticated;
+    
+    // 用户信息（包含角色、权限和部门）
+    private UserInfoDto user;
+    
+    // 主角色代码（按角色创建时间排序的第一个角色）
+    private String primaryRole;
+    
+    // 角色代码（按角色创建时间排序）
+    private List<String> roleCodes;
+    
+    // 部门ID（按部门排序号排序）
+    private List<Long> departmentIds;
+
+    public boolean isAuthenticated() { return authenticated; }
+    public void setAuthenticated(boolean authenticated) { this.authenticated = authenticated; }
+
+    public UserInfoDto getUser() { return user; }
+    public void setUser(UserInfoDto user) { this.user = user; }
+
+    public String getPrimaryRole() { return primaryRole; }
+    public void setPrimaryRole(String primaryRole) { this.primaryRole = primaryRole; }
+
+    public List<String> getRoleCodes() { return roleCodes; }
+    public void setRoleCodes(List<String> roleCodes) { this.roleCodes = roleCodes; }
+
+    public List<Long> getDepartmentIds() { return departmentIds; }
+    public void setDepartmentIds(List<Long> departmentIds) { this.departmentIds = departmentIds; }
+}
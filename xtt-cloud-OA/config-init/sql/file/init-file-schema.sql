@@ -0,0 +1,68 @@
+-- 文件服务表
+
+-- 分片上传会话
+CREATE TABLE IF NOT EXISTS file_upload_session (
+  upload_id         VARCHAR(64)  PRIMARY KEY,
+  original_filename VARCHAR(255),
+  total_size        BIGINT       NOT NULL,
+  chunk_size        BIGINT       NOT NULL,
+  total_chunks      INT          NOT NULL,
+  uploaded_count    INT          NOT NULL DEFAULT 0 COMMENT '已上传分片数',
+  content_type      VARCHAR(128),
+  extension         VARCHAR(32),
+  upload_user_id    BIGINT,
+  completed         TINYINT      NOT NULL DEFAULT 0,
+  status            VARCHAR(16)  NOT NULL DEFAULT 'UPLOADING' COMMENT '会话状态：UPLOADING/MERGING/COMPLETED/EXPIRING',
+  file_id           VARCHAR(64),
+  preallocated      TINYINT      NOT NULL DEFAULT 0,
+  create_time       DATETIME     NOT NULL,
+  update_time       DATETIME     NOT NULL,
+  KEY idx_completed_update_time (completed, update_time),
+  KEY idx_upload_user_id (upload_user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 用户进行中上传占用的字节数（初始化上传时原子预留，合并完成、取消或过期时释放）
+CREATE TABLE IF NOT EXISTS file_upload_quota (
+  user_id     BIGINT   PRIMARY KEY,
+  used_bytes  BIGINT   NOT NULL DEFAULT 0,
+  update_time DATETIME NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 已上传分片（主键按会话聚集，按会话查询/删除只扫描该会话的分片；
+-- 写入前先插入带认领标识的行，同一分片同时只有一个请求写入，写入并校验完成后清空认领标识）
+CREATE TABLE IF NOT EXISTS file_upload_chunk (
+  upload_id   VARCHAR(64)  NOT NULL,
+  chunk_index INT          NOT NULL,
+  chunk_size  BIGINT       NOT NULL,
+  chunk_path  VARCHAR(255),
+  md5         VARCHAR(64),
+  crc32c      BIGINT       COMMENT '分片 CRC32C（无符号 32 位）',
+  claim_token VARCHAR(64)  COMMENT '写入中的认领标识，为空表示分片已上传',
+  upload_time DATETIME     NOT NULL COMMENT '上传时间（写入中为认领时间）',
+  PRIMARY KEY (upload_id, chunk_index)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 文件信息（用户文件列表按 (upload_user_id, upload_time, file_id) 索引键集分页，
+-- content_hash 即对内容寻址存储中数据块的引用，删除时按 idx_content_hash 统计剩余引用）
+CREATE TABLE IF NOT EXISTS file_info (
+  file_id           VARCHAR(64)  PRIMARY KEY,
+  original_filename VARCHAR(255),
+  filename          VARCHAR(255),
+  storage_path      VARCHAR(255) NOT NULL,
+  file_size         BIGINT,
+  content_type      VARCHAR(128),
+  extension         VARCHAR(32),
+  content_hash      VARCHAR(64)  COMMENT '内容 SHA-256，为空表示未使用内容寻址存储',
+  crc32c            VARCHAR(8),
+  upload_user_id    BIGINT,
+  upload_time       DATETIME(3)  NOT NULL,
+  KEY idx_user_upload_time (upload_user_id, upload_time, file_id),
+  KEY idx_content_hash (content_hash)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 内容引用锁（每个内容一行，放置数据块 + 保存文件信息、删除文件信息 + 删除数据块时锁定该行，
+-- 多个实例共享存储目录时保证不会删除仍被引用的内容；行在内容删除后保留，供之后的上传复用）
+CREATE TABLE IF NOT EXISTS file_content_lock (
+  content_hash VARCHAR(64) PRIMARY KEY,
+  create_time  DATETIME    NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
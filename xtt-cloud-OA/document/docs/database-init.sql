@@ -97,7 +97,7 @@ CREATE TABLE `flow_definition` (
     `status` INT NOT NULL DEFAULT 0 COMMENT '状态（0:停用,1:启用）',
     `creator_id` BIGINT DEFAULT NULL COMMENT '创建人ID',
     `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    `updated_at` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间（毫秒精度，用于判断已编译流程图是否过期）',
     PRIMARY KEY (`id`),
     UNIQUE KEY `uk_code` (`code`),
     KEY `idx_doc_type_id` (`doc_type_id`),
@@ -165,6 +165,7 @@ CREATE TABLE `flow_node_instance` (
     `flow_instance_id` BIGINT NOT NULL COMMENT '流程实例ID（外键）',
     `node_id` BIGINT NOT NULL COMMENT '节点定义ID（外键）',
     `approver_id` BIGINT NOT NULL COMMENT '审批人ID',
+    `approver_name` VARCHAR(100) DEFAULT NULL COMMENT '审批人姓名',
     `approver_dept_id` BIGINT DEFAULT NULL COMMENT '审批人部门ID',
     `status` INT NOT NULL DEFAULT 0 COMMENT '节点状态（0:待处理,1:处理中,2:已完成,3:已拒绝,4:已跳过）',
     `comments` VARCHAR(1000) DEFAULT NULL COMMENT '审批意见',
@@ -172,7 +173,7 @@ CREATE TABLE `flow_node_instance` (
     `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     PRIMARY KEY (`id`),
-    KEY `idx_flow_instance_id` (`flow_instance_id`),
+    KEY `idx_flow_instance_node_status` (`flow_instance_id`, `node_id`, `status`),
     KEY `idx_node_id` (`node_id`),
     KEY `idx_approver_id` (`approver_id`),
     KEY `idx_status` (`status`)
@@ -211,13 +212,23 @@ CREATE TABLE `flow_action_rule` (
     `priority` INT DEFAULT NULL COMMENT '优先级（数字越大优先级越高）',
     `enabled` INT NOT NULL DEFAULT 1 COMMENT '是否启用（0:停用,1:启用）',
     `created_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    `updated_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    `updated_at` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间',
     PRIMARY KEY (`id`),
     KEY `idx_action_id` (`action_id`),
     KEY `idx_document_status` (`document_status`),
     KEY `idx_enabled` (`enabled`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='动作规则表-定义在什么条件下可以使用某个发送动作';
 
+-- 4.2.1 动作规则版本表（单行，通过 FlowActionRuleRepository 新增、修改、删除规则时加一，各实例据此判断内存中的规则索引是否过期）
+DROP TABLE IF EXISTS `flow_action_rule_version`;
+CREATE TABLE `flow_action_rule_version` (
+    `id` INT NOT NULL COMMENT '主键（固定为1）',
+    `version` BIGINT NOT NULL DEFAULT 0 COMMENT '规则版本号',
+    PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='动作规则版本表';
+
+INSERT INTO `flow_action_rule_version` (`id`, `version`) VALUES (1, 0);
+
 -- 4.3 审批人选择范围表
 DROP TABLE IF EXISTS `approver_scope`;
 CREATE TABLE `approver_scope` (
@@ -277,7 +288,8 @@ CREATE TABLE `todo_task` (
     KEY `idx_document_id` (`document_id`),
     KEY `idx_flow_instance_id` (`flow_instance_id`),
     KEY `idx_node_instance_id` (`node_instance_id`),
-    KEY `idx_assignee_id` (`assignee_id`),
+    KEY `idx_assignee_status_created` (`assignee_id`, `status`, `created_at`, `id`),
+    KEY `idx_assignee_status_type_created` (`assignee_id`, `status`, `task_type`, `created_at`, `id`),
     KEY `idx_status` (`status`),
     KEY `idx_task_type` (`task_type`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='待办任务表-存储待办任务信息';
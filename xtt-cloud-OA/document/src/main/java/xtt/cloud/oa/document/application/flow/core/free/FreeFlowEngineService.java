@@ -90,7 +90,7 @@ public class FreeFlowEngineService {
             // TODO: 集成用户服务获取用户角色
             List<String> userRoles = getUserRoles(userId);
             
-            // 3. 查询匹配的动作规则
+            // 3. 查询匹配的动作规则（内存索引，按优先级降序）
             List<FlowActionRule> rules = matchActionRules(
                 document.getStatus(),
                 userRoles,
@@ -102,24 +102,19 @@ public class FreeFlowEngineService {
                 return Collections.emptyList();
             }
             
-            // 4. 获取对应的动作
+            // 4. 批量获取对应的动作（保持规则优先级顺序）
             List<Long> actionIds = rules.stream()
                 .map(FlowActionRule::getActionId)
                 .distinct()
                 .collect(Collectors.toList());
             
-            // TODO: 实现批量查询
-            List<FlowAction> actions = new ArrayList<>();
-            for (Long actionId : actionIds) {
-                FlowAction action = flowActionRepository.findById(actionId);
-                if (action != null) {
-                    actions.add(action);
-                }
-            }
+            Map<Long, FlowAction> actionMap = flowActionRepository.findByIds(actionIds).stream()
+                .collect(Collectors.toMap(FlowAction::getId, action -> action));
             
             // 5. 过滤启用的动作
-            actions = actions.stream()
-                .filter(action -> action.getEnabled() == 1)
+            List<FlowAction> actions = actionIds.stream()
+                .map(actionMap::get)
+                .filter(action -> action != null && Integer.valueOf(1).equals(action.getEnabled()))
                 .collect(Collectors.toList());
             
             log.debug("找到 {} 个可用发送动作，文档ID: {}, 用户ID: {}", actions.size(), documentId, userId);
@@ -207,7 +202,7 @@ public class FreeFlowEngineService {
             }
             
             // 4. 验证动作可用性
-            if (!isActionAvailable(actionId, document.getId(), operatorId)) {
+            if (!isActionAvailable(actionId, document.getStatus(), getUserRoles(operatorId))) {
                 log.warn("发送动作不可用，动作ID: {}, 文档ID: {}, 用户ID: {}", actionId, document.getId(), operatorId);
                 throw new BusinessException("该发送动作不可用");
             }
@@ -305,13 +300,10 @@ public class FreeFlowEngineService {
     /**
      * 验证发送动作是否可用
      */
-    private boolean isActionAvailable(Long actionId, Long documentId, Long userId) {
-        Document document = documentRepository.findById(documentId);
-        List<String> userRoles = getUserRoles(userId);
-        
-        List<FlowActionRule> rules = matchActionRules(document.getStatus(), userRoles, null);
+    private boolean isActionAvailable(Long actionId, Integer documentStatus, List<String> userRoles) {
+        List<FlowActionRule> rules = matchActionRules(documentStatus, userRoles, null);
         return rules.stream()
-            .anyMatch(rule -> rule.getActionId().equals(actionId));
+            .anyMatch(rule -> actionId.equals(rule.getActionId()));
     }
     
     /**
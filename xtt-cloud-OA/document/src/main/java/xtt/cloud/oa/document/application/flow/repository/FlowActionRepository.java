@@ -4,6 +4,8 @@ import org.springframework.stereotype.Repository;
 import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowAction;
 import xtt.cloud.oa.document.domain.mapper.flow.FlowActionMapper;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -29,6 +31,16 @@ public class FlowActionRepository {
         return mapper.selectById(id);
     }
     
+    /**
+     * 根据ID批量查询动作（一次 IN 查询，不保证返回顺序）
+     */
+    public List<FlowAction> findByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return mapper.selectBatchIds(ids);
+    }
+    
     /**
      * 查询所有启用的动作
      */
@@ -0,0 +1,157 @@
+package xtt.cloud.oa.document.application.flow.repository;
+
+import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRule;
+import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRuleVersion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 动作规则内存索引（不可变快照）
+ * 启用的规则按 (文件状态, 角色) 预先分组并按优先级降序排列，
+ * 匹配时只读取文件状态下用户各角色和通配符（*）对应的规则，不访问数据库
+ * 
+ * 索引中的规则对象在多个请求间共享，调用方只读
+ * 
+ * @author xtt
+ * @since 2023.0.3.3
+ */
+final class FlowActionRuleIndex {
+    
+    private static final String WILDCARD_ROLE = "*";
+    
+    /**
+     * 优先级降序（未设置优先级的排在最后，与 ORDER BY priority DESC 一致）
+     */
+    private static final Comparator<FlowActionRule> PRIORITY_ORDER = Comparator.comparing(
+            FlowActionRule::getPriority, Comparator.nullsFirst(Comparator.<Integer>naturalOrder())).reversed();
+    
+    private final long version;
+    private final FlowActionRuleVersion tableVersion;
+    
+    /**
+     * 文件状态 -> 角色 -> 规则列表
+     */
+    private final Map<Integer, Map<String, List<FlowActionRule>>> rulesByStatusAndRole;
+    
+    /**
+     * 文件状态 -> 规则列表（不限制角色时使用）
+     */
+    private final Map<Integer, List<FlowActionRule>> rulesByStatus;
+    
+    private FlowActionRuleIndex(long version, FlowActionRuleVersion tableVersion,
+                                Map<Integer, Map<String, List<FlowActionRule>>> rulesByStatusAndRole,
+                                Map<Integer, List<FlowActionRule>> rulesByStatus) {
+        this.version = version;
+        this.tableVersion = tableVersion;
+        this.rulesByStatusAndRole = rulesByStatusAndRole;
+        this.rulesByStatus = rulesByStatus;
+    }
+    
+    /**
+     * 构建索引
+     * 
+     * @param version 索引版本（每次重建递增）
+     * @param tableVersion 构建时的规则表版本
+     * @param rules 启用的规则
+     */
+    static FlowActionRuleIndex build(long version, FlowActionRuleVersion tableVersion, List<FlowActionRule> rules) {
+        Map<Integer, Map<String, List<FlowActionRule>>> byStatusAndRole = new HashMap<>();
+        Map<Integer, List<FlowActionRule>> byStatus = new HashMap<>();
+        
+        for (FlowActionRule rule : rules) {
+            if (rule.getDocumentStatus() == null || !Integer.valueOf(1).equals(rule.getEnabled())) {
+                continue;
+            }
+            byStatus.computeIfAbsent(rule.getDocumentStatus(), k -> new ArrayList<>()).add(rule);
+            
+            // 角色支持多个，逗号分隔
+            if (rule.getUserRole() == null) {
+                continue;
+            }
+            Map<String, List<FlowActionRule>> byRole =
+                    byStatusAndRole.computeIfAbsent(rule.getDocumentStatus(), k -> new HashMap<>());
+            for (String role : rule.getUserRole().split(",")) {
+                String trimmed = role.trim();
+                if (!trimmed.isEmpty()) {
+                    byRole.computeIfAbsent(trimmed, k -> new ArrayList<>()).add(rule);
+                }
+            }
+        }
+        
+        byStatus.values().forEach(list -> list.sort(PRIORITY_ORDER));
+        byStatusAndRole.values().forEach(byRole -> byRole.values().forEach(list -> list.sort(PRIORITY_ORDER)));
+        return new FlowActionRuleIndex(version, tableVersion, byStatusAndRole, byStatus);
+    }
+    
+    /**
+     * 匹配规则
+     * 
+     * @param documentStatus 文件状态
+     * @param userRoles 用户角色，为空时不限制角色
+     * @param deptId 部门ID，为空时不限制部门；否则匹配该部门和未限制部门的规则
+     * @return 匹配的规则（按优先级降序）
+     */
+    List<FlowActionRule> match(Integer documentStatus, List<String> userRoles, Long deptId) {
+        List<FlowActionRule> candidates;
+        if (userRoles == null || userRoles.isEmpty()) {
+            candidates = rulesByStatus.getOrDefault(documentStatus, Collections.emptyList());
+        } else {
+            Map<String, List<FlowActionRule>> byRole = rulesByStatusAndRole.get(documentStatus);
+            if (byRole == null) {
+                return Collections.emptyList();
+            }
+            candidates = collect(byRole, userRoles);
+        }
+        
+        List<FlowActionRule> matched = new ArrayList<>(candidates.size());
+        for (FlowActionRule rule : candidates) {
+            if (deptId == null || rule.getDeptId() == null || deptId.equals(rule.getDeptId())) {
+                matched.add(rule);
+            }
+        }
+        return matched;
+    }
+    
+    long getVersion() {
+        return version;
+    }
+    
+    FlowActionRuleVersion getTableVersion() {
+        return tableVersion;
+    }
+    
+    /**
+     * 合并通配符和各角色的规则（同一规则配置了多个角色时只保留一次）
+     */
+    private static List<FlowActionRule> collect(Map<String, List<FlowActionRule>> byRole, List<String> userRoles) {
+        List<FlowActionRule> wildcard = byRole.getOrDefault(WILDCARD_ROLE, Collections.emptyList());
+        if (userRoles.size() == 1 && wildcard.isEmpty()) {
+            // 单一角色：直接使用预排序的列表
+            return byRole.getOrDefault(userRoles.get(0), Collections.emptyList());
+        }
+        
+        Set<FlowActionRule> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<FlowActionRule> result = new ArrayList<>();
+        for (FlowActionRule rule : wildcard) {
+            if (seen.add(rule)) {
+                result.add(rule);
+            }
+        }
+        for (String role : userRoles) {
+            for (FlowActionRule rule : byRole.getOrDefault(role, Collections.emptyList())) {
+                if (seen.add(rule)) {
+                    result.add(rule);
+                }
+            }
+        }
+        result.sort(PRIORITY_ORDER);
+        return result;
+    }
+}
@@ -1,8 +1,14 @@
 package xtt.cloud.oa.document.application.flow.repository;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRule;
+import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRuleVersion;
 import xtt.cloud.oa.document.domain.mapper.flow.FlowActionRuleMapper;
 
 import java.util.List;
@@ -11,16 +17,32 @@ import java.util.List;
  * 流程动作规则 Repository
  * 封装 FlowActionRuleMapper 的数据访问操作
  * 
+ * 规则匹配（matchRules）使用内存中的规则索引 {@link FlowActionRuleIndex}：
+ * 1. 通过本 Repository 修改规则时，规则版本号加一，事务提交后丢弃本实例的索引，下次匹配时重建
+ * 2. 其他实例最多每 document.free-flow.rule-refresh-interval 毫秒查询一次规则表版本
+ *    （版本号 + 规则数量 + 最后更新时间），版本变化时重建
+ * 
  * @author xtt
  * @since 2023.0.3.3
  */
 @Repository
 public class FlowActionRuleRepository {
     
+    private static final Logger log = LoggerFactory.getLogger(FlowActionRuleRepository.class);
+    
     private final FlowActionRuleMapper mapper;
+    private final long refreshInterval;
+    
+    private final Object indexLock = new Object();
+    private volatile FlowActionRuleIndex index;
+    private volatile long indexCheckedAt;
+    private long indexVersion;
     
-    public FlowActionRuleRepository(FlowActionRuleMapper mapper) {
+    public FlowActionRuleRepository(
+            FlowActionRuleMapper mapper,
+            @Value("${document.free-flow.rule-refresh-interval:30000}") long refreshInterval) {
         this.mapper = mapper;
+        this.refreshInterval = refreshInterval;
     }
     
     /**
@@ -41,33 +63,18 @@ public class FlowActionRuleRepository {
     }
     
     /**
-     * 根据文档状态、用户角色、部门ID匹配规则
+     * 根据文档状态、用户角色、部门ID匹配规则（按优先级降序）
+     * 
+     * 角色支持多个（逗号分隔，*表示所有角色），用户角色为空时不限制角色；
+     * 部门ID为空时不限制部门，否则匹配该部门和未限制部门的规则
+     * 
+     * 返回的规则对象在请求间共享，调用方只读
      */
     public List<FlowActionRule> matchRules(Integer documentStatus, List<String> userRoles, Long deptId) {
-        LambdaQueryWrapper<FlowActionRule> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(FlowActionRule::getDocumentStatus, documentStatus)
-               .eq(FlowActionRule::getEnabled, 1);
-        
-        // 角色匹配（支持多个角色，逗号分隔，*表示所有角色）
-        if (userRoles != null && !userRoles.isEmpty()) {
-            wrapper.and(w -> {
-                // 检查是否有通配符规则
-                w.like(FlowActionRule::getUserRole, "*").or();
-                // 检查每个角色
-                for (String role : userRoles) {
-                    w.like(FlowActionRule::getUserRole, role).or();
-                }
-            });
-        }
-        
-        // 部门匹配（可选）
-        if (deptId != null) {
-            wrapper.and(w -> w.eq(FlowActionRule::getDeptId, deptId).or().isNull(FlowActionRule::getDeptId));
+        if (documentStatus == null) {
+            return List.of();
         }
-        
-        wrapper.orderByDesc(FlowActionRule::getPriority);
-        
-        return mapper.selectList(wrapper);
+        return currentIndex().match(documentStatus, userRoles, deptId);
     }
     
     /**
@@ -77,15 +84,17 @@ public class FlowActionRuleRepository {
         if (rule.getId() == null) {
             mapper.insert(rule);
         } else {
-            mapper.updateById(rule);
+            updateRow(rule);
         }
+        invalidateIndex();
     }
     
     /**
      * 更新规则
      */
     public void update(FlowActionRule rule) {
-        mapper.updateById(rule);
+        updateRow(rule);
+        invalidateIndex();
     }
     
     /**
@@ -93,6 +102,68 @@ public class FlowActionRuleRepository {
      */
     public void delete(Long id) {
         mapper.deleteById(id);
+        invalidateIndex();
+    }
+    
+    /**
+     * 获取规则索引：距上次检查超过刷新间隔时查询规则表版本，版本变化时重建
+     */
+    private FlowActionRuleIndex currentIndex() {
+        FlowActionRuleIndex current = index;
+        if (current != null && System.currentTimeMillis() - indexCheckedAt < refreshInterval) {
+            return current;
+        }
+        
+        synchronized (indexLock) {
+            current = index;
+            long now = System.currentTimeMillis();
+            if (current != null && now - indexCheckedAt < refreshInterval) {
+                return current;
+            }
+            
+            FlowActionRuleVersion tableVersion = mapper.selectVersion();
+            if (current == null || !current.getTableVersion().equals(tableVersion)) {
+                List<FlowActionRule> rules = mapper.selectList(
+                        new LambdaQueryWrapper<FlowActionRule>().eq(FlowActionRule::getEnabled, 1));
+                current = FlowActionRuleIndex.build(++indexVersion, tableVersion, rules);
+                index = current;
+                log.info("动作规则索引已重建，版本: {}, 规则表版本: {}, 启用规则数: {}",
+                        current.getVersion(), tableVersion, rules.size());
+            }
+            indexCheckedAt = now;
+            return current;
+        }
+    }
+    
+    /**
+     * 更新规则（不写回读取时的 updated_at，由数据库刷新为当前时间）
+     */
+    private void updateRow(FlowActionRule rule) {
+        rule.setUpdatedAt(null);
+        mapper.updateById(rule);
+    }
+    
+    /**
+     * 规则版本号加一，并丢弃规则索引（在事务中修改时，提交后再丢弃，避免重建时读到未提交前的数据）
+     */
+    private void invalidateIndex() {
+        mapper.incrementVersion();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearIndex();
+                }
+            });
+        } else {
+            clearIndex();
+        }
+    }
+    
+    private void clearIndex() {
+        synchronized (indexLock) {
+            index = null;
+        }
     }
 }
 
@@ -0,0 +1,48 @@
+package xtt.cloud.oa.document.domain.entity.flow.definition.free;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * 动作规则表版本
+ * 版本号（flow_action_rule_version，通过 Repository 修改规则时加一）、规则数量和最后更新时间
+ * （updated_at 由数据库在更新时自动维护，用于发现直接修改数据库的情况），
+ * 任一变化说明规则被新增、修改或删除，内存中的规则索引需要重建
+ * 
+ * @author xtt
+ * @since 2023.0.3.3
+ */
+public class FlowActionRuleVersion {
+    private Long version;               // 版本号
+    private Long ruleCount;             // 规则数量
+    private LocalDateTime lastUpdatedAt; // 最后更新时间
+    
+    // Getters and Setters
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    
+    public Long getRuleCount() { return ruleCount; }
+    public void setRuleCount(Long ruleCount) { this.ruleCount = ruleCount; }
+    
+    public LocalDateTime getLastUpdatedAt() { return lastUpdatedAt; }
+    public void setLastUpdatedAt(LocalDateTime lastUpdatedAt) { this.lastUpdatedAt = lastUpdatedAt; }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FlowActionRuleVersion that = (FlowActionRuleVersion) o;
+        return Objects.equals(version, that.version) && Objects.equals(ruleCount, that.ruleCount)
+                && Objects.equals(lastUpdatedAt, that.lastUpdatedAt);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, ruleCount, lastUpdatedAt);
+    }
+    
+    @Override
+    public String toString() {
+        return "FlowActionRuleVersion{" + version + ", " + ruleCount + ", " + lastUpdatedAt + '}';
+    }
+}
@@ -2,6 +2,7 @@ package xtt.cloud.oa.document.domain.mapper.flow;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRule;
+import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRuleVersion;
 
 /**
  * 动作规则 Mapper
@@ -11,6 +12,14 @@ import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRule;
  */
 //@Mapper
 public interface FlowActionRuleMapper extends BaseMapper<FlowActionRule> {
-    // 动作规则数据访问接口
+    
+    /**
+     * 查询规则表版本（版本号 + 规则数量 + 最后更新时间），用于判断内存中的规则索引是否过期
+     */
+    FlowActionRuleVersion selectVersion();
+    
+    /**
+     * 规则版本号加一（每次新增、修改、删除规则时调用）
+     */
+    int incrementVersion();
 }
-
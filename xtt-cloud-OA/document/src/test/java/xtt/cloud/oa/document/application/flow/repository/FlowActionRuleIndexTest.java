@@ -0,0 +1,141 @@
+package xtt.cloud.oa.document.application.flow.repository;
+
+import org.junit.jupiter.api.Test;
+import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRule;
+import xtt.cloud.oa.document.domain.entity.flow.definition.free.FlowActionRuleVersion;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlowActionRuleIndexTest {
+
+    private static final int DRAFT = 0;
+    private static final int REVIEWING = 1;
+
+    @Test
+    void matchesOnlyRulesOfTheDocumentStatus() {
+        FlowActionRuleIndex index = build(
+                rule(1L, DRAFT, "USER", null, 10),
+                rule(2L, REVIEWING, "USER", null, 10));
+
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(1L);
+        assertThat(ids(index.match(REVIEWING, List.of("USER"), null))).containsExactly(2L);
+        assertThat(index.match(3, List.of("USER"), null)).isEmpty();
+        assertThat(index.match(3, null, null)).isEmpty();
+    }
+
+    @Test
+    void ordersByPriorityDescendingWithUnsetPriorityLast() {
+        FlowActionRuleIndex index = build(
+                rule(1L, DRAFT, "USER", null, null),
+                rule(2L, DRAFT, "USER", null, 5),
+                rule(3L, DRAFT, "USER", null, 20),
+                rule(4L, DRAFT, "USER", null, 10));
+
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(3L, 4L, 2L, 1L);
+        assertThat(ids(index.match(DRAFT, null, null))).containsExactly(3L, 4L, 2L, 1L);
+    }
+
+    @Test
+    void skipsDisabledRulesAndRulesWithoutStatus() {
+        FlowActionRule disabled = rule(1L, DRAFT, "USER", null, 10);
+        disabled.setEnabled(0);
+        FlowActionRule enabledUnset = rule(2L, DRAFT, "USER", null, 10);
+        enabledUnset.setEnabled(null);
+        FlowActionRuleIndex index = build(disabled, enabledUnset, rule(3L, null, "USER", null, 10),
+                rule(4L, DRAFT, "USER", null, 1));
+
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(4L);
+        assertThat(ids(index.match(DRAFT, null, null))).containsExactly(4L);
+    }
+
+    @Test
+    void ruleWithSeveralRolesMatchesEachRoleOnce() {
+        FlowActionRuleIndex index = build(
+                rule(1L, DRAFT, "ADMIN, USER", null, 10),
+                rule(2L, DRAFT, "USER", null, 5),
+                rule(3L, DRAFT, " ,AUDITOR,", null, 1));
+
+        assertThat(ids(index.match(DRAFT, List.of("ADMIN"), null))).containsExactly(1L);
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(1L, 2L);
+        assertThat(ids(index.match(DRAFT, List.of("ADMIN", "USER"), null))).containsExactly(1L, 2L);
+        assertThat(ids(index.match(DRAFT, List.of("AUDITOR"), null))).containsExactly(3L);
+        assertThat(index.match(DRAFT, List.of("GUEST"), null)).isEmpty();
+    }
+
+    @Test
+    void wildcardRulesApplyToEveryRoleInPriorityOrder() {
+        FlowActionRuleIndex index = build(
+                rule(1L, DRAFT, "*", null, 5),
+                rule(2L, DRAFT, "USER", null, 10),
+                rule(3L, DRAFT, "ADMIN", null, 1));
+
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(2L, 1L);
+        assertThat(ids(index.match(DRAFT, List.of("ADMIN"), null))).containsExactly(1L, 3L);
+        assertThat(ids(index.match(DRAFT, List.of("GUEST"), null))).containsExactly(1L);
+    }
+
+    @Test
+    void rulesWithoutRoleOnlyMatchWhenRolesAreNotGiven() {
+        FlowActionRuleIndex index = build(
+                rule(1L, DRAFT, null, null, 10),
+                rule(2L, DRAFT, "USER", null, 5));
+
+        assertThat(ids(index.match(DRAFT, List.of(), null))).containsExactly(1L, 2L);
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(2L);
+    }
+
+    @Test
+    void departmentFilterKeepsMatchingAndUnrestrictedRules() {
+        FlowActionRuleIndex index = build(
+                rule(1L, DRAFT, "USER", 100L, 10),
+                rule(2L, DRAFT, "USER", 200L, 8),
+                rule(3L, DRAFT, "USER", null, 5));
+
+        assertThat(ids(index.match(DRAFT, List.of("USER"), 100L))).containsExactly(1L, 3L);
+        assertThat(ids(index.match(DRAFT, List.of("USER"), 300L))).containsExactly(3L);
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void matchResultDoesNotExposeTheIndex() {
+        FlowActionRuleIndex index = build(rule(1L, DRAFT, "USER", null, 10));
+
+        index.match(DRAFT, List.of("USER"), null).clear();
+
+        assertThat(ids(index.match(DRAFT, List.of("USER"), null))).containsExactly(1L);
+    }
+
+    @Test
+    void keepsVersions() {
+        FlowActionRuleVersion tableVersion = new FlowActionRuleVersion();
+        tableVersion.setVersion(7L);
+
+        FlowActionRuleIndex index = FlowActionRuleIndex.build(3, tableVersion, List.of());
+
+        assertThat(index.getVersion()).isEqualTo(3);
+        assertThat(index.getTableVersion()).isSameAs(tableVersion);
+        assertThat(index.match(DRAFT, null, null)).isEmpty();
+    }
+
+    private static FlowActionRuleIndex build(FlowActionRule... rules) {
+        return FlowActionRuleIndex.build(1, new FlowActionRuleVersion(), List.of(rules));
+    }
+
+    private static FlowActionRule rule(Long id, Integer status, String roles, Long deptId, Integer priority) {
+        FlowActionRule rule = new FlowActionRule();
+        rule.setId(id);
+        rule.setActionId(id * 10);
+        rule.setDocumentStatus(status);
+        rule.setUserRole(roles);
+        rule.setDeptId(deptId);
+        rule.setPriority(priority);
+        rule.setEnabled(1);
+        return rule;
+    }
+
+    private static List<Long> ids(List<FlowActionRule> rules) {
+        return rules.stream().map(FlowActionRule::getId).toList();
+    }
+}
@@ -1,31 +1,67 @@
 package xtt.cloud.oa.file.application;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import xtt.cloud.oa.file.domain.BlobStore;
 import xtt.cloud.oa.file.domain.ChunkInfo;
 import xtt.cloud.oa.file.domain.ChunkStorage;
+import xtt.cloud.oa.file.domain.ContentAction;
+import xtt.cloud.oa.file.domain.Crc32c;
 import xtt.cloud.oa.file.domain.FileInfo;
 import xtt.cloud.oa.file.domain.FileStorage;
+import xtt.cloud.oa.file.domain.StoredBlob;
 import xtt.cloud.oa.file.domain.UploadSession;
+import xtt.cloud.oa.file.domain.UploadStatus;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.stream.Stream;
 
 /**
  * 分片上传服务
  * 
+ * 支持两种写入模式（file.upload.preallocate）：
+ * 1. 预分配模式（默认）：初始化时按总大小预分配暂存文件，各分片按 chunkIndex * chunkSize
+ *    通过 FileChannel 定位写入，可以并发上传；合并时只校验、落盘并原子重命名，不再复制数据
+ * 2. 分片文件模式：每个分片单独保存，合并时按顺序复制到暂存文件
+ * 
+ * 合并需要读取一遍整个文件计算内容哈希（SHA-256 不能由分片哈希合并得到，分片又是乱序、跨实例写入的），
+ * 因此在有界的合并线程池（file.upload.merge）中执行，不占用请求线程
+ * 
+ * 合并后的文件移入内容寻址存储（{@link BlobStore}），相同内容只保存一份；
+ * 上传前可以通过 {@link #probeUpload} 按 SHA-256 秒传（仅限用户自己上传过的内容）
+ * 
+ * 上传会话只能由创建它的用户操作，其他用户的会话视为不存在
+ * 
  * @author xtt
  */
 @Service
@@ -35,18 +71,95 @@ public class ChunkUploadService {
     
     private final ChunkStorage chunkStorage;
     private final FileStorage fileStorage;
+    private final BlobStore blobStore;
+    private final ThumbnailService thumbnailService;
     private final String rootPath;
+    private final ThreadPoolExecutor mergeExecutor;
     
     @Value("${file.upload.chunk-size:5242880}") // 默认 5MB
     private long defaultChunkSize;
     
+    @Value("${file.upload.preallocate:true}") // 默认预分配模式
+    private boolean preallocate;
+    
+    @Value("${file.upload.quota.max-in-flight-bytes:10737418240}") // 默认 10GB，0 表示不限制
+    private long maxInFlightBytes;
+    
+    @Value("${file.upload.chunk-claim-timeout-minutes:30}") // 分片写入超过该时间未完成视为已中断
+    private long chunkClaimTimeoutMinutes;
+    
     public ChunkUploadService(
             ChunkStorage chunkStorage,
             FileStorage fileStorage,
-            @Value("${file.upload.root-path:/app/files}") String rootPath) {
+            BlobStore blobStore,
+            ThumbnailService thumbnailService,
+            @Value("${file.upload.root-path:/app/files}") String rootPath,
+            @Value("${file.upload.merge.threads:2}") int mergeThreads,
+            @Value("${file.upload.merge.queue-capacity:16}") int mergeQueueCapacity) {
         this.chunkStorage = chunkStorage;
         this.fileStorage = fileStorage;
+        this.blobStore = blobStore;
+        this.thumbnailService = thumbnailService;
         this.rootPath = rootPath;
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.mergeExecutor = new ThreadPoolExecutor(mergeThreads, mergeThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(mergeQueueCapacity), r -> {
+                    Thread thread = new Thread(r, "chunk-merge-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // 等待已提交的合并完成，否则会话停留在合并中，直到被清理任务当作放弃的上传删除
+        mergeExecutor.shutdown();
+        if (!mergeExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+            log.warn("分片合并任务未在停止前完成，剩余任务数: {}", mergeExecutor.getQueue().size());
+        }
+    }
+    
+    /**
+     * 秒传探测：用户上传过相同内容时直接创建文件信息，不需要再上传数据
+     * 
+     * 只凭哈希和大小不能证明持有内容，因此不引用其他用户上传的文件（否则知道哈希即可读取他人文件）
+     * 
+     * @param originalFilename 原始文件名
+     * @param totalSize 文件总大小
+     * @param contentHash 文件内容 SHA-256（十六进制）
+     * @param userId 用户ID
+     * @return 文件信息，用户没有上传过该内容时返回空
+     */
+    public Optional<FileInfo> probeUpload(String originalFilename, Long totalSize, String contentHash, Long userId) throws IOException {
+        String hash = contentHash == null ? null : contentHash.toLowerCase(Locale.ROOT);
+        
+        if (!fileStorage.existsByUploadUserIdAndContentHash(userId, hash)) {
+            log.debug("秒传未命中，用户ID: {}, 哈希: {}", userId, hash);
+            return Optional.empty();
+        }
+        
+        Optional<StoredBlob> found = blobStore.find(hash);
+        if (found.isEmpty()) {
+            log.debug("秒传未命中，哈希: {}", hash);
+            return Optional.empty();
+        }
+        
+        StoredBlob blob = found.get();
+        if (totalSize != null && !totalSize.equals(blob.getSize())) {
+            log.warn("秒传文件大小不一致，哈希: {}, 期望: {}, 实际: {}", hash, totalSize, blob.getSize());
+            return Optional.empty();
+        }
+        
+        // 持有引用锁时再确认内容仍存在（探测之后可能被删除最后一个引用）
+        Optional<FileInfo> fileInfo = createFileInfo(originalFilename, getFileExtension(originalFilename), null,
+                userId, blob, () -> blobStore.find(hash).isPresent());
+        if (fileInfo.isEmpty()) {
+            log.debug("秒传未命中（内容已删除），哈希: {}", hash);
+            return Optional.empty();
+        }
+        log.info("秒传成功，文件名: {}, 文件ID: {}, 哈希: {}", originalFilename, fileInfo.get().getFileId(), hash);
+        return fileInfo;
     }
     
     /**
@@ -58,14 +171,24 @@ public class ChunkUploadService {
      * @param userId 用户ID
      * @return 上传会话
      */
-    public UploadSession initUpload(String originalFilename, Long totalSize, Long chunkSize, Long userId) {
+    public UploadSession initUpload(String originalFilename, Long totalSize, Long chunkSize, Long userId) throws IOException {
         log.info("初始化分片上传，文件名: {}, 总大小: {}, 分片大小: {}, 用户ID: {}", 
                 originalFilename, totalSize, chunkSize, userId);
         
+        if (totalSize == null || totalSize < 0) {
+            throw new IllegalArgumentException("文件总大小不正确: " + totalSize);
+        }
+        
         if (chunkSize == null || chunkSize <= 0) {
             chunkSize = defaultChunkSize;
         }
         
+        // 预留配额：用户未完成上传的总大小（预分配模式下即已占用的磁盘空间），检查和预留是同一条件更新
+        if (!chunkStorage.reserveQuota(userId, totalSize, maxInFlightBytes)) {
+            throw new IllegalStateException(String.format(
+                    "未完成上传超过配额，用户ID: %d, 本次: %d, 配额: %d", userId, totalSize, maxInFlightBytes));
+        }
+        
         // 计算总分片数
         int totalChunks = (int) Math.ceil((double) totalSize / chunkSize);
         
@@ -86,11 +209,28 @@ public class ChunkUploadService {
                 .uploadUserId(userId)
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
-                .uploadedChunks(new ArrayList<>())
+                .uploadedCount(0)
                 .completed(false)
+                .status(UploadStatus.UPLOADING)
+                .preallocated(preallocate)
                 .build();
         
-        chunkStorage.saveSession(session);
+        try {
+            if (preallocate) {
+                // 预分配暂存文件，分片直接写入对应偏移量
+                Path stagingPath = getStagingPath(uploadId);
+                Files.createDirectories(stagingPath.getParent());
+                try (RandomAccessFile file = new RandomAccessFile(stagingPath.toFile(), "rw")) {
+                    file.setLength(totalSize);
+                }
+            }
+            
+            chunkStorage.saveSession(session);
+        } catch (IOException | RuntimeException e) {
+            // 会话未创建，释放预留的配额（已创建的暂存文件由 UploadJanitor 作为孤立数据清理）
+            chunkStorage.releaseQuota(userId, totalSize);
+            throw e;
+        }
         
         log.info("分片上传初始化成功，上传ID: {}, 总分片数: {}", uploadId, totalChunks);
         return session;
@@ -102,58 +242,157 @@ public class ChunkUploadService {
      * @param uploadId 上传ID
      * @param chunkIndex 分片索引
      * @param chunkFile 分片文件
+     * @param crc32c 客户端计算的分片 CRC32C（可选，十六进制）
+     * @param md5 客户端计算的分片 MD5（可选，十六进制）
+     * @param userId 用户ID
      * @return 分片信息
      */
-    public ChunkInfo uploadChunk(String uploadId, Integer chunkIndex, MultipartFile chunkFile) throws IOException {
-        log.debug("上传分片，上传ID: {}, 分片索引: {}, 分片大小: {}", 
-                uploadId, chunkIndex, chunkFile.getSize());
-        
-        // 验证上传会话
-        UploadSession session = chunkStorage.findSession(uploadId)
-                .orElseThrow(() -> new IllegalArgumentException("上传会话不存在: " + uploadId));
-        
-        if (session.getCompleted()) {
-            throw new IllegalStateException("文件已合并完成，不能继续上传分片");
+    public ChunkInfo uploadChunk(String uploadId, Integer chunkIndex, MultipartFile chunkFile,
+                                 String crc32c, String md5, Long userId) throws IOException {
+        try (InputStream in = chunkFile.getInputStream()) {
+            return uploadChunk(uploadId, chunkIndex, in, chunkFile.getSize(), crc32c, md5, userId);
+        }
+    }
+    
+    /**
+     * 流式上传分片
+     * 
+     * 直接从请求体读取并写入目标文件，不经过 multipart 解析。
+     * 写入的同时计算 CRC32C（以及客户端提供 MD5 时的 MD5），与客户端提供的校验值不一致时拒绝该分片。
+     * 写入前先认领分片，同一分片同时只有一个请求写入，已记录的分片不会被覆盖
+     * 
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片索引
+     * @param inputStream 请求体（由调用方关闭）
+     * @param contentLength 声明的内容长度（未知时为 -1）
+     * @param crc32c 客户端计算的分片 CRC32C（可选，十六进制）
+     * @param md5 客户端计算的分片 MD5（可选，十六进制）
+     * @param userId 用户ID
+     * @return 分片信息
+     */
+    public ChunkInfo uploadChunk(String uploadId, Integer chunkIndex, InputStream inputStream,
+                                 long contentLength, String crc32c, String md5, Long userId) throws IOException {
+        log.debug("上传分片，上传ID: {}, 分片索引: {}, 分片大小: {}", uploadId, chunkIndex, contentLength);
+        
+        Long expectedCrc = crc32c != null ? Crc32c.parseHex(crc32c) : null;
+        UploadSession session = getWritableSession(uploadId, chunkIndex, userId);
+        
+        // 分片必须恰好为期望大小（声明的长度不一致时不读取请求体，未声明时写入过程中检查）
+        long size = expectedChunkSize(session, chunkIndex);
+        if (contentLength >= 0 && contentLength != size) {
+            throw new IllegalArgumentException(String.format("分片大小不正确，分片索引: %d, 期望: %d, 实际: %d",
+                    chunkIndex, size, contentLength));
         }
         
-        if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
-            throw new IllegalArgumentException("分片索引超出范围: " + chunkIndex);
+        // 认领分片后才写入：预分配模式下各请求写入同一文件的同一区域，不认领时并发上传可能覆盖已记录的分片
+        Optional<String> claim = chunkStorage.claimChunk(uploadId, chunkIndex,
+                LocalDateTime.now().minusMinutes(chunkClaimTimeoutMinutes));
+        if (claim.isEmpty()) {
+            // 分片已上传（包括并发上传的请求先完成）时直接返回，否则正在由其他请求写入
+            Optional<ChunkInfo> existing = chunkStorage.findChunk(uploadId, chunkIndex);
+            if (existing.isPresent()) {
+                log.debug("分片已存在，跳过上传，上传ID: {}, 分片索引: {}", uploadId, chunkIndex);
+                return existing.get();
+            }
+            throw new IllegalStateException("分片正在由其他请求上传，分片索引: " + chunkIndex);
         }
         
-        // 检查分片是否已上传
-        if (chunkStorage.findChunk(uploadId, chunkIndex).isPresent()) {
-            log.debug("分片已存在，跳过上传，上传ID: {}, 分片索引: {}", uploadId, chunkIndex);
-            return chunkStorage.findChunk(uploadId, chunkIndex).get();
+        try {
+            return writeChunk(session, chunkIndex, size, inputStream, expectedCrc, md5, claim.get());
+        } catch (IOException | RuntimeException e) {
+            // 释放认领，客户端可以重新上传该分片（预分配模式下写入的数据会被重新上传的分片覆盖）
+            chunkStorage.releaseChunk(uploadId, chunkIndex, claim.get());
+            throw e;
+        }
+    }
+    
+    /**
+     * 写入已认领的分片，边写入边计算校验值，校验通过后记录分片
+     */
+    private ChunkInfo writeChunk(UploadSession session, int chunkIndex, long size, InputStream inputStream,
+                                 Long expectedCrc, String md5, String claimToken) throws IOException {
+        String uploadId = session.getUploadId();
+        CRC32C crc = new CRC32C();
+        MessageDigest md5Digest = md5 != null ? md5() : null;
+        InputStream in = new CheckedInputStream(inputStream, crc);
+        if (md5Digest != null) {
+            in = new DigestInputStream(in, md5Digest);
         }
         
-        // 生成分片存储路径
-        String chunkPath = generateChunkPath(uploadId, chunkIndex);
-        Path chunkFilePath = Paths.get(rootPath, "chunks", chunkPath);
-        Files.createDirectories(chunkFilePath.getParent());
+        String chunkPath = null;
+        try {
+            if (Boolean.TRUE.equals(session.getPreallocated())) {
+                // 按偏移量写入预分配文件
+                writeChunkAt(session, chunkIndex, in, size);
+            } else {
+                // 保存分片文件（每次认领写入单独的文件，超时被接管的请求不会删除接管者的文件）
+                chunkPath = generateChunkPath(uploadId, chunkIndex, claimToken);
+                writeChunkFile(getChunkFilePath(chunkPath), chunkIndex, in, size);
+            }
+            
+            // 校验失败时不记录分片
+            String actualMd5 = md5Digest != null ? HexFormat.of().formatHex(md5Digest.digest()) : null;
+            if ((expectedCrc != null && expectedCrc != crc.getValue())
+                    || (actualMd5 != null && !actualMd5.equalsIgnoreCase(md5))) {
+                throw new IllegalArgumentException(String.format("分片校验失败，分片索引: %d, CRC32C: %s, MD5: %s",
+                        chunkIndex, Crc32c.toHex(crc.getValue()), actualMd5));
+            }
+            
+            return recordChunk(uploadId, chunkIndex, size, chunkPath, crc.getValue(), actualMd5, claimToken);
+        } catch (IOException | RuntimeException e) {
+            if (chunkPath != null) {
+                Files.deleteIfExists(Paths.get(rootPath, "chunks", chunkPath));
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 获取可以继续上传分片的会话
+     */
+    private UploadSession getWritableSession(String uploadId, Integer chunkIndex, Long userId) {
+        // 验证上传会话
+        UploadSession session = getOwnedSession(uploadId, userId);
         
-        // 保存分片文件
-        chunkFile.transferTo(chunkFilePath.toFile());
+        if (session.getStatus() != UploadStatus.UPLOADING) {
+            throw new IllegalStateException("上传会话已不能继续上传分片，状态: " + session.getStatus());
+        }
         
+        if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+            throw new IllegalArgumentException("分片索引超出范围: " + chunkIndex);
+        }
+        return session;
+    }
+    
+    /**
+     * 获取用户自己的上传会话（其他用户的会话视为不存在，不暴露会话是否存在）
+     */
+    private UploadSession getOwnedSession(String uploadId, Long userId) {
+        return chunkStorage.findSession(uploadId)
+                .filter(session -> userId != null && userId.equals(session.getUploadUserId()))
+                .orElseThrow(() -> new IllegalArgumentException("上传会话不存在: " + uploadId));
+    }
+    
+    /**
+     * 记录已上传的分片
+     */
+    private ChunkInfo recordChunk(String uploadId, Integer chunkIndex, long size, String chunkPath,
+                                  long crc32c, String md5, String claimToken) {
         // 创建分片信息
         ChunkInfo chunkInfo = ChunkInfo.builder()
                 .uploadId(uploadId)
                 .chunkIndex(chunkIndex)
-                .chunkSize(chunkFile.getSize())
+                .chunkSize(size)
                 .chunkPath(chunkPath)
+                .md5(md5)
+                .crc32c(crc32c)
                 .uploadTime(LocalDateTime.now())
                 .build();
         
-        chunkStorage.saveChunk(chunkInfo);
-        
-        // 更新上传会话
-        List<Integer> uploadedChunks = new ArrayList<>(session.getUploadedChunks());
-        if (!uploadedChunks.contains(chunkIndex)) {
-            uploadedChunks.add(chunkIndex);
-            Collections.sort(uploadedChunks);
+        // 记录分片并更新已上传分片数（认领超时被接管时不记录，由接管的请求记录）
+        if (!chunkStorage.markChunkUploaded(chunkInfo, claimToken)) {
+            throw new IllegalStateException("分片写入超时，已被其他请求接管，分片索引: " + chunkIndex);
         }
-        session.setUploadedChunks(uploadedChunks);
-        session.setUpdateTime(LocalDateTime.now());
-        chunkStorage.saveSession(session);
         
         log.debug("分片上传成功，上传ID: {}, 分片索引: {}", uploadId, chunkIndex);
         return chunkInfo;
@@ -162,41 +401,160 @@ public class ChunkUploadService {
     /**
      * 合并分片
      * 
+     * 会话转换为合并中后提交到合并线程池执行，失败时恢复为上传中
+     * 
      * @param uploadId 上传ID
-     * @return 文件信息
+     * @param userId 用户ID
+     * @return 合并结果（文件信息），会话已合并时为已完成的结果
+     * @throws RejectedExecutionException 合并线程池已满（会话已恢复为上传中，稍后重试）
      */
-    public FileInfo mergeChunks(String uploadId) throws IOException {
+    public CompletableFuture<FileInfo> mergeChunks(String uploadId, Long userId) {
         log.info("合并分片，上传ID: {}", uploadId);
+        getOwnedSession(uploadId, userId);
+        
+        // 会话由上传中转换为合并中才能合并，多个请求或实例同时合并时只有一个成功
+        if (!chunkStorage.claimSession(uploadId, UploadStatus.UPLOADING, UploadStatus.MERGING)) {
+            UploadSession session = chunkStorage.findSession(uploadId)
+                    .orElseThrow(() -> new IllegalArgumentException("上传会话不存在: " + uploadId));
+            if (session.getStatus() == UploadStatus.COMPLETED) {
+                // 如果已合并，直接返回文件信息
+                return CompletableFuture.completedFuture(fileStorage.findByFileId(session.getFileId())
+                        .orElseThrow(() -> new IllegalStateException("文件信息不存在: " + session.getFileId())));
+            }
+            throw new IllegalStateException("上传会话正在合并或清理，上传ID: " + uploadId + ", 状态: " + session.getStatus());
+        }
         
-        // 获取上传会话
-        UploadSession session = chunkStorage.findSession(uploadId)
-                .orElseThrow(() -> new IllegalArgumentException("上传会话不存在: " + uploadId));
+        CompletableFuture<FileInfo> future = new CompletableFuture<>();
+        try {
+            mergeExecutor.execute(() -> {
+                try {
+                    UploadSession session = chunkStorage.findSession(uploadId)
+                            .orElseThrow(() -> new IllegalArgumentException("上传会话不存在: " + uploadId));
+                    future.complete(doMergeChunks(session));
+                } catch (Throwable e) {
+                    // 合并失败，恢复为上传中，客户端可以补传分片后重试
+                    try {
+                        chunkStorage.claimSession(uploadId, UploadStatus.MERGING, UploadStatus.UPLOADING);
+                    } finally {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            chunkStorage.claimSession(uploadId, UploadStatus.MERGING, UploadStatus.UPLOADING);
+            log.warn("分片合并队列已满，上传ID: {}", uploadId);
+            throw e;
+        }
+        return future;
+    }
+    
+    private FileInfo doMergeChunks(UploadSession session) throws IOException {
+        String uploadId = session.getUploadId();
+        
+        // 验证分片完整性
+        validateChunks(session, chunkStorage.findUploadedChunks(uploadId));
+        
+        List<ChunkInfo> chunks = new ArrayList<>(chunkStorage.findAllChunks(uploadId));
+        chunks.sort(Comparator.comparing(ChunkInfo::getChunkIndex));
         
-        if (session.getCompleted()) {
-            // 如果已合并，直接返回文件信息
-            return fileStorage.findByFileId(session.getFileId())
-                    .orElseThrow(() -> new IllegalStateException("文件信息不存在: " + session.getFileId()));
+        Path stagingPath = getStagingPath(uploadId);
+        if (Boolean.TRUE.equals(session.getPreallocated())) {
+            // 数据已在暂存文件中，只需校验并落盘
+            verifyPreallocated(session, stagingPath);
+        } else {
+            mergeChunkFiles(session, chunks, stagingPath);
         }
         
-        // 获取所有分片
-        List<ChunkInfo> chunks = chunkStorage.findAllChunks(uploadId);
+        // 合并结果必须与声明的总大小一致，否则不保存文件
+        long mergedSize = Files.size(stagingPath);
+        if (mergedSize != session.getTotalSize()) {
+            throw new IllegalStateException(String.format("合并后的文件大小不正确，期望: %d, 实际: %d",
+                    session.getTotalSize(), mergedSize));
+        }
         
-        // 验证分片完整性
-        validateChunks(session, chunks);
+        // 一次读取计算内容哈希和 CRC32C，保存文件信息时移入内容寻址存储（同一文件系统内重命名；内容已存在时丢弃暂存文件）
+        StoredBlob blob = blobStore.stageFile(stagingPath);
+        
+        // 各分片的 CRC32C 按顺序合并得到整个文件的 CRC32C，与文件内容比对
+        Long crc32c = combineCrc32c(chunks);
+        if (crc32c != null && !crc32c.equals(blob.getCrc32c())) {
+            rejectCorruptedChunks(session, chunks, stagingPath);
+        }
         
-        // 生成文件ID和存储路径
-        String fileId = UUID.randomUUID().toString();
-        String storagePath = generateStoragePath(fileId, session.getExtension());
-        Path finalFilePath = Paths.get(rootPath, storagePath);
-        Files.createDirectories(finalFilePath.getParent());
+        // 创建文件信息（提交前失败时暂存文件保留，可以重试合并；提交后失败时回收数据块）
+        boolean[] committed = new boolean[1];
+        FileInfo fileInfo;
+        try {
+            fileInfo = createFileInfo(session.getOriginalFilename(), session.getExtension(),
+                    session.getContentType(), session.getUploadUserId(), blob, () -> {
+                        blobStore.commit(blob);
+                        committed[0] = true;
+                        return true;
+                    }).orElseThrow(() -> new IllegalStateException("文件信息保存失败: " + uploadId));
+        } catch (IOException | RuntimeException e) {
+            if (committed[0]) {
+                deleteIfUnreferenced(blob);
+            }
+            throw e;
+        }
+        String fileId = fileInfo.getFileId();
         
-        // 合并分片
-        try (FileOutputStream fos = new FileOutputStream(finalFilePath.toFile());
+        // 更新上传会话并释放配额（合并期间会话已被清理时，配额已由清理释放）
+        if (chunkStorage.completeSession(uploadId, fileId)) {
+            chunkStorage.releaseQuota(session.getUploadUserId(), session.getTotalSize());
+        } else {
+            log.warn("合并期间上传会话已被清理，上传ID: {}, 文件ID: {}", uploadId, fileId);
+        }
+        
+        // 分片文件保留到会话过期（file.upload.janitor.completed-retention-minutes），由 UploadJanitor 清理
+        
+        log.info("分片合并成功，上传ID: {}, 文件ID: {}", uploadId, fileId);
+        return fileInfo;
+    }
+    
+    /**
+     * 校验预分配文件大小并落盘
+     */
+    private void verifyPreallocated(UploadSession session, Path stagingPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(stagingPath, StandardOpenOption.WRITE)) {
+            if (channel.size() != session.getTotalSize()) {
+                throw new IllegalStateException(String.format("暂存文件大小不正确，期望: %d, 实际: %d",
+                        session.getTotalSize(), channel.size()));
+            }
+            channel.force(true);
+        }
+    }
+    
+    /**
+     * 合并后文件的 CRC32C 与各分片记录的 CRC32C 合并的结果不一致
+     * 
+     * 分片记录后数据被覆盖（例如写入超时被接管的请求仍在写入）时出现：
+     * 逐个分片比对，删除数据不正确的分片记录，客户端补传这些分片后重新合并
+     */
+    private void rejectCorruptedChunks(UploadSession session, List<ChunkInfo> chunks,
+                                       Path stagingPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(stagingPath, StandardOpenOption.READ)) {
+            List<Integer> corrupted = new ArrayList<>();
+            for (ChunkInfo chunk : chunks) {
+                long position = (long) chunk.getChunkIndex() * session.getChunkSize();
+                if (Crc32c.compute(channel, position, chunk.getChunkSize()) != chunk.getCrc32c()) {
+                    chunkStorage.deleteChunk(session.getUploadId(), chunk.getChunkIndex());
+                    corrupted.add(chunk.getChunkIndex());
+                }
+            }
+            throw new IllegalStateException(String.format("文件内容与分片校验值不一致，需要重新上传的分片: %s",
+                    corrupted));
+        }
+    }
+    
+    /**
+     * 按顺序复制分片文件到暂存文件（分片文件模式，chunks 已按分片索引排序）
+     */
+    private void mergeChunkFiles(UploadSession session, List<ChunkInfo> chunks, Path targetPath) throws IOException {
+        Files.createDirectories(targetPath.getParent());
+        try (FileOutputStream fos = new FileOutputStream(targetPath.toFile());
              FileChannel outChannel = fos.getChannel()) {
             
-            // 按索引排序
-            chunks.sort(Comparator.comparing(ChunkInfo::getChunkIndex));
-            
             // 逐个合并分片
             for (ChunkInfo chunk : chunks) {
                 Path chunkPath = Paths.get(rootPath, "chunks", chunk.getChunkPath());
@@ -208,52 +566,24 @@ public class ChunkUploadService {
                     long size = chunk.getChunkSize();
                     
                     while (transferred < size) {
-                        transferred += inChannel.transferTo(0, size - transferred, outChannel);
+                        transferred += inChannel.transferTo(transferred, size - transferred, outChannel);
                     }
                 }
             }
         }
-        
-        // 创建文件信息
-        FileInfo fileInfo = FileInfo.builder()
-                .fileId(fileId)
-                .originalFilename(session.getOriginalFilename())
-                .filename(finalFilePath.getFileName().toString())
-                .storagePath(storagePath)
-                .fileSize(session.getTotalSize())
-                .contentType(session.getContentType())
-                .extension(session.getExtension())
-                .uploadUserId(session.getUploadUserId())
-                .uploadTime(LocalDateTime.now())
-                .build();
-        
-        fileStorage.save(fileInfo);
-        
-        // 更新上传会话
-        session.setCompleted(true);
-        session.setFileId(fileId);
-        session.setUpdateTime(LocalDateTime.now());
-        chunkStorage.saveSession(session);
-        
-        // 清理分片文件（可选，可以保留一段时间用于恢复）
-        // cleanupChunks(uploadId);
-        
-        log.info("分片合并成功，上传ID: {}, 文件ID: {}", uploadId, fileId);
-        return fileInfo;
     }
     
     /**
      * 获取上传进度
      * 
      * @param uploadId 上传ID
+     * @param userId 用户ID
      * @return 上传进度信息
      */
-    public Map<String, Object> getUploadProgress(String uploadId) {
-        UploadSession session = chunkStorage.findSession(uploadId)
-                .orElseThrow(() -> new IllegalArgumentException("上传会话不存在: " + uploadId));
+    public Map<String, Object> getUploadProgress(String uploadId, Long userId) {
+        UploadSession session = getOwnedSession(uploadId, userId);
         
-        List<Integer> uploadedChunks = session.getUploadedChunks();
-        int uploadedCount = uploadedChunks.size();
+        int uploadedCount = session.getUploadedCount() != null ? session.getUploadedCount() : 0;
         int totalChunks = session.getTotalChunks();
         double progress = totalChunks > 0 ? (double) uploadedCount / totalChunks * 100 : 0;
         
@@ -262,7 +592,7 @@ public class ChunkUploadService {
         progressInfo.put("totalChunks", totalChunks);
         progressInfo.put("uploadedChunks", uploadedCount);
         progressInfo.put("progress", Math.round(progress * 100.0) / 100.0);
-        progressInfo.put("uploadedChunkIndexes", uploadedChunks);
+        progressInfo.put("uploadedChunkIndexes", chunkStorage.findUploadedChunks(uploadId).stream().boxed().toList());
         progressInfo.put("completed", session.getCompleted());
         
         return progressInfo;
@@ -272,68 +602,266 @@ public class ChunkUploadService {
      * 取消上传（删除分片和会话）
      * 
      * @param uploadId 上传ID
+     * @param userId 用户ID
      */
-    public void cancelUpload(String uploadId) throws IOException {
+    public void cancelUpload(String uploadId, Long userId) throws IOException {
         log.info("取消上传，上传ID: {}", uploadId);
         
-        // 删除所有分片文件
-        List<ChunkInfo> chunks = chunkStorage.findAllChunks(uploadId);
-        for (ChunkInfo chunk : chunks) {
-            Path chunkPath = Paths.get(rootPath, "chunks", chunk.getChunkPath());
-            if (Files.exists(chunkPath)) {
-                Files.delete(chunkPath);
-            }
-        }
+        // 上传ID用于拼接分片目录，只处理存在的会话
+        UploadSession session = getOwnedSession(uploadId, userId);
         
-        // 删除分片信息和会话
-        chunkStorage.deleteAllChunks(uploadId);
-        chunkStorage.deleteSession(uploadId);
+        // 合并中、清理中的会话不能取消；转换失败说明状态已被其他请求或实例改变
+        UploadStatus status = session.getStatus();
+        if (status == UploadStatus.MERGING || status == UploadStatus.EXPIRING
+                || !chunkStorage.claimSession(uploadId, status, UploadStatus.EXPIRING)) {
+            throw new IllegalStateException("上传会话正在合并或清理，上传ID: " + uploadId);
+        }
         
+        removeSession(session, status);
         log.info("上传已取消，上传ID: {}", uploadId);
     }
     
+    /**
+     * 清理过期会话（删除分片和会话）
+     * 
+     * 会话转换为清理中才删除数据；期间有新分片上传、开始合并或已被其他实例清理时转换失败并跳过
+     * （转换会刷新更新时间，合并中的会话更新时间不会早于过期时间）
+     * 
+     * @param uploadId 上传ID
+     * @param updatedBefore 会话更新时间早于该时间才清理
+     * @return 是否已清理
+     */
+    public boolean expireSession(String uploadId, LocalDateTime updatedBefore) throws IOException {
+        Optional<UploadSession> found = chunkStorage.findSession(uploadId);
+        if (found.isEmpty()) {
+            return false;
+        }
+        
+        // 清理中的会话也可以重新转换（上次清理中途失败）
+        UploadSession session = found.get();
+        UploadStatus status = session.getStatus();
+        if (!chunkStorage.claimStaleSession(uploadId, status, updatedBefore)) {
+            return false;
+        }
+        
+        removeSession(session, status);
+        log.info("上传会话已过期清理，上传ID: {}, 状态: {}, 更新时间: {}", uploadId, status, session.getUpdateTime());
+        return true;
+    }
+    
+    /**
+     * 删除已转换为清理中的会话：释放未完成上传的配额，删除分片文件、预分配的暂存文件、分片信息和会话
+     * 
+     * @param session 上传会话
+     * @param status 转换前的状态
+     */
+    private void removeSession(UploadSession session, UploadStatus status) throws IOException {
+        if (status == UploadStatus.UPLOADING || status == UploadStatus.MERGING) {
+            chunkStorage.releaseQuota(session.getUploadUserId(), session.getTotalSize());
+        }
+        cleanupChunks(session.getUploadId());
+        chunkStorage.deleteSession(session.getUploadId());
+    }
+    
+    /**
+     * 清理孤立的分片目录和暂存文件（没有对应会话，例如内存存储重启后遗留的数据）
+     * 
+     * @param modifiedBefore 最后修改时间早于该时间才清理
+     * @param limit 本次最多清理的条目数
+     * @return 清理的条目数
+     */
+    public int cleanupOrphanChunks(Instant modifiedBefore, int limit) throws IOException {
+        Path chunksDir = Paths.get(rootPath, "chunks");
+        if (!Files.isDirectory(chunksDir)) {
+            return 0;
+        }
+        
+        int cleaned = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(chunksDir)) {
+            for (Path entry : entries) {
+                if (cleaned >= limit) {
+                    break;
+                }
+                String name = entry.getFileName().toString();
+                String uploadId = name.endsWith(".part") ? name.substring(0, name.length() - ".part".length()) : name;
+                if (Files.getLastModifiedTime(entry).toInstant().isAfter(modifiedBefore)
+                        || chunkStorage.findSession(uploadId).isPresent()) {
+                    continue;
+                }
+                deleteRecursively(entry);
+                cleaned++;
+                log.info("已清理孤立分片数据: {}", entry);
+            }
+        }
+        return cleaned;
+    }
+    
     /**
      * 验证分片完整性
      */
-    private void validateChunks(UploadSession session, List<ChunkInfo> chunks) {
-        if (chunks.size() != session.getTotalChunks()) {
+    private void validateChunks(UploadSession session, BitSet uploaded) {
+        if (uploaded.cardinality() != session.getTotalChunks()) {
             throw new IllegalStateException(
                     String.format("分片数量不完整，期望: %d, 实际: %d", 
-                            session.getTotalChunks(), chunks.size()));
+                            session.getTotalChunks(), uploaded.cardinality()));
         }
         
         // 检查分片索引是否连续
-        Set<Integer> chunkIndexes = chunks.stream()
-                .map(ChunkInfo::getChunkIndex)
-                .collect(Collectors.toSet());
-        
-        Set<Integer> expectedIndexes = IntStream.range(0, session.getTotalChunks())
-                .boxed()
-                .collect(Collectors.toSet());
-        
-        if (!chunkIndexes.equals(expectedIndexes)) {
+        if (uploaded.nextClearBit(0) < session.getTotalChunks()) {
             throw new IllegalStateException("分片索引不连续");
         }
     }
     
+    /**
+     * 期望的分片大小（最后一个分片可能小于分片大小）
+     */
+    private long expectedChunkSize(UploadSession session, int chunkIndex) {
+        long offset = (long) chunkIndex * session.getChunkSize();
+        return Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+    }
+    
+    /**
+     * 将分片写入预分配文件的 chunkIndex * chunkSize 位置
+     * 
+     * 使用定位写入（不改变通道位置），不同分片可以并发写入同一个文件；请求体必须恰好为 size 字节
+     */
+    private void writeChunkAt(UploadSession session, int chunkIndex, InputStream in, long size) throws IOException {
+        long position = (long) chunkIndex * session.getChunkSize();
+        // 输入流由调用方关闭，这里不关闭包装的通道
+        ReadableByteChannel source = Channels.newChannel(in);
+        try (FileChannel target = FileChannel.open(getStagingPath(session.getUploadId()), StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < size) {
+                long transferred = target.transferFrom(source, position + written, size - written);
+                if (transferred <= 0) {
+                    throw new IllegalArgumentException(String.format("分片数据不完整，分片索引: %d, 期望: %d, 实际: %d",
+                            chunkIndex, size, written));
+                }
+                written += transferred;
+            }
+        }
+        
+        // 未声明长度的请求体可能超过分片大小
+        if (in.read() != -1) {
+            throw new IllegalArgumentException(String.format("分片数据超过期望大小，分片索引: %d, 期望: %d",
+                    chunkIndex, size));
+        }
+    }
+    
+    /**
+     * 将请求体写入分片文件，请求体必须恰好为分片大小（同 {@link #writeChunkAt}）
+     */
+    private void writeChunkFile(Path chunkFilePath, int chunkIndex, InputStream in, long size) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(in);
+        try (FileChannel target = FileChannel.open(chunkFilePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < size) {
+                long transferred = target.transferFrom(source, written, size - written);
+                if (transferred <= 0) {
+                    throw new IllegalArgumentException(String.format("分片数据不完整，分片索引: %d, 期望: %d, 实际: %d",
+                            chunkIndex, size, written));
+                }
+                written += transferred;
+            }
+            if (in.read() != -1) {
+                throw new IllegalArgumentException(String.format("分片数据超过期望大小，分片索引: %d, 期望: %d",
+                        chunkIndex, size));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(chunkFilePath);
+            throw e;
+        }
+    }
+    
+    /**
+     * 分片文件模式的分片文件路径（自动创建目录）
+     */
+    private Path getChunkFilePath(String chunkPath) throws IOException {
+        Path chunkFilePath = Paths.get(rootPath, "chunks", chunkPath);
+        Files.createDirectories(chunkFilePath.getParent());
+        return chunkFilePath;
+    }
+    
+    /**
+     * 预分配模式的暂存文件路径
+     */
+    private Path getStagingPath(String uploadId) {
+        return Paths.get(rootPath, "chunks", uploadId + ".part");
+    }
+    
+    /**
+     * 按分片顺序合并 CRC32C，存在未记录 CRC32C 的分片（旧数据）时返回空
+     */
+    private static Long combineCrc32c(List<ChunkInfo> sortedChunks) {
+        long crc = 0;
+        for (ChunkInfo chunk : sortedChunks) {
+            if (chunk.getCrc32c() == null) {
+                return null;
+            }
+            crc = Crc32c.combine(crc, chunk.getCrc32c(), chunk.getChunkSize());
+        }
+        return crc;
+    }
+    
+    private static MessageDigest md5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 不可用", e);
+        }
+    }
+    
     /**
      * 生成分片存储路径
      */
-    private String generateChunkPath(String uploadId, Integer chunkIndex) {
-        return String.format("%s/%d", uploadId, chunkIndex);
+    private String generateChunkPath(String uploadId, Integer chunkIndex, String claimToken) {
+        return String.format("%s/%d-%s", uploadId, chunkIndex, claimToken);
     }
     
     /**
-     * 生成文件存储路径
+     * 创建并保存引用指定内容的文件信息
+     * 
+     * @param content 持有内容引用锁时执行的内容操作，返回 false 时不保存
+     * @return 文件信息，未保存时返回空
      */
-    private String generateStoragePath(String fileId, String extension) {
-        LocalDateTime now = LocalDateTime.now();
-        return String.format("%d/%02d/%02d/%s%s",
-                now.getYear(),
-                now.getMonthValue(),
-                now.getDayOfMonth(),
-                fileId,
-                extension);
+    private Optional<FileInfo> createFileInfo(String originalFilename, String extension, String contentType,
+                                              Long userId, StoredBlob blob, ContentAction content) throws IOException {
+        FileInfo fileInfo = FileInfo.builder()
+                .fileId(UUID.randomUUID().toString())
+                .originalFilename(originalFilename)
+                .filename(Paths.get(blob.getStoragePath()).getFileName().toString())
+                .storagePath(blob.getStoragePath())
+                .fileSize(blob.getSize())
+                .contentType(contentType)
+                .extension(extension)
+                .contentHash(blob.getContentHash())
+                .crc32c(blob.getCrc32c() != null ? Crc32c.toHex(blob.getCrc32c()) : null)
+                .uploadUserId(userId)
+                .uploadTime(LocalDateTime.now())
+                .build();
+        
+        if (!fileStorage.saveReferencing(fileInfo, content)) {
+            return Optional.empty();
+        }
+        
+        // 图片异步预生成缩略图
+        thumbnailService.prefetch(fileInfo, Paths.get(rootPath, blob.getStoragePath()));
+        return Optional.of(fileInfo);
+    }
+    
+    /**
+     * 数据块已提交但文件信息未保存时，没有其他引用则删除数据块（否则无人引用也不会被回收）
+     */
+    private void deleteIfUnreferenced(StoredBlob blob) {
+        try {
+            fileStorage.deleteUnreferenced(blob.getContentHash(), () -> {
+                blobStore.delete(blob.getContentHash());
+                return true;
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("回收未引用的数据块失败，哈希: {}", blob.getContentHash(), e);
+        }
     }
     
     /**
@@ -352,12 +880,32 @@ public class ChunkUploadService {
     private void cleanupChunks(String uploadId) throws IOException {
         List<ChunkInfo> chunks = chunkStorage.findAllChunks(uploadId);
         for (ChunkInfo chunk : chunks) {
+            if (chunk.getChunkPath() == null) {
+                continue;
+            }
             Path chunkPath = Paths.get(rootPath, "chunks", chunk.getChunkPath());
             if (Files.exists(chunkPath)) {
                 Files.delete(chunkPath);
             }
         }
+        // 删除分片目录（分片文件模式）和暂存文件（预分配模式）
+        deleteRecursively(Paths.get(rootPath, "chunks", uploadId));
+        Files.deleteIfExists(getStagingPath(uploadId));
         chunkStorage.deleteAllChunks(uploadId);
     }
+    
+    /**
+     * 删除文件或目录（包括目录下的文件）
+     */
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
 }
 
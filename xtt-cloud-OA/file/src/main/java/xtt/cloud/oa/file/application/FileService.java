@@ -5,20 +5,32 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import xtt.cloud.oa.file.domain.BlobStore;
+import xtt.cloud.oa.file.domain.Crc32c;
+import xtt.cloud.oa.file.domain.FileCursor;
 import xtt.cloud.oa.file.domain.FileInfo;
+import xtt.cloud.oa.file.domain.FilePage;
 import xtt.cloud.oa.file.domain.FileStorage;
+import xtt.cloud.oa.file.domain.StoredBlob;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.UUID;
 
 /**
  * 文件服务
  * 
+ * 文件内容保存在内容寻址存储（{@link BlobStore}）中，相同内容只保存一份；
+ * 每次上传仍生成独立的文件ID和文件信息，文件信息的内容哈希即对内容的引用，
+ * 删除最后一个引用时删除内容（见 {@link FileStorage#deleteReferencing}）
+ * 
+ * 大文件建议使用流式上传（{@link #uploadStream}）：直接读取请求体写入存储，
+ * 不经过 multipart 解析（容器不会先把整个文件缓存到内存或临时文件）
+ * 
  * @author xtt
  */
 @Service
@@ -27,12 +39,21 @@ public class FileService {
     private static final Logger log = LoggerFactory.getLogger(FileService.class);
     
     private final FileStorage fileStorage;
+    private final BlobStore blobStore;
+    private final ThumbnailService thumbnailService;
     private final String rootPath;
     
+    @Value("${file.upload.stream.max-size:2147483648}") // 默认 2GB
+    private long maxStreamSize;
+    
     public FileService(
             FileStorage fileStorage,
+            BlobStore blobStore,
+            ThumbnailService thumbnailService,
             @Value("${file.upload.root-path:/app/files}") String rootPath) {
         this.fileStorage = fileStorage;
+        this.blobStore = blobStore;
+        this.thumbnailService = thumbnailService;
         this.rootPath = rootPath;
     }
     
@@ -49,34 +70,63 @@ public class FileService {
         // 验证文件
         validateFile(file);
         
-        // 生成文件ID和存储路径
-        String fileId = UUID.randomUUID().toString();
-        String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename);
-        String storagePath = generateStoragePath(fileId, extension);
+        // 写入暂存文件（写入时计算 SHA-256），保存文件信息时再放到内容路径
+        StoredBlob blob;
+        try (InputStream inputStream = file.getInputStream()) {
+            blob = blobStore.stage(inputStream);
+        }
         
-        // 保存文件
-        Path filePath = Paths.get(rootPath, storagePath);
-        Files.createDirectories(filePath.getParent());
-        file.transferTo(filePath.toFile());
+        FileInfo fileInfo = saveFileInfo(file.getOriginalFilename(), file.getContentType(), userId, blob);
+        log.info("文件上传成功，文件ID: {}, 存储路径: {}", fileInfo.getFileId(), blob.getStoragePath());
+        return fileInfo;
+    }
+    
+    /**
+     * 流式上传文件
+     * 
+     * 边读取边写入存储，同时计算 SHA-256 和大小，内存占用与文件大小无关
+     * 
+     * @param inputStream 请求体（由调用方关闭）
+     * @param originalFilename 原始文件名
+     * @param contentType 内容类型
+     * @param contentLength 声明的内容长度（未知时为 -1）
+     * @param expectedHash 客户端声明的 SHA-256（可选），不一致时拒绝上传
+     * @param userId 用户ID
+     * @return 文件信息
+     */
+    public FileInfo uploadStream(InputStream inputStream, String originalFilename, String contentType,
+                                 long contentLength, String expectedHash, Long userId) throws IOException {
+        log.info("流式上传文件，文件名: {}, 长度: {}, 用户ID: {}", originalFilename, contentLength, userId);
         
-        // 创建文件信息
-        FileInfo fileInfo = FileInfo.builder()
-                .fileId(fileId)
-                .originalFilename(originalFilename)
-                .filename(filePath.getFileName().toString())
-                .storagePath(storagePath)
-                .fileSize(file.getSize())
-                .contentType(file.getContentType())
-                .extension(extension)
-                .uploadUserId(userId)
-                .uploadTime(LocalDateTime.now())
-                .build();
+        if (originalFilename == null || originalFilename.trim().isEmpty()) {
+            throw new IllegalArgumentException("文件名不能为空");
+        }
+        if (contentLength == 0) {
+            throw new IllegalArgumentException("文件不能为空");
+        }
+        if (contentLength > maxStreamSize) {
+            throw new IllegalArgumentException("文件大小超过限制: " + maxStreamSize);
+        }
         
-        // 保存文件信息到数据库
-        fileStorage.save(fileInfo);
+        StoredBlob blob = blobStore.stage(inputStream, maxStreamSize);
         
-        log.info("文件上传成功，文件ID: {}, 存储路径: {}", fileId, storagePath);
+        // 校验大小和内容哈希，不一致时丢弃暂存文件
+        String error = null;
+        if (blob.getSize() == 0) {
+            error = "文件不能为空";
+        } else if (contentLength > 0 && blob.getSize() != contentLength) {
+            error = String.format("上传内容不完整，期望: %d, 实际: %d", contentLength, blob.getSize());
+        } else if (expectedHash != null && !expectedHash.equalsIgnoreCase(blob.getContentHash())) {
+            error = "内容哈希不匹配: " + expectedHash;
+        }
+        if (error != null) {
+            blobStore.discard(blob);
+            throw new IllegalArgumentException(error);
+        }
+        
+        FileInfo fileInfo = saveFileInfo(originalFilename, contentType, userId, blob);
+        log.info("流式上传成功，文件ID: {}, 大小: {}, 存储路径: {}",
+                fileInfo.getFileId(), blob.getSize(), blob.getStoragePath());
         return fileInfo;
     }
     
@@ -101,15 +151,12 @@ public class FileService {
     }
     
     /**
-     * 获取文件路径
+     * 获取文件路径（使用已查询的文件信息，不再查询存储）
      * 
-     * @param fileId 文件ID
+     * @param fileInfo 文件信息
      * @return 文件路径
      */
-    public Path getFilePath(String fileId) {
-        FileInfo fileInfo = fileStorage.findByFileId(fileId)
-                .orElseThrow(() -> new IllegalArgumentException("文件不存在: " + fileId));
-        
+    public Path getFilePath(FileInfo fileInfo) {
         return Paths.get(rootPath, fileInfo.getStoragePath());
     }
     
@@ -124,26 +171,30 @@ public class FileService {
         FileInfo fileInfo = fileStorage.findByFileId(fileId)
                 .orElseThrow(() -> new IllegalArgumentException("文件不存在: " + fileId));
         
-        // 删除物理文件
-        Path filePath = Paths.get(rootPath, fileInfo.getStoragePath());
-        if (Files.exists(filePath)) {
-            Files.delete(filePath);
-        }
-        
-        // 删除数据库记录
-        fileStorage.delete(fileId);
+        // 删除数据库记录，没有其他文件引用同一内容时删除内容
+        fileStorage.deleteReferencing(fileInfo, () -> {
+            if (fileInfo.getContentHash() != null) {
+                blobStore.delete(fileInfo.getContentHash());
+            } else {
+                // 删除物理文件
+                Files.deleteIfExists(Paths.get(rootPath, fileInfo.getStoragePath()));
+            }
+            return true;
+        });
         
         log.info("文件删除成功，文件ID: {}", fileId);
     }
     
     /**
-     * 获取用户上传的文件列表
+     * 按游标分页获取用户上传的文件列表（按上传时间倒序）
      * 
      * @param userId 用户ID
-     * @return 文件列表
+     * @param cursor 上一页返回的游标，第一页为 null
+     * @param limit 每页条数
+     * @return 文件分页
      */
-    public List<FileInfo> getUserFiles(Long userId) {
-        return fileStorage.findByUploadUserId(userId);
+    public FilePage getUserFiles(Long userId, FileCursor cursor, int limit) {
+        return fileStorage.findByUploadUserId(userId, cursor, limit);
     }
     
     /**
@@ -162,6 +213,62 @@ public class FileService {
         // TODO: 可以添加文件类型、大小等验证
     }
     
+    /**
+     * 创建并保存引用指定内容的文件信息（持有内容引用锁时提交暂存文件，失败时丢弃暂存文件或回收已提交的数据块）
+     */
+    private FileInfo saveFileInfo(String originalFilename, String contentType, Long userId,
+                                  StoredBlob blob) throws IOException {
+        FileInfo fileInfo = FileInfo.builder()
+                .fileId(UUID.randomUUID().toString())
+                .originalFilename(originalFilename)
+                .filename(Paths.get(blob.getStoragePath()).getFileName().toString())
+                .storagePath(blob.getStoragePath())
+                .fileSize(blob.getSize())
+                .contentType(contentType)
+                .extension(getFileExtension(originalFilename))
+                .contentHash(blob.getContentHash())
+                .crc32c(blob.getCrc32c() != null ? Crc32c.toHex(blob.getCrc32c()) : null)
+                .uploadUserId(userId)
+                .uploadTime(LocalDateTime.now())
+                .build();
+        
+        // 提交内容并保存文件信息到数据库
+        boolean[] committed = new boolean[1];
+        try {
+            fileStorage.saveReferencing(fileInfo, () -> {
+                blobStore.commit(blob);
+                committed[0] = true;
+                return true;
+            });
+        } catch (IOException | RuntimeException e) {
+            // 数据块已离开暂存区，discard 不会删除它
+            if (committed[0]) {
+                deleteIfUnreferenced(blob);
+            }
+            throw e;
+        } finally {
+            blobStore.discard(blob);
+        }
+        
+        // 图片异步预生成缩略图
+        thumbnailService.prefetch(fileInfo, Paths.get(rootPath, blob.getStoragePath()));
+        return fileInfo;
+    }
+    
+    /**
+     * 数据块已提交但文件信息未保存时，没有其他引用则删除数据块（否则无人引用也不会被回收）
+     */
+    private void deleteIfUnreferenced(StoredBlob blob) {
+        try {
+            fileStorage.deleteUnreferenced(blob.getContentHash(), () -> {
+                blobStore.delete(blob.getContentHash());
+                return true;
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("回收未引用的数据块失败，哈希: {}", blob.getContentHash(), e);
+        }
+    }
+    
     /**
      * 获取文件扩展名
      */
@@ -171,19 +278,5 @@ public class FileService {
         }
         return filename.substring(filename.lastIndexOf("."));
     }
-    
-    /**
-     * 生成存储路径
-     * 格式: YYYY/MM/DD/fileId.extension
-     */
-    private String generateStoragePath(String fileId, String extension) {
-        LocalDateTime now = LocalDateTime.now();
-        return String.format("%d/%02d/%02d/%s%s",
-                now.getYear(),
-                now.getMonthValue(),
-                now.getDayOfMonth(),
-                fileId,
-                extension);
-    }
 }
 
@@ -0,0 +1,343 @@
+package xtt.cloud.oa.file.application;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import xtt.cloud.oa.file.domain.FileInfo;
+import xtt.cloud.oa.file.domain.RenditionCache;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 缩略图服务
+ *
+ * 1. 规格：file.preview.thumbnail.sizes（最长边像素），请求的尺寸向上取整到最近的规格
+ * 2. 生成：JDK ImageIO 解码（大图按比例降采样读取，避免解码整张原图）后缩放，
+ *    在有界线程池中异步执行，同一副本的并发请求只生成一次
+ * 3. 缓存：副本按内容哈希 + 规格放入 {@link RenditionCache}，相同内容的文件共用缩略图
+ * 4. 预生成：上传图片后按所有规格提交生成任务，列表页请求时通常已命中缓存
+ * 5. 原图副本：原图不大于规格、像素数超过上限或无法解码时记录该副本键（有界，
+ *    file.preview.thumbnail.original-cache-size），之后的请求直接返回原图，不再提交解码任务
+ *
+ * 请求等待超过 file.preview.thumbnail.wait-timeout 或线程池已满时返回空，由调用方返回原图，
+ * 生成任务继续执行，后续请求命中缓存
+ *
+ * @author xtt
+ */
+@Service
+public class ThumbnailService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    
+    private final RenditionCache renditionCache;
+    private final int[] sizes;
+    private final long maxSourcePixels;
+    private final long waitTimeout;
+    private final boolean prefetch;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    
+    /**
+     * 直接使用原图的副本键（超过容量时淘汰最早记录的键）
+     */
+    private final Set<String> originals;
+    
+    public ThumbnailService(
+            RenditionCache renditionCache,
+            @Value("${file.preview.thumbnail.sizes:128,256,512}") int[] sizes,
+            @Value("${file.preview.thumbnail.max-source-pixels:50000000}") long maxSourcePixels,
+            @Value("${file.preview.thumbnail.wait-timeout:3000}") long waitTimeout,
+            @Value("${file.preview.thumbnail.prefetch:true}") boolean prefetch,
+            @Value("${file.preview.thumbnail.threads:2}") int threads,
+            @Value("${file.preview.thumbnail.queue-capacity:200}") int queueCapacity,
+            @Value("${file.preview.thumbnail.original-cache-size:10000}") int originalCacheSize) {
+        this.renditionCache = renditionCache;
+        this.sizes = Arrays.stream(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        if (this.sizes.length == 0) {
+            throw new IllegalArgumentException("缩略图规格不能为空");
+        }
+        this.maxSourcePixels = maxSourcePixels;
+        this.waitTimeout = waitTimeout;
+        this.prefetch = prefetch;
+        this.originals = Collections.newSetFromMap(Collections.synchronizedMap(
+                new LinkedHashMap<String, Boolean>(256, 0.75f) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                        return size() > originalCacheSize;
+                    }
+                }));
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "thumbnail-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * 是否支持生成缩略图（ImageIO 可以解码的图片类型）
+     */
+    public boolean supports(String contentType) {
+        return contentType != null && contentType.startsWith("image/")
+                && ImageIO.getImageReadersByMIMEType(contentType).hasNext();
+    }
+    
+    /**
+     * 缩略图的内容类型（带透明通道的格式输出 PNG，其余输出 JPEG）
+     */
+    public String thumbnailContentType(String sourceContentType) {
+        return "png".equals(outputFormat(sourceContentType)) ? "image/png" : "image/jpeg";
+    }
+    
+    /**
+     * 将请求的尺寸向上取整到最近的规格（超过最大规格时使用最大规格）
+     */
+    public int normalizeSize(int requested) {
+        for (int size : sizes) {
+            if (size >= requested) {
+                return size;
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+    
+    /**
+     * 打开缩略图，未缓存时提交生成任务并等待
+     *
+     * @param fileInfo 文件信息
+     * @param source 原图路径
+     * @param contentType 原图内容类型
+     * @param size 规格（{@link #normalizeSize} 的结果）
+     * @return 缩略图文件通道（由调用方关闭）；原图小于规格、无法解码、等待超时或线程池已满时返回空
+     */
+    public Optional<FileChannel> openThumbnail(FileInfo fileInfo, Path source, String contentType, int size)
+            throws IOException {
+        String key = cacheKey(fileInfo, contentType, size);
+        if (originals.contains(key)) {
+            return Optional.empty();
+        }
+        Optional<FileChannel> cached = renditionCache.open(key);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        
+        CompletableFuture<Boolean> future;
+        try {
+            future = submit(key, source, contentType, size);
+        } catch (RejectedExecutionException e) {
+            log.warn("缩略图生成队列已满，返回原图，文件ID: {}", fileInfo.getFileId());
+            return Optional.empty();
+        }
+        
+        try {
+            if (!future.get(waitTimeout, TimeUnit.MILLISECONDS)) {
+                return Optional.empty();
+            }
+        } catch (TimeoutException e) {
+            log.debug("缩略图生成未完成，返回原图，文件ID: {}, 规格: {}", fileInfo.getFileId(), size);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            log.warn("缩略图生成失败，文件ID: {}, 规格: {}", fileInfo.getFileId(), size, e.getCause());
+            return Optional.empty();
+        }
+        // 生成后到打开前被淘汰时返回原图
+        return renditionCache.open(key);
+    }
+    
+    /**
+     * 预生成所有规格的缩略图（不等待，队列已满时跳过）
+     *
+     * @param fileInfo 文件信息
+     * @param source 原图路径
+     */
+    public void prefetch(FileInfo fileInfo, Path source) {
+        // 分片上传的文件没有内容类型，按文件名推断
+        String contentType = fileInfo.getContentType() != null
+                ? fileInfo.getContentType() : URLConnection.guessContentTypeFromName(fileInfo.getOriginalFilename());
+        if (!prefetch || !supports(contentType)) {
+            return;
+        }
+        for (int size : sizes) {
+            String key = cacheKey(fileInfo, contentType, size);
+            if (originals.contains(key) || renditionCache.contains(key)) {
+                continue;
+            }
+            try {
+                submit(key, source, contentType, size);
+            } catch (RejectedExecutionException e) {
+                log.debug("缩略图生成队列已满，跳过预生成，文件ID: {}", fileInfo.getFileId());
+                return;
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * 提交生成任务，同一副本已在生成时复用该任务
+     */
+    private CompletableFuture<Boolean> submit(String key, Path source, String contentType, int size) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(generate(key, source, contentType, size));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            throw e;
+        }
+        return future;
+    }
+    
+    /**
+     * 生成缩略图并放入缓存
+     *
+     * @return 是否已缓存缩略图，false 表示使用原图（同时记录该副本键）
+     */
+    private boolean generate(String key, Path source, String contentType, int size) throws IOException {
+        // 并发请求可能已生成
+        if (renditionCache.contains(key)) {
+            return true;
+        }
+        
+        BufferedImage image = readScaled(source, size);
+        if (image == null) {
+            originals.add(key);
+            return false;
+        }
+        
+        BufferedImage thumbnail = resize(image, size, "png".equals(outputFormat(contentType)));
+        Path temp = renditionCache.createTempFile();
+        try {
+            if (!ImageIO.write(thumbnail, outputFormat(contentType), temp.toFile())) {
+                throw new IOException("没有可用的图片编码器: " + outputFormat(contentType));
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        
+        renditionCache.put(key, temp);
+        log.debug("缩略图已生成: {}", key);
+        return true;
+    }
+    
+    /**
+     * 读取原图：先只读取尺寸，原图不大于规格或像素数超过上限时返回空；
+     * 否则按比例降采样解码（保留至少两倍规格的分辨率用于缩放）
+     */
+    private BufferedImage readScaled(Path source, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (Math.max(width, height) <= size) {
+                    // 原图已经足够小，直接使用原图
+                    return null;
+                }
+                if ((long) width * height > maxSourcePixels) {
+                    log.warn("图片像素数超过上限，不生成缩略图: {}x{}", width, height);
+                    return null;
+                }
+                
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (size * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * 按最长边缩放到规格
+     */
+    private static BufferedImage resize(BufferedImage image, int size, boolean alpha) {
+        double scale = (double) size / Math.max(image.getWidth(), image.getHeight());
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+    
+    /**
+     * 副本键：内容哈希（旧文件使用文件ID）+ 规格 + 格式
+     */
+    private String cacheKey(FileInfo fileInfo, String contentType, int size) {
+        String id = fileInfo.getContentHash() != null ? fileInfo.getContentHash() : fileInfo.getFileId();
+        return id + "-" + size + "." + outputFormat(contentType);
+    }
+    
+    private static String outputFormat(String contentType) {
+        return "image/png".equals(contentType) || "image/gif".equals(contentType) ? "png" : "jpg";
+    }
+}
@@ -0,0 +1,116 @@
+package xtt.cloud.oa.file.application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import xtt.cloud.oa.file.domain.ChunkStorage;
+import xtt.cloud.oa.file.domain.UploadSession;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * 分片上传清理任务
+ *
+ * 定时清理：
+ * 1. 超过 session-ttl-minutes 未更新的未完成会话（客户端放弃上传）
+ * 2. 合并完成超过 completed-retention-minutes 的会话（保留期内重复合并请求仍返回文件信息）
+ * 3. 没有对应会话的分片目录和暂存文件
+ *
+ * 限速：每批最多 batch-size 个会话，每次执行最多 max-batches 批，批次之间暂停 batch-pause 毫秒，
+ * 避免集中删除大量文件占满磁盘 IO。多个实例同时执行时，会话先转换为清理中，只有转换成功的实例删除数据
+ *
+ * @author xtt
+ */
+@Component
+@ConditionalOnProperty(prefix = "file.upload.janitor", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UploadJanitor {
+    
+    private static final Logger log = LoggerFactory.getLogger(UploadJanitor.class);
+    
+    private final ChunkUploadService chunkUploadService;
+    private final ChunkStorage chunkStorage;
+    
+    @Value("${file.upload.janitor.session-ttl-minutes:1440}") // 默认 24 小时
+    private long sessionTtlMinutes;
+    
+    @Value("${file.upload.janitor.completed-retention-minutes:60}") // 默认 1 小时
+    private long completedRetentionMinutes;
+    
+    @Value("${file.upload.janitor.batch-size:100}")
+    private int batchSize;
+    
+    @Value("${file.upload.janitor.max-batches:10}")
+    private int maxBatches;
+    
+    @Value("${file.upload.janitor.batch-pause:200}") // 毫秒
+    private long batchPause;
+    
+    public UploadJanitor(ChunkUploadService chunkUploadService, ChunkStorage chunkStorage) {
+        this.chunkUploadService = chunkUploadService;
+        this.chunkStorage = chunkStorage;
+    }
+    
+    /**
+     * 执行清理
+     */
+    @Scheduled(fixedDelayString = "${file.upload.janitor.interval:300000}",
+            initialDelayString = "${file.upload.janitor.initial-delay:60000}")
+    public void cleanup() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = expireSessions(false, now.minusMinutes(sessionTtlMinutes));
+        int retired = expireSessions(true, now.minusMinutes(completedRetentionMinutes));
+        
+        int orphans = 0;
+        try {
+            orphans = chunkUploadService.cleanupOrphanChunks(
+                    Instant.now().minus(sessionTtlMinutes, ChronoUnit.MINUTES), batchSize);
+        } catch (Exception e) {
+            log.warn("清理孤立分片数据失败", e);
+        }
+        
+        if (expired > 0 || retired > 0 || orphans > 0) {
+            log.info("分片上传清理完成，过期会话: {}, 已完成会话: {}, 孤立分片数据: {}", expired, retired, orphans);
+        }
+    }
+    
+    private int expireSessions(boolean completed, LocalDateTime updatedBefore) {
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            if (batch > 0 && !pause()) {
+                break;
+            }
+            
+            List<UploadSession> sessions = chunkStorage.findStaleSessions(completed, updatedBefore, batchSize);
+            for (UploadSession session : sessions) {
+                try {
+                    if (chunkUploadService.expireSession(session.getUploadId(), updatedBefore)) {
+                        total++;
+                    }
+                } catch (Exception e) {
+                    log.warn("清理上传会话失败，上传ID: {}", session.getUploadId(), e);
+                }
+            }
+            
+            if (sessions.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+    
+    private boolean pause() {
+        try {
+            Thread.sleep(batchPause);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
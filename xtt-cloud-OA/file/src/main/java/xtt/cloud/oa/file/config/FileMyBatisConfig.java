@@ -0,0 +1,19 @@
+package xtt.cloud.oa.file.config;
+
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 文件服务 MyBatis 配置
+ * 
+ * 元数据存储使用数据库时（file.storage.type=jdbc，默认）扫描 Mapper；
+ * 使用内存存储时不需要数据源
+ * 
+ * @author xtt
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "file.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+@MapperScan(basePackages = "xtt.cloud.oa.file.infrastructure.persistence.mapper")
+public class FileMyBatisConfig {
+}
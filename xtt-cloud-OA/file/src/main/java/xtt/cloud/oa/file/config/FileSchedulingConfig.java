@@ -0,0 +1,14 @@
+package xtt.cloud.oa.file.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置（分片上传清理等）
+ *
+ * @author xtt
+ */
+@Configuration
+@EnableScheduling
+public class FileSchedulingConfig {
+}
@@ -0,0 +1,82 @@
+package xtt.cloud.oa.file.domain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * 内容寻址存储接口
+ * 
+ * 文件内容按 SHA-256 存储，相同内容只保存一份。存储本身不记录引用：
+ * 引用关系就是文件信息中的内容哈希，由 {@link FileStorage#saveReferencing} 和
+ * {@link FileStorage#deleteReferencing} 在持有内容引用锁时调用 commit / delete，
+ * 保证"放置数据 + 保存文件信息"与"删除最后一个引用 + 删除数据"不会交错
+ * 
+ * 写入分两步：stage 写入暂存文件并计算哈希，commit 把暂存文件放到内容路径
+ * 
+ * @author xtt
+ */
+public interface BlobStore {
+    
+    /**
+     * 写入数据流到暂存文件（写入过程中计算 SHA-256）
+     * 
+     * @param inputStream 数据流（由调用方关闭）
+     * @return 暂存的数据块
+     */
+    default StoredBlob stage(InputStream inputStream) throws IOException {
+        return stage(inputStream, Long.MAX_VALUE);
+    }
+    
+    /**
+     * 写入数据流到暂存文件（写入过程中计算 SHA-256 和大小）
+     * 
+     * @param inputStream 数据流（由调用方关闭）
+     * @param maxSize 最大字节数，超过时放弃写入并抛出 IllegalArgumentException
+     * @return 暂存的数据块
+     */
+    StoredBlob stage(InputStream inputStream, long maxSize) throws IOException;
+    
+    /**
+     * 以已写好的文件作为暂存文件（一次读取同时计算 SHA-256 和 CRC32C，不移动数据）
+     * 
+     * @param file 文件路径（commit 后不再属于调用方）
+     * @return 暂存的数据块
+     */
+    StoredBlob stageFile(Path file) throws IOException;
+    
+    /**
+     * 提交暂存的数据块：内容已存在时删除暂存文件，否则移到内容路径（同一文件系统内重命名，不复制数据）
+     * 
+     * 须在持有该内容的引用锁时调用
+     * 
+     * @param blob 暂存的数据块
+     */
+    void commit(StoredBlob blob) throws IOException;
+    
+    /**
+     * 放弃暂存的数据块（删除暂存文件，已提交时不做任何事）
+     * 
+     * @param blob 暂存的数据块
+     */
+    void discard(StoredBlob blob) throws IOException;
+    
+    /**
+     * 查找已存在的内容
+     * 
+     * @param contentHash 内容哈希
+     * @return 数据块，不存在时返回空
+     */
+    Optional<StoredBlob> find(String contentHash) throws IOException;
+    
+    /**
+     * 删除内容
+     * 
+     * 须在持有该内容的引用锁、确认没有文件信息引用该内容时调用；
+     * 在事务中调用时，事务提交后才真正删除，回滚时恢复
+     * 
+     * @param contentHash 内容哈希
+     */
+    void delete(String contentHash) throws IOException;
+}
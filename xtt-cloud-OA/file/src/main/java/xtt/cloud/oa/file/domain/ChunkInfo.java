@@ -43,6 +43,11 @@ public class ChunkInfo {
      */
     private String md5;
     
+    /**
+     * 分片 CRC32C（写入时计算，合并时按分片顺序合并为整个文件的 CRC32C）
+     */
+    private Long crc32c;
+    
     /**
      * 上传时间
      */
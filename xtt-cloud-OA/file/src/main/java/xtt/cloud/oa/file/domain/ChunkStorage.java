@@ -1,11 +1,15 @@
 package xtt.cloud.oa.file.domain;
 
+import java.time.LocalDateTime;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * 分片存储接口
  * 
+ * 分片元数据按上传会话组织，查询和删除只涉及该会话的分片
+ * 
  * @author xtt
  */
 public interface ChunkStorage {
@@ -18,7 +22,46 @@ public interface ChunkStorage {
     void saveChunk(ChunkInfo chunkInfo);
     
     /**
-     * 根据上传ID和分片索引查找分片
+     * 认领分片写入：分片未上传且没有其他请求正在写入（或其认领早于 claimedBefore，视为已中断）时认领
+     * 
+     * 同一分片同时只有一个请求写入，已上传的分片不会被并发或重复上传覆盖。
+     * 写入并校验完成后调用 {@link #markChunkUploaded} 记录，失败时调用 {@link #releaseChunk} 释放
+     * 
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片索引
+     * @param claimedBefore 认领时间早于该时间的写入视为已中断，可以接管
+     * @return 认领标识；分片已上传或正在由其他请求写入时返回空
+     */
+    Optional<String> claimChunk(String uploadId, Integer chunkIndex, LocalDateTime claimedBefore);
+    
+    /**
+     * 释放分片认领（认领已被接管时不做任何事）
+     * 
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片索引
+     * @param claimToken 认领标识
+     */
+    void releaseChunk(String uploadId, Integer chunkIndex, String claimToken);
+    
+    /**
+     * 记录分片已上传：保存认领的分片信息，并增加会话的已上传分片数
+     * 
+     * @param chunkInfo 分片信息
+     * @param claimToken 认领标识
+     * @return 是否记录成功（认领已超时并被其他请求接管时返回 false）
+     */
+    boolean markChunkUploaded(ChunkInfo chunkInfo, String claimToken);
+    
+    /**
+     * 获取已上传的分片集合（第 i 位表示分片 i 已上传）
+     * 
+     * @param uploadId 上传ID
+     * @return 已上传的分片集合
+     */
+    BitSet findUploadedChunks(String uploadId);
+    
+    /**
+     * 根据上传ID和分片索引查找已上传的分片
      * 
      * @param uploadId 上传ID
      * @param chunkIndex 分片索引
@@ -27,7 +70,7 @@ public interface ChunkStorage {
     Optional<ChunkInfo> findChunk(String uploadId, Integer chunkIndex);
     
     /**
-     * 获取上传ID的所有分片
+     * 获取上传ID的所有已上传分片
      * 
      * @param uploadId 上传ID
      * @return 分片列表
@@ -70,5 +113,64 @@ public interface ChunkStorage {
      * @param uploadId 上传ID
      */
     void deleteSession(String uploadId);
+    
+    /**
+     * 查询超过指定时间未更新的会话（按更新时间升序）
+     * 
+     * @param completed 是否已合并完成
+     * @param updatedBefore 更新时间早于该时间
+     * @param limit 最大条数
+     * @return 上传会话列表
+     */
+    List<UploadSession> findStaleSessions(boolean completed, LocalDateTime updatedBefore, int limit);
+    
+    /**
+     * 转换会话状态（会话当前状态为 from 时才转换，同时刷新更新时间）
+     * 
+     * 多个请求或实例同时转换同一会话时只有一个成功，成功者独占后续的合并或清理
+     * 
+     * @param uploadId 上传ID
+     * @param from 期望的当前状态
+     * @param to 目标状态
+     * @return 是否转换成功
+     */
+    boolean claimSession(String uploadId, UploadStatus from, UploadStatus to);
+    
+    /**
+     * 将超过指定时间未更新的会话转换为清理中（会话当前状态为 from 且更新时间早于 updatedBefore 时才转换）
+     * 
+     * @param uploadId 上传ID
+     * @param from 期望的当前状态
+     * @param updatedBefore 更新时间早于该时间
+     * @return 是否转换成功
+     */
+    boolean claimStaleSession(String uploadId, UploadStatus from, LocalDateTime updatedBefore);
+    
+    /**
+     * 合并完成：会话当前状态为合并中时转换为已完成并记录文件ID
+     * 
+     * @param uploadId 上传ID
+     * @param fileId 文件ID
+     * @return 是否转换成功（合并期间会话已被清理时返回 false）
+     */
+    boolean completeSession(String uploadId, String fileId);
+    
+    /**
+     * 预留用户进行中上传的配额（检查和增加在同一条件更新中完成）
+     * 
+     * @param userId 用户ID
+     * @param bytes 本次上传的字节数
+     * @param limit 配额上限（0 表示不限制，只记录占用）
+     * @return 是否预留成功（超过配额时返回 false）
+     */
+    boolean reserveQuota(Long userId, long bytes, long limit);
+    
+    /**
+     * 释放预留的配额（合并完成、取消或过期时）
+     * 
+     * @param userId 用户ID
+     * @param bytes 预留的字节数
+     */
+    void releaseQuota(Long userId, long bytes);
 }
 
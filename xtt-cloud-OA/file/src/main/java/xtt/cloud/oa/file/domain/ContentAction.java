@@ -0,0 +1,19 @@
+package xtt.cloud.oa.file.domain;
+
+import java.io.IOException;
+
+/**
+ * 持有内容引用锁时执行的内容操作（放置、确认或删除数据块）
+ * 
+ * @author xtt
+ */
+@FunctionalInterface
+public interface ContentAction {
+    
+    /**
+     * 执行内容操作
+     * 
+     * @return 是否继续（保存文件信息时返回 false 表示内容不可用，不保存）
+     */
+    boolean run() throws IOException;
+}
@@ -0,0 +1,151 @@
+package xtt.cloud.oa.file.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C 工具
+ *
+ * CRC 可以合并：已知 A、B 两段数据各自的 CRC 和 B 的长度，即可算出 A+B 的 CRC，不需要重新读取数据。
+ * 分片上传时各分片的 CRC32C 在写入时计算（可并发），合并时按分片顺序合并得到整个文件的 CRC32C
+ *
+ * 合并算法同 zlib crc32_combine（GF(2) 上的矩阵平方），复杂度 O(log len)
+ *
+ * @author xtt
+ */
+public final class Crc32c {
+    
+    /**
+     * CRC32C（Castagnoli）反射多项式
+     */
+    private static final long POLY = 0x82F63B78L;
+    
+    private static final int GF2_DIM = 32;
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    private Crc32c() {
+    }
+    
+    /**
+     * 合并两段数据的 CRC32C
+     *
+     * @param crc1 前一段数据的 CRC32C
+     * @param crc2 后一段数据的 CRC32C
+     * @param len2 后一段数据的长度（字节）
+     * @return 两段数据拼接后的 CRC32C
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        if (len2 <= 0) {
+            return crc1;
+        }
+        
+        long[] even = new long[GF2_DIM];
+        long[] odd = new long[GF2_DIM];
+        
+        // 一个零比特的运算矩阵
+        odd[0] = POLY;
+        long row = 1;
+        for (int n = 1; n < GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        
+        // 两个零比特
+        gf2MatrixSquare(even, odd);
+        // 四个零比特
+        gf2MatrixSquare(odd, even);
+        
+        // 在 crc1 后追加 len2 个零字节（每轮矩阵平方一次，长度按二进制位处理）
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            len2 >>= 1;
+            if (len2 == 0) {
+                break;
+            }
+            
+            gf2MatrixSquare(odd, even);
+            if ((len2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            len2 >>= 1;
+        } while (len2 != 0);
+        
+        return crc1 ^ crc2;
+    }
+    
+    /**
+     * 计算文件区间的 CRC32C（使用定位读取，不改变通道位置；区间超出文件末尾时只计算到文件末尾）
+     *
+     * @param channel 文件通道
+     * @param position 起始位置
+     * @param count 字节数
+     * @return 区间数据的 CRC32C
+     */
+    public static long compute(FileChannel channel, long position, long count) throws IOException {
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(1, Math.min(BUFFER_SIZE, count)));
+        long end = position + count;
+        long offset = position;
+        while (offset < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - offset));
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+            crc.update(buffer);
+            offset += read;
+        }
+        return crc.getValue();
+    }
+    
+    /**
+     * 格式化为 8 位小写十六进制
+     */
+    public static String toHex(long crc) {
+        return HexFormat.of().toHexDigits((int) crc);
+    }
+    
+    /**
+     * 解析十六进制 CRC32C
+     *
+     * @throws IllegalArgumentException 格式不正确
+     */
+    public static long parseHex(String hex) {
+        if (hex == null || hex.isEmpty() || hex.length() > 8) {
+            throw new IllegalArgumentException("CRC32C 格式不正确: " + hex);
+        }
+        try {
+            // 只接受十六进制数字（Long.parseLong 会接受 "-1" 这样的符号前缀）
+            return HexFormat.fromHexDigitsToLong(hex);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("CRC32C 格式不正确: " + hex, e);
+        }
+    }
+    
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        int i = 0;
+        while (vec != 0) {
+            if ((vec & 1) != 0) {
+                sum ^= mat[i];
+            }
+            vec >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+    
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for (int n = 0; n < GF2_DIM; n++) {
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package xtt.cloud.oa.file.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * 文件列表游标
+ *
+ * 键集分页的位置：按 (uploadTime DESC, fileId DESC) 排序时，下一页从严格小于该位置的文件开始，
+ * 翻页开销与页码无关
+ *
+ * 对外以不透明字符串传递（Base64URL 编码的 "uploadTime|fileId"）
+ *
+ * @author xtt
+ */
+public final class FileCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final LocalDateTime uploadTime;
+    private final String fileId;
+    
+    private FileCursor(LocalDateTime uploadTime, String fileId) {
+        this.uploadTime = uploadTime;
+        this.fileId = fileId;
+    }
+    
+    public static FileCursor of(LocalDateTime uploadTime, String fileId) {
+        if (uploadTime == null || fileId == null || fileId.isEmpty()) {
+            throw new IllegalArgumentException("游标的上传时间和文件ID不能为空");
+        }
+        return new FileCursor(uploadTime, fileId);
+    }
+    
+    /**
+     * 文件在列表中的位置（没有上传时间的文件排在最后）
+     */
+    public static FileCursor of(FileInfo fileInfo) {
+        LocalDateTime uploadTime = fileInfo.getUploadTime() != null ? fileInfo.getUploadTime() : LocalDateTime.MIN;
+        return of(uploadTime, fileInfo.getFileId());
+    }
+    
+    /**
+     * 解析游标字符串，空字符串表示第一页（返回 null）
+     *
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static FileCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.indexOf(SEPARATOR);
+            return of(LocalDateTime.parse(raw.substring(0, index)), raw.substring(index + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+        }
+    }
+    
+    public String encode() {
+        String raw = uploadTime + SEPARATOR + fileId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public LocalDateTime getUploadTime() {
+        return uploadTime;
+    }
+    
+    public String getFileId() {
+        return fileId;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FileCursor that = (FileCursor) o;
+        return Objects.equals(uploadTime, that.uploadTime) && Objects.equals(fileId, that.fileId);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(uploadTime, fileId);
+    }
+    
+    @Override
+    public String toString() {
+        return "FileCursor{" + uploadTime + ", " + fileId + '}';
+    }
+}
@@ -53,6 +53,16 @@ public class FileInfo {
      */
     private String extension;
     
+    /**
+     * 内容哈希（SHA-256），为空表示未使用内容寻址存储的旧文件
+     */
+    private String contentHash;
+    
+    /**
+     * 内容 CRC32C（8 位小写十六进制），分片上传的文件由各分片的 CRC32C 合并得到
+     */
+    private String crc32c;
+    
     /**
      * 上传用户ID
      */
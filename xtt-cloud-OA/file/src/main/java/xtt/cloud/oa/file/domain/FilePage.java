@@ -0,0 +1,45 @@
+package xtt.cloud.oa.file.domain;
+
+import java.util.List;
+
+/**
+ * 文件列表游标分页结果
+ *
+ * @author xtt
+ */
+public final class FilePage {
+    
+    private final List<FileInfo> records;
+    private final FileCursor nextCursor;
+    
+    public FilePage(List<FileInfo> records, FileCursor nextCursor) {
+        this.records = records != null ? records : List.of();
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * 按 limit + 1 条查询结果构造分页：多出的一条表示还有下一页，游标指向本页最后一条
+     */
+    public static FilePage of(List<FileInfo> fetched, int limit) {
+        if (fetched.size() <= limit) {
+            return new FilePage(fetched, null);
+        }
+        List<FileInfo> records = fetched.subList(0, limit);
+        return new FilePage(records, FileCursor.of(records.get(limit - 1)));
+    }
+    
+    public List<FileInfo> getRecords() {
+        return records;
+    }
+    
+    /**
+     * 下一页游标，没有更多数据时为 null
+     */
+    public FileCursor getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -1,11 +1,14 @@
 package xtt.cloud.oa.file.domain;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.Optional;
 
 /**
  * 文件存储接口
  * 
+ * 文件信息中的内容哈希就是对内容寻址存储（{@link BlobStore}）中数据块的引用，
+ * 增加和删除引用需要通过 saveReferencing / deleteReferencing 持有该内容的引用锁
+ * 
  * @author xtt
  */
 public interface FileStorage {
@@ -17,6 +20,18 @@ public interface FileStorage {
      */
     void save(FileInfo fileInfo);
     
+    /**
+     * 保存引用内容的文件信息
+     * 
+     * 持有该内容的引用锁时先执行 content（放置数据块或确认数据块存在），返回 true 才保存文件信息；
+     * 期间其他请求不会删除该内容。content 抛出异常时不保存
+     * 
+     * @param fileInfo 文件信息（内容哈希为空时直接执行 content 并保存）
+     * @param content 内容操作
+     * @return 是否已保存
+     */
+    boolean saveReferencing(FileInfo fileInfo, ContentAction content) throws IOException;
+    
     /**
      * 根据文件ID查找文件信息
      * 
@@ -26,12 +41,23 @@ public interface FileStorage {
     Optional<FileInfo> findByFileId(String fileId);
     
     /**
-     * 根据用户ID查找文件列表
+     * 按游标分页查询用户上传的文件（按上传时间、文件ID倒序）
+     * 
+     * @param userId 用户ID
+     * @param cursor 上一页返回的游标，第一页为 null
+     * @param limit 每页条数
+     * @return 文件分页
+     */
+    FilePage findByUploadUserId(Long userId, FileCursor cursor, int limit);
+    
+    /**
+     * 用户是否上传过指定内容
      * 
      * @param userId 用户ID
-     * @return 文件列表
+     * @param contentHash 内容哈希
+     * @return 是否存在
      */
-    List<FileInfo> findByUploadUserId(Long userId);
+    boolean existsByUploadUserIdAndContentHash(Long userId, String contentHash);
     
     /**
      * 删除文件信息
@@ -39,5 +65,27 @@ public interface FileStorage {
      * @param fileId 文件ID
      */
     void delete(String fileId);
+    
+    /**
+     * 删除文件信息，没有其他文件信息引用同一内容时执行 orphaned 删除数据块
+     * 
+     * 删除文件信息、统计剩余引用和执行 orphaned 在同一个引用锁（数据库实现为同一事务）中完成，
+     * orphaned 抛出异常时文件信息不删除
+     * 
+     * @param fileInfo 文件信息（内容哈希为空时文件独占存储路径，总是执行 orphaned）
+     * @param orphaned 删除数据块的操作
+     */
+    void deleteReferencing(FileInfo fileInfo, ContentAction orphaned) throws IOException;
+    
+    /**
+     * 没有文件信息引用指定内容时执行 orphaned 删除数据块
+     * 
+     * 用于 saveReferencing 中数据块已提交、但保存文件信息失败时回收数据块；
+     * 统计引用和执行 orphaned 在同一个引用锁（数据库实现为同一事务）中完成，期间提交的其他引用不受影响
+     * 
+     * @param contentHash 内容哈希
+     * @param orphaned 删除数据块的操作
+     */
+    void deleteUnreferenced(String contentHash, ContentAction orphaned) throws IOException;
 }
 
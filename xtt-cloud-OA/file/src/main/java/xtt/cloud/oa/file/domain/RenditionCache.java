@@ -0,0 +1,48 @@
+package xtt.cloud.oa.file.domain;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * 预览副本（缩略图等）缓存接口
+ *
+ * 副本按键保存（键包含内容哈希和规格），容量有上限，超出时淘汰最久未使用的副本。
+ * 副本随时可能被淘汰，因此只提供打开后的通道，不返回路径
+ *
+ * @author xtt
+ */
+public interface RenditionCache {
+    
+    /**
+     * 副本是否已缓存
+     *
+     * @param key 副本键
+     * @return 是否存在
+     */
+    boolean contains(String key);
+    
+    /**
+     * 打开副本，返回的通道在之后副本被淘汰时仍可读取，由调用方关闭
+     *
+     * @param key 副本键
+     * @return 副本文件通道，不存在时返回空
+     */
+    Optional<FileChannel> open(String key) throws IOException;
+    
+    /**
+     * 创建用于生成副本的临时文件（与缓存目录在同一文件系统，可以直接重命名）
+     *
+     * @return 临时文件路径
+     */
+    Path createTempFile() throws IOException;
+    
+    /**
+     * 将生成好的临时文件放入缓存
+     *
+     * @param key 副本键
+     * @param tempFile 临时文件（调用后不再属于调用方）
+     */
+    void put(String key, Path tempFile) throws IOException;
+}
@@ -0,0 +1,45 @@
+package xtt.cloud.oa.file.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+
+/**
+ * 内容寻址存储中的数据块
+ * 
+ * @author xtt
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredBlob {
+    
+    /**
+     * 内容哈希（SHA-256，小写十六进制）
+     */
+    private String contentHash;
+    
+    /**
+     * 大小（字节）
+     */
+    private Long size;
+    
+    /**
+     * 内容 CRC32C（写入数据流时计算，移入已有文件时为空）
+     */
+    private Long crc32c;
+    
+    /**
+     * 存储路径（相对路径）
+     */
+    private String storagePath;
+    
+    /**
+     * 暂存文件（stage 返回，commit 或 discard 后为空）
+     */
+    private Path stagingFile;
+}
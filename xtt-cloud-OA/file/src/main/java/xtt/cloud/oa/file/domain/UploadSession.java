@@ -6,7 +6,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 /**
  * 上传会话信息
@@ -70,18 +69,28 @@ public class UploadSession {
     private LocalDateTime updateTime;
     
     /**
-     * 已上传的分片索引列表
+     * 已上传的分片数（已上传的分片索引见 {@link ChunkStorage#findUploadedChunks}）
      */
-    private List<Integer> uploadedChunks;
+    private Integer uploadedCount;
     
     /**
      * 是否已完成
      */
     private Boolean completed;
     
+    /**
+     * 会话状态（只通过 {@link ChunkStorage#claimSession} 等条件更新转换）
+     */
+    private UploadStatus status;
+    
     /**
      * 最终文件ID（合并完成后）
      */
     private String fileId;
+    
+    /**
+     * 是否为预分配模式：分片按偏移量直接写入预分配的目标文件，合并只提交元数据
+     */
+    private Boolean preallocated;
 }
 
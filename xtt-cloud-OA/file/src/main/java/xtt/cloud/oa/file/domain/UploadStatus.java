@@ -0,0 +1,32 @@
+package xtt.cloud.oa.file.domain;
+
+/**
+ * 上传会话状态
+ * 
+ * 合并和清理前先把会话从当前状态转换到 MERGING/EXPIRING（条件更新，只有一个请求或实例成功），
+ * 多个实例共享会话时不会重复合并，也不会在合并过程中删除暂存文件
+ * 
+ * @author xtt
+ */
+public enum UploadStatus {
+    
+    /**
+     * 上传中（可以继续上传分片）
+     */
+    UPLOADING,
+    
+    /**
+     * 合并中
+     */
+    MERGING,
+    
+    /**
+     * 已合并完成
+     */
+    COMPLETED,
+    
+    /**
+     * 清理中（取消或过期）
+     */
+    EXPIRING
+}
@@ -0,0 +1,56 @@
+package xtt.cloud.oa.file.infrastructure;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 直接内存缓冲区池
+ *
+ * 最多分配 maxBuffers 个直接缓冲区并循环使用，直接内存占用上限为 bufferSize * maxBuffers；
+ * 池中缓冲区用尽时（并发上传数超过上限）临时分配堆缓冲区，用完即丢弃
+ *
+ * @author xtt
+ */
+class DirectBufferPool {
+    
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final AtomicInteger allocated = new AtomicInteger();
+    
+    DirectBufferPool(int bufferSize, int maxBuffers) {
+        if (bufferSize <= 0 || maxBuffers <= 0) {
+            throw new IllegalArgumentException("缓冲区大小和数量必须大于0");
+        }
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+        this.buffers = new ArrayBlockingQueue<>(maxBuffers);
+    }
+    
+    /**
+     * 获取缓冲区（已清空），使用完后必须调用 {@link #release(ByteBuffer)}
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        if (allocated.incrementAndGet() <= maxBuffers) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        allocated.decrementAndGet();
+        return ByteBuffer.allocate(bufferSize);
+    }
+    
+    /**
+     * 归还缓冲区，堆缓冲区直接丢弃
+     */
+    void release(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            buffer.clear();
+            buffers.offer(buffer);
+        }
+    }
+}
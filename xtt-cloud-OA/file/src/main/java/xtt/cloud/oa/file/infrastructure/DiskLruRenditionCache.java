@@ -0,0 +1,177 @@
+package xtt.cloud.oa.file.infrastructure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import xtt.cloud.oa.file.domain.RenditionCache;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 本地磁盘 LRU 副本缓存
+ *
+ * 存储路径: {root-path}/renditions/{key[0..2]}/{key}
+ *
+ * 内存中按访问顺序记录每个副本的大小，总大小超过 file.preview.cache-max-bytes 时删除最久未访问的副本。
+ * 启动时扫描缓存目录重建索引（按文件修改时间排序，重启后的访问顺序为近似值）
+ *
+ * 打开副本和淘汰副本持有同一把锁：已打开的通道在副本被淘汰删除后仍可读到完整内容，
+ * 正在输出的副本不会被截断
+ *
+ * @author xtt
+ */
+@Component
+public class DiskLruRenditionCache implements RenditionCache {
+    
+    private static final Logger log = LoggerFactory.getLogger(DiskLruRenditionCache.class);
+    
+    private static final String RENDITION_DIR = "renditions";
+    private static final String TEMP_DIR = "tmp";
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9A-Za-z-]+\\.[a-z]+");
+    
+    private final Path cacheDir;
+    private final Path tempDir;
+    private final long maxBytes;
+    
+    /**
+     * 副本键 -> 大小（访问顺序）
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    
+    public DiskLruRenditionCache(@Value("${file.upload.root-path:/app/files}") String rootPath,
+                                 @Value("${file.preview.cache-max-bytes:1073741824}") long maxBytes) throws IOException {
+        this.cacheDir = Paths.get(rootPath, RENDITION_DIR);
+        this.tempDir = cacheDir.resolve(TEMP_DIR);
+        this.maxBytes = maxBytes;
+        Files.createDirectories(tempDir);
+        loadEntries();
+    }
+    
+    @Override
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+    
+    @Override
+    public synchronized Optional<FileChannel> open(String key) throws IOException {
+        Long size = entries.get(key);
+        if (size == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(FileChannel.open(resolve(key), StandardOpenOption.READ));
+        } catch (NoSuchFileException e) {
+            // 被外部删除
+            entries.remove(key);
+            totalBytes -= size;
+            return Optional.empty();
+        }
+    }
+    
+    @Override
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(tempDir, "rendition-", ".tmp");
+    }
+    
+    @Override
+    public synchronized void put(String key, Path tempFile) throws IOException {
+        Path target = resolve(key);
+        long size = Files.size(tempFile);
+        try {
+            Files.createDirectories(target.getParent());
+            move(tempFile, target);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        
+        Long previous = entries.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        evict(key);
+    }
+    
+    /**
+     * 淘汰最久未访问的副本，直到总大小不超过上限（刚放入的副本不淘汰）
+     */
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(resolve(eldest.getKey()));
+            } catch (IOException e) {
+                log.warn("删除缓存副本失败: {}", eldest.getKey(), e);
+                continue;
+            }
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+    
+    /**
+     * 扫描缓存目录重建索引，删除遗留的临时文件
+     */
+    private void loadEntries() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(cacheDir)) {
+            paths.filter(Files::isRegularFile).forEach(files::add);
+        }
+        
+        List<Map.Entry<Path, BasicFileAttributes>> cached = new ArrayList<>();
+        for (Path file : files) {
+            if (file.startsWith(tempDir)) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            cached.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+        }
+        cached.sort(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()));
+        
+        synchronized (this) {
+            for (Map.Entry<Path, BasicFileAttributes> entry : cached) {
+                entries.put(entry.getKey().getFileName().toString(), entry.getValue().size());
+                totalBytes += entry.getValue().size();
+            }
+            evict(null);
+        }
+        log.info("副本缓存已加载，数量: {}, 总大小: {}", entries.size(), totalBytes);
+    }
+    
+    private Path resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("副本键格式不正确: " + key);
+        }
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key);
+    }
+    
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package xtt.cloud.oa.file.infrastructure;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import xtt.cloud.oa.file.domain.BlobStore;
+import xtt.cloud.oa.file.domain.StoredBlob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * 本地文件系统内容寻址存储
+ *
+ * 存储路径: {root-path}/blobs/{hash[0..2]}/{hash[2..4]}/{hash}
+ *
+ * 存储不保存引用计数：引用关系是文件信息中的内容哈希（file_info.content_hash），
+ * commit 和 delete 由 {@link xtt.cloud.oa.file.domain.FileStorage} 在持有内容引用锁时调用，
+ * 多个实例共享同一存储目录时也不会删除仍被引用的内容。
+ * 在事务中删除时先把数据块移到暂存目录，事务提交后删除，回滚时移回
+ *
+ * 写入和哈希计算使用有界的直接缓冲区池（file.upload.stream.buffer-size * buffer-count），
+ * 数据从输入流读入直接缓冲区后写入临时文件，同时更新摘要，不在堆上积累数据
+ *
+ * @author xtt
+ */
+@Component
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSystemBlobStore.class);
+
+    private static final String BLOB_DIR = "blobs";
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path rootPath;
+    private final Path tempDir;
+    private final DirectBufferPool bufferPool;
+
+    public FileSystemBlobStore(@Value("${file.upload.root-path:/app/files}") String rootPath,
+                               @Value("${file.upload.stream.buffer-size:65536}") int bufferSize,
+                               @Value("${file.upload.stream.buffer-count:32}") int bufferCount) {
+        this.rootPath = Paths.get(rootPath);
+        this.tempDir = this.rootPath.resolve(BLOB_DIR).resolve("tmp");
+        this.bufferPool = new DirectBufferPool(bufferSize, bufferCount);
+    }
+
+    @Override
+    public StoredBlob stage(InputStream inputStream, long maxSize) throws IOException {
+        Files.createDirectories(tempDir);
+        Path temp = Files.createTempFile(tempDir, "blob-", ".tmp");
+
+        MessageDigest digest = sha256();
+        CRC32C crc = new CRC32C();
+        long size = 0;
+        ByteBuffer buffer = bufferPool.acquire();
+        // 输入流由调用方关闭，这里不关闭包装的通道
+        ReadableByteChannel source = Channels.newChannel(inputStream);
+        try (FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            while (fill(source, buffer)) {
+                buffer.flip();
+                size += buffer.remaining();
+                if (size > maxSize) {
+                    throw new IllegalArgumentException("文件大小超过限制: " + maxSize);
+                }
+                digest.update(buffer.duplicate());
+                crc.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                buffer.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            bufferPool.release(buffer);
+        }
+
+        StoredBlob blob = toBlob(HexFormat.of().formatHex(digest.digest()), size);
+        blob.setCrc32c(crc.getValue());
+        blob.setStagingFile(temp);
+        return blob;
+    }
+
+    @Override
+    public StoredBlob stageFile(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        CRC32C crc = new CRC32C();
+        long size = 0;
+        ByteBuffer buffer = bufferPool.acquire();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                size += buffer.remaining();
+                digest.update(buffer.duplicate());
+                crc.update(buffer);
+                buffer.clear();
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+
+        StoredBlob blob = toBlob(HexFormat.of().formatHex(digest.digest()), size);
+        blob.setCrc32c(crc.getValue());
+        blob.setStagingFile(file);
+        return blob;
+    }
+
+    /**
+     * 读满缓冲区或读到流末尾（输入流通道每次只读取少量数据，攒满后再写入文件）
+     *
+     * @return 缓冲区中是否有数据
+     */
+    private static boolean fill(ReadableByteChannel source, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) < 0) {
+                break;
+            }
+        }
+        return buffer.position() > 0;
+    }
+
+    @Override
+    public void commit(StoredBlob blob) throws IOException {
+        Path source = blob.getStagingFile();
+        if (source == null) {
+            return;
+        }
+        Path target = resolve(blob.getContentHash());
+        if (Files.exists(target)) {
+            Files.deleteIfExists(source);
+            log.debug("内容已存在，复用数据块，哈希: {}", blob.getContentHash());
+        } else {
+            Files.createDirectories(target.getParent());
+            try {
+                move(source, target);
+            } catch (FileAlreadyExistsException e) {
+                // 回滚的删除恰好把数据块移回
+                Files.deleteIfExists(source);
+            }
+        }
+        blob.setStagingFile(null);
+    }
+
+    @Override
+    public void discard(StoredBlob blob) throws IOException {
+        if (blob.getStagingFile() != null) {
+            Files.deleteIfExists(blob.getStagingFile());
+            blob.setStagingFile(null);
+        }
+    }
+
+    @Override
+    public Optional<StoredBlob> find(String contentHash) throws IOException {
+        Path target = resolve(contentHash);
+        if (!Files.exists(target)) {
+            return Optional.empty();
+        }
+        return Optional.of(toBlob(contentHash, Files.size(target)));
+    }
+
+    @Override
+    public void delete(String contentHash) throws IOException {
+        Path target = resolve(contentHash);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (Files.deleteIfExists(target)) {
+                log.info("数据块已无引用，已删除，哈希: {}", contentHash);
+            }
+            return;
+        }
+        if (!Files.exists(target)) {
+            return;
+        }
+
+        // 事务提交前只移走数据块，回滚时文件信息仍引用该内容，需要移回
+        Files.createDirectories(tempDir);
+        Path tombstone = tempDir.resolve(contentHash + "-" + UUID.randomUUID() + ".deleted");
+        move(target, tombstone);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        Files.deleteIfExists(tombstone);
+                        log.info("数据块已无引用，已删除，哈希: {}", contentHash);
+                    } else {
+                        restore(tombstone, target);
+                    }
+                } catch (IOException e) {
+                    log.warn("处理已删除的数据块失败，哈希: {}, 暂存文件: {}", contentHash, tombstone, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 事务回滚后移回数据块（期间已有相同内容重新写入时删除暂存文件）
+     */
+    private void restore(Path tombstone, Path target) throws IOException {
+        try {
+            move(tombstone, target);
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(tombstone);
+        }
+    }
+
+    private StoredBlob toBlob(String contentHash, long size) {
+        return StoredBlob.builder()
+                .contentHash(contentHash)
+                .size(size)
+                .storagePath(relativePath(contentHash))
+                .build();
+    }
+
+    private Path resolve(String contentHash) {
+        return rootPath.resolve(relativePath(contentHash));
+    }
+
+    private String relativePath(String contentHash) {
+        if (contentHash == null || !HASH_PATTERN.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("内容哈希格式不正确: " + contentHash);
+        }
+        return String.format("%s/%s/%s/%s", BLOB_DIR,
+                contentHash.substring(0, 2), contentHash.substring(2, 4), contentHash);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -1,68 +1,284 @@
 package xtt.cloud.oa.file.infrastructure;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import xtt.cloud.oa.file.domain.ChunkInfo;
 import xtt.cloud.oa.file.domain.ChunkStorage;
 import xtt.cloud.oa.file.domain.UploadSession;
+import xtt.cloud.oa.file.domain.UploadStatus;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
- * 内存分片存储实现（临时实现，后续可替换为数据库存储）
- * 
+ * 内存分片存储实现（仅用于开发测试，file.storage.type=memory）
+ *
+ * 按上传ID保存会话、已上传分片的 BitSet、分片信息和写入中分片的认领，查询和删除不再扫描其他会话的分片
+ *
  * @author xtt
  */
 @Component
+@ConditionalOnProperty(prefix = "file.storage", name = "type", havingValue = "memory")
 public class InMemoryChunkStorage implements ChunkStorage {
     
-    private final Map<String, ChunkInfo> chunkStorage = new ConcurrentHashMap<>();
-    private final Map<String, UploadSession> sessionStorage = new ConcurrentHashMap<>();
+    private final Map<String, SessionEntry> sessions = new ConcurrentHashMap<>();
+    
+    /**
+     * 用户进行中上传占用的字节数
+     */
+    private final Map<Long, Long> quotas = new ConcurrentHashMap<>();
     
     @Override
     public void saveChunk(ChunkInfo chunkInfo) {
-        String key = chunkInfo.getUploadId() + "_" + chunkInfo.getChunkIndex();
-        chunkStorage.put(key, chunkInfo);
+        SessionEntry entry = sessions.get(chunkInfo.getUploadId());
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.claims.remove(chunkInfo.getChunkIndex());
+            entry.chunks.put(chunkInfo.getChunkIndex(), chunkInfo);
+            entry.uploaded.set(chunkInfo.getChunkIndex());
+        }
+    }
+    
+    @Override
+    public Optional<String> claimChunk(String uploadId, Integer chunkIndex, LocalDateTime claimedBefore) {
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            ChunkClaim claim = entry.claims.get(chunkIndex);
+            if (entry.uploaded.get(chunkIndex)
+                    || (claim != null && !claim.claimTime().isBefore(claimedBefore))) {
+                return Optional.empty();
+            }
+            String claimToken = UUID.randomUUID().toString();
+            entry.claims.put(chunkIndex, new ChunkClaim(claimToken, LocalDateTime.now()));
+            return Optional.of(claimToken);
+        }
+    }
+    
+    @Override
+    public void releaseChunk(String uploadId, Integer chunkIndex, String claimToken) {
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            ChunkClaim claim = entry.claims.get(chunkIndex);
+            if (claim != null && claim.claimToken().equals(claimToken)) {
+                entry.claims.remove(chunkIndex);
+            }
+        }
+    }
+    
+    @Override
+    public boolean markChunkUploaded(ChunkInfo chunkInfo, String claimToken) {
+        SessionEntry entry = sessions.get(chunkInfo.getUploadId());
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            int chunkIndex = chunkInfo.getChunkIndex();
+            ChunkClaim claim = entry.claims.get(chunkIndex);
+            if (claim == null || !claim.claimToken().equals(claimToken)) {
+                return false;
+            }
+            entry.claims.remove(chunkIndex);
+            entry.chunks.put(chunkIndex, chunkInfo);
+            entry.uploaded.set(chunkIndex);
+            entry.session.setUploadedCount(entry.uploaded.cardinality());
+            entry.session.setUpdateTime(LocalDateTime.now());
+            return true;
+        }
+    }
+    
+    @Override
+    public BitSet findUploadedChunks(String uploadId) {
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return new BitSet();
+        }
+        synchronized (entry) {
+            return (BitSet) entry.uploaded.clone();
+        }
     }
     
     @Override
     public Optional<ChunkInfo> findChunk(String uploadId, Integer chunkIndex) {
-        String key = uploadId + "_" + chunkIndex;
-        return Optional.ofNullable(chunkStorage.get(key));
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return Optional.ofNullable(entry.chunks.get(chunkIndex));
+        }
     }
     
     @Override
     public List<ChunkInfo> findAllChunks(String uploadId) {
-        return chunkStorage.values().stream()
-                .filter(chunk -> chunk.getUploadId().equals(uploadId))
-                .collect(Collectors.toList());
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return new ArrayList<>();
+        }
+        synchronized (entry) {
+            return new ArrayList<>(entry.chunks.values());
+        }
     }
     
     @Override
     public void deleteChunk(String uploadId, Integer chunkIndex) {
-        String key = uploadId + "_" + chunkIndex;
-        chunkStorage.remove(key);
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.chunks.remove(chunkIndex);
+            entry.uploaded.clear(chunkIndex);
+            entry.session.setUploadedCount(entry.uploaded.cardinality());
+        }
     }
     
     @Override
     public void deleteAllChunks(String uploadId) {
-        chunkStorage.entrySet().removeIf(entry -> entry.getValue().getUploadId().equals(uploadId));
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            entry.claims.clear();
+            entry.chunks.clear();
+            entry.uploaded.clear();
+            entry.session.setUploadedCount(0);
+        }
     }
     
     @Override
     public void saveSession(UploadSession session) {
-        sessionStorage.put(session.getUploadId(), session);
+        SessionEntry entry = sessions.computeIfAbsent(session.getUploadId(), id -> new SessionEntry(session));
+        synchronized (entry) {
+            // 已上传分片数和会话状态由本存储维护
+            session.setUploadedCount(entry.uploaded.cardinality());
+            UploadStatus status = entry.session != session ? entry.session.getStatus() : session.getStatus();
+            session.setStatus(status != null ? status : UploadStatus.UPLOADING);
+            entry.session = session;
+        }
     }
     
     @Override
     public Optional<UploadSession> findSession(String uploadId) {
-        return Optional.ofNullable(sessionStorage.get(uploadId));
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return Optional.of(entry.session);
+        }
     }
     
     @Override
     public void deleteSession(String uploadId) {
-        sessionStorage.remove(uploadId);
+        sessions.remove(uploadId);
+    }
+    
+    @Override
+    public List<UploadSession> findStaleSessions(boolean completed, LocalDateTime updatedBefore, int limit) {
+        List<UploadSession> result = new ArrayList<>();
+        for (SessionEntry entry : sessions.values()) {
+            synchronized (entry) {
+                UploadSession session = entry.session;
+                if (Boolean.TRUE.equals(session.getCompleted()) == completed
+                        && session.getUpdateTime() != null && session.getUpdateTime().isBefore(updatedBefore)) {
+                    result.add(session);
+                }
+            }
+        }
+        result.sort(Comparator.comparing(UploadSession::getUpdateTime));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+    
+    @Override
+    public boolean claimSession(String uploadId, UploadStatus from, UploadStatus to) {
+        return transition(uploadId, from, to, null);
+    }
+    
+    @Override
+    public boolean claimStaleSession(String uploadId, UploadStatus from, LocalDateTime updatedBefore) {
+        return transition(uploadId, from, UploadStatus.EXPIRING, updatedBefore);
+    }
+    
+    @Override
+    public boolean completeSession(String uploadId, String fileId) {
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            UploadSession session = entry.session;
+            if (session.getStatus() != UploadStatus.MERGING) {
+                return false;
+            }
+            session.setStatus(UploadStatus.COMPLETED);
+            session.setCompleted(true);
+            session.setFileId(fileId);
+            session.setUpdateTime(LocalDateTime.now());
+            return true;
+        }
+    }
+    
+    @Override
+    public boolean reserveQuota(Long userId, long bytes, long limit) {
+        boolean[] reserved = new boolean[1];
+        quotas.compute(userId, (id, used) -> {
+            long current = used != null ? used : 0L;
+            reserved[0] = limit <= 0 || current + bytes <= limit;
+            return reserved[0] ? current + bytes : current;
+        });
+        return reserved[0];
+    }
+    
+    @Override
+    public void releaseQuota(Long userId, long bytes) {
+        quotas.computeIfPresent(userId, (id, used) -> Math.max(used - bytes, 0L));
+    }
+    
+    private boolean transition(String uploadId, UploadStatus from, UploadStatus to, LocalDateTime updatedBefore) {
+        SessionEntry entry = sessions.get(uploadId);
+        if (entry == null) {
+            return false;
+        }
+        synchronized (entry) {
+            UploadSession session = entry.session;
+            if (session.getStatus() != from
+                    || (updatedBefore != null && !session.getUpdateTime().isBefore(updatedBefore))) {
+                return false;
+            }
+            session.setStatus(to);
+            session.setUpdateTime(LocalDateTime.now());
+            return true;
+        }
+    }
+    
+    /**
+     * 单个上传会话的存储结构
+     */
+    private static final class SessionEntry {
+        
+        private UploadSession session;
+        private final BitSet uploaded = new BitSet();
+        private final Map<Integer, ChunkInfo> chunks = new HashMap<>();
+        private final Map<Integer, ChunkClaim> claims = new HashMap<>();
+        
+        private SessionEntry(UploadSession session) {
+            this.session = session;
+        }
+    }
+    
+    /**
+     * 写入中分片的认领
+     */
+    private record ChunkClaim(String claimToken, LocalDateTime claimTime) {
     }
 }
-
@@ -1,28 +1,94 @@
 package xtt.cloud.oa.file.infrastructure;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import xtt.cloud.oa.file.domain.ContentAction;
+import xtt.cloud.oa.file.domain.FileCursor;
 import xtt.cloud.oa.file.domain.FileInfo;
+import xtt.cloud.oa.file.domain.FilePage;
 import xtt.cloud.oa.file.domain.FileStorage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
- * 内存文件存储实现（临时实现，后续可替换为数据库存储）
+ * 内存文件存储实现（仅用于开发测试，file.storage.type=memory）
+ * 
+ * 每个用户维护按 (上传时间, 文件ID) 倒序排列的索引，分页查询从游标位置开始只读取一页，不扫描其他用户的文件
+ * 
+ * 内容引用数与文件信息一起保存在内存中，同一内容的增删引用在 ConcurrentHashMap.compute 中串行执行；
+ * 重启后文件信息丢失，已写入的数据块不再被引用但也不会被删除
  * 
  * @author xtt
  */
 @Component
+@ConditionalOnProperty(prefix = "file.storage", name = "type", havingValue = "memory")
 public class InMemoryFileStorage implements FileStorage {
     
+    /**
+     * 列表顺序：上传时间、文件ID倒序
+     */
+    private static final Comparator<FileCursor> LIST_ORDER = Comparator
+            .comparing(FileCursor::getUploadTime)
+            .thenComparing(FileCursor::getFileId)
+            .reversed();
+    
     private final Map<String, FileInfo> storage = new ConcurrentHashMap<>();
     
+    /**
+     * 用户ID -> 文件位置索引
+     */
+    private final Map<Long, NavigableSet<FileCursor>> userIndex = new ConcurrentHashMap<>();
+    
+    /**
+     * 内容哈希 -> 引用该内容的文件数
+     */
+    private final Map<String, Integer> contentRefs = new ConcurrentHashMap<>();
+    
+    @Override
+    public synchronized void save(FileInfo fileInfo) {
+        FileInfo previous = storage.put(fileInfo.getFileId(), fileInfo);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (fileInfo.getUploadUserId() != null) {
+            userIndex.computeIfAbsent(fileInfo.getUploadUserId(), id -> new ConcurrentSkipListSet<>(LIST_ORDER))
+                    .add(FileCursor.of(fileInfo));
+        }
+    }
+    
     @Override
-    public void save(FileInfo fileInfo) {
-        storage.put(fileInfo.getFileId(), fileInfo);
+    public boolean saveReferencing(FileInfo fileInfo, ContentAction content) throws IOException {
+        if (fileInfo.getContentHash() == null) {
+            if (!content.run()) {
+                return false;
+            }
+            save(fileInfo);
+            return true;
+        }
+        
+        boolean[] saved = new boolean[1];
+        try {
+            contentRefs.compute(fileInfo.getContentHash(), (hash, count) -> {
+                if (!runUnchecked(content)) {
+                    return count;
+                }
+                save(fileInfo);
+                saved[0] = true;
+                return count == null ? 1 : count + 1;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return saved[0];
     }
     
     @Override
@@ -31,19 +97,107 @@ public class InMemoryFileStorage implements FileStorage {
     }
     
     @Override
-    public List<FileInfo> findByUploadUserId(Long userId) {
-        List<FileInfo> result = new ArrayList<>();
-        for (FileInfo fileInfo : storage.values()) {
-            if (fileInfo.getUploadUserId() != null && fileInfo.getUploadUserId().equals(userId)) {
-                result.add(fileInfo);
+    public FilePage findByUploadUserId(Long userId, FileCursor cursor, int limit) {
+        NavigableSet<FileCursor> index = userId != null ? userIndex.get(userId) : null;
+        if (index == null || limit <= 0) {
+            return new FilePage(List.of(), null);
+        }
+        
+        List<FileInfo> fetched = new ArrayList<>(limit + 1);
+        for (FileCursor key : cursor != null ? index.tailSet(cursor, false) : index) {
+            FileInfo fileInfo = storage.get(key.getFileId());
+            if (fileInfo == null) {
+                // 并发删除
+                continue;
+            }
+            fetched.add(fileInfo);
+            if (fetched.size() > limit) {
+                break;
             }
         }
-        return result;
+        return FilePage.of(fetched, limit);
     }
     
     @Override
-    public void delete(String fileId) {
-        storage.remove(fileId);
+    public boolean existsByUploadUserIdAndContentHash(Long userId, String contentHash) {
+        NavigableSet<FileCursor> index = userId != null ? userIndex.get(userId) : null;
+        if (index == null || contentHash == null) {
+            return false;
+        }
+        for (FileCursor key : index) {
+            FileInfo fileInfo = storage.get(key.getFileId());
+            if (fileInfo != null && contentHash.equals(fileInfo.getContentHash())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public synchronized void delete(String fileId) {
+        FileInfo removed = storage.remove(fileId);
+        if (removed != null) {
+            unindex(removed);
+        }
+    }
+    
+    @Override
+    public void deleteReferencing(FileInfo fileInfo, ContentAction orphaned) throws IOException {
+        if (fileInfo.getContentHash() == null) {
+            if (storage.containsKey(fileInfo.getFileId())) {
+                orphaned.run();
+                delete(fileInfo.getFileId());
+            }
+            return;
+        }
+        
+        try {
+            contentRefs.compute(fileInfo.getContentHash(), (hash, count) -> {
+                if (!storage.containsKey(fileInfo.getFileId())) {
+                    // 已被并发删除
+                    return count;
+                }
+                int remaining = count == null ? 0 : count - 1;
+                if (remaining <= 0) {
+                    runUnchecked(orphaned);
+                }
+                delete(fileInfo.getFileId());
+                return remaining > 0 ? remaining : null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    @Override
+    public void deleteUnreferenced(String contentHash, ContentAction orphaned) throws IOException {
+        try {
+            contentRefs.compute(contentHash, (hash, count) -> {
+                if (count == null) {
+                    runUnchecked(orphaned);
+                }
+                return count;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private static boolean runUnchecked(ContentAction action) {
+        try {
+            return action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void unindex(FileInfo fileInfo) {
+        if (fileInfo.getUploadUserId() == null) {
+            return;
+        }
+        userIndex.computeIfPresent(fileInfo.getUploadUserId(), (id, index) -> {
+            index.remove(FileCursor.of(fileInfo));
+            return index.isEmpty() ? null : index;
+        });
     }
 }
-
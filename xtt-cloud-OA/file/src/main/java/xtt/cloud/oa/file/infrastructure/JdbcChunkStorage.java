@@ -0,0 +1,255 @@
+package xtt.cloud.oa.file.infrastructure;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import xtt.cloud.oa.file.domain.ChunkInfo;
+import xtt.cloud.oa.file.domain.ChunkStorage;
+import xtt.cloud.oa.file.domain.UploadSession;
+import xtt.cloud.oa.file.domain.UploadStatus;
+import xtt.cloud.oa.file.infrastructure.persistence.mapper.UploadChunkMapper;
+import xtt.cloud.oa.file.infrastructure.persistence.mapper.UploadQuotaMapper;
+import xtt.cloud.oa.file.infrastructure.persistence.mapper.UploadSessionMapper;
+import xtt.cloud.oa.file.infrastructure.persistence.po.UploadChunkPO;
+import xtt.cloud.oa.file.infrastructure.persistence.po.UploadSessionPO;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 数据库分片存储实现（默认，file.storage.type=jdbc）
+ *
+ * 会话和分片保存在 MySQL 中，服务重启后可以继续上传，多个实例共享上传进度：
+ * 1. 分片表主键为 (upload_id, chunk_index)，按会话查询/删除只扫描该会话的分片
+ * 2. 写入分片前用 INSERT IGNORE 插入带认领标识的行（同一分片同时只有一个请求写入），
+ *    写入并校验完成后按认领标识更新分片信息，同时原子递增会话的已上传分片数，进度查询为 O(1)
+ * 3. 会话状态转换和配额预留都是带条件的单条 UPDATE，按影响行数判断是否成功
+ *
+ * @author xtt
+ */
+@Component
+@ConditionalOnProperty(prefix = "file.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcChunkStorage implements ChunkStorage {
+    
+    private final UploadSessionMapper sessionMapper;
+    private final UploadChunkMapper chunkMapper;
+    private final UploadQuotaMapper quotaMapper;
+    
+    public JdbcChunkStorage(UploadSessionMapper sessionMapper, UploadChunkMapper chunkMapper,
+                            UploadQuotaMapper quotaMapper) {
+        this.sessionMapper = sessionMapper;
+        this.chunkMapper = chunkMapper;
+        this.quotaMapper = quotaMapper;
+    }
+    
+    @Override
+    @Transactional
+    public void saveChunk(ChunkInfo chunkInfo) {
+        chunkMapper.upsert(toPO(chunkInfo));
+        sessionMapper.refreshUploadedCount(chunkInfo.getUploadId());
+    }
+    
+    @Override
+    public Optional<String> claimChunk(String uploadId, Integer chunkIndex, LocalDateTime claimedBefore) {
+        String claimToken = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        if (chunkMapper.insertClaim(uploadId, chunkIndex, claimToken, now) > 0
+                || chunkMapper.reclaimStale(uploadId, chunkIndex, claimToken, now, claimedBefore) > 0) {
+            return Optional.of(claimToken);
+        }
+        return Optional.empty();
+    }
+    
+    @Override
+    public void releaseChunk(String uploadId, Integer chunkIndex, String claimToken) {
+        chunkMapper.releaseClaim(uploadId, chunkIndex, claimToken);
+    }
+    
+    @Override
+    @Transactional
+    public boolean markChunkUploaded(ChunkInfo chunkInfo, String claimToken) {
+        if (chunkMapper.completeClaim(toPO(chunkInfo), claimToken) == 0) {
+            return false;
+        }
+        sessionMapper.incrementUploadedCount(chunkInfo.getUploadId(), LocalDateTime.now());
+        return true;
+    }
+    
+    @Override
+    public BitSet findUploadedChunks(String uploadId) {
+        BitSet uploaded = new BitSet();
+        for (Integer chunkIndex : chunkMapper.selectChunkIndexes(uploadId)) {
+            uploaded.set(chunkIndex);
+        }
+        return uploaded;
+    }
+    
+    @Override
+    public Optional<ChunkInfo> findChunk(String uploadId, Integer chunkIndex) {
+        UploadChunkPO po = chunkMapper.selectOne(uploadedChunkQuery(uploadId)
+                .eq(UploadChunkPO::getChunkIndex, chunkIndex));
+        return Optional.ofNullable(po).map(this::toChunkInfo);
+    }
+    
+    @Override
+    public List<ChunkInfo> findAllChunks(String uploadId) {
+        return chunkMapper.selectList(uploadedChunkQuery(uploadId)).stream()
+                .map(this::toChunkInfo)
+                .collect(Collectors.toList());
+    }
+    
+    @Override
+    @Transactional
+    public void deleteChunk(String uploadId, Integer chunkIndex) {
+        chunkMapper.delete(chunkQuery(uploadId).eq(UploadChunkPO::getChunkIndex, chunkIndex));
+        sessionMapper.refreshUploadedCount(uploadId);
+    }
+    
+    @Override
+    @Transactional
+    public void deleteAllChunks(String uploadId) {
+        chunkMapper.delete(chunkQuery(uploadId));
+        sessionMapper.refreshUploadedCount(uploadId);
+    }
+    
+    @Override
+    public void saveSession(UploadSession session) {
+        UploadSessionPO po = toPO(session);
+        if (sessionMapper.updateById(po) == 0) {
+            po.setUploadedCount(0);
+            sessionMapper.insert(po);
+        }
+    }
+    
+    @Override
+    public Optional<UploadSession> findSession(String uploadId) {
+        return Optional.ofNullable(sessionMapper.selectById(uploadId)).map(this::toSession);
+    }
+    
+    @Override
+    @Transactional
+    public void deleteSession(String uploadId) {
+        chunkMapper.delete(chunkQuery(uploadId));
+        sessionMapper.deleteById(uploadId);
+    }
+    
+    @Override
+    public List<UploadSession> findStaleSessions(boolean completed, LocalDateTime updatedBefore, int limit) {
+        // idx_completed_update_time
+        return sessionMapper.selectList(new LambdaQueryWrapper<UploadSessionPO>()
+                        .eq(UploadSessionPO::getCompleted, completed)
+                        .lt(UploadSessionPO::getUpdateTime, updatedBefore)
+                        .orderByAsc(UploadSessionPO::getUpdateTime)
+                        .last("LIMIT " + limit))
+                .stream()
+                .map(this::toSession)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean claimSession(String uploadId, UploadStatus from, UploadStatus to) {
+        return sessionMapper.updateStatus(uploadId, from, to, LocalDateTime.now()) > 0;
+    }
+    
+    @Override
+    public boolean claimStaleSession(String uploadId, UploadStatus from, LocalDateTime updatedBefore) {
+        return sessionMapper.updateStaleStatus(uploadId, from, UploadStatus.EXPIRING, updatedBefore,
+                LocalDateTime.now()) > 0;
+    }
+    
+    @Override
+    public boolean completeSession(String uploadId, String fileId) {
+        return sessionMapper.complete(uploadId, fileId, LocalDateTime.now()) > 0;
+    }
+    
+    @Override
+    public boolean reserveQuota(Long userId, long bytes, long limit) {
+        quotaMapper.ensure(userId);
+        return quotaMapper.reserve(userId, bytes, limit) > 0;
+    }
+    
+    @Override
+    public void releaseQuota(Long userId, long bytes) {
+        quotaMapper.release(userId, bytes);
+    }
+
+    private LambdaQueryWrapper<UploadChunkPO> chunkQuery(String uploadId) {
+        return new LambdaQueryWrapper<UploadChunkPO>().eq(UploadChunkPO::getUploadId, uploadId);
+    }
+    
+    /**
+     * 会话已上传的分片（不包括写入中的分片）
+     */
+    private LambdaQueryWrapper<UploadChunkPO> uploadedChunkQuery(String uploadId) {
+        return chunkQuery(uploadId).isNull(UploadChunkPO::getClaimToken);
+    }
+    
+    private UploadChunkPO toPO(ChunkInfo chunkInfo) {
+        UploadChunkPO po = new UploadChunkPO();
+        po.setUploadId(chunkInfo.getUploadId());
+        po.setChunkIndex(chunkInfo.getChunkIndex());
+        po.setChunkSize(chunkInfo.getChunkSize());
+        po.setChunkPath(chunkInfo.getChunkPath());
+        po.setMd5(chunkInfo.getMd5());
+        po.setCrc32c(chunkInfo.getCrc32c());
+        po.setUploadTime(chunkInfo.getUploadTime() != null ? chunkInfo.getUploadTime() : LocalDateTime.now());
+        return po;
+    }
+    
+    private ChunkInfo toChunkInfo(UploadChunkPO po) {
+        return ChunkInfo.builder()
+                .uploadId(po.getUploadId())
+                .chunkIndex(po.getChunkIndex())
+                .chunkSize(po.getChunkSize())
+                .chunkPath(po.getChunkPath())
+                .md5(po.getMd5())
+                .crc32c(po.getCrc32c())
+                .uploadTime(po.getUploadTime())
+                .build();
+    }
+    
+    private UploadSessionPO toPO(UploadSession session) {
+        UploadSessionPO po = new UploadSessionPO();
+        po.setUploadId(session.getUploadId());
+        po.setOriginalFilename(session.getOriginalFilename());
+        po.setTotalSize(session.getTotalSize());
+        po.setChunkSize(session.getChunkSize());
+        po.setTotalChunks(session.getTotalChunks());
+        po.setUploadedCount(session.getUploadedCount());
+        po.setContentType(session.getContentType());
+        po.setExtension(session.getExtension());
+        po.setUploadUserId(session.getUploadUserId());
+        po.setCompleted(Boolean.TRUE.equals(session.getCompleted()));
+        po.setStatus(session.getStatus() != null ? session.getStatus() : UploadStatus.UPLOADING);
+        po.setFileId(session.getFileId());
+        po.setPreallocated(Boolean.TRUE.equals(session.getPreallocated()));
+        po.setCreateTime(session.getCreateTime());
+        po.setUpdateTime(session.getUpdateTime() != null ? session.getUpdateTime() : LocalDateTime.now());
+        return po;
+    }
+    
+    private UploadSession toSession(UploadSessionPO po) {
+        return UploadSession.builder()
+                .uploadId(po.getUploadId())
+                .originalFilename(po.getOriginalFilename())
+                .totalSize(po.getTotalSize())
+                .chunkSize(po.getChunkSize())
+                .totalChunks(po.getTotalChunks())
+                .uploadedCount(po.getUploadedCount())
+                .contentType(po.getContentType())
+                .extension(po.getExtension())
+                .uploadUserId(po.getUploadUserId())
+                .completed(po.getCompleted())
+                .status(po.getStatus())
+                .fileId(po.getFileId())
+                .preallocated(po.getPreallocated())
+                .createTime(po.getCreateTime())
+                .updateTime(po.getUpdateTime())
+                .build();
+    }
+}
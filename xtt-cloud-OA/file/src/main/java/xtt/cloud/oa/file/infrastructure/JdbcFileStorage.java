@@ -0,0 +1,167 @@
+package xtt.cloud.oa.file.infrastructure;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import xtt.cloud.oa.file.domain.ContentAction;
+import xtt.cloud.oa.file.domain.FileCursor;
+import xtt.cloud.oa.file.domain.FileInfo;
+import xtt.cloud.oa.file.domain.FilePage;
+import xtt.cloud.oa.file.domain.FileStorage;
+import xtt.cloud.oa.file.infrastructure.persistence.mapper.FileContentLockMapper;
+import xtt.cloud.oa.file.infrastructure.persistence.mapper.FileInfoMapper;
+import xtt.cloud.oa.file.infrastructure.persistence.po.FileInfoPO;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * 数据库文件存储实现（默认，file.storage.type=jdbc）
+ *
+ * 文件信息保存在 MySQL 中，实例内存不随文件总数增长，多个实例共享：
+ * 1. 按文件ID查询走主键
+ * 2. 用户文件列表走 idx_user_upload_time (upload_user_id, upload_time, file_id)，
+ *    键集分页每页只扫描 limit + 1 条索引记录，与页码和用户文件总数无关
+ * 3. 内容引用由 file_info.content_hash 表示，增删引用时在同一事务中锁定 file_content_lock 中该内容的行，
+ *    删除时按 idx_content_hash 统计剩余引用，归零才删除数据块，多实例、重启后都以数据库为准
+ *
+ * @author xtt
+ */
+@Component
+@ConditionalOnProperty(prefix = "file.storage", name = "type", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcFileStorage implements FileStorage {
+    
+    private final FileInfoMapper fileInfoMapper;
+    private final FileContentLockMapper fileContentLockMapper;
+    
+    public JdbcFileStorage(FileInfoMapper fileInfoMapper, FileContentLockMapper fileContentLockMapper) {
+        this.fileInfoMapper = fileInfoMapper;
+        this.fileContentLockMapper = fileContentLockMapper;
+    }
+    
+    @Override
+    public void save(FileInfo fileInfo) {
+        FileInfoPO po = toPO(fileInfo);
+        if (fileInfoMapper.updateById(po) == 0) {
+            fileInfoMapper.insert(po);
+        }
+    }
+    
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean saveReferencing(FileInfo fileInfo, ContentAction content) throws IOException {
+        if (fileInfo.getContentHash() != null) {
+            fileContentLockMapper.lock(fileInfo.getContentHash());
+        }
+        if (!content.run()) {
+            return false;
+        }
+        save(fileInfo);
+        return true;
+    }
+    
+    @Override
+    public Optional<FileInfo> findByFileId(String fileId) {
+        return Optional.ofNullable(fileInfoMapper.selectById(fileId)).map(this::toFileInfo);
+    }
+    
+    @Override
+    public FilePage findByUploadUserId(Long userId, FileCursor cursor, int limit) {
+        if (userId == null || limit <= 0) {
+            return new FilePage(List.of(), null);
+        }
+        
+        LambdaQueryWrapper<FileInfoPO> queryWrapper = new LambdaQueryWrapper<FileInfoPO>()
+                .eq(FileInfoPO::getUploadUserId, userId);
+        if (cursor != null) {
+            // (upload_time, file_id) < (cursor.uploadTime, cursor.fileId)
+            queryWrapper.and(w -> w
+                    .lt(FileInfoPO::getUploadTime, cursor.getUploadTime())
+                    .or(o -> o
+                            .eq(FileInfoPO::getUploadTime, cursor.getUploadTime())
+                            .lt(FileInfoPO::getFileId, cursor.getFileId())));
+        }
+        queryWrapper.orderByDesc(FileInfoPO::getUploadTime)
+                .orderByDesc(FileInfoPO::getFileId)
+                .last("LIMIT " + (limit + 1));  // 多取一条判断是否还有下一页
+        
+        List<FileInfo> fetched = fileInfoMapper.selectList(queryWrapper).stream()
+                .map(this::toFileInfo)
+                .collect(Collectors.toList());
+        return FilePage.of(fetched, limit);
+    }
+    
+    @Override
+    public boolean existsByUploadUserIdAndContentHash(Long userId, String contentHash) {
+        if (userId == null || contentHash == null) {
+            return false;
+        }
+        return fileInfoMapper.countByContentHashAndUploadUserId(contentHash, userId) > 0;
+    }
+    
+    @Override
+    public void delete(String fileId) {
+        fileInfoMapper.deleteById(fileId);
+    }
+    
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteReferencing(FileInfo fileInfo, ContentAction orphaned) throws IOException {
+        String contentHash = fileInfo.getContentHash();
+        if (contentHash != null) {
+            fileContentLockMapper.lock(contentHash);
+        }
+        if (fileInfoMapper.deleteById(fileInfo.getFileId()) == 0) {
+            // 已被并发删除，引用由对方释放
+            return;
+        }
+        if (contentHash == null || fileInfoMapper.countByContentHash(contentHash) == 0) {
+            orphaned.run();
+        }
+    }
+    
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteUnreferenced(String contentHash, ContentAction orphaned) throws IOException {
+        fileContentLockMapper.lock(contentHash);
+        if (fileInfoMapper.countByContentHash(contentHash) == 0) {
+            orphaned.run();
+        }
+    }
+    
+    private FileInfoPO toPO(FileInfo fileInfo) {
+        FileInfoPO po = new FileInfoPO();
+        po.setFileId(fileInfo.getFileId());
+        po.setOriginalFilename(fileInfo.getOriginalFilename());
+        po.setFilename(fileInfo.getFilename());
+        po.setStoragePath(fileInfo.getStoragePath());
+        po.setFileSize(fileInfo.getFileSize());
+        po.setContentType(fileInfo.getContentType());
+        po.setExtension(fileInfo.getExtension());
+        po.setContentHash(fileInfo.getContentHash());
+        po.setCrc32c(fileInfo.getCrc32c());
+        po.setUploadUserId(fileInfo.getUploadUserId());
+        po.setUploadTime(fileInfo.getUploadTime() != null ? fileInfo.getUploadTime() : LocalDateTime.now());
+        return po;
+    }
+    
+    private FileInfo toFileInfo(FileInfoPO po) {
+        return FileInfo.builder()
+                .fileId(po.getFileId())
+                .originalFilename(po.getOriginalFilename())
+                .filename(po.getFilename())
+                .storagePath(po.getStoragePath())
+                .fileSize(po.getFileSize())
+                .contentType(po.getContentType())
+                .extension(po.getExtension())
+                .contentHash(po.getContentHash())
+                .crc32c(po.getCrc32c())
+                .uploadUserId(po.getUploadUserId())
+                .uploadTime(po.getUploadTime())
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package xtt.cloud.oa.file.infrastructure.persistence.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 内容引用锁 Mapper
+ * 
+ * @author xtt
+ */
+@Mapper
+public interface FileContentLockMapper {
+    
+    /**
+     * 锁定内容（行不存在时插入），持有到事务结束
+     * 
+     * 使用 ON DUPLICATE KEY UPDATE 而不是 INSERT IGNORE + SELECT FOR UPDATE：
+     * 行已存在时直接加排他锁，避免两个事务先各自持有共享锁再同时升级导致死锁
+     */
+    @Insert("INSERT INTO file_content_lock (content_hash, create_time) VALUES (#{contentHash}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE content_hash = content_hash")
+    int lock(@Param("contentHash") String contentHash);
+}
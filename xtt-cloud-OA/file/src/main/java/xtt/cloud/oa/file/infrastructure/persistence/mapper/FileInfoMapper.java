@@ -0,0 +1,28 @@
+package xtt.cloud.oa.file.infrastructure.persistence.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import xtt.cloud.oa.file.infrastructure.persistence.po.FileInfoPO;
+
+/**
+ * 文件信息 Mapper
+ * 
+ * @author xtt
+ */
+@Mapper
+public interface FileInfoMapper extends BaseMapper<FileInfoPO> {
+    
+    /**
+     * 统计引用指定内容的文件数（idx_content_hash）
+     */
+    @Select("SELECT COUNT(*) FROM file_info WHERE content_hash = #{contentHash}")
+    long countByContentHash(@Param("contentHash") String contentHash);
+    
+    /**
+     * 统计用户上传的引用指定内容的文件数（idx_content_hash）
+     */
+    @Select("SELECT COUNT(*) FROM file_info WHERE content_hash = #{contentHash} AND upload_user_id = #{userId}")
+    long countByContentHashAndUploadUserId(@Param("contentHash") String contentHash, @Param("userId") Long userId);
+}
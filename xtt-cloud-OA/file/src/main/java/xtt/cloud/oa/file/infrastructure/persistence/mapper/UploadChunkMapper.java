@@ -0,0 +1,77 @@
+package xtt.cloud.oa.file.infrastructure.persistence.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import xtt.cloud.oa.file.infrastructure.persistence.po.UploadChunkPO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 已上传分片 Mapper
+ * 
+ * @author xtt
+ */
+@Mapper
+public interface UploadChunkMapper extends BaseMapper<UploadChunkPO> {
+    
+    /**
+     * 认领分片写入：插入写入中的分片，分片已存在（已上传或正在写入）时忽略
+     * 
+     * @return 1 表示认领成功，0 表示分片已存在
+     */
+    @Insert("INSERT IGNORE INTO file_upload_chunk (upload_id, chunk_index, chunk_size, claim_token, upload_time) " +
+            "VALUES (#{uploadId}, #{chunkIndex}, 0, #{claimToken}, #{claimTime})")
+    int insertClaim(@Param("uploadId") String uploadId, @Param("chunkIndex") Integer chunkIndex,
+                    @Param("claimToken") String claimToken, @Param("claimTime") LocalDateTime claimTime);
+    
+    /**
+     * 接管超时的认领（写入请求已中断但没有释放认领）
+     * 
+     * @return 1 表示接管成功，0 表示分片已上传或认领未超时
+     */
+    @Update("UPDATE file_upload_chunk SET claim_token = #{claimToken}, upload_time = #{claimTime} " +
+            "WHERE upload_id = #{uploadId} AND chunk_index = #{chunkIndex} " +
+            "AND claim_token IS NOT NULL AND upload_time < #{claimedBefore}")
+    int reclaimStale(@Param("uploadId") String uploadId, @Param("chunkIndex") Integer chunkIndex,
+                     @Param("claimToken") String claimToken, @Param("claimTime") LocalDateTime claimTime,
+                     @Param("claimedBefore") LocalDateTime claimedBefore);
+    
+    /**
+     * 完成认领的分片：记录分片信息并清空认领标识
+     * 
+     * @return 1 表示记录成功，0 表示认领已被接管或释放
+     */
+    @Update("UPDATE file_upload_chunk SET chunk_size = #{chunk.chunkSize}, chunk_path = #{chunk.chunkPath}, " +
+            "md5 = #{chunk.md5}, crc32c = #{chunk.crc32c}, upload_time = #{chunk.uploadTime}, claim_token = NULL " +
+            "WHERE upload_id = #{chunk.uploadId} AND chunk_index = #{chunk.chunkIndex} AND claim_token = #{claimToken}")
+    int completeClaim(@Param("chunk") UploadChunkPO chunk, @Param("claimToken") String claimToken);
+    
+    /**
+     * 释放认领（写入或校验失败时）
+     */
+    @Delete("DELETE FROM file_upload_chunk WHERE upload_id = #{uploadId} AND chunk_index = #{chunkIndex} " +
+            "AND claim_token = #{claimToken}")
+    int releaseClaim(@Param("uploadId") String uploadId, @Param("chunkIndex") Integer chunkIndex,
+                     @Param("claimToken") String claimToken);
+    
+    /**
+     * 插入或覆盖分片
+     */
+    @Insert("INSERT INTO file_upload_chunk (upload_id, chunk_index, chunk_size, chunk_path, md5, crc32c, upload_time) " +
+            "VALUES (#{uploadId}, #{chunkIndex}, #{chunkSize}, #{chunkPath}, #{md5}, #{crc32c}, #{uploadTime}) " +
+            "ON DUPLICATE KEY UPDATE chunk_size = VALUES(chunk_size), chunk_path = VALUES(chunk_path), " +
+            "md5 = VALUES(md5), crc32c = VALUES(crc32c), upload_time = VALUES(upload_time), claim_token = NULL")
+    int upsert(UploadChunkPO chunk);
+    
+    /**
+     * 查询会话已上传的分片索引（主键前缀范围扫描，不包括写入中的分片）
+     */
+    @Select("SELECT chunk_index FROM file_upload_chunk WHERE upload_id = #{uploadId} AND claim_token IS NULL")
+    List<Integer> selectChunkIndexes(@Param("uploadId") String uploadId);
+}
@@ -0,0 +1,36 @@
+package xtt.cloud.oa.file.infrastructure.persistence.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * 上传配额 Mapper（file_upload_quota）
+ * 
+ * @author xtt
+ */
+@Mapper
+public interface UploadQuotaMapper {
+    
+    /**
+     * 初始化用户的配额记录（已存在时不修改）
+     */
+    @Insert("INSERT INTO file_upload_quota (user_id, used_bytes, update_time) VALUES (#{userId}, 0, NOW()) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id")
+    int ensure(@Param("userId") Long userId);
+    
+    /**
+     * 预留配额：占用加上本次大小不超过上限时增加占用（返回 0 表示超过配额）
+     */
+    @Update("UPDATE file_upload_quota SET used_bytes = used_bytes + #{bytes}, update_time = NOW() " +
+            "WHERE user_id = #{userId} AND (#{limit} <= 0 OR used_bytes + #{bytes} <= #{limit})")
+    int reserve(@Param("userId") Long userId, @Param("bytes") long bytes, @Param("limit") long limit);
+    
+    /**
+     * 释放配额
+     */
+    @Update("UPDATE file_upload_quota SET used_bytes = GREATEST(used_bytes - #{bytes}, 0), update_time = NOW() " +
+            "WHERE user_id = #{userId}")
+    int release(@Param("userId") Long userId, @Param("bytes") long bytes);
+}
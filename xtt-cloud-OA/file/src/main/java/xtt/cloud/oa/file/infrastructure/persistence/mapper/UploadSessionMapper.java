@@ -0,0 +1,59 @@
+package xtt.cloud.oa.file.infrastructure.persistence.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+import xtt.cloud.oa.file.domain.UploadStatus;
+import xtt.cloud.oa.file.infrastructure.persistence.po.UploadSessionPO;
+
+import java.time.LocalDateTime;
+
+/**
+ * 上传会话 Mapper
+ * 
+ * @author xtt
+ */
+@Mapper
+public interface UploadSessionMapper extends BaseMapper<UploadSessionPO> {
+    
+    /**
+     * 已上传分片数加一（多实例并发上传时由数据库保证原子性）
+     */
+    @Update("UPDATE file_upload_session SET uploaded_count = uploaded_count + 1, update_time = #{updateTime} " +
+            "WHERE upload_id = #{uploadId}")
+    int incrementUploadedCount(@Param("uploadId") String uploadId, @Param("updateTime") LocalDateTime updateTime);
+    
+    /**
+     * 按实际已上传的分片数（不包括写入中的分片）重置已上传分片数
+     */
+    @Update("UPDATE file_upload_session SET uploaded_count = " +
+            "(SELECT COUNT(*) FROM file_upload_chunk WHERE upload_id = #{uploadId} AND claim_token IS NULL) " +
+            "WHERE upload_id = #{uploadId}")
+    int refreshUploadedCount(@Param("uploadId") String uploadId);
+    
+    /**
+     * 条件转换会话状态（返回 0 表示会话不存在或状态已被其他请求转换）
+     */
+    @Update("UPDATE file_upload_session SET status = #{to}, update_time = #{updateTime} " +
+            "WHERE upload_id = #{uploadId} AND status = #{from}")
+    int updateStatus(@Param("uploadId") String uploadId, @Param("from") UploadStatus from,
+                     @Param("to") UploadStatus to, @Param("updateTime") LocalDateTime updateTime);
+    
+    /**
+     * 条件转换超过指定时间未更新的会话状态
+     */
+    @Update("UPDATE file_upload_session SET status = #{to}, update_time = #{updateTime} " +
+            "WHERE upload_id = #{uploadId} AND status = #{from} AND update_time < #{updatedBefore}")
+    int updateStaleStatus(@Param("uploadId") String uploadId, @Param("from") UploadStatus from,
+                          @Param("to") UploadStatus to, @Param("updatedBefore") LocalDateTime updatedBefore,
+                          @Param("updateTime") LocalDateTime updateTime);
+    
+    /**
+     * 合并中的会话转换为已完成并记录文件ID
+     */
+    @Update("UPDATE file_upload_session SET status = 'COMPLETED', completed = 1, file_id = #{fileId}, " +
+            "update_time = #{updateTime} WHERE upload_id = #{uploadId} AND status = 'MERGING'")
+    int complete(@Param("uploadId") String uploadId, @Param("fileId") String fileId,
+                 @Param("updateTime") LocalDateTime updateTime);
+}
@@ -0,0 +1,41 @@
+package xtt.cloud.oa.file.infrastructure.persistence.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件信息持久化对象（file_info）
+ * 
+ * @author xtt
+ */
+@Data
+@TableName("file_info")
+public class FileInfoPO {
+    
+    @TableId(type = IdType.INPUT)
+    private String fileId;
+    
+    private String originalFilename;
+    
+    private String filename;
+    
+    private String storagePath;
+    
+    private Long fileSize;
+    
+    private String contentType;
+    
+    private String extension;
+    
+    private String contentHash;
+    
+    private String crc32c;
+    
+    private Long uploadUserId;
+    
+    private LocalDateTime uploadTime;
+}
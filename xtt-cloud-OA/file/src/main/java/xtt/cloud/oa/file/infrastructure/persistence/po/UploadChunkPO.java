@@ -0,0 +1,35 @@
+package xtt.cloud.oa.file.infrastructure.persistence.po;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已上传分片持久化对象（file_upload_chunk，主键 upload_id + chunk_index）
+ * 
+ * @author xtt
+ */
+@Data
+@TableName("file_upload_chunk")
+public class UploadChunkPO {
+    
+    private String uploadId;
+    
+    private Integer chunkIndex;
+    
+    private Long chunkSize;
+    
+    private String chunkPath;
+    
+    private String md5;
+    
+    private Long crc32c;
+    
+    /**
+     * 写入中的认领标识，为空表示分片已上传
+     */
+    private String claimToken;
+    
+    private LocalDateTime uploadTime;
+}
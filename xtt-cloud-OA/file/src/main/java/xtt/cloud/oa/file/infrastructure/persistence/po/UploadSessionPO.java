@@ -0,0 +1,61 @@
+package xtt.cloud.oa.file.infrastructure.persistence.po;
+
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import xtt.cloud.oa.file.domain.UploadStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * 上传会话持久化对象（file_upload_session）
+ * 
+ * @author xtt
+ */
+@Data
+@TableName("file_upload_session")
+public class UploadSessionPO {
+    
+    @TableId(type = IdType.INPUT)
+    private String uploadId;
+    
+    private String originalFilename;
+    
+    private Long totalSize;
+    
+    private Long chunkSize;
+    
+    private Integer totalChunks;
+    
+    /**
+     * 已上传分片数，只通过 incrementUploadedCount 原子递增，保存会话时不覆盖
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private Integer uploadedCount;
+    
+    private String contentType;
+    
+    private String extension;
+    
+    private Long uploadUserId;
+    
+    private Boolean completed;
+    
+    /**
+     * 会话状态，只通过条件更新转换，保存会话时不覆盖
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private UploadStatus status;
+    
+    private String fileId;
+    
+    private Boolean preallocated;
+    
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private LocalDateTime createTime;
+    
+    private LocalDateTime updateTime;
+}
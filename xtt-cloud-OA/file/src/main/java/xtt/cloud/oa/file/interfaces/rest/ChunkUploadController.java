@@ -1,7 +1,9 @@
 package xtt.cloud.oa.file.interfaces.rest;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -10,11 +12,18 @@ import xtt.cloud.oa.file.domain.FileInfo;
 import xtt.cloud.oa.file.domain.UploadSession;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 分片上传控制器
  * 
+ * 所有接口都需要网关根据令牌设置的 X-User-Id 请求头（缺失时返回 401），
+ * 上传会话只能由创建它的用户操作，其他用户的会话按不存在处理
+ * 
  * @author xtt
  */
 @RestController
@@ -29,13 +38,49 @@ public class ChunkUploadController {
         this.chunkUploadService = chunkUploadService;
     }
     
+    /**
+     * 秒传探测
+     * 
+     * 上传前按文件内容 SHA-256 探测，当前用户上传过相同内容时直接完成上传并返回文件信息
+     * 
+     * @param filename 文件名
+     * @param totalSize 文件总大小
+     * @param sha256 文件内容 SHA-256（十六进制）
+     * @param userId 用户ID（网关根据令牌设置的请求头）
+     * @return exists=true 时包含 file（文件信息），否则需要继续分片上传
+     */
+    @PostMapping("/probe")
+    public ResponseEntity<Map<String, Object>> probeUpload(
+            @RequestParam("filename") String filename,
+            @RequestParam("totalSize") Long totalSize,
+            @RequestParam("sha256") String sha256,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        try {
+            Optional<FileInfo> fileInfo = chunkUploadService.probeUpload(filename, totalSize, sha256, userId);
+            Map<String, Object> result = fileInfo
+                    .<Map<String, Object>>map(file -> Map.of("exists", true, "file", file))
+                    .orElseGet(() -> Map.of("exists", false));
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            log.error("秒传探测参数错误", e);
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("秒传探测失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
     /**
      * 初始化分片上传
      * 
      * @param filename 文件名
      * @param totalSize 文件总大小
      * @param chunkSize 分片大小（可选）
-     * @param userId 用户ID（可选）
+     * @param userId 用户ID（网关根据令牌设置的请求头）
      * @return 上传会话
      */
     @PostMapping("/init")
@@ -43,15 +88,21 @@ public class ChunkUploadController {
             @RequestParam("filename") String filename,
             @RequestParam("totalSize") Long totalSize,
             @RequestParam(value = "chunkSize", required = false) Long chunkSize,
-            @RequestParam(value = "userId", required = false) Long userId) {
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
         try {
-            // TODO: 从 JWT token 中获取用户ID
-            if (userId == null) {
-                userId = 1L; // 临时默认值
-            }
-            
             UploadSession session = chunkUploadService.initUpload(filename, totalSize, chunkSize, userId);
             return ResponseEntity.ok(session);
+        } catch (IllegalArgumentException e) {
+            log.error("初始化分片上传参数错误", e);
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            // 未完成上传超过配额，客户端完成或取消已有上传后重试
+            log.warn("初始化分片上传被拒绝: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
         } catch (Exception e) {
             log.error("初始化分片上传失败", e);
             return ResponseEntity.internalServerError().build();
@@ -64,15 +115,25 @@ public class ChunkUploadController {
      * @param uploadId 上传ID
      * @param chunkIndex 分片索引
      * @param chunk 分片文件
+     * @param crc32c 分片 CRC32C（可选，十六进制），不一致时拒绝
+     * @param md5 分片 MD5（可选，十六进制），不一致时拒绝
+     * @param userId 用户ID（网关根据令牌设置的请求头）
      * @return 操作结果
      */
     @PostMapping("/upload")
     public ResponseEntity<Map<String, Object>> uploadChunk(
             @RequestParam("uploadId") String uploadId,
             @RequestParam("chunkIndex") Integer chunkIndex,
-            @RequestParam("chunk") MultipartFile chunk) {
+            @RequestParam("chunk") MultipartFile chunk,
+            @RequestParam(value = "crc32c", required = false) String crc32c,
+            @RequestParam(value = "md5", required = false) String md5,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
         try {
-            chunkUploadService.uploadChunk(uploadId, chunkIndex, chunk);
+            chunkUploadService.uploadChunk(uploadId, chunkIndex, chunk, crc32c, md5, userId);
             
             Map<String, Object> result = Map.of(
                     "success", true,
@@ -84,8 +145,56 @@ public class ChunkUploadController {
             log.error("分片上传参数错误", e);
             return ResponseEntity.badRequest().build();
         } catch (IllegalStateException e) {
-            log.error("分片上传状态错误", e);
+            // 会话已不能上传，或同一分片正在由其他请求写入
+            log.warn("分片上传被拒绝: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IOException e) {
+            log.error("分片上传失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+    
+    /**
+     * 流式上传分片
+     * 
+     * 请求体即分片内容（非 multipart），直接写入目标文件
+     * 
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片索引
+     * @param crc32c 分片 CRC32C（可选，请求头 X-Chunk-CRC32C，十六进制）
+     * @param md5 分片 MD5（可选，请求头 X-Chunk-MD5，十六进制）
+     * @param userId 用户ID（网关根据令牌设置的请求头）
+     * @return 操作结果
+     */
+    @PutMapping("/{uploadId}/{chunkIndex}")
+    public ResponseEntity<Map<String, Object>> uploadChunkStream(
+            @PathVariable String uploadId,
+            @PathVariable Integer chunkIndex,
+            @RequestHeader(value = "X-Chunk-CRC32C", required = false) String crc32c,
+            @RequestHeader(value = "X-Chunk-MD5", required = false) String md5,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId,
+            HttpServletRequest request) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        try (InputStream inputStream = request.getInputStream()) {
+            chunkUploadService.uploadChunk(uploadId, chunkIndex, inputStream, request.getContentLengthLong(),
+                    crc32c, md5, userId);
+            
+            Map<String, Object> result = Map.of(
+                    "success", true,
+                    "uploadId", uploadId,
+                    "chunkIndex", chunkIndex
+            );
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            log.error("分片上传参数错误", e);
             return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            // 会话已不能上传，或同一分片正在由其他请求写入
+            log.warn("分片上传被拒绝: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (IOException e) {
             log.error("分片上传失败", e);
             return ResponseEntity.internalServerError().build();
@@ -95,36 +204,61 @@ public class ChunkUploadController {
     /**
      * 合并分片
      * 
+     * 合并在合并线程池中执行（异步请求，不占用请求线程），合并线程池已满时返回 503
+     * 
      * @param uploadId 上传ID
+     * @param userId 用户ID（网关根据令牌设置的请求头）
      * @return 文件信息
      */
     @PostMapping("/merge")
-    public ResponseEntity<FileInfo> mergeChunks(@RequestParam("uploadId") String uploadId) {
+    public CompletableFuture<ResponseEntity<FileInfo>> mergeChunks(
+            @RequestParam("uploadId") String uploadId,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (userId == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        
+        CompletableFuture<FileInfo> merge;
         try {
-            FileInfo fileInfo = chunkUploadService.mergeChunks(uploadId);
-            return ResponseEntity.ok(fileInfo);
-        } catch (IllegalArgumentException e) {
+            merge = chunkUploadService.mergeChunks(uploadId, userId);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(mergeError(e));
+        }
+        return merge.handle((fileInfo, e) -> e == null ? ResponseEntity.ok(fileInfo) : mergeError(e));
+    }
+    
+    private ResponseEntity<FileInfo> mergeError(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
             log.error("合并分片参数错误", e);
             return ResponseEntity.badRequest().build();
-        } catch (IllegalStateException e) {
+        }
+        if (e instanceof IllegalStateException) {
             log.error("合并分片状态错误", e);
             return ResponseEntity.badRequest().build();
-        } catch (IOException e) {
-            log.error("合并分片失败", e);
-            return ResponseEntity.internalServerError().build();
         }
+        log.error("合并分片失败", e);
+        return ResponseEntity.internalServerError().build();
     }
     
     /**
      * 获取上传进度
      * 
      * @param uploadId 上传ID
+     * @param userId 用户ID（网关根据令牌设置的请求头）
      * @return 上传进度
      */
     @GetMapping("/progress/{uploadId}")
-    public ResponseEntity<Map<String, Object>> getProgress(@PathVariable String uploadId) {
+    public ResponseEntity<Map<String, Object>> getProgress(
+            @PathVariable String uploadId,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
         try {
-            Map<String, Object> progress = chunkUploadService.getUploadProgress(uploadId);
+            Map<String, Object> progress = chunkUploadService.getUploadProgress(uploadId, userId);
             return ResponseEntity.ok(progress);
         } catch (IllegalArgumentException e) {
             log.error("获取上传进度失败", e);
@@ -136,16 +270,27 @@ public class ChunkUploadController {
      * 取消上传
      * 
      * @param uploadId 上传ID
+     * @param userId 用户ID（网关根据令牌设置的请求头）
      * @return 操作结果
      */
     @DeleteMapping("/{uploadId}")
-    public ResponseEntity<Void> cancelUpload(@PathVariable String uploadId) {
+    public ResponseEntity<Void> cancelUpload(
+            @PathVariable String uploadId,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
         try {
-            chunkUploadService.cancelUpload(uploadId);
+            chunkUploadService.cancelUpload(uploadId, userId);
             return ResponseEntity.noContent().build();
         } catch (IllegalArgumentException e) {
             log.error("取消上传失败", e);
             return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            // 正在合并或已被清理
+            log.warn("取消上传被拒绝: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             log.error("取消上传失败", e);
             return ResponseEntity.internalServerError().build();
@@ -1,23 +1,28 @@
 package xtt.cloud.oa.file.interfaces.rest;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import xtt.cloud.oa.file.application.FileService;
+import xtt.cloud.oa.file.application.ThumbnailService;
+import xtt.cloud.oa.file.domain.FileCursor;
 import xtt.cloud.oa.file.domain.FileInfo;
+import xtt.cloud.oa.file.domain.FilePage;
+import xtt.cloud.oa.file.interfaces.rest.dto.FilePageResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.nio.file.Paths;
+import java.util.Optional;
 
 /**
  * 文件控制器
@@ -30,13 +35,21 @@ public class FileController {
     
     private static final Logger log = LoggerFactory.getLogger(FileController.class);
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
     private final FileService fileService;
+    private final ThumbnailService thumbnailService;
+    private final FileResponseWriter fileResponseWriter;
     private final String rootPath;
     
     public FileController(
             FileService fileService,
+            ThumbnailService thumbnailService,
+            FileResponseWriter fileResponseWriter,
             @Value("${file.upload.root-path:/app/files}") String rootPath) {
         this.fileService = fileService;
+        this.thumbnailService = thumbnailService;
+        this.fileResponseWriter = fileResponseWriter;
         this.rootPath = rootPath;
     }
     
@@ -44,19 +57,18 @@ public class FileController {
      * 上传文件
      * 
      * @param file 文件
-     * @param userId 用户ID（可以从 JWT token 中获取）
+     * @param userId 用户ID（网关根据令牌设置的请求头）
      * @return 文件信息
      */
     @PostMapping("/upload")
     public ResponseEntity<FileInfo> uploadFile(
             @RequestParam("file") MultipartFile file,
-            @RequestParam(value = "userId", required = false) Long userId) {
+            @RequestHeader(value = "X-User-Id", required = false) Long userId) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
         try {
-            // TODO: 从 JWT token 中获取用户ID
-            if (userId == null) {
-                userId = 1L; // 临时默认值
-            }
-            
             FileInfo fileInfo = fileService.uploadFile(file, userId);
             return ResponseEntity.ok(fileInfo);
         } catch (IOException e) {
@@ -68,78 +80,126 @@ public class FileController {
         }
     }
     
+    /**
+     * 流式上传文件
+     * 
+     * 请求体即文件内容（非 multipart），边读取边写入存储并计算 SHA-256，
+     * 服务端不缓存整个文件，适合大文件上传
+     * 
+     * @param filename 文件名
+     * @param userId 用户ID（网关根据令牌设置的请求头）
+     * @param sha256 文件内容 SHA-256（可选，请求头 X-Content-SHA256），不一致时拒绝
+     * @return 文件信息
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<FileInfo> uploadStream(
+            @RequestParam("filename") String filename,
+            @RequestHeader(value = "X-User-Id", required = false) Long userId,
+            @RequestHeader(value = "X-Content-SHA256", required = false) String sha256,
+            HttpServletRequest request) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.toLowerCase().startsWith("multipart/")) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+        
+        try (InputStream inputStream = request.getInputStream()) {
+            FileInfo fileInfo = fileService.uploadStream(inputStream, filename,
+                    contentType != null ? contentType : "application/octet-stream",
+                    request.getContentLengthLong(), sha256, userId);
+            return ResponseEntity.ok(fileInfo);
+        } catch (IOException e) {
+            log.error("流式上传失败", e);
+            return ResponseEntity.internalServerError().build();
+        } catch (IllegalArgumentException e) {
+            log.error("流式上传参数错误", e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     /**
      * 下载文件
      * 
+     * 支持范围请求（断点续传）和条件请求，见 {@link FileResponseWriter}
+     * 
      * @param fileId 文件ID
-     * @return 文件
      */
     @GetMapping("/download/{fileId}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileId) {
+    public void downloadFile(@PathVariable String fileId,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
         try {
             FileInfo fileInfo = fileService.downloadFile(fileId);
-            Path filePath = fileService.getFilePath(fileId);
-            
-            Resource resource = new FileSystemResource(filePath.toFile());
-            
-            if (!resource.exists()) {
-                return ResponseEntity.notFound().build();
-            }
+            Path filePath = fileService.getFilePath(fileInfo);
             
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + fileInfo.getOriginalFilename() + "\"")
-                    .contentType(MediaType.parseMediaType(
-                            fileInfo.getContentType() != null ? fileInfo.getContentType() : "application/octet-stream"))
-                    .body(resource);
+            String contentType = fileInfo.getContentType() != null
+                    ? fileInfo.getContentType() : "application/octet-stream";
+            fileResponseWriter.write(request, response, fileInfo, filePath, contentType, "attachment");
         } catch (IllegalArgumentException e) {
             log.error("文件下载失败，文件ID: {}", fileId, e);
-            return ResponseEntity.notFound().build();
+            sendError(response, HttpServletResponse.SC_NOT_FOUND);
         } catch (Exception e) {
             log.error("文件下载失败", e);
-            return ResponseEntity.internalServerError().build();
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         }
     }
     
     /**
      * 预览文件（在线查看）
      * 
+     * 支持范围请求（PDF 预览器按需读取）和条件请求，见 {@link FileResponseWriter}
+     * 
+     * 图片可以通过 size 请求缩略图（最长边像素，向上取整到配置的规格），
+     * 缩略图尚未生成完成或原图小于规格时返回原图
+     * 
      * @param fileId 文件ID
-     * @return 文件
+     * @param size 缩略图尺寸（可选）
      */
     @GetMapping("/preview/{fileId}")
-    public ResponseEntity<Resource> previewFile(@PathVariable String fileId) {
+    public void previewFile(@PathVariable String fileId,
+                            @RequestParam(value = "size", required = false) Integer size,
+                            HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
         try {
             FileInfo fileInfo = fileService.downloadFile(fileId);
-            Path filePath = fileService.getFilePath(fileId);
-            
-            Resource resource = new FileSystemResource(filePath.toFile());
+            Path filePath = fileService.getFilePath(fileInfo);
             
-            if (!resource.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            // 设置 Content-Type
+            // 设置 Content-Type（内容寻址存储的文件没有扩展名，按原始文件名推断）
             String contentType = fileInfo.getContentType();
             if (contentType == null) {
                 try {
-                    contentType = Files.probeContentType(filePath);
-                } catch (IOException e) {
+                    contentType = Files.probeContentType(Paths.get(fileInfo.getOriginalFilename()));
+                } catch (Exception e) {
+                    contentType = null;
+                }
+                if (contentType == null) {
                     contentType = "application/octet-stream";
                 }
             }
             
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "inline; filename=\"" + fileInfo.getOriginalFilename() + "\"")
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .body(resource);
+            if (size != null && size > 0 && thumbnailService.supports(contentType)) {
+                int thumbnailSize = thumbnailService.normalizeSize(size);
+                Optional<FileChannel> thumbnail = thumbnailService.openThumbnail(fileInfo, filePath, contentType,
+                        thumbnailSize);
+                if (thumbnail.isPresent()) {
+                    try (FileChannel channel = thumbnail.get()) {
+                        fileResponseWriter.writeRendition(request, response, fileInfo, channel,
+                                thumbnailService.thumbnailContentType(contentType), "w" + thumbnailSize);
+                    }
+                    return;
+                }
+            }
+            
+            fileResponseWriter.write(request, response, fileInfo, filePath, contentType, "inline");
         } catch (IllegalArgumentException e) {
             log.error("文件预览失败，文件ID: {}", fileId, e);
-            return ResponseEntity.notFound().build();
+            sendError(response, HttpServletResponse.SC_NOT_FOUND);
         } catch (Exception e) {
             log.error("文件预览失败", e);
-            return ResponseEntity.internalServerError().build();
+            sendError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
         }
     }
     
@@ -181,15 +241,46 @@ public class FileController {
     }
     
     /**
-     * 获取用户文件列表
+     * 按游标获取当前用户的文件列表（按上传时间倒序）
+     * 
+     * 第一页不传 cursor，之后传上一页返回的 nextCursor
      * 
-     * @param userId 用户ID
-     * @return 文件列表
+     * @param userId 用户ID（网关根据令牌设置的请求头）
+     * @param cursor 分页游标（可选）
+     * @param size 每页条数（默认 20，最大 100）
+     * @return 文件分页
      */
-    @GetMapping("/user/{userId}")
-    public ResponseEntity<List<FileInfo>> getUserFiles(@PathVariable Long userId) {
-        List<FileInfo> files = fileService.getUserFiles(userId);
-        return ResponseEntity.ok(files);
+    @GetMapping("/user")
+    public ResponseEntity<FilePageResponse> getUserFiles(
+            @RequestHeader(value = "X-User-Id", required = false) Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        if (userId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        
+        try {
+            int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+            FilePage page = fileService.getUserFiles(userId, FileCursor.decode(cursor), pageSize);
+            
+            FilePageResponse response = new FilePageResponse(
+                    page.getRecords(),
+                    page.getNextCursor() != null ? page.getNextCursor().encode() : null,
+                    page.hasMore());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.error("获取用户文件列表参数错误，用户ID: {}", userId, e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * 输出错误状态（响应已开始输出时无法再修改状态）
+     */
+    private void sendError(HttpServletResponse response, int status) throws IOException {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.sendError(status);
+        }
     }
 }
-
@@ -0,0 +1,344 @@
+package xtt.cloud.oa.file.interfaces.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import xtt.cloud.oa.file.domain.FileInfo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 文件响应输出
+ *
+ * 1. 条件请求：强 ETag（内容哈希，旧文件使用文件ID）和 Last-Modified（上传时间），
+ *    支持 If-None-Match / If-Modified-Since（304）和 If-Match / If-Unmodified-Since（412）
+ * 2. 范围请求：单范围返回 206 + Content-Range，多范围返回 multipart/byteranges，
+ *    不可满足时返回 416；If-Range 不匹配时返回完整内容
+ * 3. 零拷贝：单段响应体不小于 file.download.sendfile-min-size 且容器支持时交给 Tomcat sendfile 发送，
+ *    否则使用 FileChannel.transferTo 直接写入响应流；副本可能在输出期间被缓存淘汰，
+ *    只从调用方已打开的通道输出，不使用按文件名重新打开的 sendfile
+ *
+ * @author xtt
+ */
+@Component
+public class FileResponseWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES_PREFIX = "bytes=";
+    private static final String CRLF = "\r\n";
+
+    /**
+     * 单次请求允许的最大范围数，超过时忽略 Range 返回完整内容
+     */
+    private static final int MAX_RANGES = 32;
+
+    private final long sendfileMinSize;
+
+    public FileResponseWriter(@Value("${file.download.sendfile-min-size:49152}") long sendfileMinSize) {
+        this.sendfileMinSize = sendfileMinSize;
+    }
+
+    /**
+     * 输出文件
+     *
+     * @param request 请求
+     * @param response 响应
+     * @param fileInfo 文件信息
+     * @param filePath 文件路径
+     * @param contentType 内容类型
+     * @param dispositionType Content-Disposition 类型（attachment / inline）
+     */
+    public void write(HttpServletRequest request, HttpServletResponse response, FileInfo fileInfo,
+                      Path filePath, String contentType, String dispositionType) throws IOException {
+        String etag = etag(fileInfo, null);
+        if (checkNotModified(request, response, fileInfo, etag)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            write(request, response, fileInfo, etag, channel, filePath, contentType, dispositionType);
+        }
+    }
+
+    /**
+     * 输出文件的副本（缩略图等），ETag 为原文件 ETag 加副本标识
+     *
+     * @param request 请求
+     * @param response 响应
+     * @param fileInfo 原文件信息
+     * @param renditionChannel 已打开的副本通道（由调用方关闭）
+     * @param contentType 副本内容类型
+     * @param variant 副本标识（如缩略图规格）
+     */
+    public void writeRendition(HttpServletRequest request, HttpServletResponse response, FileInfo fileInfo,
+                               FileChannel renditionChannel, String contentType, String variant) throws IOException {
+        String etag = etag(fileInfo, variant);
+        if (checkNotModified(request, response, fileInfo, etag)) {
+            return;
+        }
+        write(request, response, fileInfo, etag, renditionChannel, null, contentType, "inline");
+    }
+
+    /**
+     * 条件请求（同时设置 ETag / Last-Modified 响应头）
+     */
+    private boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, FileInfo fileInfo,
+                                     String etag) {
+        return new ServletWebRequest(request, response).checkNotModified(etag, lastModified(fileInfo));
+    }
+
+    /**
+     * 输出已打开的通道
+     *
+     * @param filePath 文件路径，为 null 时不使用 sendfile
+     */
+    private void write(HttpServletRequest request, HttpServletResponse response, FileInfo fileInfo, String etag,
+                       FileChannel channel, Path filePath, String contentType, String dispositionType)
+            throws IOException {
+        long lastModified = lastModified(fileInfo);
+        long length = channel.size();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder(dispositionType)
+                .filename(fileInfo.getOriginalFilename(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        List<ByteRange> ranges = rangeHeader != null && ifRangeMatches(request, etag, lastModified)
+                ? parseRanges(rangeHeader, length)
+                : null;
+
+        boolean head = HttpMethod.HEAD.matches(request.getMethod());
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                sendRegion(request, response, channel, filePath, 0, length);
+            }
+        } else if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(length));
+            response.setContentLengthLong(range.length());
+            if (!head) {
+                sendRegion(request, response, channel, filePath, range.start(), range.length());
+            }
+        } else {
+            writeMultipart(response, channel, ranges, length, contentType, head);
+        }
+    }
+
+    /**
+     * 输出一段连续内容：有文件路径且满足条件时使用 sendfile，否则 transferTo 到响应流
+     */
+    private void sendRegion(HttpServletRequest request, HttpServletResponse response, FileChannel channel,
+                            Path filePath, long position, long count) throws IOException {
+        if (filePath != null && count >= sendfileMinSize
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, filePath.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        transfer(channel, position, count, Channels.newChannel(out));
+        out.flush();
+    }
+
+    /**
+     * 输出 multipart/byteranges
+     */
+    private void writeMultipart(HttpServletResponse response, FileChannel channel, List<ByteRange> ranges,
+                                long length, String contentType, boolean head) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] header = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(length) + CRLF
+                    + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + range.length();
+        }
+        byte[] closing = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            out.write(partHeaders.get(i));
+            transfer(channel, range.start(), range.length(), target);
+        }
+        out.write(closing);
+        out.flush();
+    }
+
+    private static void transfer(FileChannel channel, long position, long count,
+                                 WritableByteChannel target) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            long written = channel.transferTo(position + transferred, count - transferred, target);
+            if (written <= 0) {
+                throw new IOException("文件在传输过程中被截断");
+            }
+            transferred += written;
+        }
+    }
+
+    /**
+     * If-Range：强 ETag 或 Last-Modified 精确匹配时才按范围返回
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (!StringUtils.hasText(ifRange)) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析 Range 头
+     *
+     * @return null 表示忽略 Range（格式错误、范围过多或请求总量超过文件大小），空列表表示不可满足
+     */
+    static List<ByteRange> parseRanges(String header, long length) {
+        if (!header.regionMatches(true, 0, BYTES_PREFIX, 0, BYTES_PREFIX.length())) {
+            return null;
+        }
+
+        String[] specs = header.substring(BYTES_PREFIX.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        long requested = 0;
+        for (String spec : specs) {
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+
+            long start;
+            long end;
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // 后缀范围：最后 N 个字节
+                    long suffix = parsePosition(last);
+                    start = Math.max(length - suffix, 0);
+                    end = suffix > 0 ? length - 1 : -1;
+                } else {
+                    start = parsePosition(first);
+                    if (last.isEmpty()) {
+                        end = length - 1;
+                    } else {
+                        end = parsePosition(last);
+                        if (end < start) {
+                            return null;
+                        }
+                        end = Math.min(end, length - 1);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+
+            if (start < length && start <= end) {
+                ByteRange range = new ByteRange(start, end);
+                requested += range.length();
+                ranges.add(range);
+            }
+        }
+
+        // 重叠范围导致请求总量超过文件大小时返回完整内容，避免放大
+        return requested > length ? null : ranges;
+    }
+
+    /**
+     * 解析字节位置（只接受十进制数字，"-5"、"+5" 等带符号的值按格式错误处理）
+     */
+    private static long parsePosition(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Invalid byte position: " + value);
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    private static String etag(FileInfo fileInfo, String variant) {
+        String value = fileInfo.getContentHash() != null ? fileInfo.getContentHash() : fileInfo.getFileId();
+        return "\"" + value + (variant != null ? "-" + variant : "") + "\"";
+    }
+
+    private static long lastModified(FileInfo fileInfo) {
+        if (fileInfo.getUploadTime() == null) {
+            return -1;
+        }
+        return fileInfo.getUploadTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 字节范围（包含 end）
+     */
+    record ByteRange(long start, long end) {
+
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long total) {
+            return "bytes " + start + "-" + end + "/" + total;
+        }
+    }
+}
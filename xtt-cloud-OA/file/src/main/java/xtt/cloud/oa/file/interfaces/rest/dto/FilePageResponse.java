@@ -0,0 +1,50 @@
+package xtt.cloud.oa.file.interfaces.rest.dto;
+
+import xtt.cloud.oa.file.domain.FileInfo;
+
+import java.util.List;
+
+/**
+ * 文件列表游标分页响应
+ * 
+ * @author xtt
+ */
+public class FilePageResponse {
+    
+    private List<FileInfo> records;
+    private String nextCursor;  // 下一页游标，没有更多数据时为 null
+    private boolean hasMore;
+    
+    public FilePageResponse() {
+    }
+    
+    public FilePageResponse(List<FileInfo> records, String nextCursor, boolean hasMore) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+    
+    public List<FileInfo> getRecords() {
+        return records;
+    }
+    
+    public void setRecords(List<FileInfo> records) {
+        this.records = records;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
@@ -0,0 +1,118 @@
+package xtt.cloud.oa.file.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32C;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Crc32cTest {
+
+    private final Random random = new Random(20241226L);
+
+    @Test
+    void combineEqualsCrcOfConcatenation() {
+        for (int[] lengths : new int[][] {{1, 1}, {3, 7}, {1000, 1}, {1, 1000}, {4096, 65536}, {12345, 54321}}) {
+            byte[] a = randomBytes(lengths[0]);
+            byte[] b = randomBytes(lengths[1]);
+
+            assertThat(Crc32c.combine(crc(a), crc(b), b.length))
+                    .as("len(a)=%d, len(b)=%d", a.length, b.length)
+                    .isEqualTo(crc(concat(a, b)));
+        }
+    }
+
+    @Test
+    void combineWithEmptySecondPartReturnsFirstCrc() {
+        byte[] a = randomBytes(100);
+
+        assertThat(Crc32c.combine(crc(a), crc(new byte[0]), 0)).isEqualTo(crc(a));
+    }
+
+    @Test
+    void combiningChunksInOrderFromZeroGivesWholeFileCrc() {
+        // 与合并分片时相同：从 0 开始按分片顺序合并，最后一个分片较短
+        byte[] data = randomBytes(5 * 8192 + 123);
+        int chunkSize = 8192;
+
+        long combined = 0;
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            byte[] chunk = Arrays.copyOfRange(data, offset, Math.min(data.length, offset + chunkSize));
+            combined = Crc32c.combine(combined, crc(chunk), chunk.length);
+        }
+
+        assertThat(combined).isEqualTo(crc(data));
+    }
+
+    @Test
+    void combineOfDifferentOrderDoesNotMatch() {
+        byte[] a = randomBytes(64);
+        byte[] b = randomBytes(64);
+
+        assertThat(Crc32c.combine(crc(b), crc(a), a.length)).isNotEqualTo(crc(concat(a, b)));
+    }
+
+    @Test
+    void computeReadsOnlyTheRequestedRange() throws IOException {
+        byte[] data = randomBytes(200_000);
+        Path file = Files.createTempFile("crc32c-", ".bin");
+        try {
+            Files.write(file, data);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                assertThat(Crc32c.compute(channel, 0, data.length)).isEqualTo(crc(data));
+                assertThat(Crc32c.compute(channel, 70_000, 100_000))
+                        .isEqualTo(crc(Arrays.copyOfRange(data, 70_000, 170_000)));
+                assertThat(Crc32c.compute(channel, 10, 0)).isEqualTo(crc(new byte[0]));
+                // 区间超出文件末尾时只计算到文件末尾
+                assertThat(Crc32c.compute(channel, 150_000, 100_000))
+                        .isEqualTo(crc(Arrays.copyOfRange(data, 150_000, data.length)));
+                assertThat(channel.position()).isZero();
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void hexRoundTrip() {
+        assertThat(Crc32c.toHex(0xE3069283L)).isEqualTo("e3069283");
+        assertThat(Crc32c.toHex(0x0000ABCDL)).isEqualTo("0000abcd");
+        assertThat(Crc32c.parseHex("E3069283")).isEqualTo(0xE3069283L);
+        assertThat(Crc32c.parseHex(Crc32c.toHex(0xFFFFFFFFL))).isEqualTo(0xFFFFFFFFL);
+    }
+
+    @Test
+    void parseHexRejectsMalformedValues() {
+        for (String hex : new String[] {null, "", "123456789", "xyz", "-1", "+1"}) {
+            assertThatThrownBy(() -> Crc32c.parseHex(hex))
+                    .as("hex=%s", hex)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static long crc(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package xtt.cloud.oa.file.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        FileCursor cursor = FileCursor.of(LocalDateTime.of(2024, 12, 26, 10, 30, 15, 123_456_789),
+                "550e8400-e29b-41d4-a716-446655440000");
+
+        FileCursor decoded = FileCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.getUploadTime()).isEqualTo(cursor.getUploadTime());
+        assertThat(decoded.getFileId()).isEqualTo(cursor.getFileId());
+    }
+
+    @Test
+    void roundTripKeepsWholeMinutesAndSeparatorsInFileId() {
+        FileCursor cursor = FileCursor.of(LocalDateTime.of(2024, 1, 1, 0, 0), "a|b");
+
+        assertThat(FileCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void fileWithoutUploadTimeSortsLastAndRoundTrips() {
+        FileInfo fileInfo = FileInfo.builder().fileId("f1").build();
+
+        FileCursor cursor = FileCursor.of(fileInfo);
+
+        assertThat(cursor.getUploadTime()).isEqualTo(LocalDateTime.MIN);
+        assertThat(FileCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = FileCursor.of(LocalDateTime.of(2024, 12, 26, 10, 30), "???>>>").encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(FileCursor.decode(null)).isNull();
+        assertThat(FileCursor.decode("")).isNull();
+        assertThat(FileCursor.decode("  ")).isNull();
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : new String[] {"not base64!", encode("no-separator"), encode("yesterday|f1"),
+                encode("2024-12-26T10:30|"), encode("|f1")}) {
+            assertThatThrownBy(() -> FileCursor.decode(cursor))
+                    .as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void ofRequiresBothFields() {
+        assertThatThrownBy(() -> FileCursor.of(null, "f1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FileCursor.of(LocalDateTime.now(), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FileCursor.of(LocalDateTime.now(), ""))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package xtt.cloud.oa.file.interfaces.rest;
+
+import org.junit.jupiter.api.Test;
+import xtt.cloud.oa.file.interfaces.rest.FileResponseWriter.ByteRange;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static xtt.cloud.oa.file.interfaces.rest.FileResponseWriter.parseRanges;
+
+class FileResponseWriterTest {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    void singleClosedRange() {
+        assertThat(parseRanges("bytes=0-499", LENGTH)).containsExactly(new ByteRange(0, 499));
+        assertThat(parseRanges("bytes=999-999", LENGTH)).containsExactly(new ByteRange(999, 999));
+    }
+
+    @Test
+    void openEndedRangeRunsToTheLastByte() {
+        assertThat(parseRanges("bytes=900-", LENGTH)).containsExactly(new ByteRange(900, 999));
+    }
+
+    @Test
+    void endPastTheLastByteIsClamped() {
+        assertThat(parseRanges("bytes=500-5000", LENGTH)).containsExactly(new ByteRange(500, 999));
+    }
+
+    @Test
+    void suffixRangeSelectsTheLastBytes() {
+        assertThat(parseRanges("bytes=-100", LENGTH)).containsExactly(new ByteRange(900, 999));
+        // 后缀长度超过文件大小时返回整个文件
+        assertThat(parseRanges("bytes=-5000", LENGTH)).containsExactly(new ByteRange(0, 999));
+    }
+
+    @Test
+    void multipleRangesKeepRequestOrder() {
+        assertThat(parseRanges("bytes=500-599, 0-99 ,-10", LENGTH))
+                .containsExactly(new ByteRange(500, 599), new ByteRange(0, 99), new ByteRange(990, 999));
+    }
+
+    @Test
+    void prefixIsCaseInsensitive() {
+        assertThat(parseRanges("Bytes=0-0", LENGTH)).containsExactly(new ByteRange(0, 0));
+    }
+
+    @Test
+    void unsatisfiableRangesGiveEmptyList() {
+        assertThat(parseRanges("bytes=1000-", LENGTH)).isEmpty();
+        assertThat(parseRanges("bytes=2000-3000", LENGTH)).isEmpty();
+        assertThat(parseRanges("bytes=-0", LENGTH)).isEmpty();
+        assertThat(parseRanges("bytes=0-", 0)).isEmpty();
+    }
+
+    @Test
+    void unsatisfiableRangesAreDroppedFromAMixedSet() {
+        assertThat(parseRanges("bytes=2000-3000,0-9", LENGTH)).containsExactly(new ByteRange(0, 9));
+    }
+
+    @Test
+    void malformedHeadersAreIgnored() {
+        for (String header : List.of("items=0-1", "bytes=", "bytes=abc", "bytes=5", "bytes=-", "bytes=9-5",
+                "bytes=--5", "bytes=+5-10", "bytes=5-+10", "bytes=0-1,x-y", "bytes=99999999999999999999-")) {
+            assertThat(parseRanges(header, LENGTH)).as(header).isNull();
+        }
+    }
+
+    @Test
+    void overlappingRangesLargerThanTheFileAreIgnored() {
+        assertThat(parseRanges("bytes=0-999,0-999", LENGTH)).isNull();
+        assertThat(parseRanges("bytes=0-599,400-999", LENGTH)).isNull();
+        // 重叠但总量不超过文件大小时照常返回
+        assertThat(parseRanges("bytes=0-99,50-149", LENGTH))
+                .containsExactly(new ByteRange(0, 99), new ByteRange(50, 149));
+    }
+
+    @Test
+    void tooManyRangesAreIgnored() {
+        StringBuilder header = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 32; i++) {
+            header.append(',').append(i).append('-').append(i);
+        }
+        assertThat(parseRanges(header.toString(), LENGTH)).isNull();
+        assertThat(parseRanges(header.substring(0, header.lastIndexOf(",")), LENGTH)).hasSize(32);
+    }
+
+    @Test
+    void byteRangeLengthAndContentRange() {
+        ByteRange range = new ByteRange(100, 199);
+
+        assertThat(range.length()).isEqualTo(100);
+        assertThat(range.contentRange(LENGTH)).isEqualTo("bytes 100-199/1000");
+    }
+}
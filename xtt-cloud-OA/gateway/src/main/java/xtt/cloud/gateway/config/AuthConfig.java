@@ -2,6 +2,7 @@ package xtt.cloud.gateway.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import xtt.cloud.gateway.util.SkipPathMatcher;
 
 import java.util.Arrays;
 import java.util.List;
@@ -9,6 +10,9 @@ import java.util.List;
 /**
  * 认证配置类
  * 
+ * 跳过认证的路径在绑定时编译为 {@link SkipPathMatcher}，Nacos 配置刷新重新绑定时整体替换；
+ * 规则编译失败时保留原有规则
+ * 
  * @author xtt
  * @since 2023.0.3.3
  */
@@ -17,7 +21,7 @@ import java.util.List;
 public class AuthConfig {
 
     /**
-     * 不需要认证的路径列表
+     * 不需要认证的路径列表（前缀匹配，包含 *、?、{..} 的按 PathPattern 匹配，如 /api/file/preview/**）
      */
     private List<String> skipPaths = Arrays.asList(
             "/api/auth/login",
@@ -28,6 +32,11 @@ public class AuthConfig {
             "/actuator/info"
     );
 
+    /**
+     * 编译后的跳过认证路径
+     */
+    private volatile SkipPathMatcher skipPathMatcher = SkipPathMatcher.compile(skipPaths);
+
     /**
      * 是否启用认证拦截
      */
@@ -38,7 +47,14 @@ public class AuthConfig {
     }
 
     public void setSkipPaths(List<String> skipPaths) {
+        // 先编译，规则有误时抛出异常，不替换原有规则
+        SkipPathMatcher matcher = SkipPathMatcher.compile(skipPaths);
         this.skipPaths = skipPaths;
+        this.skipPathMatcher = matcher;
+    }
+
+    public SkipPathMatcher getSkipPathMatcher() {
+        return skipPathMatcher;
     }
 
     public boolean isEnabled() {
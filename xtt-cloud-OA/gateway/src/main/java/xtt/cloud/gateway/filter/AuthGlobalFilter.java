@@ -21,9 +21,11 @@ import reactor.core.publisher.Mono;
 import xtt.cloud.gateway.config.AuthConfig;
 import xtt.cloud.gateway.service.TokenBlacklistService;
 import xtt.cloud.gateway.util.JwtUtil;
+import xtt.cloud.gateway.util.VerifiedClaims;
 
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -37,6 +39,11 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
 
     private static final Logger log = LoggerFactory.getLogger(AuthGlobalFilter.class);
 
+    /**
+     * 下游服务信任的用户信息请求头，只能由网关根据已验证的令牌设置
+     */
+    private static final List<String> USER_HEADERS = List.of("X-User-Id", "X-User-Name", "X-User-Role");
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -58,13 +65,13 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
         // 检查是否启用认证拦截
         if (!authConfig.isEnabled()) {
             log.debug("Auth filter is disabled");
-            return chain.filter(exchange);
+            return chain.filter(stripUserHeaders(exchange));
         }
 
         // 检查是否为不需要认证的路径
-        if (isSkipAuth(path)) {
+        if (isSkipAuth(request)) {
             log.debug("Skip auth for path: {}", path);
-            return chain.filter(exchange);
+            return chain.filter(stripUserHeaders(exchange));
         }
 
         // 获取 Authorization header
@@ -78,52 +85,63 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
         // 提取 token
         String token = authHeader.substring(7);
         
+        // 验证 token（签名和有效期只校验一次，结果按 token 缓存）
+        VerifiedClaims claims;
         try {
-            // 验证 token 格式和有效性
-            if (!jwtUtil.validateToken(token)) {
-                log.warn("Invalid token for path: {}", path);
-                return unauthorizedResponse(exchange, "无效的认证令牌");
-            }
-
-            // 检查 token 是否在黑名单中（响应式检查）
-            return tokenBlacklistService.isBlacklisted(token)
-                    .flatMap(isBlacklisted -> {
-                        if (isBlacklisted) {
-                            log.warn("Token is blacklisted for path: {}", path);
-                            return unauthorizedResponse(exchange, "认证令牌已失效");
-                        }
-
-                        // 提取用户信息并添加到请求头
-                        try {
-                            String username = jwtUtil.extractUsername(token);
-                            String role = jwtUtil.extractRole(token);
-                            
-                            // 将用户信息添加到请求头，传递给下游服务
-                            ServerHttpRequest mutatedRequest = request.mutate()
-                                    .header("X-User-Name", username)
-                                    .header("X-User-Role", role != null ? role : "")
-                                    .build();
-
-                            log.debug("User authenticated: {} with role: {}", username, role);
-                            
-                            return chain.filter(exchange.mutate().request(mutatedRequest).build());
-                        } catch (Exception e) {
-                            log.error("Failed to extract user info from token", e);
-                            return unauthorizedResponse(exchange, "认证令牌解析失败");
-                        }
-                    });
-            
+            claims = jwtUtil.verify(token);
         } catch (Exception e) {
             log.error("Token validation error for path: {}, error: {}", path, e.getMessage());
             return unauthorizedResponse(exchange, "认证令牌验证失败");
         }
+        if (claims == null) {
+            log.warn("Invalid token for path: {}", path);
+            return unauthorizedResponse(exchange, "无效的认证令牌");
+        }
+
+        // 检查 token 是否在黑名单中（本地黑名单视图，未同步时查询 Redis）
+        return tokenBlacklistService.isBlacklisted(claims.getTokenHash())
+                .flatMap(isBlacklisted -> {
+                    if (isBlacklisted) {
+                        log.warn("Token is blacklisted for path: {}", path);
+                        return unauthorizedResponse(exchange, "认证令牌已失效");
+                    }
+
+                    // 将用户信息添加到请求头，传递给下游服务
+                    String username = claims.getUsername();
+                    Long userId = claims.getUserId();
+                    String role = claims.getRole();
+                    ServerHttpRequest mutatedRequest = request.mutate()
+                            .headers(headers -> {
+                                USER_HEADERS.forEach(headers::remove);
+                                if (userId != null) {
+                                    headers.set("X-User-Id", userId.toString());
+                                }
+                                headers.set("X-User-Name", username != null ? username : "");
+                                headers.set("X-User-Role", role != null ? role : "");
+                            })
+                            .build();
+
+                    log.debug("User authenticated: {} with role: {}", username, role);
+
+                    return chain.filter(exchange.mutate().request(mutatedRequest).build());
+                });
     }
 
     /**
      * 检查路径是否需要跳过认证
      */
-    private boolean isSkipAuth(String path) {
-        return authConfig.getSkipPaths().stream().anyMatch(path::startsWith);
+    private boolean isSkipAuth(ServerHttpRequest request) {
+        return authConfig.getSkipPathMatcher().matches(request.getPath().pathWithinApplication());
+    }
+
+    /**
+     * 去掉客户端伪造的用户信息请求头，未经令牌验证的请求不能携带用户身份
+     */
+    private ServerWebExchange stripUserHeaders(ServerWebExchange exchange) {
+        ServerHttpRequest strippedRequest = exchange.getRequest().mutate()
+                .headers(headers -> USER_HEADERS.forEach(headers::remove))
+                .build();
+        return exchange.mutate().request(strippedRequest).build();
     }
 
     /**
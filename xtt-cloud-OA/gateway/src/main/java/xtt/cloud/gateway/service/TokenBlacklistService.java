@@ -1,16 +1,35 @@
 package xtt.cloud.gateway.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Token 黑名单服务（网关版）
  * 用于检查 Token 是否在黑名单中
  * 
+ * 黑名单由 auth 服务维护，Redis 中的结构：
+ * 1. 有序集合 token:revoked：成员为 token 的 SHA-256（Base64URL），分数为 token 过期时间（epoch 秒）
+ * 2. 频道 token:revoked：加入黑名单时发布 "+{hash} {exp}"，移除时发布 "-{hash}"
+ * 
+ * 网关在本地保存未过期的黑名单（撤销的 token 数量受 token 有效期限制，数量很小），
+ * 订阅频道增量同步，订阅建立后和每隔 token.revocation.resync-interval 秒全量同步一次。
+ * 本地视图同步完成后检查不访问 Redis；订阅断开或最近一次全量同步失败期间回退为按 token 查询 Redis
+ * 
  * @author xtt
  * @since 2023.0.3.3
  */
@@ -19,28 +38,132 @@ public class TokenBlacklistService {
 
     private static final Logger log = LoggerFactory.getLogger(TokenBlacklistService.class);
     
-    private static final String BLACKLIST_PREFIX = "token:blacklist:";
+    private static final String REVOKED_KEY = "token:revoked";
+    private static final String REVOKED_CHANNEL = "token:revoked";
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Duration resyncInterval;
+
+    /**
+     * token 哈希 -> 过期时间（epoch 秒）
+     */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅已建立
+     */
+    private volatile boolean subscribed;
+
+    /**
+     * 订阅建立后完成全量同步，且最近一次全量同步成功
+     */
+    private volatile boolean synced;
+
+    private Disposable subscription;
+    private Disposable resync;
+
+    public TokenBlacklistService(ReactiveStringRedisTemplate redisTemplate,
+                                 @Value("${token.revocation.resync-interval:60}") long resyncIntervalSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.resyncInterval = Duration.ofSeconds(resyncIntervalSeconds);
+    }
 
-    @Autowired
-    private ReactiveStringRedisTemplate redisTemplate;
+    @PostConstruct
+    public void start() {
+        // 订阅确认后再全量同步：同步开始前发布的撤销已写入有序集合，之后发布的由订阅收到
+        subscription = Mono.defer(() -> redisTemplate.listenToChannelLater(REVOKED_CHANNEL))
+                .flatMapMany(messages -> {
+                    // 断开期间的消息已丢失，重新全量同步前不使用本地视图
+                    synced = false;
+                    subscribed = true;
+                    return Flux.merge(
+                            messages.doOnNext(message -> apply(message.getMessage())).then(),
+                            reload().doOnSuccess(v -> {
+                                synced = subscribed;
+                                log.info("Token blacklist synced, revoked tokens: {}", revoked.size());
+                            }));
+                })
+                .then(Mono.<Void>error(new IllegalStateException("Token blacklist subscription closed")))
+                .doOnError(error -> {
+                    subscribed = false;
+                    synced = false;
+                    log.warn("Token blacklist subscription lost, falling back to Redis lookups: {}", error.getMessage());
+                })
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+
+        // 定期全量同步，补齐订阅期间可能丢失的消息并清理已过期的记录
+        resync = Flux.interval(resyncInterval, resyncInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.defer(() -> {
+                    // 同步开始时订阅已建立，同步结果才包含订阅之前的全部撤销
+                    boolean subscribedAtStart = subscribed;
+                    return reload()
+                            .doOnSuccess(v -> synced = subscribedAtStart && subscribed)
+                            .onErrorResume(error -> {
+                                synced = false;
+                                log.warn("Failed to resync token blacklist, falling back to Redis lookups: {}",
+                                        error.getMessage());
+                                return Mono.empty();
+                            });
+                }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        if (resync != null) {
+            resync.dispose();
+        }
+    }
 
     /**
      * 检查 Token 是否在黑名单中（响应式）
      * 
-     * @param token JWT Token
+     * @param tokenHash token 的 SHA-256（见 JwtUtil#tokenHash）
      * @return Mono<Boolean> true 如果在黑名单中，false 如果不在
      */
-    public Mono<Boolean> isBlacklisted(String token) {
+    public Mono<Boolean> isBlacklisted(String tokenHash) {
+        if (synced) {
+            return Mono.just(revoked.containsKey(tokenHash));
+        }
+        long now = Instant.now().getEpochSecond();
+        return redisTemplate.opsForZSet().score(REVOKED_KEY, tokenHash)
+                .map(expiresAt -> expiresAt > now)
+                .defaultIfEmpty(false)
+                .doOnError(error -> log.error("Failed to check token blacklist", error))
+                .onErrorReturn(true); // Redis 异常时，为了安全起见，返回 true（拒绝访问）
+    }
+
+    /**
+     * 全量加载未过期的黑名单，并清理本地已过期的记录
+     */
+    private Mono<Void> reload() {
+        long now = Instant.now().getEpochSecond();
+        return redisTemplate.opsForZSet()
+                .rangeByScoreWithScores(REVOKED_KEY, Range.rightUnbounded(Range.Bound.inclusive((double) now)))
+                .doOnNext(entry -> revoked.put(entry.getValue(), entry.getScore().longValue()))
+                .then(Mono.fromRunnable(() -> revoked.values().removeIf(expiresAt -> expiresAt <= now)));
+    }
+
+    /**
+     * 应用增量消息："+{hash} {exp}" 加入，"-{hash}" 移除
+     */
+    private void apply(String message) {
         try {
-            String key = BLACKLIST_PREFIX + token;
-            return redisTemplate.hasKey(key)
-                    .onErrorReturn(true) // Redis 异常时，为了安全起见，返回 true（拒绝访问）
-                    .doOnError(error -> log.error("Failed to check token blacklist", error));
-        } catch (Exception e) {
-            log.error("Failed to check token blacklist", e);
-            // 异常时返回 true，拒绝访问
-            return Mono.just(true);
+            if (message.startsWith("+")) {
+                int index = message.indexOf(' ');
+                revoked.put(message.substring(1, index), Long.parseLong(message.substring(index + 1)));
+            } else if (message.startsWith("-")) {
+                revoked.remove(message.substring(1));
+            } else {
+                log.warn("Unknown token blacklist message: {}", message);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Invalid token blacklist message: {}", message);
         }
     }
 }
-
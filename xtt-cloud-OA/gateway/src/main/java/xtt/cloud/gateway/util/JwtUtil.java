@@ -1,95 +1,158 @@
 package xtt.cloud.gateway.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 
 /**
  * JWT Utility Class for Gateway
  * 
+ * The signing key and parser are built once. Each token is parsed and its signature
+ * verified at most once: the resulting claims are kept in a bounded cache keyed by the
+ * SHA-256 of the token and evicted when the token expires (or after
+ * jwt.claims-cache.max-ttl, whichever comes first). Invalid tokens are never cached.
+ * 
  * @author xtt
  * @since 2023.0.3.3
  */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
 
-    /**
-     * Extract username from token
-     */
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+    private final JwtParser parser;
+    private final Cache<String, VerifiedClaims> claimsCache;
 
-    /**
-     * Extract expiration date from token
-     */
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.claims-cache.max-size:100000}") long cacheMaxSize,
+                   @Value("${jwt.claims-cache.max-ttl:300}") long cacheMaxTtlSeconds) {
+        SecretKey signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+
+        Duration maxTtl = Duration.ofSeconds(cacheMaxTtlSeconds);
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedClaims claims, long currentTime) {
+                        Duration untilExpiry = Duration.between(Instant.now(), claims.getExpiresAt());
+                        return Math.max(0, (untilExpiry.compareTo(maxTtl) < 0 ? untilExpiry : maxTtl).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedClaims claims, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, claims, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedClaims claims, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     /**
-     * Extract role from token
+     * Verify token and return its claims
+     * 
+     * @return claims, or null if the token is malformed, has an invalid signature,
+     *         has no expiration or is expired
      */
-    public String extractRole(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
+    public VerifiedClaims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String key = tokenHash(token);
+        VerifiedClaims claims = claimsCache.get(key, k -> parse(k, token));
+        if (claims != null && claims.isExpired(Instant.now())) {
+            // expired between cache expiry ticks
+            claimsCache.invalidate(key);
+            return null;
+        }
+        return claims;
     }
 
     /**
-     * Extract claim from token
+     * Extract username from token
      */
-    public <T> T extractClaim(String token, ClaimsResolver<T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.resolve(claims);
+    public String extractUsername(String token) {
+        VerifiedClaims claims = verify(token);
+        return claims != null ? claims.getUsername() : null;
     }
 
     /**
-     * Extract all claims from token
+     * Extract expiration date from token
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public Date extractExpiration(String token) {
+        VerifiedClaims claims = verify(token);
+        return claims != null ? Date.from(claims.getExpiresAt()) : null;
     }
 
     /**
-     * Get signing key
+     * Extract role from token
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    public String extractRole(String token) {
+        VerifiedClaims claims = verify(token);
+        return claims != null ? claims.getRole() : null;
     }
 
     /**
-     * Check if token is expired
+     * Validate token
      */
-    public Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Boolean validateToken(String token) {
+        return verify(token) != null;
     }
 
     /**
-     * Validate token
+     * Parse and verify token (signature and expiration)
      */
-    public Boolean validateToken(String token) {
+    private VerifiedClaims parse(String tokenHash, String token) {
         try {
-            return !isTokenExpired(token);
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getExpiration() == null) {
+                return null;
+            }
+            Object userId = claims.get("userId");
+            return new VerifiedClaims(tokenHash, claims.getSubject(),
+                    userId instanceof Number ? ((Number) userId).longValue() : null,
+                    claims.get("role", String.class), claims.getExpiration().toInstant());
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return null;
         }
     }
 
     /**
-     * Claims resolver interface
+     * SHA-256 of the token (Base64URL without padding)
+     * 
+     * Used as the claims cache key and as the revocation key shared with the auth service,
+     * so raw tokens are neither retained in memory nor stored in Redis.
      */
-    @FunctionalInterface
-    public interface ClaimsResolver<T> {
-        T resolve(Claims claims);
+    public static String tokenHash(String token) {
+        MessageDigest digest = SHA256.get();
+        byte[] hash = digest.digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
     }
 }
@@ -0,0 +1,170 @@
+package xtt.cloud.gateway.util;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Compiled matcher for the gateway skip-auth paths
+ * 
+ * Rules are compiled once into a character trie:
+ * - A plain rule (e.g. /api/auth/login) matches every path starting with it, as before.
+ * - A rule containing *, ? or {..} is parsed as a {@link PathPattern} (e.g. /api/file/preview/**)
+ *   and attached to the trie node of its literal prefix up to the last '/' before the first
+ *   wildcard, so it is only evaluated for paths sharing that prefix.
+ * 
+ * Matching walks the trie once along the path (binary search per character). The walk itself
+ * does not allocate, but each pattern met on the way is evaluated with {@link PathPattern#matches},
+ * which does allocate. Instances are immutable; a new matcher is compiled when the rules change.
+ * 
+ * @author xtt
+ * @since 2023.0.3.3
+ */
+public final class SkipPathMatcher {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final PathPattern[] NO_PATTERNS = new PathPattern[0];
+
+    private final Node root;
+    private final int ruleCount;
+
+    private SkipPathMatcher(Node root, int ruleCount) {
+        this.root = root;
+        this.ruleCount = ruleCount;
+    }
+
+    /**
+     * Compile skip-path rules (blank rules are ignored)
+     * 
+     * @throws org.springframework.web.util.pattern.PatternParseException if a pattern is invalid
+     */
+    public static SkipPathMatcher compile(List<String> rules) {
+        Builder root = new Builder();
+        int count = 0;
+        if (rules != null) {
+            for (String rule : rules) {
+                if (rule == null || rule.isBlank()) {
+                    continue;
+                }
+                String trimmed = rule.trim();
+                int wildcard = firstWildcard(trimmed);
+                if (wildcard < 0) {
+                    root.descend(trimmed).terminal = true;
+                } else {
+                    String prefix = trimmed.substring(0, Math.max(0, trimmed.lastIndexOf('/', wildcard)));
+                    root.descend(prefix).patterns.add(PathPatternParser.defaultInstance.parse(trimmed));
+                }
+                count++;
+            }
+        }
+        return new SkipPathMatcher(root.build(), count);
+    }
+
+    /**
+     * Check whether the path matches any rule
+     * 
+     * @param path request path (e.g. {@code request.getPath().pathWithinApplication()})
+     */
+    public boolean matches(PathContainer path) {
+        String value = path.value();
+        Node node = root;
+        for (int i = 0; ; i++) {
+            if (node.terminal) {
+                return true;
+            }
+            for (PathPattern pattern : node.patterns) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            if (i == value.length()) {
+                return false;
+            }
+            node = node.child(value.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Number of compiled rules
+     */
+    public int size() {
+        return ruleCount;
+    }
+
+    private static int firstWildcard(String rule) {
+        for (int i = 0; i < rule.length(); i++) {
+            char c = rule.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Immutable trie node, children sorted by character
+     */
+    private static final class Node {
+
+        private final char[] keys;
+        private final Node[] children;
+        private final boolean terminal;
+        private final PathPattern[] patterns;
+
+        private Node(char[] keys, Node[] children, boolean terminal, PathPattern[] patterns) {
+            this.keys = keys;
+            this.children = children;
+            this.terminal = terminal;
+            this.patterns = patterns;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    /**
+     * Mutable node used while compiling
+     */
+    private static final class Builder {
+
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private final List<PathPattern> patterns = new ArrayList<>();
+        private boolean terminal;
+
+        private Builder descend(String prefix) {
+            Builder node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Builder());
+            }
+            return node;
+        }
+
+        private Node build() {
+            if (terminal) {
+                // Every path below a plain rule is already matched
+                return new Node(NO_KEYS, NO_CHILDREN, true, NO_PATTERNS);
+            }
+            char[] keys = children.isEmpty() ? NO_KEYS : new char[children.size()];
+            Node[] nodes = children.isEmpty() ? NO_CHILDREN : new Node[children.size()];
+            int i = 0;
+            for (var entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            return new Node(keys, nodes, false,
+                    patterns.isEmpty() ? NO_PATTERNS : patterns.toArray(NO_PATTERNS));
+        }
+    }
+}
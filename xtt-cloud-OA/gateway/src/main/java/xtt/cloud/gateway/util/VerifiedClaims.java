@@ -0,0 +1,64 @@
+package xtt.cloud.gateway.util;
+
+import java.time.Instant;
+
+/**
+ * Claims of a JWT whose signature has been verified
+ * 
+ * Immutable, shared between requests through the JwtUtil claims cache.
+ * 
+ * @author xtt
+ * @since 2023.0.3.3
+ */
+public final class VerifiedClaims {
+
+    private final String tokenHash;
+    private final String username;
+    private final Long userId;
+    private final String role;
+    private final Instant expiresAt;
+
+    public VerifiedClaims(String tokenHash, String username, Long userId, String role, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.username = username;
+        this.userId = userId;
+        this.role = role;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * SHA-256 of the token (see {@link JwtUtil#tokenHash}), used as the revocation key
+     */
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    /**
+     * Subject of the token
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * "userId" claim, may be null
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * "role" claim, may be null
+     */
+    public String getRole() {
+        return role;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
@@ -0,0 +1,105 @@
+package xtt.cloud.gateway.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SkipPathMatcherTest {
+
+    @Test
+    void plainRuleMatchesEveryPathStartingWithIt() {
+        SkipPathMatcher matcher = SkipPathMatcher.compile(List.of("/api/auth/login"));
+
+        assertThat(matches(matcher, "/api/auth/login")).isTrue();
+        assertThat(matches(matcher, "/api/auth/login/sms")).isTrue();
+        // Plain rules keep the old startsWith semantics
+        assertThat(matches(matcher, "/api/auth/loginx")).isTrue();
+        assertThat(matches(matcher, "/api/auth/logi")).isFalse();
+        assertThat(matches(matcher, "/api/auth")).isFalse();
+        assertThat(matches(matcher, "/api/user/login")).isFalse();
+    }
+
+    @Test
+    void shorterPlainRuleCoversLongerOnes() {
+        SkipPathMatcher matcher = SkipPathMatcher.compile(List.of("/api/auth/login/sms", "/api/auth"));
+
+        assertThat(matches(matcher, "/api/auth/refresh")).isTrue();
+        assertThat(matches(matcher, "/api/auth/login/sms")).isTrue();
+        assertThat(matches(matcher, "/api/other")).isFalse();
+    }
+
+    @Test
+    void patternRuleMatchesOnlyPathsUnderItsPrefix() {
+        SkipPathMatcher matcher = SkipPathMatcher.compile(List.of("/api/file/preview/**"));
+
+        assertThat(matches(matcher, "/api/file/preview")).isTrue();
+        assertThat(matches(matcher, "/api/file/preview/abc")).isTrue();
+        assertThat(matches(matcher, "/api/file/preview/abc/def")).isTrue();
+        assertThat(matches(matcher, "/api/file/previewx")).isFalse();
+        assertThat(matches(matcher, "/api/file/download/abc")).isFalse();
+    }
+
+    @Test
+    void singleSegmentPatternsDoNotCrossSlashes() {
+        SkipPathMatcher matcher = SkipPathMatcher.compile(List.of("/api/*/health", "/api/doc?/{id}"));
+
+        assertThat(matches(matcher, "/api/file/health")).isTrue();
+        assertThat(matches(matcher, "/api/file/x/health")).isFalse();
+        assertThat(matches(matcher, "/api/docs/42")).isTrue();
+        assertThat(matches(matcher, "/api/docs/42/raw")).isFalse();
+        assertThat(matches(matcher, "/api/doc/42")).isFalse();
+    }
+
+    @Test
+    void patternAtTheRootIsEvaluatedForEveryPath() {
+        SkipPathMatcher matcher = SkipPathMatcher.compile(List.of("/*/public/**"));
+
+        assertThat(matches(matcher, "/static/public/logo.png")).isTrue();
+        assertThat(matches(matcher, "/docs/public/a/b")).isTrue();
+        assertThat(matches(matcher, "/public/logo.png")).isFalse();
+        assertThat(matches(matcher, "/static/private/logo.png")).isFalse();
+    }
+
+    @Test
+    void plainAndPatternRulesCombine() {
+        SkipPathMatcher matcher = SkipPathMatcher.compile(
+                List.of("/api/auth/login", "/api/auth/captcha/*", "/actuator"));
+
+        assertThat(matches(matcher, "/api/auth/login")).isTrue();
+        assertThat(matches(matcher, "/api/auth/captcha/image")).isTrue();
+        assertThat(matches(matcher, "/api/auth/captcha/image/large")).isFalse();
+        assertThat(matches(matcher, "/actuator/health")).isTrue();
+        assertThat(matches(matcher, "/api/auth/logout")).isFalse();
+    }
+
+    @Test
+    void blankAndNullRulesAreIgnored() {
+        SkipPathMatcher matcher = SkipPathMatcher.compile(Arrays.asList(" ", null, "  /api/auth/login  "));
+
+        assertThat(matcher.size()).isEqualTo(1);
+        assertThat(matches(matcher, "/api/auth/login")).isTrue();
+        assertThat(matches(matcher, "/")).isFalse();
+    }
+
+    @Test
+    void emptyRulesMatchNothing() {
+        assertThat(matches(SkipPathMatcher.compile(null), "/api/auth/login")).isFalse();
+        assertThat(matches(SkipPathMatcher.compile(List.of()), "/")).isFalse();
+    }
+
+    @Test
+    void invalidPatternIsRejectedAtCompileTime() {
+        assertThatThrownBy(() -> SkipPathMatcher.compile(List.of("/api/**/x/**")))
+                .isInstanceOf(PatternParseException.class);
+    }
+
+    private static boolean matches(SkipPathMatcher matcher, String path) {
+        return matcher.matches(PathContainer.parsePath(path));
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.transaction.annotation.Transactional;
 import xtt.cloud.oa.platform.domain.entity.Department;
 import xtt.cloud.oa.platform.domain.entity.Role;
 import xtt.cloud.oa.platform.domain.entity.User;
+import xtt.cloud.oa.platform.domain.entity.UserDepartmentLink;
+import xtt.cloud.oa.platform.domain.entity.UserRoleLink;
 import xtt.cloud.oa.platform.domain.mapper.DepartmentMapper;
 import xtt.cloud.oa.platform.domain.mapper.RoleMapper;
 import xtt.cloud.oa.platform.domain.mapper.UserDepartmentMapper;
@@ -15,13 +17,22 @@ import xtt.cloud.oa.platform.domain.mapper.UserMapper;
 import xtt.cloud.oa.platform.domain.mapper.UserRoleMapper;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 @Service
 public class UserService {
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
+    
+    /**
+     * 批量加载角色、部门时每次查询的用户数（IN 列表长度上限）
+     */
+    private static final int HYDRATE_BATCH_SIZE = 1000;
+    
     private final UserMapper userMapper;
     private final RoleMapper roleMapper;
     private final DepartmentMapper departmentMapper;
@@ -42,14 +53,27 @@ public class UserService {
 
     public List<User> list() { 
         List<User> users = userMapper.selectAll();
-        // 为每个用户加载角色和部门信息
-        for (User user : users) {
-            user.setRoles(getUserRoles(user.getId()));
-            user.setDepartments(getUserDepartments(user.getId()));
-        }
+        // 批量加载角色和部门信息
+        hydrate(users);
         return users;
     }
     
+    /**
+     * 按ID分页查询用户（包含角色和部门）
+     * 
+     * @param cursor 上一页最后一个用户的ID，首页为 null
+     * @param limit 每页数量
+     */
+    public UserPage page(Long cursor, int limit) {
+        List<User> users = userMapper.selectPageAfterId(cursor, limit + 1);
+        boolean hasMore = users.size() > limit;
+        if (hasMore) {
+            users = users.subList(0, limit);
+        }
+        hydrate(users);
+        return new UserPage(users, hasMore ? users.get(users.size() - 1).getId() : null);
+    }
+    
     public Optional<User> get(Long id) { 
         Optional<User> userOpt = userMapper.findById(id);
         if (userOpt.isPresent()) {
@@ -138,19 +162,93 @@ public class UserService {
      * 验证用户密码
      */
     public boolean validateUserPassword(String username, String password) {
+        return userMapper.findByUsername(username)
+                .filter(user -> matchesPassword(user, password))
+                .isPresent();
+    }
+
+    /**
+     * 登录认证：校验密码，通过后加载角色（按创建时间排序）和部门（按排序号排序）
+     * 
+     * @return 认证通过的用户；用户不存在、已禁用或密码错误时返回 empty
+     */
+    public Optional<LoginProfile> authenticate(String username, String password) {
         Optional<User> userOpt = userMapper.findByUsername(username);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            // 检查用户状态
-            if (user.getStatus() != null && user.getStatus() != 1) {
-                return false; // 用户被禁用
-            }
-            log.info(" passwordEncoder : {}  ", passwordEncoder.encode(password));
-            // 验证密码
-            return passwordEncoder.matches(password, user.getPassword());
+        if (userOpt.isEmpty() || !matchesPassword(userOpt.get(), password)) {
+            return Optional.empty();
+        }
+        return Optional.of(loadLoginProfile(userOpt.get()));
+    }
 
+    /**
+     * 获取登录资料（不校验密码，刷新令牌时使用，角色和部门为当前数据）
+     * 
+     * @return 用户不存在或已禁用时返回 empty
+     */
+    public Optional<LoginProfile> findLoginProfile(String username) {
+        return userMapper.findByUsername(username)
+                .filter(this::isEnabled)
+                .map(this::loadLoginProfile);
+    }
+
+    private LoginProfile loadLoginProfile(User user) {
+        List<Role> roles = userRoleMapper.selectRolesByUserId(user.getId());
+        List<Department> departments = userDepartmentMapper.selectDepartmentsByUserId(user.getId());
+        user.setRoles(Set.copyOf(roles));
+        user.setDepartments(Set.copyOf(departments));
+        return new LoginProfile(user, roles, departments);
+    }
+
+    private boolean isEnabled(User user) {
+        return user.getStatus() == null || user.getStatus() == 1;
+    }
+
+    private boolean matchesPassword(User user, String password) {
+        // 检查用户状态
+        if (!isEnabled(user)) {
+            return false; // 用户被禁用
         }
-        return false;
+        // 验证密码
+        return password != null && passwordEncoder.matches(password, user.getPassword());
+    }
+
+    /**
+     * 批量加载用户的角色和部门：每批用户各执行一次角色查询和部门查询，在内存中按用户ID组装
+     */
+    private void hydrate(List<User> users) {
+        for (int from = 0; from < users.size(); from += HYDRATE_BATCH_SIZE) {
+            List<User> batch = users.subList(from, Math.min(from + HYDRATE_BATCH_SIZE, users.size()));
+            List<Long> userIds = batch.stream().map(User::getId).toList();
+            
+            Map<Long, Set<Role>> roles = new HashMap<>();
+            for (UserRoleLink link : userRoleMapper.selectRolesByUserIds(userIds)) {
+                roles.computeIfAbsent(link.getUserId(), id -> new LinkedHashSet<>()).add(link.getRole());
+            }
+            Map<Long, Set<Department>> departments = new HashMap<>();
+            for (UserDepartmentLink link : userDepartmentMapper.selectDepartmentsByUserIds(userIds)) {
+                departments.computeIfAbsent(link.getUserId(), id -> new LinkedHashSet<>()).add(link.getDepartment());
+            }
+            
+            for (User user : batch) {
+                user.setRoles(roles.getOrDefault(user.getId(), new LinkedHashSet<>()));
+                user.setDepartments(departments.getOrDefault(user.getId(), new LinkedHashSet<>()));
+            }
+        }
+    }
+
+    /**
+     * 用户分页结果
+     * 
+     * @param records 当前页用户
+     * @param nextCursor 下一页游标（当前页最后一个用户的ID），没有下一页时为 null
+     */
+    public record UserPage(List<User> records, Long nextCursor) {
+    }
+
+    /**
+     * 登录认证结果（角色和部门保持查询顺序）
+     */
+    public record LoginProfile(User user, List<Role> roles, List<Department> departments) {
     }
 }
 
@@ -0,0 +1,17 @@
+package xtt.cloud.oa.platform.domain.entity;
+
+/**
+ * 用户-部门关联（批量加载用户部门时使用）
+ */
+public class UserDepartmentLink {
+    private Long userId;
+    private Long departmentId;
+    private Department department;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public Long getDepartmentId() { return departmentId; }
+    public void setDepartmentId(Long departmentId) { this.departmentId = departmentId; }
+    public Department getDepartment() { return department; }
+    public void setDepartment(Department department) { this.department = department; }
+}
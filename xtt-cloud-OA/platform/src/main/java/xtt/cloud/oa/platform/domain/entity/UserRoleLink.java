@@ -0,0 +1,17 @@
+package xtt.cloud.oa.platform.domain.entity;
+
+/**
+ * 用户-角色关联（批量加载用户角色时使用）
+ */
+public class UserRoleLink {
+    private Long userId;
+    private Long roleId;
+    private Role role;
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    public Long getRoleId() { return roleId; }
+    public void setRoleId(Long roleId) { this.roleId = roleId; }
+    public Role getRole() { return role; }
+    public void setRole(Role role) { this.role = role; }
+}
@@ -3,7 +3,9 @@ package xtt.cloud.oa.platform.domain.mapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import xtt.cloud.oa.platform.domain.entity.Department;
+import xtt.cloud.oa.platform.domain.entity.UserDepartmentLink;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -14,6 +16,11 @@ public interface UserDepartmentMapper {
      */
     List<Department> selectDepartmentsByUserId(@Param("userId") Long userId);
     
+    /**
+     * 根据用户ID列表批量查询用户部门（每个用户的部门按排序号排序）
+     */
+    List<UserDepartmentLink> selectDepartmentsByUserIds(@Param("userIds") Collection<Long> userIds);
+    
     /**
      * 根据部门ID查询用户ID列表
      */
@@ -35,6 +35,11 @@ public interface UserMapper {
      */
     List<User> selectAll();
     
+    /**
+     * 按ID分页查询用户（ID 大于 afterId，按 ID 升序）
+     */
+    List<User> selectPageAfterId(@Param("afterId") Long afterId, @Param("limit") int limit);
+    
     /**
      * 插入用户
      */
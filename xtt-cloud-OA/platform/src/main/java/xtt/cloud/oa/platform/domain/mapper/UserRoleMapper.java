@@ -3,7 +3,9 @@ package xtt.cloud.oa.platform.domain.mapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import xtt.cloud.oa.platform.domain.entity.Role;
+import xtt.cloud.oa.platform.domain.entity.UserRoleLink;
 
+import java.util.Collection;
 import java.util.List;
 
 @Mapper
@@ -14,6 +16,11 @@ public interface UserRoleMapper {
      */
     List<Role> selectRolesByUserId(@Param("userId") Long userId);
     
+    /**
+     * 根据用户ID列表批量查询用户角色（每个用户的角色按创建时间排序）
+     */
+    List<UserRoleLink> selectRolesByUserIds(@Param("userIds") Collection<Long> userIds);
+    
     /**
      * 根据角色ID查询用户ID列表
      */
@@ -1,27 +1,53 @@
 package xtt.cloud.oa.platform.interfaces.rest;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import xtt.cloud.oa.common.dto.UserInfoDto;
 import xtt.cloud.oa.platform.application.UserService;
 import xtt.cloud.oa.platform.application.PermissionService;
 import xtt.cloud.oa.platform.domain.entity.User;
+import xtt.cloud.oa.platform.interfaces.mapper.UserMapper;
+import xtt.cloud.oa.platform.interfaces.rest.dto.UserPageResponse;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/platform/users")
 public class UserController {
+    /**
+     * 每页最大数量
+     */
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final UserService userService;
     private final PermissionService permissionService;
+    private final UserMapper userMapper;
     
-    public UserController(UserService userService, PermissionService permissionService) { 
+    public UserController(UserService userService, PermissionService permissionService,
+                          @Qualifier("userDtoMapper") UserMapper userMapper) { 
         this.userService = userService; 
         this.permissionService = permissionService;
+        this.userMapper = userMapper;
     }
 
     @GetMapping
     public List<User> list() { return userService.list(); }
 
+    /**
+     * 按ID分页查询用户（cursor 为上一页返回的 nextCursor，首页不传）
+     */
+    @GetMapping("/page")
+    public UserPageResponse page(@RequestParam(value = "cursor", required = false) Long cursor,
+                                 @RequestParam(value = "size", defaultValue = "100") int size) {
+        UserService.UserPage page = userService.page(cursor, Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        List<UserInfoDto> records = page.records().stream()
+                .map(userMapper::toUserInfoDto)
+                .collect(Collectors.toList());
+        return new UserPageResponse(records, page.nextCursor());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<User> get(@PathVariable Long id) {
         return userService.get(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
@@ -0,0 +1,40 @@
+package xtt.cloud.oa.platform.interfaces.rest.dto;
+
+import xtt.cloud.oa.common.dto.UserInfoDto;
+
+import java.util.List;
+
+/**
+ * 用户列表游标分页响应（不包含密码等凭据）
+ * 
+ * @author xtt
+ */
+public class UserPageResponse {
+    
+    private List<UserInfoDto> records;
+    private Long nextCursor;  // 下一页游标，没有更多数据时为 null
+    
+    public UserPageResponse() {
+    }
+    
+    public UserPageResponse(List<UserInfoDto> records, Long nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<UserInfoDto> getRecords() {
+        return records;
+    }
+    
+    public void setRecords(List<UserInfoDto> records) {
+        this.records = records;
+    }
+    
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
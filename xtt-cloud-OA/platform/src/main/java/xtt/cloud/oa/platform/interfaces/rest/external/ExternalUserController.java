@@ -6,12 +6,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import xtt.cloud.oa.platform.application.UserService;
 import xtt.cloud.oa.platform.application.PermissionService;
+import xtt.cloud.oa.common.dto.LoginCredentialsDto;
+import xtt.cloud.oa.common.dto.LoginProfileDto;
 import xtt.cloud.oa.common.dto.UserInfoDto;
+import xtt.cloud.oa.platform.domain.entity.Department;
+import xtt.cloud.oa.platform.domain.entity.Role;
 import xtt.cloud.oa.platform.interfaces.mapper.UserMapper;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 对外用户服务接口
@@ -159,6 +164,45 @@ public class ExternalUserController {
         return ResponseEntity.ok(isValid);
     }
 
+    /**
+     * 登录认证并获取登录资料（一次调用完成密码校验和用户、角色、部门查询）
+     * 密码错误时同样返回 200，authenticated 为 false
+     */
+    @PostMapping("/login-profile")
+    public ResponseEntity<LoginProfileDto> getLoginProfile(@RequestBody LoginCredentialsDto credentials) {
+        return ResponseEntity.ok(userService.authenticate(credentials.getUsername(), credentials.getPassword())
+                .map(this::toLoginProfileDto)
+                .orElseGet(LoginProfileDto::new));
+    }
+
+    /**
+     * 获取当前的登录资料（不校验密码，供刷新令牌时读取最新的角色和部门）
+     * 用户不存在或已禁用时同样返回 200，authenticated 为 false
+     */
+    @GetMapping("/username/{username}/login-profile")
+    public ResponseEntity<LoginProfileDto> getCurrentLoginProfile(@PathVariable String username) {
+        return ResponseEntity.ok(userService.findLoginProfile(username)
+                .map(this::toLoginProfileDto)
+                .orElseGet(LoginProfileDto::new));
+    }
+
+    private LoginProfileDto toLoginProfileDto(UserService.LoginProfile result) {
+        UserInfoDto dto = userMapper.toUserInfoDto(result.user());
+        dto.setPermissions(permissionService.getUserPermissions(result.user().getId()));
+        List<String> roleCodes = result.roles().stream()
+                .map(Role::getCode)
+                .collect(Collectors.toList());
+        LoginProfileDto profile = new LoginProfileDto();
+        profile.setAuthenticated(true);
+        profile.setUser(dto);
+        profile.setRoleCodes(roleCodes);
+        profile.setPrimaryRole(roleCodes.isEmpty() ? null : roleCodes.get(0));
+        profile.setDepartmentIds(result.departments().stream()
+                .map(Department::getId)
+                .collect(Collectors.toList()));
+        return profile;
+    }
+
     /**
      * 根据用户ID列表批量获取用户信息
      */
@@ -22,15 +22,14 @@ import xtt.cloud.oa.workflow.domain.flow.repository.FlowNodeRepository;
 import xtt.cloud.oa.workflow.domain.flow.service.NodeRoutingService;
 import xtt.cloud.oa.workflow.domain.flow.service.ApproverAssignmentService;
 import xtt.cloud.oa.workflow.domain.flow.service.TaskService;
+import xtt.cloud.oa.workflow.infrastructure.cache.CacheServiceWithLock;
 import xtt.cloud.oa.workflow.infrastructure.cache.CacheUpdateService;
 import xtt.cloud.oa.workflow.infrastructure.cache.flowinstance.FlowInstanceCacheService;
-import xtt.cloud.oa.workflow.infrastructure.lock.DistributedLockService;
 import xtt.cloud.oa.workflow.infrastructure.messaging.event.DomainEventPublisher;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 流程应用服务
@@ -56,7 +55,7 @@ public class FlowApplicationService {
     private final DomainEventPublisher eventPublisher;
     private final CacheUpdateService cacheUpdateService;
     private final FlowInstanceCacheService flowInstanceCacheService;
-    private final DistributedLockService distributedLockService;
+    private final CacheServiceWithLock cacheServiceWithLock;
     private final FlowInstanceFactory flowInstanceFactory;
     private final FlowDefinitionFactory FlowDefinitionFactory;
     private final TaskService taskService;
@@ -70,7 +69,7 @@ public class FlowApplicationService {
             DomainEventPublisher eventPublisher,
             CacheUpdateService cacheUpdateService,
             FlowInstanceCacheService flowInstanceCacheService,
-            DistributedLockService distributedLockService, FlowInstanceFactory flowInstanceFactory, FlowDefinitionFactory flowDefinitionFactory, TaskService taskService) {
+            CacheServiceWithLock cacheServiceWithLock, FlowInstanceFactory flowInstanceFactory, FlowDefinitionFactory flowDefinitionFactory, TaskService taskService) {
         this.flowInstanceRepository = flowInstanceRepository;
         this.flowNodeRepository = flowNodeRepository;
         this.flowNodeInstanceRepository = flowNodeInstanceRepository;
@@ -79,7 +78,7 @@ public class FlowApplicationService {
         this.eventPublisher = eventPublisher;
         this.cacheUpdateService = cacheUpdateService;
         this.flowInstanceCacheService = flowInstanceCacheService;
-        this.distributedLockService = distributedLockService;
+        this.cacheServiceWithLock = cacheServiceWithLock;
         this.flowInstanceFactory = flowInstanceFactory;
         FlowDefinitionFactory = flowDefinitionFactory;
         this.taskService = taskService;
@@ -367,51 +366,18 @@ public class FlowApplicationService {
     /**
      * 加载流程实例
      * 
-     * 使用分布式锁防止缓存击穿：当缓存未命中时，只有一个线程查询数据库并更新缓存
-     * 高并发情况下才会出现，
+     * 防止缓存击穿：当缓存未命中时，同一流程实例的并发请求合并为一次数据库查询并更新缓存
      *
      */
     @Transactional(readOnly = true)
     public FlowInstanceDTO getFlowInstance(Long flowInstanceId) {
-        // 1. 先从缓存获取
-        Optional<FlowInstanceDTO> cached = flowInstanceCacheService.getFlowInstanceById(flowInstanceId);
-        if (cached.isPresent()) {
-            return cached.get();
-        }
-        
-        // 2. 缓存未命中，使用分布式锁防止缓存击穿
-        String lockKey = "flow_instance:" + flowInstanceId;
-        FlowInstanceDTO result = distributedLockService.executeWithLock(
-            lockKey,
-            3, // 等待3秒
-            10, // 锁持有10秒
-            TimeUnit.SECONDS,
-            () -> {
-                // 双重检查：再次检查缓存（可能在等待锁期间，其他线程已经更新了缓存）
-                Optional<FlowInstanceDTO> cachedAgain = flowInstanceCacheService.getFlowInstanceById(flowInstanceId);
-                if (cachedAgain.isPresent()) {
-                    return cachedAgain.get();
-                }
-                
-                // 从数据库加载
-                FlowInstance flowInstance = flowInstanceFactory.loadFlowInstance(flowInstanceId);
-                FlowInstanceDTO dto = FlowInstanceAssembler.toDTO(flowInstance);
-                
-                // 更新缓存
-                cacheUpdateService.updateFlowInstanceCache(dto);
-                
-                return dto;
-            }
-        );
-        
-        // 如果获取锁失败，直接查数据库（降级策略）
-        if (result == null) {
-            log.warn("获取分布式锁失败，直接查询数据库，流程实例ID: {}", flowInstanceId);
-            FlowInstance flowInstance = flowInstanceFactory.loadFlowInstance(flowInstanceId);
-            return FlowInstanceAssembler.toDTO(flowInstance);
-        }
-        
-        return result;
+        // 先查缓存；未命中时合并同一流程实例的并发加载，防止缓存击穿
+        return cacheServiceWithLock.getWithLock(
+            "flow_instance:" + flowInstanceId,
+            () -> flowInstanceCacheService.getFlowInstanceById(flowInstanceId),
+            () -> FlowInstanceAssembler.toDTO(flowInstanceFactory.loadFlowInstance(flowInstanceId)),
+            cacheUpdateService::updateFlowInstanceCache
+        ).orElse(null);
     }
 
     /**
@@ -1,16 +1,22 @@
 package xtt.cloud.oa.workflow.application.flow;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import xtt.cloud.oa.workflow.application.flow.task.TaskApplicationService;
 import xtt.cloud.oa.workflow.domain.flow.model.entity.task.DoneTask;
 import xtt.cloud.oa.workflow.domain.flow.model.entity.task.TodoTask;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.CursorPage;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.TaskCursor;
 import xtt.cloud.oa.workflow.domain.flow.repository.DoneTaskRepository;
 import xtt.cloud.oa.workflow.domain.flow.repository.TodoTaskRepository;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -25,10 +31,19 @@ public class TaskQueryService {
 
     private final TodoTaskRepository todoTaskRepository;
     private final DoneTaskRepository doneTaskRepository;
+    private final Cache<String, Long> todoCountCache;
 
-    public TaskQueryService(TodoTaskRepository todoTaskRepository, DoneTaskRepository doneTaskRepository) {
+    public TaskQueryService(
+            TodoTaskRepository todoTaskRepository,
+            DoneTaskRepository doneTaskRepository,
+            @Value("${workflow.task.todo-count.cache-ttl:30}") long todoCountCacheTtl,
+            @Value("${workflow.task.todo-count.cache-size:10000}") long todoCountCacheSize) {
         this.todoTaskRepository = todoTaskRepository;
         this.doneTaskRepository = doneTaskRepository;
+        this.todoCountCache = Caffeine.newBuilder()
+                .maximumSize(todoCountCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(todoCountCacheTtl))
+                .build();
     }
 
     /**
@@ -40,6 +55,27 @@ public class TaskQueryService {
         return todoTaskRepository.findPageByAssigneeId(assigneeId, pageNum, pageSize);
     }
 
+    /**
+     * 根据审批人ID按游标获取待办任务列表（键集分页，翻页开销与页码无关）
+     *
+     * @param cursor 上一页返回的游标，为 null 时查询第一页
+     * @param withTotal 是否附带总数（总数缓存 workflow.task.todo-count.cache-ttl 秒）
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TodoTask> getTodoTasksByCursor(Long assigneeId, Integer taskType, TaskCursor cursor,
+                                                      int pageSize, boolean withTotal) {
+        log.debug("按游标查询待办任务列表，审批人ID: {}, 任务类型: {}, 游标: {}, 大小: {}",
+                assigneeId, taskType, cursor, pageSize);
+        CursorPage<TodoTask> page = todoTaskRepository.findPendingByAssigneeIdAfter(assigneeId, taskType, cursor, pageSize);
+        if (!withTotal) {
+            return page;
+        }
+
+        Long total = todoCountCache.get(assigneeId + ":" + taskType,
+                key -> todoTaskRepository.countPendingByAssigneeId(assigneeId, taskType));
+        return page.withTotal(total);
+    }
+
     /**
      * 根据流程实例ID获取待办任务列表
      */
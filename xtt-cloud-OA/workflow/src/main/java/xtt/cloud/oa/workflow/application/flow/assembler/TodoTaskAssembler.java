@@ -0,0 +1,50 @@
+package xtt.cloud.oa.workflow.application.flow.assembler;
+
+import xtt.cloud.oa.workflow.application.flow.dto.TodoTaskDTO;
+import xtt.cloud.oa.workflow.domain.flow.model.entity.task.TodoTask;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 待办任务组装器
+ * 
+ * @author xtt
+ */
+public class TodoTaskAssembler {
+    
+    /**
+     * 实体转DTO
+     */
+    public static TodoTaskDTO toDTO(TodoTask task) {
+        if (task == null) {
+            return null;
+        }
+        
+        TodoTaskDTO dto = new TodoTaskDTO();
+        dto.setTaskId(task.getId());
+        dto.setFlowInstanceId(task.getFlowInstanceId());
+        dto.setNodeInstanceId(task.getNodeInstanceId());
+        dto.setDocumentId(task.getDocumentId());
+        dto.setDocumentTitle(task.getTitle());
+        dto.setApproverId(task.getAssigneeId());
+        if (task.getStatus() != null) {
+            dto.setStatus(task.getStatus().getValue());
+        }
+        dto.setCreatedAt(task.getCreatedAt());
+        dto.setDeadline(task.getDueDate());
+        return dto;
+    }
+    
+    /**
+     * 实体列表转DTO列表
+     */
+    public static List<TodoTaskDTO> toDTOList(List<TodoTask> tasks) {
+        if (tasks == null) {
+            return List.of();
+        }
+        return tasks.stream()
+                .map(TodoTaskAssembler::toDTO)
+                .collect(Collectors.toList());
+    }
+}
@@ -4,11 +4,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import xtt.cloud.oa.workflow.domain.flow.model.aggregate.FlowDefinition;
 import xtt.cloud.oa.workflow.domain.flow.model.entity.FlowNode;
 import xtt.cloud.oa.workflow.domain.flow.model.valueobject.FlowDefinitionId;
 import xtt.cloud.oa.workflow.domain.flow.repository.FlowDefinitionRepository;
 import xtt.cloud.oa.workflow.domain.flow.repository.FlowNodeRepository;
+import xtt.cloud.oa.workflow.domain.flow.service.FlowGraphService;
 
 import java.util.List;
 import java.util.Optional;
@@ -30,12 +33,15 @@ public class FlowDefinitionApplicationService {
     
     private final FlowDefinitionRepository flowDefinitionRepository;
     private final FlowNodeRepository flowNodeRepository;
+    private final FlowGraphService flowGraphService;
     
     public FlowDefinitionApplicationService(
             FlowDefinitionRepository flowDefinitionRepository,
-            FlowNodeRepository flowNodeRepository) {
+            FlowNodeRepository flowNodeRepository,
+            FlowGraphService flowGraphService) {
         this.flowDefinitionRepository = flowDefinitionRepository;
         this.flowNodeRepository = flowNodeRepository;
+        this.flowGraphService = flowGraphService;
     }
     
     /**
@@ -110,6 +116,9 @@ public class FlowDefinitionApplicationService {
         // 4. 保存聚合根（会自动保存节点）
         flowDefinitionRepository.save(flowDef);
         
+        // 5. 节点变更，提交后失效已编译的流程图
+        afterCommit(() -> flowGraphService.evict(flowDefId.getValue()));
+        
         log.info("节点添加成功，节点ID: {}", node.getId());
         
         return node.getId();
@@ -135,6 +144,9 @@ public class FlowDefinitionApplicationService {
         // 3. 保存聚合根（会自动删除节点）
         flowDefinitionRepository.save(flowDef);
         
+        // 4. 节点变更，提交后失效已编译的流程图
+        afterCommit(() -> flowGraphService.evict(flowDefId.getValue()));
+        
         log.info("节点删除成功");
     }
     
@@ -151,6 +163,9 @@ public class FlowDefinitionApplicationService {
         flowDef.enable();
         flowDefinitionRepository.save(flowDef);
         
+        // 提交后编译流程图，后续路由调用共享同一份编译结果
+        afterCommit(() -> flowGraphService.publish(flowDefId.getValue()));
+        
         log.info("流程定义启用成功");
     }
     
@@ -228,5 +243,23 @@ public class FlowDefinitionApplicationService {
             return nodes;
         }
     }
+    
+    /**
+     * 事务提交后执行
+     * 
+     * 流程图缓存只能反映已提交的节点：提交前失效或发布，并发路由可能按旧数据重新编译并缓存，
+     * 事务回滚时也会留下未提交的流程图
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
-
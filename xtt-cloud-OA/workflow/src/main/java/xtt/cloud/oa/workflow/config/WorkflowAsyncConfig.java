@@ -1,35 +1,107 @@
 package xtt.cloud.oa.workflow.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
 /**
  * Workflow 异步配置
- * 
+ *
+ * 每类事件处理器使用独立的执行器（舱壁隔离），某个处理器变慢只会占满自己的队列，
+ * 不会拖慢其他处理器（例如消息发送变慢不影响缓存失效）：
+ * 1. workflowFlowStartedExecutor        流程启动事件
+ * 2. workflowFlowCompletedExecutor      流程完成事件
+ * 3. workflowMessageExecutor            待办/已办消息发送
+ * 4. workflowTaskEventExecutor          待办/已办任务创建
+ * 5. workflowCacheInvalidationExecutor  缓存失效
+ * 未指定执行器的 @Async 方法使用 workflowTaskExecutor
+ *
+ * 各执行器通过 xtt.workflow.executors.* 配置，默认拒绝策略为 CALLER_RUNS（背压，不丢任务）
+ *
  * @author XTT Cloud
  */
 @Configuration
 @ConditionalOnProperty(prefix = "xtt.workflow", name = "enable-async", havingValue = "true", matchIfMissing = true)
 @EnableAsync
-public class WorkflowAsyncConfig {
-    
+public class WorkflowAsyncConfig implements AsyncConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowAsyncConfig.class);
+
+    private final WorkflowProperties.AsyncExecutors executors;
+    private final WorkflowExecutorFactory executorFactory;
+
+    public WorkflowAsyncConfig(WorkflowProperties workflowProperties,
+                               ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.executors = workflowProperties.getExecutors();
+        this.executorFactory = new WorkflowExecutorFactory(meterRegistryProvider.getIfAvailable());
+    }
+
     /**
-     * 配置异步任务执行器
+     * 配置异步任务执行器（通用）
      */
     @Bean(name = "workflowTaskExecutor")
-    public Executor workflowTaskExecutor() {
-        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-        executor.setCorePoolSize(5);
-        executor.setMaxPoolSize(10);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("workflow-async-");
-        executor.initialize();
-        return executor;
+    public AsyncTaskExecutor workflowTaskExecutor() {
+        return executorFactory.create("workflow-async", executors.getCommon());
+    }
+
+    /**
+     * 流程启动事件执行器
+     */
+    @Bean(name = "workflowFlowStartedExecutor")
+    public AsyncTaskExecutor workflowFlowStartedExecutor() {
+        return executorFactory.create("workflow-flow-started", executors.getFlowStarted());
+    }
+
+    /**
+     * 流程完成事件执行器
+     */
+    @Bean(name = "workflowFlowCompletedExecutor")
+    public AsyncTaskExecutor workflowFlowCompletedExecutor() {
+        return executorFactory.create("workflow-flow-completed", executors.getFlowCompleted());
+    }
+
+    /**
+     * 消息发送执行器
+     */
+    @Bean(name = "workflowMessageExecutor")
+    public AsyncTaskExecutor workflowMessageExecutor() {
+        return executorFactory.create("workflow-message", executors.getMessage());
+    }
+
+    /**
+     * 任务创建执行器
+     */
+    @Bean(name = "workflowTaskEventExecutor")
+    public AsyncTaskExecutor workflowTaskEventExecutor() {
+        return executorFactory.create("workflow-task-event", executors.getTask());
     }
-}
 
+    /**
+     * 缓存失效执行器
+     */
+    @Bean(name = "workflowCacheInvalidationExecutor")
+    public AsyncTaskExecutor workflowCacheInvalidationExecutor() {
+        return executorFactory.create("workflow-cache-invalidation", executors.getCacheInvalidation());
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return workflowTaskExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) -> log.error("异步任务执行失败，方法: {}.{}",
+                method.getDeclaringClass().getSimpleName(), method.getName(), ex);
+    }
+}
@@ -0,0 +1,192 @@
+package xtt.cloud.oa.workflow.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import xtt.cloud.oa.workflow.config.WorkflowProperties.ExecutorProperties;
+import xtt.cloud.oa.workflow.config.WorkflowProperties.RejectionPolicy;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步执行器工厂
+ *
+ * 按 {@link ExecutorProperties} 创建执行器：
+ * 1. 线程池（默认）：有界队列 + 显式拒绝策略，拒绝时记录日志和指标，不再静默丢弃
+ * 2. 虚拟线程（JDK 21+）：每个任务一个虚拟线程，以最大并发数作为背压，达到上限时提交方阻塞等待
+ *
+ * 指标（标签 executor 为执行器名称）：
+ * workflow.executor.queue.size     队列中等待的任务数（仅线程池）
+ * workflow.executor.pool.size      当前线程数（仅线程池）
+ * workflow.executor.active         正在执行的任务数
+ * workflow.executor.rejected       被拒绝的任务数（标签 policy）
+ * workflow.executor.task.wait      任务从提交到开始执行的等待时间
+ * workflow.executor.task.duration  任务执行时间
+ *
+ * @author XTT Cloud
+ */
+final class WorkflowExecutorFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowExecutorFactory.class);
+
+    private static final int VIRTUAL_THREADS_MIN_VERSION = 21;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param meterRegistry 指标注册表，可为 null
+     */
+    WorkflowExecutorFactory(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 创建执行器
+     *
+     * @param name 执行器名称（线程名前缀、指标标签）
+     * @param properties 执行器配置
+     */
+    AsyncTaskExecutor create(String name, ExecutorProperties properties) {
+        if (properties.isVirtualThreads()) {
+            int feature = Runtime.version().feature();
+            if (feature >= VIRTUAL_THREADS_MIN_VERSION) {
+                return createVirtual(name, properties);
+            }
+            log.warn("当前 JDK 版本 {} 不支持虚拟线程，执行器 {} 回退为线程池", feature, name);
+        }
+        return createPooled(name, properties);
+    }
+
+    private AsyncTaskExecutor createPooled(String name, ExecutorProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(Math.max(properties.getMaxPoolSize(), properties.getCorePoolSize()));
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setKeepAliveSeconds(properties.getKeepAliveSeconds());
+        executor.setThreadNamePrefix(name + "-");
+        executor.setRejectedExecutionHandler(rejectionHandler(name, properties.getRejectionPolicy()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(properties.getAwaitTerminationSeconds());
+
+        InstrumentedTaskDecorator decorator = decorator(name);
+        if (decorator != null) {
+            executor.setTaskDecorator(decorator);
+        }
+        executor.initialize();
+
+        if (meterRegistry != null) {
+            ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+            Gauge.builder("workflow.executor.queue.size", pool, p -> p.getQueue().size())
+                    .description("执行器队列中等待的任务数")
+                    .tag("executor", name)
+                    .register(meterRegistry);
+            Gauge.builder("workflow.executor.pool.size", pool, ThreadPoolExecutor::getPoolSize)
+                    .description("执行器当前线程数")
+                    .tag("executor", name)
+                    .register(meterRegistry);
+        }
+
+        log.info("创建异步执行器 {}，核心线程: {}, 最大线程: {}, 队列容量: {}, 拒绝策略: {}",
+                name, properties.getCorePoolSize(), properties.getMaxPoolSize(),
+                properties.getQueueCapacity(), properties.getRejectionPolicy());
+        return executor;
+    }
+
+    private AsyncTaskExecutor createVirtual(String name, ExecutorProperties properties) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(name + "-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(properties.getMaxConcurrency());
+        executor.setTaskTerminationTimeout(TimeUnit.SECONDS.toMillis(properties.getAwaitTerminationSeconds()));
+
+        InstrumentedTaskDecorator decorator = decorator(name);
+        if (decorator != null) {
+            executor.setTaskDecorator(decorator);
+        }
+
+        log.info("创建异步执行器 {}（虚拟线程），最大并发: {}", name, properties.getMaxConcurrency());
+        return executor;
+    }
+
+    /**
+     * 拒绝处理：先记录日志和指标，再按配置的策略处理
+     */
+    private RejectedExecutionHandler rejectionHandler(String name, RejectionPolicy policy) {
+        RejectedExecutionHandler delegate = switch (policy) {
+            case ABORT -> new ThreadPoolExecutor.AbortPolicy();
+            case DISCARD -> new ThreadPoolExecutor.DiscardPolicy();
+            case DISCARD_OLDEST -> new ThreadPoolExecutor.DiscardOldestPolicy();
+            case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy();
+        };
+        Counter rejected = meterRegistry == null ? null : Counter.builder("workflow.executor.rejected")
+                .description("执行器饱和时被拒绝的任务数")
+                .tag("executor", name)
+                .tag("policy", policy.name())
+                .register(meterRegistry);
+
+        return (task, pool) -> {
+            if (rejected != null) {
+                rejected.increment();
+            }
+            log.warn("异步执行器 {} 已饱和，活跃线程: {}, 队列任务: {}, 按 {} 策略处理",
+                    name, pool.getActiveCount(), pool.getQueue().size(), policy);
+            delegate.rejectedExecution(task, pool);
+        };
+    }
+
+    private InstrumentedTaskDecorator decorator(String name) {
+        return meterRegistry == null ? null : new InstrumentedTaskDecorator(name, meterRegistry);
+    }
+
+    /**
+     * 记录任务等待时间、执行时间和正在执行的任务数
+     *
+     * 任务在提交时被包装，因此等待时间包含排队（或等待并发许可）的时间
+     */
+    private static final class InstrumentedTaskDecorator implements TaskDecorator {
+
+        private final AtomicInteger active = new AtomicInteger();
+        private final Timer waitTimer;
+        private final Timer durationTimer;
+
+        InstrumentedTaskDecorator(String name, MeterRegistry meterRegistry) {
+            this.waitTimer = Timer.builder("workflow.executor.task.wait")
+                    .description("任务从提交到开始执行的等待时间")
+                    .tag("executor", name)
+                    .register(meterRegistry);
+            this.durationTimer = Timer.builder("workflow.executor.task.duration")
+                    .description("任务执行时间")
+                    .tag("executor", name)
+                    .register(meterRegistry);
+            Gauge.builder("workflow.executor.active", active, AtomicInteger::get)
+                    .description("执行器正在执行的任务数")
+                    .tag("executor", name)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public Runnable decorate(Runnable runnable) {
+            long submittedAt = System.nanoTime();
+            return () -> {
+                long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                active.incrementAndGet();
+                try {
+                    runnable.run();
+                } finally {
+                    active.decrementAndGet();
+                    durationTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        }
+    }
+}
@@ -35,6 +35,11 @@ public class WorkflowProperties {
      */
     private boolean enableAsync = true;
     
+    /**
+     * 异步执行器配置（每类事件处理器独立线程池，互不争抢）
+     */
+    private AsyncExecutors executors = new AsyncExecutors();
+    
     public boolean isEnabled() {
         return enabled;
     }
@@ -74,5 +79,241 @@ public class WorkflowProperties {
     public void setEnableAsync(boolean enableAsync) {
         this.enableAsync = enableAsync;
     }
+    
+    public AsyncExecutors getExecutors() {
+        return executors;
+    }
+    
+    public void setExecutors(AsyncExecutors executors) {
+        this.executors = executors;
+    }
+    
+    /**
+     * 异步执行器配置
+     * 
+     * 配置前缀：xtt.workflow.executors.{common|flow-started|flow-completed|message|task|cache-invalidation}
+     */
+    public static class AsyncExecutors {
+        
+        /**
+         * 通用执行器（未指定执行器的 @Async 方法）
+         */
+        private ExecutorProperties common = new ExecutorProperties(5, 10, 100, RejectionPolicy.CALLER_RUNS);
+        
+        /**
+         * 流程启动事件处理
+         */
+        private ExecutorProperties flowStarted = new ExecutorProperties(1, 2, 200, RejectionPolicy.CALLER_RUNS);
+        
+        /**
+         * 流程完成事件处理
+         */
+        private ExecutorProperties flowCompleted = new ExecutorProperties(1, 2, 200, RejectionPolicy.CALLER_RUNS);
+        
+        /**
+         * 待办/已办消息发送（RabbitMQ）
+         */
+        private ExecutorProperties message = new ExecutorProperties(4, 8, 1000, RejectionPolicy.CALLER_RUNS);
+        
+        /**
+         * 待办/已办任务创建
+         */
+        private ExecutorProperties task = new ExecutorProperties(4, 8, 1000, RejectionPolicy.CALLER_RUNS);
+        
+        /**
+         * 缓存失效
+         */
+        private ExecutorProperties cacheInvalidation = new ExecutorProperties(2, 2, 1000, RejectionPolicy.CALLER_RUNS);
+        
+        public ExecutorProperties getCommon() {
+            return common;
+        }
+        
+        public void setCommon(ExecutorProperties common) {
+            this.common = common;
+        }
+        
+        public ExecutorProperties getFlowStarted() {
+            return flowStarted;
+        }
+        
+        public void setFlowStarted(ExecutorProperties flowStarted) {
+            this.flowStarted = flowStarted;
+        }
+        
+        public ExecutorProperties getFlowCompleted() {
+            return flowCompleted;
+        }
+        
+        public void setFlowCompleted(ExecutorProperties flowCompleted) {
+            this.flowCompleted = flowCompleted;
+        }
+        
+        public ExecutorProperties getMessage() {
+            return message;
+        }
+        
+        public void setMessage(ExecutorProperties message) {
+            this.message = message;
+        }
+        
+        public ExecutorProperties getTask() {
+            return task;
+        }
+        
+        public void setTask(ExecutorProperties task) {
+            this.task = task;
+        }
+        
+        public ExecutorProperties getCacheInvalidation() {
+            return cacheInvalidation;
+        }
+        
+        public void setCacheInvalidation(ExecutorProperties cacheInvalidation) {
+            this.cacheInvalidation = cacheInvalidation;
+        }
+    }
+    
+    /**
+     * 单个执行器配置
+     */
+    public static class ExecutorProperties {
+        
+        /**
+         * 核心线程数
+         */
+        private int corePoolSize;
+        
+        /**
+         * 最大线程数
+         */
+        private int maxPoolSize;
+        
+        /**
+         * 队列容量
+         */
+        private int queueCapacity;
+        
+        /**
+         * 空闲线程存活时间（秒）
+         */
+        private int keepAliveSeconds = 60;
+        
+        /**
+         * 队列满且线程数达到上限时的处理策略
+         */
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+        
+        /**
+         * 是否使用虚拟线程（需要 JDK 21+，低版本回退为线程池）
+         */
+        private boolean virtualThreads = false;
+        
+        /**
+         * 虚拟线程模式下的最大并发任务数，达到上限时提交方阻塞等待
+         */
+        private int maxConcurrency = 200;
+        
+        /**
+         * 关闭时等待已提交任务完成的时间（秒）
+         */
+        private int awaitTerminationSeconds = 30;
+        
+        public ExecutorProperties() {
+        }
+        
+        public ExecutorProperties(int corePoolSize, int maxPoolSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
+            this.corePoolSize = corePoolSize;
+            this.maxPoolSize = maxPoolSize;
+            this.queueCapacity = queueCapacity;
+            this.rejectionPolicy = rejectionPolicy;
+        }
+        
+        public int getCorePoolSize() {
+            return corePoolSize;
+        }
+        
+        public void setCorePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+        }
+        
+        public int getMaxPoolSize() {
+            return maxPoolSize;
+        }
+        
+        public void setMaxPoolSize(int maxPoolSize) {
+            this.maxPoolSize = maxPoolSize;
+        }
+        
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+        
+        public int getKeepAliveSeconds() {
+            return keepAliveSeconds;
+        }
+        
+        public void setKeepAliveSeconds(int keepAliveSeconds) {
+            this.keepAliveSeconds = keepAliveSeconds;
+        }
+        
+        public RejectionPolicy getRejectionPolicy() {
+            return rejectionPolicy;
+        }
+        
+        public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+        }
+        
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+        
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+        
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+        
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+        
+        public int getAwaitTerminationSeconds() {
+            return awaitTerminationSeconds;
+        }
+        
+        public void setAwaitTerminationSeconds(int awaitTerminationSeconds) {
+            this.awaitTerminationSeconds = awaitTerminationSeconds;
+        }
+    }
+    
+    /**
+     * 执行器饱和时的处理策略
+     */
+    public enum RejectionPolicy {
+        /**
+         * 由提交任务的线程直接执行（背压，不丢任务）
+         */
+        CALLER_RUNS,
+        /**
+         * 抛出 TaskRejectedException
+         */
+        ABORT,
+        /**
+         * 丢弃新任务
+         */
+        DISCARD,
+        /**
+         * 丢弃队列中最早的任务，再提交新任务
+         */
+        DISCARD_OLDEST
+    }
 }
 
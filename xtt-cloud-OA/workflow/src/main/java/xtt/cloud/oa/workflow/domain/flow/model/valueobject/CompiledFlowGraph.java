@@ -0,0 +1,315 @@
+package xtt.cloud.oa.workflow.domain.flow.model.valueobject;
+
+import xtt.cloud.oa.workflow.domain.flow.model.entity.FlowNode;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * 预编译流程图值对象
+ *
+ * 由流程定义的全部节点一次性编译而成，供节点路由在内存中完成：
+ * 1. 后继节点（邻接数组，已解析 nextNodeIds / nextNodeId / orderNum 兼容逻辑）
+ * 2. 前驱节点（反向边，只按显式引用计算，orderNum 兼容规则产生的后继不算作前驱，与汇聚判断原有语义一致）
+ * 3. Split / Join 网关配对（按 gatewayId 关联）
+ * 4. 网关类型与并行网关模式（预先解析，默认会签）
+ *
+ * 不可变：编译完成后不再修改，可被所有路由调用并发共享。
+ * 通过 {@link #isCompiledFrom(Long, Integer, LocalDateTime)} 判断是否与当前流程定义版本一致。
+ *
+ * @author xtt
+ */
+public final class CompiledFlowGraph {
+
+    private static final int NO_INDEX = -1;
+    private static final int[] EMPTY = new int[0];
+
+    private final Long flowDefId;
+    private final Integer version;
+    private final LocalDateTime definitionUpdatedAt;
+    private final LocalDateTime compiledAt;
+
+    private final long[] nodeIds;
+    private final FlowNode[] nodes;
+    private final Map<Long, Integer> indexById;
+    private final int[][] successors;
+    private final int[][] predecessors;
+    private final GatewayType[] gatewayTypes;
+    private final GatewayMode[] gatewayModes;
+    private final int[] pairedGateway;
+    private final int firstIndex;
+
+    private CompiledFlowGraph(Long flowDefId, Integer version, LocalDateTime definitionUpdatedAt,
+                              List<FlowNode> nodeList, Map<Long, List<Long>> successorIds,
+                              Map<Long, List<Long>> referencedIds) {
+        this.flowDefId = flowDefId;
+        this.version = version;
+        this.definitionUpdatedAt = definitionUpdatedAt;
+        this.compiledAt = LocalDateTime.now();
+
+        int size = nodeList.size();
+        this.nodeIds = new long[size];
+        this.nodes = new FlowNode[size];
+        this.gatewayTypes = new GatewayType[size];
+        this.gatewayModes = new GatewayMode[size];
+        this.pairedGateway = new int[size];
+        Map<Long, Integer> index = new HashMap<>(size * 2);
+
+        // 1. 节点索引、网关类型、网关模式
+        int first = NO_INDEX;
+        for (int i = 0; i < size; i++) {
+            FlowNode node = nodeList.get(i);
+            nodeIds[i] = node.getId();
+            nodes[i] = node;
+            gatewayTypes[i] = node.getGatewayType();
+            gatewayModes[i] = node.getGatewayMode() != null ? node.getGatewayMode() : GatewayMode.PARALLEL_ALL;
+            pairedGateway[i] = NO_INDEX;
+            index.put(node.getId(), i);
+            if (first == NO_INDEX || orderOf(node) < orderOf(nodes[first])) {
+                first = i;
+            }
+        }
+        this.indexById = Collections.unmodifiableMap(index);
+        this.firstIndex = first;
+
+        // 2. 后继邻接数组 + 反向边（按显式引用）
+        this.successors = new int[size][];
+        int[][] references = new int[size][];
+        int[] inDegree = new int[size];
+        for (int i = 0; i < size; i++) {
+            successors[i] = toEdges(successorIds.get(nodeIds[i]), index);
+            references[i] = toEdges(referencedIds.get(nodeIds[i]), index);
+            for (int target : references[i]) {
+                inDegree[target]++;
+            }
+        }
+        this.predecessors = new int[size][];
+        int[] filled = new int[size];
+        for (int i = 0; i < size; i++) {
+            predecessors[i] = inDegree[i] == 0 ? EMPTY : new int[inDegree[i]];
+        }
+        for (int i = 0; i < size; i++) {
+            for (int target : references[i]) {
+                predecessors[target][filled[target]++] = i;
+            }
+        }
+
+        // 3. Split / Join 配对
+        Map<Long, Integer> splitByGatewayId = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (gatewayTypes[i].isSplit() && nodes[i].getGatewayId() != null) {
+                splitByGatewayId.put(nodes[i].getGatewayId(), i);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (!gatewayTypes[i].isJoin() || nodes[i].getGatewayId() == null) {
+                continue;
+            }
+            Integer splitIndex = splitByGatewayId.get(nodes[i].getGatewayId());
+            if (splitIndex != null && gatewayTypes[splitIndex].getCorrespondingJoin() == gatewayTypes[i]) {
+                pairedGateway[i] = splitIndex;
+                pairedGateway[splitIndex] = i;
+            }
+        }
+    }
+
+    /**
+     * 把节点ID列表转换为节点下标数组（忽略不属于此流程图的节点）
+     */
+    private static int[] toEdges(List<Long> targets, Map<Long, Integer> index) {
+        if (targets == null || targets.isEmpty()) {
+            return EMPTY;
+        }
+        int[] edges = new int[targets.size()];
+        int count = 0;
+        for (Long target : targets) {
+            Integer targetIndex = target != null ? index.get(target) : null;
+            if (targetIndex != null) {
+                edges[count++] = targetIndex;
+            }
+        }
+        return count == edges.length ? edges : Arrays.copyOf(edges, count);
+    }
+
+    /**
+     * 编译流程图
+     *
+     * @param flowDefId 流程定义ID
+     * @param version 流程定义版本
+     * @param definitionUpdatedAt 流程定义更新时间（用于判断是否过期）
+     * @param nodes 流程定义的全部节点
+     * @param successorIds 每个节点已解析的后继节点ID列表（key 为节点ID）
+     * @param referencedIds 每个节点显式引用的节点ID列表（key 为节点ID），用于计算前驱节点
+     * @return 预编译流程图
+     */
+    public static CompiledFlowGraph compile(Long flowDefId, Integer version, LocalDateTime definitionUpdatedAt,
+                                            List<FlowNode> nodes, Map<Long, List<Long>> successorIds,
+                                            Map<Long, List<Long>> referencedIds) {
+        if (flowDefId == null) {
+            throw new IllegalArgumentException("流程定义ID不能为空");
+        }
+        List<FlowNode> nodeList = new ArrayList<>();
+        if (nodes != null) {
+            for (FlowNode node : nodes) {
+                if (node != null && node.getId() != null) {
+                    nodeList.add(node);
+                }
+            }
+        }
+        return new CompiledFlowGraph(flowDefId, version, definitionUpdatedAt, nodeList,
+                successorIds != null ? successorIds : Map.of(),
+                referencedIds != null ? referencedIds : Map.of());
+    }
+
+    /**
+     * 判断是否由指定版本的流程定义编译而来
+     */
+    public boolean isCompiledFrom(Long flowDefId, Integer version, LocalDateTime updatedAt) {
+        return Objects.equals(this.flowDefId, flowDefId)
+                && Objects.equals(this.version, version)
+                && Objects.equals(this.definitionUpdatedAt, updatedAt);
+    }
+
+    /**
+     * 判断节点是否属于此流程图
+     */
+    public boolean contains(Long nodeId) {
+        return nodeId != null && indexById.containsKey(nodeId);
+    }
+
+    /**
+     * 获取节点
+     */
+    public Optional<FlowNode> getNode(Long nodeId) {
+        int i = indexOf(nodeId);
+        return i == NO_INDEX ? Optional.empty() : Optional.of(nodes[i]);
+    }
+
+    /**
+     * 获取第一个节点（orderNum 最小）
+     */
+    public Optional<FlowNode> getFirstNode() {
+        return firstIndex == NO_INDEX ? Optional.empty() : Optional.of(nodes[firstIndex]);
+    }
+
+    /**
+     * 获取后继节点ID列表
+     */
+    public List<Long> getNextNodeIds(Long nodeId) {
+        int i = indexOf(nodeId);
+        return i == NO_INDEX ? List.of() : toIds(successors[i]);
+    }
+
+    /**
+     * 获取前驱节点ID列表（指向该节点的所有节点）
+     */
+    public List<Long> getPredecessorNodeIds(Long nodeId) {
+        int i = indexOf(nodeId);
+        return i == NO_INDEX ? List.of() : toIds(predecessors[i]);
+    }
+
+    /**
+     * 获取前驱节点列表
+     */
+    public List<FlowNode> getPredecessorNodes(Long nodeId) {
+        int i = indexOf(nodeId);
+        if (i == NO_INDEX || predecessors[i].length == 0) {
+            return List.of();
+        }
+        FlowNode[] result = new FlowNode[predecessors[i].length];
+        for (int k = 0; k < result.length; k++) {
+            result[k] = nodes[predecessors[i][k]];
+        }
+        return List.of(result);
+    }
+
+    /**
+     * 获取网关类型（非网关或节点不存在时返回 NONE）
+     */
+    public GatewayType getGatewayType(Long nodeId) {
+        int i = indexOf(nodeId);
+        return i == NO_INDEX ? GatewayType.NONE : gatewayTypes[i];
+    }
+
+    /**
+     * 获取并行网关模式（已解析默认值）
+     */
+    public GatewayMode getGatewayMode(Long nodeId) {
+        int i = indexOf(nodeId);
+        return i == NO_INDEX ? GatewayMode.PARALLEL_ALL : gatewayModes[i];
+    }
+
+    /**
+     * 获取配对的网关节点ID（Split 返回 Join，Join 返回 Split）
+     */
+    public Optional<Long> getPairedGatewayNodeId(Long nodeId) {
+        int i = indexOf(nodeId);
+        if (i == NO_INDEX || pairedGateway[i] == NO_INDEX) {
+            return Optional.empty();
+        }
+        return Optional.of(nodeIds[pairedGateway[i]]);
+    }
+
+    /**
+     * 节点数量
+     */
+    public int size() {
+        return nodeIds.length;
+    }
+
+    public Long getFlowDefId() {
+        return flowDefId;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getDefinitionUpdatedAt() {
+        return definitionUpdatedAt;
+    }
+
+    public LocalDateTime getCompiledAt() {
+        return compiledAt;
+    }
+
+    private int indexOf(Long nodeId) {
+        if (nodeId == null) {
+            return NO_INDEX;
+        }
+        Integer i = indexById.get(nodeId);
+        return i != null ? i : NO_INDEX;
+    }
+
+    private List<Long> toIds(int[] indexes) {
+        if (indexes.length == 0) {
+            return List.of();
+        }
+        Long[] ids = new Long[indexes.length];
+        for (int k = 0; k < indexes.length; k++) {
+            ids[k] = nodeIds[indexes[k]];
+        }
+        return List.of(ids);
+    }
+
+    private static int orderOf(FlowNode node) {
+        return node.getOrderNum() != null ? node.getOrderNum() : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledFlowGraph{" +
+                "flowDefId=" + flowDefId +
+                ", version=" + version +
+                ", nodes=" + nodeIds.length +
+                ", compiledAt=" + compiledAt +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package xtt.cloud.oa.workflow.domain.flow.model.valueobject;
+
+import java.util.Objects;
+
+/**
+ * 节点实例进度值对象
+ * 
+ * 某个流程实例中，同一节点定义下节点实例的完成情况（已完成 = 已完成 + 已跳过）
+ * 用于网关汇聚判断，由仓储按流程实例一次性聚合查询得到
+ * 
+ * @author xtt
+ */
+public class NodeInstanceProgress {
+    
+    private static final NodeInstanceProgress NONE = new NodeInstanceProgress(null, 0, 0);
+    
+    private final Long nodeId;
+    private final int finishedCount;
+    private final int unfinishedCount;
+    
+    private NodeInstanceProgress(Long nodeId, int finishedCount, int unfinishedCount) {
+        this.nodeId = nodeId;
+        this.finishedCount = finishedCount;
+        this.unfinishedCount = unfinishedCount;
+    }
+    
+    public static NodeInstanceProgress of(Long nodeId, int finishedCount, int unfinishedCount) {
+        if (finishedCount < 0 || unfinishedCount < 0) {
+            throw new IllegalArgumentException("节点实例数量不能为负数");
+        }
+        return new NodeInstanceProgress(nodeId, finishedCount, unfinishedCount);
+    }
+    
+    /**
+     * 没有任何节点实例
+     */
+    public static NodeInstanceProgress none() {
+        return NONE;
+    }
+    
+    /**
+     * 是否至少有一个节点实例已完成（或签判断）
+     */
+    public boolean isAnyFinished() {
+        return finishedCount > 0;
+    }
+    
+    /**
+     * 是否存在节点实例且全部已完成（会签判断）
+     */
+    public boolean isAllFinished() {
+        return finishedCount > 0 && unfinishedCount == 0;
+    }
+    
+    public Long getNodeId() {
+        return nodeId;
+    }
+    
+    public int getFinishedCount() {
+        return finishedCount;
+    }
+    
+    public int getUnfinishedCount() {
+        return unfinishedCount;
+    }
+    
+    public int getTotalCount() {
+        return finishedCount + unfinishedCount;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NodeInstanceProgress that = (NodeInstanceProgress) o;
+        return finishedCount == that.finishedCount
+                && unfinishedCount == that.unfinishedCount
+                && Objects.equals(nodeId, that.nodeId);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodeId, finishedCount, unfinishedCount);
+    }
+    
+    @Override
+    public String toString() {
+        return "NodeInstanceProgress{" +
+                "nodeId=" + nodeId +
+                ", finished=" + finishedCount +
+                ", unfinished=" + unfinishedCount +
+                '}';
+    }
+}
@@ -0,0 +1,50 @@
+package xtt.cloud.oa.workflow.domain.flow.model.valueobject.task;
+
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 
+ * @author xtt
+ */
+public final class CursorPage<T> {
+    
+    private final List<T> records;
+    private final TaskCursor nextCursor;
+    private final Long total;
+    
+    public CursorPage(List<T> records, TaskCursor nextCursor, Long total) {
+        this.records = records != null ? records : List.of();
+        this.nextCursor = nextCursor;
+        this.total = total;
+    }
+    
+    /**
+     * 附带总数（总数为可选值）
+     */
+    public CursorPage<T> withTotal(Long total) {
+        return new CursorPage<>(records, nextCursor, total);
+    }
+    
+    public List<T> getRecords() {
+        return records;
+    }
+    
+    /**
+     * 下一页游标，没有更多数据时为 null
+     */
+    public TaskCursor getNextCursor() {
+        return nextCursor;
+    }
+    
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+    
+    /**
+     * 总数，未请求时为 null
+     */
+    public Long getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,85 @@
+package xtt.cloud.oa.workflow.domain.flow.model.valueobject.task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * 任务游标值对象
+ * 
+ * 键集分页（keyset pagination）的位置：按 (createdAt DESC, id DESC) 排序时，
+ * 下一页从严格小于该位置的记录开始，翻页开销与页码无关
+ * 
+ * 对外以不透明字符串传递（Base64URL 编码的 "createdAt|id"）
+ * 
+ * @author xtt
+ */
+public final class TaskCursor {
+    
+    private static final String SEPARATOR = "|";
+    
+    private final LocalDateTime createdAt;
+    private final Long id;
+    
+    private TaskCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+    
+    public static TaskCursor of(LocalDateTime createdAt, Long id) {
+        if (createdAt == null || id == null) {
+            throw new IllegalArgumentException("游标的创建时间和ID不能为空");
+        }
+        return new TaskCursor(createdAt, id);
+    }
+    
+    /**
+     * 解析游标字符串，空字符串表示第一页（返回 null）
+     * 
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static TaskCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return of(LocalDateTime.parse(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标: " + cursor, e);
+        }
+    }
+    
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TaskCursor that = (TaskCursor) o;
+        return Objects.equals(createdAt, that.createdAt) && Objects.equals(id, that.id);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(createdAt, id);
+    }
+    
+    @Override
+    public String toString() {
+        return "TaskCursor{" + createdAt + ", " + id + '}';
+    }
+}
@@ -1,8 +1,10 @@
 package xtt.cloud.oa.workflow.domain.flow.repository;
 
 import xtt.cloud.oa.workflow.domain.flow.model.entity.FlowNodeInstance;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.NodeInstanceProgress;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -19,6 +21,8 @@ public interface FlowNodeInstanceRepository {
     
     /**
      * 批量保存节点实例
+     * 
+     * 新增的节点实例批量插入并回写ID，已存在的节点实例逐条更新
      */
     List<FlowNodeInstance> saveAll(List<FlowNodeInstance> nodeInstances);
     
@@ -37,6 +41,13 @@ public interface FlowNodeInstanceRepository {
      */
     List<FlowNodeInstance> findByNodeIdAndFlowInstanceId(Long nodeId, Long flowInstanceId);
     
+    /**
+     * 统计流程实例下每个节点的完成情况（单次聚合查询，用于网关汇聚判断）
+     * 
+     * @return 节点ID -> 完成情况；没有节点实例的节点不在结果中
+     */
+    Map<Long, NodeInstanceProgress> countProgressByFlowInstanceId(Long flowInstanceId);
+    
     /**
      * 根据审批人ID查找待处理的节点实例
      */
@@ -1,6 +1,8 @@
 package xtt.cloud.oa.workflow.domain.flow.repository;
 
 import xtt.cloud.oa.workflow.domain.flow.model.entity.task.TodoTask;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.CursorPage;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.TaskCursor;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 
 import java.util.List;
@@ -43,6 +45,24 @@ public interface TodoTaskRepository {
      */
     IPage<TodoTask> findPageByTypeAndAssigneeId(Integer taskType, Long assigneeId, int pageNum, int pageSize);
     
+    /**
+     * 根据处理人ID按游标查询待处理任务（键集分页，按创建时间、ID倒序）
+     * 
+     * @param assigneeId 处理人ID
+     * @param taskType 任务类型，为 null 时不过滤
+     * @param cursor 上一页返回的游标，为 null 时查询第一页
+     * @param limit 每页条数
+     * @return 当前页（不含总数）
+     */
+    CursorPage<TodoTask> findPendingByAssigneeIdAfter(Long assigneeId, Integer taskType, TaskCursor cursor, int limit);
+    
+    /**
+     * 统计处理人的待处理任务数量
+     * 
+     * @param taskType 任务类型，为 null 时不过滤
+     */
+    long countPendingByAssigneeId(Long assigneeId, Integer taskType);
+    
     /**
      * 保存待办任务
      */
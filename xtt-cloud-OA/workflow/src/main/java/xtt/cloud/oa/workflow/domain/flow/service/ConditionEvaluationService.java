@@ -17,7 +17,16 @@ public interface ConditionEvaluationService {
      * @return 条件评估结果
      */
     boolean evaluate(String conditionExpression, java.util.Map<String, Object> processVariables);
-    
+
+    /**
+     * 评估条件表达式（直接读取流程变量值对象，不拷贝变量）
+     *
+     * @param conditionExpression 条件表达式（如 SpEL 表达式）
+     * @param processVariables 流程变量
+     * @return 条件评估结果
+     */
+    boolean evaluate(String conditionExpression, xtt.cloud.oa.workflow.domain.flow.model.valueobject.ProcessVariables processVariables);
+
     /**
      * 验证条件表达式是否有效
      * 
@@ -0,0 +1,50 @@
+package xtt.cloud.oa.workflow.domain.flow.service;
+
+import xtt.cloud.oa.workflow.domain.flow.model.aggregate.FlowDefinition;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.CompiledFlowGraph;
+
+/**
+ * 流程图编译领域服务
+ *
+ * 负责将流程定义编译为不可变的 {@link CompiledFlowGraph}，并按流程定义共享给所有路由调用，
+ * 避免路由过程中反复查询节点、反复解析 nextNodeIds
+ *
+ * @author xtt
+ */
+public interface FlowGraphService {
+
+    /**
+     * 获取流程图
+     *
+     * 如果缓存的流程图与传入流程定义的版本不一致，会重新编译
+     *
+     * @param flowDefinition 流程定义
+     * @return 预编译流程图
+     */
+    CompiledFlowGraph getGraph(FlowDefinition flowDefinition);
+
+    /**
+     * 根据流程定义ID获取流程图
+     *
+     * 读取流程定义（主键查询）校验版本，缓存缺失或版本不一致时重新编译
+     *
+     * @param flowDefId 流程定义ID
+     * @return 预编译流程图
+     */
+    CompiledFlowGraph getGraph(Long flowDefId);
+
+    /**
+     * 发布流程定义时调用：从仓储重新加载并编译流程图，替换旧版本
+     *
+     * @param flowDefId 流程定义ID
+     * @return 新编译的流程图
+     */
+    CompiledFlowGraph publish(Long flowDefId);
+
+    /**
+     * 失效流程图（流程定义节点变更时调用）
+     *
+     * @param flowDefId 流程定义ID
+     */
+    void evict(Long flowDefId);
+}
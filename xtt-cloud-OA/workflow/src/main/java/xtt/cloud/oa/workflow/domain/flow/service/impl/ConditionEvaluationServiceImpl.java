@@ -1,54 +1,119 @@
 package xtt.cloud.oa.workflow.domain.flow.service.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.ProcessVariables;
 import xtt.cloud.oa.workflow.domain.flow.service.ConditionEvaluationService;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 条件评估服务实现
- * 
+ *
  * 使用 Spring Expression Language (SpEL) 评估条件表达式
- * 
+ *
+ * 性能优化：
+ * 1. 解析后的表达式按表达式文本缓存（有界缓存，默认 1000 条）
+ * 2. 可选开启 SpEL 编译模式（workflow.condition.compiler-mode=MIXED）
+ * 3. 变量绑定使用轻量级上下文，直接读取流程变量，不再为每次评估新建 StandardEvaluationContext
+ * 4. 缓存命中率、评估耗时通过 Micrometer 暴露（workflow.condition.*）
+ *
  * @author xtt
  */
 @Service
 public class ConditionEvaluationServiceImpl implements ConditionEvaluationService {
-    
+
     private static final Logger log = LoggerFactory.getLogger(ConditionEvaluationServiceImpl.class);
-    
-    private final ExpressionParser parser = new SpelExpressionParser();
-    
+
+    private final SpelExpressionParser parser;
+    private final Cache<String, Expression> expressionCache;
+    private final StandardEvaluationContext sharedContext;
+    private final Timer evaluationTimer;
+
+    public ConditionEvaluationServiceImpl(
+            @Value("${workflow.condition.expression-cache.max-size:1000}") long expressionCacheMaxSize,
+            @Value("${workflow.condition.compiler-mode:OFF}") SpelCompilerMode compilerMode,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.parser = new SpelExpressionParser(
+                new SpelParserConfiguration(compilerMode, getClass().getClassLoader()));
+        this.expressionCache = Caffeine.newBuilder()
+                .maximumSize(expressionCacheMaxSize)
+                .recordStats()
+                .build();
+        this.sharedContext = ProcessVariablesEvaluationContext.createSharedContext();
+
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, expressionCache, "workflow.condition.expression");
+            this.evaluationTimer = Timer.builder("workflow.condition.evaluation")
+                    .description("条件表达式评估耗时")
+                    .tag("compiler.mode", compilerMode.name())
+                    .register(meterRegistry);
+        } else {
+            this.evaluationTimer = null;
+        }
+
+        log.info("条件评估服务初始化，表达式缓存上限: {}, SpEL 编译模式: {}", expressionCacheMaxSize, compilerMode);
+    }
+
     @Override
     public boolean evaluate(String conditionExpression, Map<String, Object> processVariables) {
+        return doEvaluate(conditionExpression,
+                ProcessVariablesEvaluationContext.of(sharedContext, processVariables));
+    }
+
+    @Override
+    public boolean evaluate(String conditionExpression, ProcessVariables processVariables) {
+        return doEvaluate(conditionExpression,
+                ProcessVariablesEvaluationContext.of(sharedContext, processVariables));
+    }
+
+    @Override
+    public boolean isValid(String conditionExpression) {
+        if (!StringUtils.hasText(conditionExpression)) {
+            return false;
+        }
+
+        try {
+            // 尝试解析表达式，如果解析成功则认为有效（解析结果同时进入缓存）
+            getExpression(conditionExpression);
+            return true;
+        } catch (Exception e) {
+            log.debug("条件表达式无效: {}, 错误: {}", conditionExpression, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean doEvaluate(String conditionExpression, EvaluationContext context) {
         if (!StringUtils.hasText(conditionExpression)) {
             log.warn("条件表达式为空，返回 false");
             return false;
         }
-        
+
+        long start = evaluationTimer != null ? System.nanoTime() : 0L;
         try {
-            // 解析表达式
-            Expression expression = parser.parseExpression(conditionExpression);
-            
-            // 创建评估上下文，将流程变量放入上下文
-            EvaluationContext context = new StandardEvaluationContext();
-            if (processVariables != null) {
-                for (Map.Entry<String, Object> entry : processVariables.entrySet()) {
-                    context.setVariable(entry.getKey(), entry.getValue());
-                }
-            }
-            
+            // 获取已解析的表达式（缓存未命中时解析）
+            Expression expression = getExpression(conditionExpression);
+
             // 评估表达式
             Object result = expression.getValue(context);
-            
+
             // 转换为布尔值
             if (result instanceof Boolean) {
                 return (Boolean) result;
@@ -57,31 +122,22 @@ public class ConditionEvaluationServiceImpl implements ConditionEvaluationServic
             } else if (result instanceof String) {
                 return Boolean.parseBoolean((String) result);
             } else {
-                log.warn("条件表达式返回值类型不支持: {}, 表达式: {}", 
-                        result != null ? result.getClass().getName() : "null", 
+                log.warn("条件表达式返回值类型不支持: {}, 表达式: {}",
+                        result != null ? result.getClass().getName() : "null",
                         conditionExpression);
                 return false;
             }
         } catch (Exception e) {
             log.error("评估条件表达式失败，表达式: {}, 错误: {}", conditionExpression, e.getMessage(), e);
             return false;
+        } finally {
+            if (evaluationTimer != null) {
+                evaluationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
         }
     }
-    
-    @Override
-    public boolean isValid(String conditionExpression) {
-        if (!StringUtils.hasText(conditionExpression)) {
-            return false;
-        }
-        
-        try {
-            // 尝试解析表达式，如果解析成功则认为有效
-            parser.parseExpression(conditionExpression);
-            return true;
-        } catch (Exception e) {
-            log.debug("条件表达式无效: {}, 错误: {}", conditionExpression, e.getMessage());
-            return false;
-        }
+
+    private Expression getExpression(String conditionExpression) {
+        return expressionCache.get(conditionExpression, parser::parseExpression);
     }
 }
-
@@ -0,0 +1,203 @@
+package xtt.cloud.oa.workflow.domain.flow.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import xtt.cloud.oa.workflow.domain.flow.model.aggregate.FlowDefinition;
+import xtt.cloud.oa.workflow.domain.flow.model.entity.FlowNode;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.CompiledFlowGraph;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.FlowDefinitionId;
+import xtt.cloud.oa.workflow.domain.flow.repository.FlowDefinitionRepository;
+import xtt.cloud.oa.workflow.domain.flow.repository.FlowNodeRepository;
+import xtt.cloud.oa.workflow.domain.flow.service.FlowGraphService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 流程图编译服务实现
+ *
+ * 每个流程定义只保留一份编译结果（按流程定义ID缓存），
+ * 通过流程定义的 version + updatedAt 判断是否过期，过期时重新编译并原子替换。
+ * 按ID获取时也先读取流程定义（主键查询）校验版本，其他实例修改节点后不会继续使用旧图
+ *
+ * @author xtt
+ */
+@Service
+public class FlowGraphServiceImpl implements FlowGraphService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlowGraphServiceImpl.class);
+
+    private final FlowNodeRepository flowNodeRepository;
+    private final FlowDefinitionRepository flowDefinitionRepository;
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<Long, CompiledFlowGraph> graphs = new ConcurrentHashMap<>();
+
+    public FlowGraphServiceImpl(
+            FlowNodeRepository flowNodeRepository,
+            FlowDefinitionRepository flowDefinitionRepository,
+            ObjectMapper objectMapper) {
+        this.flowNodeRepository = flowNodeRepository;
+        this.flowDefinitionRepository = flowDefinitionRepository;
+        this.objectMapper = objectMapper != null ? objectMapper : new ObjectMapper();
+    }
+
+    @Override
+    public CompiledFlowGraph getGraph(FlowDefinition flowDefinition) {
+        if (flowDefinition == null || flowDefinition.getId() == null) {
+            throw new IllegalArgumentException("流程定义不能为空");
+        }
+
+        Long flowDefId = flowDefinition.getId().getValue();
+        CompiledFlowGraph graph = graphs.get(flowDefId);
+        if (graph != null && graph.isCompiledFrom(flowDefId, flowDefinition.getVersion(), flowDefinition.getUpdatedAt())) {
+            return graph;
+        }
+
+        // 缓存缺失或版本不一致：重新编译并替换
+        return graphs.compute(flowDefId, (id, current) -> {
+            if (current != null && current.isCompiledFrom(id, flowDefinition.getVersion(), flowDefinition.getUpdatedAt())) {
+                return current;
+            }
+            return compile(id, flowDefinition.getVersion(), flowDefinition.getUpdatedAt());
+        });
+    }
+
+    @Override
+    public CompiledFlowGraph getGraph(Long flowDefId) {
+        if (flowDefId == null) {
+            throw new IllegalArgumentException("流程定义ID不能为空");
+        }
+
+        FlowDefinition flowDefinition = flowDefinitionRepository.findById(FlowDefinitionId.of(flowDefId))
+                .orElseThrow(() -> new IllegalArgumentException("流程定义不存在: " + flowDefId));
+        return getGraph(flowDefinition);
+    }
+
+    @Override
+    public CompiledFlowGraph publish(Long flowDefId) {
+        if (flowDefId == null) {
+            throw new IllegalArgumentException("流程定义ID不能为空");
+        }
+
+        CompiledFlowGraph graph = load(flowDefId);
+        graphs.put(flowDefId, graph);
+        log.info("流程图已发布，流程定义ID: {}, 版本: {}, 节点数: {}", flowDefId, graph.getVersion(), graph.size());
+        return graph;
+    }
+
+    @Override
+    public void evict(Long flowDefId) {
+        if (flowDefId == null) {
+            return;
+        }
+        graphs.remove(flowDefId);
+        log.debug("流程图已失效，流程定义ID: {}", flowDefId);
+    }
+
+    /**
+     * 从仓储加载流程定义并编译
+     */
+    private CompiledFlowGraph load(Long flowDefId) {
+        FlowDefinition flowDefinition = flowDefinitionRepository.findById(FlowDefinitionId.of(flowDefId))
+                .orElseThrow(() -> new IllegalArgumentException("流程定义不存在: " + flowDefId));
+        return compile(flowDefId, flowDefinition.getVersion(), flowDefinition.getUpdatedAt());
+    }
+
+    /**
+     * 编译流程图：一次性加载全部节点并解析后继关系
+     */
+    private CompiledFlowGraph compile(Long flowDefId, Integer version, LocalDateTime updatedAt) {
+        List<FlowNode> nodes = flowNodeRepository.findByFlowDefId(FlowDefinitionId.of(flowDefId));
+
+        Map<Integer, Long> nodeIdByOrderNum = new HashMap<>();
+        for (FlowNode node : nodes) {
+            if (node.getOrderNum() != null) {
+                nodeIdByOrderNum.putIfAbsent(node.getOrderNum(), node.getId());
+            }
+        }
+
+        Map<Long, List<Long>> successorIds = new HashMap<>();
+        Map<Long, List<Long>> referencedIds = new HashMap<>();
+        for (FlowNode node : nodes) {
+            successorIds.put(node.getId(), resolveNextNodeIds(node, nodeIdByOrderNum));
+            referencedIds.put(node.getId(), resolveReferencedNodeIds(node));
+        }
+
+        CompiledFlowGraph graph = CompiledFlowGraph.compile(flowDefId, version, updatedAt, nodes,
+                successorIds, referencedIds);
+        log.debug("流程图编译完成: {}", graph);
+        return graph;
+    }
+
+    /**
+     * 解析节点的后继节点ID
+     *
+     * 优先级：nextNodeIds（JSON） > nextNodeId > orderNum + 1（兼容旧数据）
+     */
+    private List<Long> resolveNextNodeIds(FlowNode node, Map<Integer, Long> nodeIdByOrderNum) {
+        // 1. 优先使用 nextNodeIds（JSON格式，多个下一个节点）
+        List<Long> nextNodeIdList = parseNextNodeIds(node);
+        if (!nextNodeIdList.isEmpty()) {
+            return nextNodeIdList;
+        }
+
+        // 2. 使用 nextNodeId（单个下一个节点）
+        if (node.getNextNodeId() != null) {
+            return List.of(node.getNextNodeId());
+        }
+
+        // 3. 兼容旧数据：使用 orderNum + 1
+        if (node.getOrderNum() != null) {
+            Long nextNodeId = nodeIdByOrderNum.get(node.getOrderNum() + 1);
+            if (nextNodeId != null) {
+                return List.of(nextNodeId);
+            }
+        }
+
+        return List.of();
+    }
+
+    /**
+     * 解析节点显式引用的后继节点ID（nextNodeId 和 nextNodeIds，不含 orderNum + 1 兼容规则）
+     *
+     * 用于计算前驱节点：汇聚网关只把显式指向它的节点作为分支，与编译前的前驱查找一致
+     */
+    private List<Long> resolveReferencedNodeIds(FlowNode node) {
+        List<Long> nextNodeIdList = parseNextNodeIds(node);
+        if (node.getNextNodeId() == null || nextNodeIdList.contains(node.getNextNodeId())) {
+            return nextNodeIdList;
+        }
+        List<Long> referenced = new ArrayList<>(nextNodeIdList.size() + 1);
+        referenced.add(node.getNextNodeId());
+        referenced.addAll(nextNodeIdList);
+        return referenced;
+    }
+
+    /**
+     * 解析 nextNodeIds（JSON），为空或解析失败时返回空列表
+     */
+    private List<Long> parseNextNodeIds(FlowNode node) {
+        if (!StringUtils.hasText(node.getNextNodeIds())) {
+            return List.of();
+        }
+        try {
+            List<Long> nextNodeIdList = objectMapper.readValue(
+                    node.getNextNodeIds(),
+                    new TypeReference<List<Long>>() {}
+            );
+            return nextNodeIdList != null ? nextNodeIdList : List.of();
+        } catch (Exception e) {
+            log.error("解析 nextNodeIds 失败，节点ID: {}, nextNodeIds: {}", node.getId(), node.getNextNodeIds(), e);
+            return List.of();
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package xtt.cloud.oa.workflow.domain.flow.service.impl;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -11,15 +9,17 @@ import xtt.cloud.oa.workflow.domain.flow.model.aggregate.FlowInstance;
 import xtt.cloud.oa.workflow.domain.flow.model.entity.FlowNode;
 import xtt.cloud.oa.workflow.domain.flow.model.entity.FlowNodeInstance;
 import xtt.cloud.oa.workflow.domain.flow.model.valueobject.Approver;
-import xtt.cloud.oa.workflow.domain.flow.model.valueobject.FlowDefinitionId;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.CompiledFlowGraph;
 import xtt.cloud.oa.workflow.domain.flow.model.valueobject.FlowNodeId;
 import xtt.cloud.oa.workflow.domain.flow.model.valueobject.GatewayMode;
 import xtt.cloud.oa.workflow.domain.flow.model.valueobject.GatewayType;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.NodeInstanceProgress;
 import xtt.cloud.oa.workflow.domain.flow.model.valueobject.NodeStatus;
 import xtt.cloud.oa.workflow.domain.flow.repository.FlowNodeInstanceRepository;
 import xtt.cloud.oa.workflow.domain.flow.repository.FlowNodeRepository;
 import xtt.cloud.oa.workflow.domain.flow.service.ApproverAssignmentService;
 import xtt.cloud.oa.workflow.domain.flow.service.ConditionEvaluationService;
+import xtt.cloud.oa.workflow.domain.flow.service.FlowGraphService;
 import xtt.cloud.oa.workflow.domain.flow.service.NodeRoutingService;
 
 import java.util.ArrayList;
@@ -33,6 +33,9 @@ import java.util.Optional;
  * 负责计算流程的下一个节点，处理串行、并行、条件流转等逻辑
  * 支持网关控制（并行网关、条件网关）
  * 
+ * 节点定义、后继/前驱关系、网关模式均从 {@link FlowGraphService} 提供的预编译流程图读取，
+ * 路由过程中不再按节点查询数据库或解析 nextNodeIds
+ * 
  * @author xtt
  */
 @Service
@@ -44,19 +47,19 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
     private final FlowNodeRepository flowNodeRepository;
     private final ConditionEvaluationService conditionEvaluationService;
     private final ApproverAssignmentService approverAssignmentService;
-    private final ObjectMapper objectMapper;
+    private final FlowGraphService flowGraphService;
 
     public NodeRoutingServiceImpl(
             FlowNodeInstanceRepository flowNodeInstanceRepository,
             FlowNodeRepository flowNodeRepository,
             ConditionEvaluationService conditionEvaluationService,
             ApproverAssignmentService approverAssignmentService,
-            ObjectMapper objectMapper) {
+            FlowGraphService flowGraphService) {
         this.flowNodeInstanceRepository = flowNodeInstanceRepository;
         this.flowNodeRepository = flowNodeRepository;
         this.conditionEvaluationService = conditionEvaluationService;
         this.approverAssignmentService = approverAssignmentService;
-        this.objectMapper = objectMapper != null ? objectMapper : new ObjectMapper();
+        this.flowGraphService = flowGraphService;
     }
 
     @Override
@@ -77,7 +80,8 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
         }
 
         // 获取当前节点定义
-        Optional<FlowNode> currentNodeOpt = flowNodeRepository.findById(FlowNodeId.of(currentNodeId));
+        CompiledFlowGraph graph = getGraph(flowInstance, flowDefinition);
+        Optional<FlowNode> currentNodeOpt = graph.getNode(currentNodeId);
         if (currentNodeOpt.isEmpty()) {
             log.warn("当前节点不存在，节点ID: {}", currentNodeId);
             return false;
@@ -87,14 +91,14 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
 
         // 1. 如果是网关节点，检查网关类型
         if (currentNode.isGateway()) {
-            GatewayType gatewayType = currentNode.getGatewayType();
+            GatewayType gatewayType = graph.getGatewayType(currentNodeId);
             
             if (gatewayType == GatewayType.PARALLEL_JOIN) {
                 // 并行汇聚网关：检查是否可以汇聚
-                return canParallelJoinConverge(currentNodeId, flowInstanceId);
+                return canParallelJoinConverge(graph, currentNodeId, flowInstanceId);
             } else if (gatewayType == GatewayType.CONDITION_JOIN) {
                 // 条件汇聚网关：检查是否可以汇聚
-                return canConditionJoinConverge(currentNodeId, flowInstanceId);
+                return canConditionJoinConverge(graph, currentNodeId, flowInstanceId);
             } else if (gatewayType == GatewayType.PARALLEL_SPLIT || gatewayType == GatewayType.CONDITION_SPLIT) {
                 // 分支网关：直接可以流转
                 return true;
@@ -125,7 +129,6 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
 
         Long currentNodeId = flowInstance.getCurrentNodeId();
         Long flowInstanceId = flowInstance.getId() != null ? flowInstance.getId().getValue() : null;
-        Long flowDefId = flowInstance.getFlowDefId();
 
         log.debug("流转到下一个节点，流程实例ID: {}, 当前节点ID: {}", flowInstanceId, currentNodeId);
 
@@ -135,8 +138,9 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
         }
 
         // 1. 获取下一个节点列表
+        CompiledFlowGraph graph = getGraph(flowInstance, flowDefinition);
         Map<String, Object> processVariables = flowInstance.getProcessVariables().getAllVariables();
-        List<Long> nextNodeIds = getNextNodeIds(currentNodeId, flowDefId, processVariables);
+        List<Long> nextNodeIds = getNextNodeIds(graph, currentNodeId, processVariables);
 
         if (nextNodeIds.isEmpty()) {
             log.debug("没有下一个节点，流程将结束");
@@ -147,7 +151,7 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
         List<Long> processedNodeIds = new ArrayList<>();
         for (Long nextNodeId : nextNodeIds) {
             // 2.1 检查是否为汇聚网关节点
-            Optional<FlowNode> nextNodeOpt = flowNodeRepository.findById(FlowNodeId.of(nextNodeId));
+            Optional<FlowNode> nextNodeOpt = graph.getNode(nextNodeId);
             if (nextNodeOpt.isEmpty()) {
                 log.warn("下一个节点不存在，节点ID: {}", nextNodeId);
                 continue;
@@ -156,12 +160,13 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
             FlowNode nextNode = nextNodeOpt.get();
 
             // 2.2 如果是汇聚网关，检查是否可以汇聚
-            if (nextNode.isJoinGateway()) {
+            GatewayType nextGatewayType = graph.getGatewayType(nextNodeId);
+            if (nextGatewayType.isJoin()) {
                 boolean canConverge = false;
-                if (nextNode.getGatewayType() == GatewayType.PARALLEL_JOIN) {
-                    canConverge = canParallelJoinConverge(nextNodeId, flowInstanceId);
-                } else if (nextNode.getGatewayType() == GatewayType.CONDITION_JOIN) {
-                    canConverge = canConditionJoinConverge(nextNodeId, flowInstanceId);
+                if (nextGatewayType == GatewayType.PARALLEL_JOIN) {
+                    canConverge = canParallelJoinConverge(graph, nextNodeId, flowInstanceId);
+                } else if (nextGatewayType == GatewayType.CONDITION_JOIN) {
+                    canConverge = canConditionJoinConverge(graph, nextNodeId, flowInstanceId);
                 }
 
                 if (!canConverge) {
@@ -171,7 +176,7 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
             }
 
             // 2.3 检查是否应该跳过节点
-            if (shouldSkipNode(nextNodeId, flowDefId, processVariables)) {
+            if (shouldSkipNode(nextNode, processVariables)) {
                 // 创建已跳过的节点实例
                 createSkippedNodeInstance(flowInstance, nextNode);
                 // 递归处理下一个节点
@@ -199,25 +204,26 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
             return true;
         }
 
-        Optional<FlowNode> currentNodeOpt = flowNodeRepository.findById(FlowNodeId.of(currentNodeId));
+        CompiledFlowGraph graph = flowGraphService.getGraph(flowDefId);
+        Optional<FlowNode> currentNodeOpt = graph.getNode(currentNodeId);
         if (currentNodeOpt.isEmpty()) {
-            // 节点不存在，检查是否没有下一个节点
-            List<Long> nextNodeIds = getNextNodeIds(currentNodeId, flowDefId, processVariables);
-            return nextNodeIds.isEmpty();
+            // 节点不在当前流程定义中（数据异常），不能据此完成流程
+            log.warn("当前节点不属于流程定义，节点ID: {}, 流程定义ID: {}", currentNodeId, flowDefId);
+            return false;
         }
 
         FlowNode currentNode = currentNodeOpt.get();
 
         // 1. 如果是网关节点
         if (currentNode.isGateway()) {
-            GatewayType gatewayType = currentNode.getGatewayType();
+            GatewayType gatewayType = graph.getGatewayType(currentNodeId);
             
             if (gatewayType == GatewayType.PARALLEL_JOIN) {
                 // 并行汇聚网关：检查是否可以汇聚
-                return canParallelJoinConverge(currentNodeId, flowInstanceId);
+                return canParallelJoinConverge(graph, currentNodeId, flowInstanceId);
             } else if (gatewayType == GatewayType.CONDITION_JOIN) {
                 // 条件汇聚网关：检查是否可以汇聚
-                return canConditionJoinConverge(currentNodeId, flowInstanceId);
+                return canConditionJoinConverge(graph, currentNodeId, flowInstanceId);
             }
         }
 
@@ -227,7 +233,7 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
         
         if (nodeInstances.isEmpty()) {
             // 没有节点实例，检查是否没有下一个节点
-            List<Long> nextNodeIds = getNextNodeIds(currentNodeId, flowDefId, processVariables);
+            List<Long> nextNodeIds = getNextNodeIds(graph, currentNodeId, processVariables);
             return nextNodeIds.isEmpty();
         }
 
@@ -243,7 +249,7 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
         }
 
         // 3. 检查是否没有下一个节点
-        List<Long> nextNodeIds = getNextNodeIds(currentNodeId, flowDefId, processVariables);
+        List<Long> nextNodeIds = getNextNodeIds(graph, currentNodeId, processVariables);
         return nextNodeIds.isEmpty();
     }
 
@@ -259,17 +265,17 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
         Long flowInstanceId = flowInstance.getId() != null ? flowInstance.getId().getValue() : null;
         log.info("回退到节点，流程实例ID: {}, 目标节点ID: {}, 操作人ID: {}", flowInstanceId, targetNodeId, operatorId);
 
-        // 1. 验证目标节点是否存在
-        Optional<FlowNode> targetNodeOpt = flowNodeRepository.findById(FlowNodeId.of(targetNodeId));
+        // 1. 验证目标节点是否属于当前流程定义
+        CompiledFlowGraph graph = flowGraphService.getGraph(flowInstance.getFlowDefId());
+        Optional<FlowNode> targetNodeOpt = graph.getNode(targetNodeId);
         if (targetNodeOpt.isEmpty()) {
-            throw new IllegalArgumentException("目标节点不存在: " + targetNodeId);
-        }
-        FlowNode targetNode = targetNodeOpt.get();
-
-        // 2. 验证目标节点是否属于当前流程定义
-        if (!targetNode.getFlowDefId().equals(flowInstance.getFlowDefId())) {
+            // 2. 区分节点不存在和节点不属于当前流程定义
+            if (flowNodeRepository.findById(FlowNodeId.of(targetNodeId)).isEmpty()) {
+                throw new IllegalArgumentException("目标节点不存在: " + targetNodeId);
+            }
             throw new IllegalArgumentException("目标节点不属于当前流程定义");
         }
+        FlowNode targetNode = targetNodeOpt.get();
 
         // 3. 取消当前节点及之后的所有待办任务
         // TODO: 实现取消待办任务的逻辑
@@ -293,96 +299,121 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
             return false;
         }
 
-        // 1. 获取Join节点定义
         Optional<FlowNode> joinNodeOpt = flowNodeRepository.findById(FlowNodeId.of(joinGatewayNodeId));
         if (joinNodeOpt.isEmpty()) {
             return false;
         }
 
-        FlowNode joinNode = joinNodeOpt.get();
-        if (joinNode.getGatewayType() != GatewayType.PARALLEL_JOIN) {
+        CompiledFlowGraph graph = flowGraphService.getGraph(joinNodeOpt.get().getFlowDefId());
+        return canParallelJoinConverge(graph, joinGatewayNodeId, flowInstanceId);
+    }
+
+    /**
+     * 评估条件网关Split节点的分支条件
+     */
+    public List<Long> evaluateConditionSplit(Long splitGatewayNodeId, Long flowInstanceId, 
+                                             Map<String, Object> processVariables) {
+        if (splitGatewayNodeId == null || flowInstanceId == null) {
+            return new ArrayList<>();
+        }
+
+        Optional<FlowNode> splitNodeOpt = flowNodeRepository.findById(FlowNodeId.of(splitGatewayNodeId));
+        if (splitNodeOpt.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        CompiledFlowGraph graph = flowGraphService.getGraph(splitNodeOpt.get().getFlowDefId());
+        return evaluateConditionSplit(graph, splitGatewayNodeId, processVariables);
+    }
+
+    /**
+     * 判断条件网关的Join节点是否可以汇聚
+     */
+    public boolean canConditionJoinConverge(Long joinGatewayNodeId, Long flowInstanceId) {
+        if (joinGatewayNodeId == null || flowInstanceId == null) {
+            return false;
+        }
+
+        Optional<FlowNode> joinNodeOpt = flowNodeRepository.findById(FlowNodeId.of(joinGatewayNodeId));
+        if (joinNodeOpt.isEmpty()) {
             return false;
         }
 
-        // 2. 获取对应的Split节点
-        Long gatewayId = joinNode.getGatewayId();
-        if (gatewayId == null) {
+        CompiledFlowGraph graph = flowGraphService.getGraph(joinNodeOpt.get().getFlowDefId());
+        return canConditionJoinConverge(graph, joinGatewayNodeId, flowInstanceId);
+    }
+
+    /**
+     * 获取流程图（优先使用已加载的流程定义，以便校验版本）
+     */
+    private CompiledFlowGraph getGraph(FlowInstance flowInstance, FlowDefinition flowDefinition) {
+        if (flowDefinition != null && flowDefinition.getId() != null) {
+            return flowGraphService.getGraph(flowDefinition);
+        }
+        return flowGraphService.getGraph(flowInstance.getFlowDefId());
+    }
+
+    /**
+     * 判断并行网关的Join节点是否可以汇聚（基于流程图）
+     */
+    private boolean canParallelJoinConverge(CompiledFlowGraph graph, Long joinGatewayNodeId, Long flowInstanceId) {
+        if (joinGatewayNodeId == null || flowInstanceId == null) {
             return false;
         }
 
-        // 3. 查找所有指向Join节点的前驱节点（Split分支后的节点）
-        List<FlowNode> predecessorNodes = findPredecessorNodes(joinGatewayNodeId, joinNode.getFlowDefId());
+        // 1. 校验Join节点
+        if (graph.getGatewayType(joinGatewayNodeId) != GatewayType.PARALLEL_JOIN) {
+            return false;
+        }
 
-        if (predecessorNodes.isEmpty()) {
+        // 2. 校验对应的Split节点
+        if (graph.getPairedGatewayNodeId(joinGatewayNodeId).isEmpty()) {
             return false;
         }
 
-        // 4. 根据网关模式判断
-        GatewayMode gatewayMode = joinNode.getGatewayMode();
-        if (gatewayMode == null) {
-            gatewayMode = GatewayMode.PARALLEL_ALL; // 默认会签模式
+        // 3. 所有指向Join节点的前驱节点（Split分支后的节点）
+        List<Long> predecessorNodeIds = graph.getPredecessorNodeIds(joinGatewayNodeId);
+        if (predecessorNodeIds.isEmpty()) {
+            return false;
         }
 
+        // 4. 根据网关模式判断（编译时已解析默认会签模式）
+        GatewayMode gatewayMode = graph.getGatewayMode(joinGatewayNodeId);
+
+        // 5. 一次查询取回流程实例下各节点的完成情况
+        Map<Long, NodeInstanceProgress> progress =
+                flowNodeInstanceRepository.countProgressByFlowInstanceId(flowInstanceId);
+
         if (gatewayMode.isAll()) {
             // 会签模式：所有分支都完成
-            return predecessorNodes.stream().allMatch(node -> {
-                List<FlowNodeInstance> nodeInstances = flowNodeInstanceRepository.findByNodeIdAndFlowInstanceId(
-                        node.getId(), flowInstanceId);
-                return !nodeInstances.isEmpty() && nodeInstances.stream()
-                        .allMatch(ni -> {
-                            NodeStatus status = ni.getStatus();
-                            return status != null && status.isFinished();
-                        });
-            });
+            return predecessorNodeIds.stream().allMatch(nodeId ->
+                    progress.getOrDefault(nodeId, NodeInstanceProgress.none()).isAllFinished());
         } else {
             // 或签模式：任一分支完成
-            return predecessorNodes.stream().anyMatch(node -> {
-                List<FlowNodeInstance> nodeInstances = flowNodeInstanceRepository.findByNodeIdAndFlowInstanceId(
-                        node.getId(), flowInstanceId);
-                return !nodeInstances.isEmpty() && nodeInstances.stream()
-                        .anyMatch(ni -> {
-                            NodeStatus status = ni.getStatus();
-                            return status != null && status.isFinished();
-                        });
-            });
+            return predecessorNodeIds.stream().anyMatch(nodeId ->
+                    progress.getOrDefault(nodeId, NodeInstanceProgress.none()).isAnyFinished());
         }
     }
 
     /**
-     * 评估条件网关Split节点的分支条件
+     * 评估条件网关Split节点的分支条件（基于流程图）
      */
-    public List<Long> evaluateConditionSplit(Long splitGatewayNodeId, Long flowInstanceId, 
-                                             Map<String, Object> processVariables) {
-        if (splitGatewayNodeId == null || flowInstanceId == null) {
+    private List<Long> evaluateConditionSplit(CompiledFlowGraph graph, Long splitGatewayNodeId,
+                                              Map<String, Object> processVariables) {
+        if (graph.getGatewayType(splitGatewayNodeId) != GatewayType.CONDITION_SPLIT) {
             return new ArrayList<>();
         }
 
-        // 1. 获取Split节点定义
-        Optional<FlowNode> splitNodeOpt = flowNodeRepository.findById(FlowNodeId.of(splitGatewayNodeId));
-        if (splitNodeOpt.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        FlowNode splitNode = splitNodeOpt.get();
-        if (splitNode.getGatewayType() != GatewayType.CONDITION_SPLIT) {
-            return new ArrayList<>();
-        }
-
-        // 2. 获取下一个节点列表
-        List<Long> nextNodeIds = getNextNodeIds(splitGatewayNodeId, splitNode.getFlowDefId(), processVariables);
-
-        // 3. 评估每个分支的条件表达式
+        // 评估每个分支的条件表达式
         List<Long> result = new ArrayList<>();
-        for (Long nextNodeId : nextNodeIds) {
-            Optional<FlowNode> nextNodeOpt = flowNodeRepository.findById(FlowNodeId.of(nextNodeId));
+        for (Long nextNodeId : graph.getNextNodeIds(splitGatewayNodeId)) {
+            Optional<FlowNode> nextNodeOpt = graph.getNode(nextNodeId);
             if (nextNodeOpt.isEmpty()) {
                 continue;
             }
 
-            FlowNode nextNode = nextNodeOpt.get();
-            
             // 如果节点有条件表达式，评估条件
-            String conditionExpression = nextNode.getConditionExpression();
+            String conditionExpression = nextNodeOpt.get().getConditionExpression();
             if (StringUtils.hasText(conditionExpression)) {
                 if (conditionEvaluationService.evaluate(conditionExpression, processVariables)) {
                     result.add(nextNodeId);
@@ -397,147 +428,52 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
     }
 
     /**
-     * 判断条件网关的Join节点是否可以汇聚
+     * 判断条件网关的Join节点是否可以汇聚（基于流程图）
      */
-    public boolean canConditionJoinConverge(Long joinGatewayNodeId, Long flowInstanceId) {
+    private boolean canConditionJoinConverge(CompiledFlowGraph graph, Long joinGatewayNodeId, Long flowInstanceId) {
         if (joinGatewayNodeId == null || flowInstanceId == null) {
             return false;
         }
 
-        // 1. 获取Join节点定义
-        Optional<FlowNode> joinNodeOpt = flowNodeRepository.findById(FlowNodeId.of(joinGatewayNodeId));
-        if (joinNodeOpt.isEmpty()) {
+        // 1. 校验Join节点
+        if (graph.getGatewayType(joinGatewayNodeId) != GatewayType.CONDITION_JOIN) {
             return false;
         }
 
-        FlowNode joinNode = joinNodeOpt.get();
-        if (joinNode.getGatewayType() != GatewayType.CONDITION_JOIN) {
+        // 2. 所有指向Join节点的前驱节点（条件分支后的节点）
+        List<Long> predecessorNodeIds = graph.getPredecessorNodeIds(joinGatewayNodeId);
+        if (predecessorNodeIds.isEmpty()) {
             return false;
         }
 
-        // 2. 查找所有指向Join节点的前驱节点（条件分支后的节点）
-        List<FlowNode> predecessorNodes = findPredecessorNodes(joinGatewayNodeId, joinNode.getFlowDefId());
-
-        if (predecessorNodes.isEmpty()) {
-            return false;
-        }
-
-        // 3. 条件网关Join：至少有一个分支完成即可汇聚
-        return predecessorNodes.stream().anyMatch(node -> {
-            List<FlowNodeInstance> nodeInstances = flowNodeInstanceRepository.findByNodeIdAndFlowInstanceId(
-                    node.getId(), flowInstanceId);
-            return !nodeInstances.isEmpty() && nodeInstances.stream()
-                    .anyMatch(ni -> {
-                        NodeStatus status = ni.getStatus();
-                        return status != null && status.isFinished();
-                    });
-        });
+        // 3. 条件网关Join：至少有一个分支完成即可汇聚（一次查询取回各节点完成情况）
+        Map<Long, NodeInstanceProgress> progress =
+                flowNodeInstanceRepository.countProgressByFlowInstanceId(flowInstanceId);
+        return predecessorNodeIds.stream().anyMatch(nodeId ->
+                progress.getOrDefault(nodeId, NodeInstanceProgress.none()).isAnyFinished());
     }
 
     /**
      * 获取下一个节点ID列表
      */
-    private List<Long> getNextNodeIds(Long currentNodeId, Long flowDefId, Map<String, Object> processVariables) {
-        Optional<FlowNode> currentNodeOpt = flowNodeRepository.findById(FlowNodeId.of(currentNodeId));
-        if (currentNodeOpt.isEmpty()) {
+    private List<Long> getNextNodeIds(CompiledFlowGraph graph, Long currentNodeId, Map<String, Object> processVariables) {
+        if (!graph.contains(currentNodeId)) {
             log.warn("节点不存在，节点ID: {}", currentNodeId);
             return new ArrayList<>();
         }
 
-        FlowNode currentNode = currentNodeOpt.get();
-        List<Long> nextNodeIds = new ArrayList<>();
-
-        // 1. 如果是网关Split节点，需要特殊处理
-        if (currentNode.isSplitGateway()) {
-            if (currentNode.getGatewayType() == GatewayType.CONDITION_SPLIT) {
-                // 条件分支网关：评估条件表达式
-                Long flowInstanceId = null; // 这里需要从上下文获取，暂时使用null
-                return evaluateConditionSplit(currentNodeId, flowInstanceId, processVariables);
-            } else if (currentNode.getGatewayType() == GatewayType.PARALLEL_SPLIT) {
-                // 并行分支网关：获取所有分支节点
-                // 继续使用 nextNodeIds 逻辑
-            }
-        }
-
-        // 2. 优先使用 nextNodeIds（JSON格式，多个下一个节点）
-        if (StringUtils.hasText(currentNode.getNextNodeIds())) {
-            try {
-                List<Long> nextNodeIdList = objectMapper.readValue(
-                        currentNode.getNextNodeIds(),
-                        new TypeReference<List<Long>>() {}
-                );
-                if (nextNodeIdList != null && !nextNodeIdList.isEmpty()) {
-                    return nextNodeIdList;
-                }
-            } catch (Exception e) {
-                log.error("解析 nextNodeIds 失败，节点ID: {}, nextNodeIds: {}", currentNodeId, currentNode.getNextNodeIds(), e);
-            }
-        }
-
-        // 3. 使用 nextNodeId（单个下一个节点）
-        if (currentNode.getNextNodeId() != null) {
-            nextNodeIds.add(currentNode.getNextNodeId());
-            return nextNodeIds;
-        }
-
-        // 4. 兼容旧数据：使用 orderNum + 1
-        List<FlowNode> allNodes = flowNodeRepository.findByFlowDefId(FlowDefinitionId.of(flowDefId));
-        Optional<FlowNode> nextNodeOpt = allNodes.stream()
-                .filter(n -> n.getOrderNum() != null &&
-                        currentNode.getOrderNum() != null &&
-                        n.getOrderNum().equals(currentNode.getOrderNum() + 1))
-                .findFirst();
-        if (nextNodeOpt.isPresent()) {
-            nextNodeIds.add(nextNodeOpt.get().getId());
-        }
-
-        return nextNodeIds;
-    }
-
-    /**
-     * 查找指向指定节点的前驱节点列表
-     */
-    private List<FlowNode> findPredecessorNodes(Long targetNodeId, Long flowDefId) {
-        List<FlowNode> allNodes = flowNodeRepository.findByFlowDefId(FlowDefinitionId.of(flowDefId));
-        List<FlowNode> predecessorNodes = new ArrayList<>();
-
-        for (FlowNode node : allNodes) {
-            // 检查 nextNodeId
-            if (node.getNextNodeId() != null && node.getNextNodeId().equals(targetNodeId)) {
-                predecessorNodes.add(node);
-                continue;
-            }
-
-            // 检查 nextNodeIds
-            if (StringUtils.hasText(node.getNextNodeIds())) {
-                try {
-                    List<Long> nextNodeIds = objectMapper.readValue(
-                            node.getNextNodeIds(),
-                            new TypeReference<List<Long>>() {}
-                    );
-                    if (nextNodeIds != null && nextNodeIds.contains(targetNodeId)) {
-                        predecessorNodes.add(node);
-                    }
-                } catch (Exception e) {
-                    log.error("解析 nextNodeIds 失败", e);
-                }
-            }
+        // 条件分支网关：评估条件表达式；其余节点（含并行分支网关）直接使用预编译的后继节点
+        if (graph.getGatewayType(currentNodeId) == GatewayType.CONDITION_SPLIT) {
+            return evaluateConditionSplit(graph, currentNodeId, processVariables);
         }
 
-        return predecessorNodes;
+        return graph.getNextNodeIds(currentNodeId);
     }
 
     /**
      * 判断节点是否应该跳过
      */
-    private boolean shouldSkipNode(Long nodeId, Long flowDefId, Map<String, Object> processVariables) {
-        Optional<FlowNode> nodeOpt = flowNodeRepository.findById(FlowNodeId.of(nodeId));
-        if (nodeOpt.isEmpty()) {
-            return false;
-        }
-
-        FlowNode node = nodeOpt.get();
-
+    private boolean shouldSkipNode(FlowNode node, Map<String, Object> processVariables) {
         // 如果节点有跳过条件，评估条件表达式
         if (StringUtils.hasText(node.getSkipCondition())) {
             return conditionEvaluationService.evaluate(node.getSkipCondition(), processVariables);
@@ -569,19 +505,18 @@ public class NodeRoutingServiceImpl implements NodeRoutingService {
         }
 
         // 2. 为每个审批人创建节点实例
+        List<FlowNodeInstance> nodeInstances = new ArrayList<>(approvers.size());
         for (Approver approver : approvers) {
-            FlowNodeInstance nodeInstance = FlowNodeInstance.create(
+            nodeInstances.add(FlowNodeInstance.create(
                     flowInstanceId,
                     node.getId(),
-                    approver);
-
-            // 保存节点实例
-            flowNodeInstanceRepository.save(nodeInstance);
-
-            // 添加到聚合根
-            flowInstance.addNodeInstance(nodeInstance);
+                    approver));
         }
 
+        // 3. 批量保存节点实例（一条 INSERT），并添加到聚合根
+        flowNodeInstanceRepository.saveAll(nodeInstances);
+        nodeInstances.forEach(flowInstance::addNodeInstance);
+
         log.info("节点实例创建成功，节点名称: {}, 创建了 {} 个实例", node.getNodeName(), approvers.size());
     }
 
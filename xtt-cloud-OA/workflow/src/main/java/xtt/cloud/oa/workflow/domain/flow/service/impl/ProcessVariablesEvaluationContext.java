@@ -0,0 +1,131 @@
+package xtt.cloud.oa.workflow.domain.flow.service.impl;
+
+import org.springframework.expression.BeanResolver;
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.OperatorOverloader;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeComparator;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.TypedValue;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.ProcessVariables;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 流程变量评估上下文
+ *
+ * 轻量级 SpEL 上下文：属性访问器、类型转换等基础设施复用一个预先初始化的共享上下文，
+ * 变量查找（#var）直接读取流程变量，不再逐个拷贝到新建的 StandardEvaluationContext 中。
+ * 表达式内通过赋值产生的临时变量只写入本上下文的局部变量表，不会修改流程变量。
+ *
+ * 每次评估创建一个实例，非线程安全；共享上下文只读，可被并发使用。
+ *
+ * @author xtt
+ */
+class ProcessVariablesEvaluationContext implements EvaluationContext {
+
+    private final StandardEvaluationContext shared;
+    private final Function<String, Object> lookup;
+    private Map<String, Object> localVariables;
+
+    private ProcessVariablesEvaluationContext(StandardEvaluationContext shared, Function<String, Object> lookup) {
+        this.shared = shared;
+        this.lookup = lookup;
+    }
+
+    /**
+     * 创建共享的基础设施上下文（预先初始化所有延迟创建的组件，保证并发只读访问安全）
+     */
+    static StandardEvaluationContext createSharedContext() {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        context.getPropertyAccessors();
+        context.getConstructorResolvers();
+        context.getMethodResolvers();
+        context.getTypeLocator();
+        context.getTypeConverter();
+        context.getTypeComparator();
+        context.getOperatorOverloader();
+        return context;
+    }
+
+    static ProcessVariablesEvaluationContext of(StandardEvaluationContext shared, ProcessVariables variables) {
+        return new ProcessVariablesEvaluationContext(shared,
+                variables != null ? variables::getVariable : name -> null);
+    }
+
+    static ProcessVariablesEvaluationContext of(StandardEvaluationContext shared, Map<String, Object> variables) {
+        return new ProcessVariablesEvaluationContext(shared,
+                variables != null ? variables::get : name -> null);
+    }
+
+    @Override
+    public TypedValue getRootObject() {
+        return TypedValue.NULL;
+    }
+
+    @Override
+    public List<PropertyAccessor> getPropertyAccessors() {
+        return shared.getPropertyAccessors();
+    }
+
+    @Override
+    public List<ConstructorResolver> getConstructorResolvers() {
+        return shared.getConstructorResolvers();
+    }
+
+    @Override
+    public List<MethodResolver> getMethodResolvers() {
+        return shared.getMethodResolvers();
+    }
+
+    @Override
+    public BeanResolver getBeanResolver() {
+        return shared.getBeanResolver();
+    }
+
+    @Override
+    public TypeLocator getTypeLocator() {
+        return shared.getTypeLocator();
+    }
+
+    @Override
+    public TypeConverter getTypeConverter() {
+        return shared.getTypeConverter();
+    }
+
+    @Override
+    public TypeComparator getTypeComparator() {
+        return shared.getTypeComparator();
+    }
+
+    @Override
+    public OperatorOverloader getOperatorOverloader() {
+        return shared.getOperatorOverloader();
+    }
+
+    @Override
+    public void setVariable(String name, Object value) {
+        if (name == null) {
+            return;
+        }
+        if (localVariables == null) {
+            localVariables = new HashMap<>();
+        }
+        localVariables.put(name, value);
+    }
+
+    @Override
+    public Object lookupVariable(String name) {
+        if (localVariables != null && localVariables.containsKey(name)) {
+            return localVariables.get(name);
+        }
+        return lookup.apply(name);
+    }
+}
@@ -2,17 +2,24 @@ package xtt.cloud.oa.workflow.infrastructure.cache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import xtt.cloud.oa.workflow.infrastructure.lock.DistributedLockService;
 
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
- * 带分布式锁的缓存服务辅助类
+ * 带锁的缓存服务辅助类
  * 
- * 用于在缓存操作中使用分布式锁，防止缓存击穿
+ * 用于防止缓存击穿：
+ * 1. 进程内：同一个缓存键的并发未命中通过 {@link SingleFlight} 合并为一次加载，
+ *    等待超过 workflow.cache.lock.wait-time 时直接加载
+ * 2. 跨节点（可选，workflow.cache.lock.cross-node=true）：合并后的那一次加载再使用分布式锁，
+ *    避免多个节点同时回源
  * 
  * @author xtt
  */
@@ -21,16 +28,23 @@ public class CacheServiceWithLock {
     
     private static final Logger log = LoggerFactory.getLogger(CacheServiceWithLock.class);
     
-    private final DistributedLockService distributedLockService;
+    private final SingleFlight singleFlight;
+    private final ObjectProvider<DistributedLockService> distributedLockServiceProvider;
     
-    @org.springframework.beans.factory.annotation.Value("${workflow.cache.lock.wait-time:3}")
+    @Value("${workflow.cache.lock.cross-node:false}")
+    private boolean crossNodeLock; // 是否使用分布式锁做跨节点互斥
+    
+    @Value("${workflow.cache.lock.wait-time:3}")
     private long defaultWaitTime; // 默认等待时间（秒）
     
-    @org.springframework.beans.factory.annotation.Value("${workflow.cache.lock.lease-time:10}")
+    @Value("${workflow.cache.lock.lease-time:10}")
     private long defaultLeaseTime; // 默认锁持有时间（秒）
     
-    public CacheServiceWithLock(DistributedLockService distributedLockService) {
-        this.distributedLockService = distributedLockService;
+    public CacheServiceWithLock(
+            SingleFlight singleFlight,
+            ObjectProvider<DistributedLockService> distributedLockServiceProvider) {
+        this.singleFlight = singleFlight;
+        this.distributedLockServiceProvider = distributedLockServiceProvider;
     }
     
     /**
@@ -38,9 +52,9 @@ public class CacheServiceWithLock {
      * 
      * 流程：
      * 1. 先查缓存
-     * 2. 缓存未命中，获取分布式锁
-     * 3. 双重检查缓存（可能在等待锁期间，其他线程已经更新了缓存）
-     * 4. 如果缓存仍为空，执行数据加载并更新缓存
+     * 2. 缓存未命中，合并同一个键的并发请求，只有一个线程继续（其余线程等待超时后直接加载）
+     * 3. 双重检查缓存（可能在等待期间，其他线程或节点已经更新了缓存）
+     * 4. 如果缓存仍为空，执行数据加载并更新缓存（开启跨节点锁时在分布式锁内执行）
      * 
      * @param cacheKey 缓存键
      * @param cacheGetter 缓存获取函数
@@ -52,7 +66,7 @@ public class CacheServiceWithLock {
             String cacheKey,
             Supplier<Optional<T>> cacheGetter,
             Supplier<T> dataLoader,
-            java.util.function.Consumer<T> cacheUpdater) {
+            Consumer<T> cacheUpdater) {
         
         // 1. 先查缓存
         Optional<T> cached = cacheGetter.get();
@@ -60,7 +74,35 @@ public class CacheServiceWithLock {
             return cached;
         }
         
-        // 2. 缓存未命中，使用分布式锁
+        // 2. 缓存未命中，合并进程内的并发加载
+        T result = singleFlight.execute(cacheKey, () -> {
+            // 3. 双重检查缓存
+            Optional<T> cachedAgain = cacheGetter.get();
+            if (cachedAgain.isPresent()) {
+                return cachedAgain.get();
+            }
+            
+            // 4. 加载数据并更新缓存
+            DistributedLockService distributedLockService =
+                    crossNodeLock ? distributedLockServiceProvider.getIfAvailable() : null;
+            if (distributedLockService == null) {
+                return loadAndCache(dataLoader, cacheUpdater);
+            }
+            return loadWithDistributedLock(distributedLockService, cacheKey, cacheGetter, dataLoader, cacheUpdater);
+        }, defaultWaitTime, TimeUnit.SECONDS);
+        
+        return Optional.ofNullable(result);
+    }
+    
+    /**
+     * 在分布式锁内加载数据（跨节点互斥）
+     */
+    private <T> T loadWithDistributedLock(
+            DistributedLockService distributedLockService,
+            String cacheKey,
+            Supplier<Optional<T>> cacheGetter,
+            Supplier<T> dataLoader,
+            Consumer<T> cacheUpdater) {
         String lockKey = "cache:" + cacheKey;
         T result = distributedLockService.executeWithLock(
             lockKey,
@@ -68,32 +110,28 @@ public class CacheServiceWithLock {
             defaultLeaseTime,
             TimeUnit.SECONDS,
             () -> {
-                // 3. 双重检查缓存
+                // 其他节点可能已经加载完成
                 Optional<T> cachedAgain = cacheGetter.get();
                 if (cachedAgain.isPresent()) {
                     return cachedAgain.get();
                 }
-                
-                // 4. 加载数据并更新缓存
-                T data = dataLoader.get();
-                if (data != null) {
-                    cacheUpdater.accept(data);
-                }
-                return data;
+                return loadAndCache(dataLoader, cacheUpdater);
             }
         );
         
         // 如果获取锁失败，直接加载数据（降级策略）
         if (result == null) {
             log.warn("获取分布式锁失败，直接加载数据，缓存键: {}", cacheKey);
-            T data = dataLoader.get();
-            if (data != null) {
-                cacheUpdater.accept(data);
-            }
-            return Optional.ofNullable(data);
+            return loadAndCache(dataLoader, cacheUpdater);
         }
-        
-        return Optional.ofNullable(result);
+        return result;
+    }
+    
+    private <T> T loadAndCache(Supplier<T> dataLoader, Consumer<T> cacheUpdater) {
+        T data = dataLoader.get();
+        if (data != null) {
+            cacheUpdater.accept(data);
+        }
+        return data;
     }
 }
-
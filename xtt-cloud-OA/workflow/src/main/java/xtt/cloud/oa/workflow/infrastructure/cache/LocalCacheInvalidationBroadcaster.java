@@ -0,0 +1,117 @@
+package xtt.cloud.oa.workflow.infrastructure.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 本地缓存失效广播
+ *
+ * 本节点失效本地缓存（{@link LocalCacheTier#invalidate}）时，向 workflow:cache:local-invalidated 频道
+ * 发布 "节点ID|缓存名称|ID1,ID2,..."，其他节点收到后失效同名本地缓存中的这些键，
+ * 不必等待本地缓存过期。
+ *
+ * 发布/订阅不保证送达（例如订阅连接重连期间），本地缓存的过期时间仍是最终的收敛上限
+ *
+ * @author xtt
+ */
+@Component
+public class LocalCacheInvalidationBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalCacheInvalidationBroadcaster.class);
+
+    private static final String CHANNEL = "workflow:cache:local-invalidated";
+    private static final String SEPARATOR = "|";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, LocalCacheTier<?>> tiers = new ConcurrentHashMap<>();
+
+    public LocalCacheInvalidationBroadcaster(
+            StringRedisTemplate redisTemplate,
+            RedisConnectionFactory redisConnectionFactory) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(redisConnectionFactory);
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener((message, pattern) ->
+                onMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        log.info("本地缓存失效广播启动，节点ID: {}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        try {
+            listenerContainer.destroy();
+        } catch (Exception e) {
+            log.warn("关闭本地缓存失效监听失败", e);
+        }
+    }
+
+    /**
+     * 注册本地缓存（按名称接收其他节点的失效通知）
+     */
+    void register(LocalCacheTier<?> tier) {
+        tiers.put(tier.getName(), tier);
+    }
+
+    /**
+     * 通知其他节点失效本地缓存
+     */
+    void publish(String name, Collection<Long> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        String message = nodeId + SEPARATOR + name + SEPARATOR
+                + keys.stream().map(String::valueOf).collect(Collectors.joining(","));
+        try {
+            redisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("发布本地缓存失效通知失败，缓存: {}, 键: {}", name, keys, e);
+        }
+    }
+
+    private void onMessage(String message) {
+        String[] parts = message.split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        LocalCacheTier<?> tier = tiers.get(parts[1]);
+        if (tier == null) {
+            return;
+        }
+        try {
+            List<Long> keys = new ArrayList<>();
+            for (String key : parts[2].split(",")) {
+                keys.add(Long.valueOf(key));
+            }
+            tier.invalidateLocal(keys);
+            log.debug("收到本地缓存失效通知，缓存: {}, 键: {}", parts[1], keys);
+        } catch (NumberFormatException e) {
+            log.warn("本地缓存失效通知格式错误: {}", message);
+        }
+    }
+}
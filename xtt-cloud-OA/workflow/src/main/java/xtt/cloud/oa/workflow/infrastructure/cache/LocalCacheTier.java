@@ -0,0 +1,198 @@
+package xtt.cloud.oa.workflow.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+
+/**
+ * 本地缓存层（近端缓存 L1）
+ *
+ * 位于 Redis（L2）之前的进程内 Caffeine 缓存，按实体ID缓存，按条数和写入后过期时间限制大小，
+ * 命中时直接返回已反序列化的对象，不再访问 Redis、不再解析 JSON。
+ *
+ * 每一层的命中/未命中分别计数：
+ * workflow.cache.gets{cache=xxx, tier=local|redis, result=hit|miss}
+ *
+ * 注意：
+ * 1. 失效时通过 {@link LocalCacheInvalidationBroadcaster} 通知其他节点，通知丢失时依赖过期时间收敛
+ * 2. 缓存的 DTO 是可变对象：写入和读取时都经过 copier 复制，调用方修改返回值不会影响缓存
+ *
+ * @author xtt
+ */
+public class LocalCacheTier<V> {
+
+    public static final String TIER_LOCAL = "local";
+    public static final String TIER_REDIS = "redis";
+
+    private final String name;
+    private final Cache<Long, V> cache;
+    private final UnaryOperator<V> copier;
+    private final LocalCacheInvalidationBroadcaster broadcaster;
+    private final Counter localHits;
+    private final Counter localMisses;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    private LocalCacheTier(String name, Cache<Long, V> cache, UnaryOperator<V> copier,
+                           LocalCacheInvalidationBroadcaster broadcaster, Counter localHits, Counter localMisses,
+                           Counter redisHits, Counter redisMisses) {
+        this.name = name;
+        this.cache = cache;
+        this.copier = copier;
+        this.broadcaster = broadcaster;
+        this.localHits = localHits;
+        this.localMisses = localMisses;
+        this.redisHits = redisHits;
+        this.redisMisses = redisMisses;
+    }
+
+    /**
+     * 创建本地缓存层
+     *
+     * @param name 缓存名称（指标标签 cache，也是失效广播中的名称，需唯一）
+     * @param maximumSize 最大条数
+     * @param expireAfterWriteSeconds 写入后过期时间（秒）
+     * @param copier 复制函数（不可变值传 UnaryOperator.identity()）
+     * @param broadcaster 失效广播，可为 null（只失效本节点）
+     * @param meterRegistry 指标注册表，可为 null
+     */
+    public static <V> LocalCacheTier<V> create(String name, long maximumSize, long expireAfterWriteSeconds,
+                                               UnaryOperator<V> copier,
+                                               LocalCacheInvalidationBroadcaster broadcaster,
+                                               MeterRegistry meterRegistry) {
+        Cache<Long, V> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .build();
+
+        LocalCacheTier<V> tier;
+        if (meterRegistry == null) {
+            tier = new LocalCacheTier<>(name, cache, copier, broadcaster, null, null, null, null);
+        } else {
+            Gauge.builder("workflow.cache.local.size", cache, Cache::estimatedSize)
+                    .description("本地缓存条数")
+                    .tag("cache", name)
+                    .register(meterRegistry);
+            tier = new LocalCacheTier<>(name, cache, copier, broadcaster,
+                    counter(meterRegistry, name, TIER_LOCAL, "hit"),
+                    counter(meterRegistry, name, TIER_LOCAL, "miss"),
+                    counter(meterRegistry, name, TIER_REDIS, "hit"),
+                    counter(meterRegistry, name, TIER_REDIS, "miss"));
+        }
+
+        if (broadcaster != null) {
+            broadcaster.register(tier);
+        }
+        return tier;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String tier, String result) {
+        return Counter.builder("workflow.cache.gets")
+                .description("缓存访问次数（按缓存层统计）")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 从本地缓存获取（返回副本）
+     */
+    public Optional<V> get(Long key) {
+        V value = cache.getIfPresent(key);
+        increment(value != null ? localHits : localMisses, 1);
+        return Optional.ofNullable(value).map(copier);
+    }
+
+    /**
+     * 从本地缓存批量获取（只返回命中的键，值为副本）
+     */
+    public Map<Long, V> getAllPresent(Collection<Long> keys) {
+        Map<Long, V> present = cache.getAllPresent(keys);
+        increment(localHits, present.size());
+        increment(localMisses, keys.size() - present.size());
+
+        Map<Long, V> copies = new LinkedHashMap<>(present.size() * 2);
+        present.forEach((key, value) -> copies.put(key, copier.apply(value)));
+        return copies;
+    }
+
+    /**
+     * 写入本地缓存（保存副本，调用方之后修改传入的对象不会影响缓存）
+     */
+    public void put(Long key, V value) {
+        if (key != null && value != null) {
+            cache.put(key, copier.apply(value));
+        }
+    }
+
+    /**
+     * 失效本节点的本地缓存并通知其他节点
+     *
+     * 应在 Redis 删除之后调用，避免其他节点收到通知后又从 Redis 读回旧值
+     */
+    public void invalidate(Long key) {
+        if (key != null) {
+            invalidateAll(List.of(key));
+        }
+    }
+
+    /**
+     * 批量失效本节点的本地缓存并通知其他节点
+     */
+    public void invalidateAll(Collection<Long> keys) {
+        cache.invalidateAll(keys);
+        if (broadcaster != null) {
+            broadcaster.publish(name, keys);
+        }
+    }
+
+    /**
+     * 只失效本节点的本地缓存（收到其他节点的通知时）
+     */
+    void invalidateLocal(Collection<Long> keys) {
+        cache.invalidateAll(keys);
+    }
+
+    /**
+     * 记录 Redis 层命中
+     */
+    public void recordRedisHit() {
+        increment(redisHits, 1);
+    }
+
+    /**
+     * 记录 Redis 层未命中
+     */
+    public void recordRedisMiss() {
+        increment(redisMisses, 1);
+    }
+
+    /**
+     * 记录 Redis 层批量访问结果
+     */
+    public void recordRedis(int hits, int misses) {
+        increment(redisHits, hits);
+        increment(redisMisses, misses);
+    }
+
+    private static void increment(Counter counter, long amount) {
+        if (counter != null && amount > 0) {
+            counter.increment(amount);
+        }
+    }
+}
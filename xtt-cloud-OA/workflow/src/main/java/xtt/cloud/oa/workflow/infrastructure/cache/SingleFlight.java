@@ -0,0 +1,112 @@
+package xtt.cloud.oa.workflow.infrastructure.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 进程内请求合并（single-flight）
+ *
+ * 同一个键的并发加载只执行一次：第一个线程执行加载，
+ * 其余线程等待同一个 CompletableFuture 的结果，不再轮询锁、不再 sleep。
+ * 加载完成（成功或异常）后立即移除，下一次未命中会重新加载。
+ *
+ * 等待有超时：加载线程挂起时，等待超时的线程直接执行加载（降级策略），不会一直阻塞；
+ * 加载函数中以相同的键重入调用时也直接执行加载，不会等待自己而死锁
+ *
+ * @author xtt
+ */
+@Component
+public class SingleFlight {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlight.class);
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 执行加载操作，同一个键的并发调用共享同一次加载结果
+     *
+     * @param key 合并键
+     * @param loader 加载函数
+     * @param timeout 等待其他线程加载结果的最长时间，超时后直接执行加载
+     * @param unit 时间单位
+     * @return 加载结果（可能为 null）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Supplier<T> loader, long timeout, TimeUnit unit) {
+        Flight flight = new Flight(Thread.currentThread());
+        Flight existing = inFlight.putIfAbsent(key, flight);
+
+        if (existing != null) {
+            if (existing.owner == Thread.currentThread()) {
+                // 加载函数内重入调用，等待自己会死锁
+                log.debug("重入加载请求，直接加载，键: {}", key);
+                return loader.get();
+            }
+
+            // 已有线程在加载，等待其结果
+            log.debug("合并并发加载请求，键: {}", key);
+            try {
+                return (T) existing.future.get(timeout, unit);
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } catch (TimeoutException e) {
+                log.warn("等待并发加载结果超时，直接加载，键: {}", key);
+                return loader.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("等待并发加载结果被中断，直接加载，键: {}", key);
+                return loader.get();
+            }
+        }
+
+        try {
+            T result = loader.get();
+            flight.future.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * 当前正在加载的键数量
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    /**
+     * 一次进行中的加载
+     */
+    private static final class Flight {
+
+        private final Thread owner;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+        private Flight(Thread owner) {
+            this.owner = owner;
+        }
+    }
+}
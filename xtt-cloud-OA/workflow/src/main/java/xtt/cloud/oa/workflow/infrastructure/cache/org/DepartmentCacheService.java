@@ -3,21 +3,29 @@ package xtt.cloud.oa.workflow.infrastructure.cache.org;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import xtt.cloud.oa.common.dto.DeptInfoDto;
+import xtt.cloud.oa.workflow.infrastructure.cache.LocalCacheInvalidationBroadcaster;
+import xtt.cloud.oa.workflow.infrastructure.cache.LocalCacheTier;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 /**
  * 部门信息缓存服务
  * 使用 Redis 缓存部门信息，减少对 Platform 服务的调用
  * 
+ * 两级缓存：本地 Caffeine（L1）-> Redis（L2），L1 未命中才访问 Redis，
+ * Redis 命中后回填 L1；失效时先删除 Redis，再清理本节点 L1 并广播给其他节点
+ * 
  * @author xtt
  */
 @Service
@@ -30,13 +38,27 @@ public class DepartmentCacheService {
 
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final LocalCacheTier<DeptInfoDto> localCache;
+    private final LocalCacheTier<List<Long>> localUsersCache;
 
     @Value("${workflow.cache.department.expiration:3600}")
     private Long cacheExpiration; // 默认1小时
 
-    public DepartmentCacheService(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+    public DepartmentCacheService(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${workflow.cache.department.local.max-size:2000}") long localMaxSize,
+            @Value("${workflow.cache.department.local.expiration:60}") long localExpiration,
+            LocalCacheInvalidationBroadcaster broadcaster,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.localCache = LocalCacheTier.create("department", localMaxSize, localExpiration, OrgDtoCopies::copy,
+                broadcaster, meterRegistry);
+        // 用户ID列表为不可变 List，不需要复制
+        this.localUsersCache = LocalCacheTier.create("department.users", localMaxSize, localExpiration,
+                UnaryOperator.identity(), broadcaster, meterRegistry);
     }
 
     /**
@@ -50,14 +72,22 @@ public class DepartmentCacheService {
             return Optional.empty();
         }
         
+        Optional<DeptInfoDto> local = localCache.get(deptId);
+        if (local.isPresent()) {
+            return local;
+        }
+        
         try {
             String key = DEPT_CACHE_PREFIX + deptId;
             String value = redisTemplate.opsForValue().get(key);
             if (value != null) {
                 DeptInfoDto dept = objectMapper.readValue(value, DeptInfoDto.class);
+                localCache.recordRedisHit();
+                localCache.put(deptId, dept);
                 log.debug("Department cache hit for deptId: {}", deptId);
                 return Optional.of(dept);
             }
+            localCache.recordRedisMiss();
             log.debug("Department cache miss for deptId: {}", deptId);
             return Optional.empty();
         } catch (JsonProcessingException e) {
@@ -83,6 +113,7 @@ public class DepartmentCacheService {
             String key = DEPT_CACHE_PREFIX + dept.getId();
             String value = objectMapper.writeValueAsString(dept);
             redisTemplate.opsForValue().set(key, value, cacheExpiration, TimeUnit.SECONDS);
+            localCache.put(dept.getId(), dept);
             log.debug("Department cached for deptId: {}", dept.getId());
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize department for cache for deptId: {}", dept.getId(), e);
@@ -102,14 +133,22 @@ public class DepartmentCacheService {
             return Optional.empty();
         }
         
+        Optional<List<Long>> local = localUsersCache.get(deptId);
+        if (local.isPresent()) {
+            return local;
+        }
+        
         try {
             String key = DEPT_USERS_CACHE_PREFIX + deptId;
             String value = redisTemplate.opsForValue().get(key);
             if (value != null) {
-                List<Long> userIds = objectMapper.readValue(value, new TypeReference<List<Long>>() {});
+                List<Long> userIds = List.copyOf(objectMapper.readValue(value, new TypeReference<List<Long>>() {}));
+                localUsersCache.recordRedisHit();
+                localUsersCache.put(deptId, userIds);
                 log.debug("Department users cache hit for deptId: {}", deptId);
                 return Optional.of(userIds);
             }
+            localUsersCache.recordRedisMiss();
             log.debug("Department users cache miss for deptId: {}", deptId);
             return Optional.empty();
         } catch (JsonProcessingException e) {
@@ -136,6 +175,7 @@ public class DepartmentCacheService {
             String key = DEPT_USERS_CACHE_PREFIX + deptId;
             String value = objectMapper.writeValueAsString(userIds);
             redisTemplate.opsForValue().set(key, value, cacheExpiration, TimeUnit.SECONDS);
+            localUsersCache.put(deptId, List.copyOf(userIds));
             log.debug("Department users cached for deptId: {}", deptId);
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize department users for cache for deptId: {}", deptId, e);
@@ -163,6 +203,8 @@ public class DepartmentCacheService {
         } catch (Exception e) {
             log.error("Failed to evict department cache for deptId: {}", deptId, e);
         }
+        localCache.invalidate(deptId);
+        localUsersCache.invalidate(deptId);
     }
 }
 
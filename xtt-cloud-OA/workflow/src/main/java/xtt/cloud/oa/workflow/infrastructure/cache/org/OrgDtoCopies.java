@@ -0,0 +1,82 @@
+package xtt.cloud.oa.workflow.infrastructure.cache.org;
+
+import xtt.cloud.oa.common.dto.DeptInfoDto;
+import xtt.cloud.oa.common.dto.PermissionInfoDto;
+import xtt.cloud.oa.common.dto.RoleInfoDto;
+import xtt.cloud.oa.common.dto.UserInfoDto;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * 组织数据 DTO 的复制（本地缓存写入和读取时使用，DTO 为可变对象）
+ *
+ * @author xtt
+ */
+final class OrgDtoCopies {
+
+    private OrgDtoCopies() {
+    }
+
+    static UserInfoDto copy(UserInfoDto source) {
+        UserInfoDto copy = new UserInfoDto();
+        copy.setId(source.getId());
+        copy.setUsername(source.getUsername());
+        copy.setNickname(source.getNickname());
+        copy.setEmail(source.getEmail());
+        copy.setPhone(source.getPhone());
+        copy.setStatus(source.getStatus());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.setRoles(copySet(source.getRoles(), OrgDtoCopies::copy));
+        copy.setPermissions(copySet(source.getPermissions(), UnaryOperator.identity()));
+        copy.setDepartments(copySet(source.getDepartments(), OrgDtoCopies::copy));
+        return copy;
+    }
+
+    static RoleInfoDto copy(RoleInfoDto source) {
+        RoleInfoDto copy = new RoleInfoDto();
+        copy.setId(source.getId());
+        copy.setCode(source.getCode());
+        copy.setName(source.getName());
+        copy.setDescription(source.getDescription());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        copy.setPermissions(copySet(source.getPermissions(), OrgDtoCopies::copy));
+        return copy;
+    }
+
+    static DeptInfoDto copy(DeptInfoDto source) {
+        DeptInfoDto copy = new DeptInfoDto();
+        copy.setId(source.getId());
+        copy.setParentId(source.getParentId());
+        copy.setName(source.getName());
+        copy.setSortNo(source.getSortNo());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+
+    static PermissionInfoDto copy(PermissionInfoDto source) {
+        PermissionInfoDto copy = new PermissionInfoDto();
+        copy.setId(source.getId());
+        copy.setCode(source.getCode());
+        copy.setName(source.getName());
+        copy.setType(source.getType());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        return copy;
+    }
+
+    private static <T> Set<T> copySet(Set<T> source, UnaryOperator<T> copier) {
+        if (source == null) {
+            return null;
+        }
+        Set<T> copy = new LinkedHashSet<>(source.size() * 2);
+        for (T element : source) {
+            copy.add(element != null ? copier.apply(element) : null);
+        }
+        return copy;
+    }
+}
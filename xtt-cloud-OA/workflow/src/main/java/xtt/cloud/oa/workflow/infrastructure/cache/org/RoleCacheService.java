@@ -3,21 +3,29 @@ package xtt.cloud.oa.workflow.infrastructure.cache.org;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import xtt.cloud.oa.common.dto.RoleInfoDto;
+import xtt.cloud.oa.workflow.infrastructure.cache.LocalCacheInvalidationBroadcaster;
+import xtt.cloud.oa.workflow.infrastructure.cache.LocalCacheTier;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 
 /**
  * 角色信息缓存服务
  * 使用 Redis 缓存角色信息，减少对 Platform 服务的调用
  * 
+ * 两级缓存：本地 Caffeine（L1）-> Redis（L2），L1 未命中才访问 Redis，
+ * Redis 命中后回填 L1；失效时先删除 Redis，再清理本节点 L1 并广播给其他节点
+ * 
  * @author xtt
  */
 @Service
@@ -30,13 +38,27 @@ public class RoleCacheService {
 
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final LocalCacheTier<RoleInfoDto> localCache;
+    private final LocalCacheTier<List<Long>> localUsersCache;
 
     @Value("${workflow.cache.role.expiration:3600}")
     private Long cacheExpiration; // 默认1小时
 
-    public RoleCacheService(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+    public RoleCacheService(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${workflow.cache.role.local.max-size:2000}") long localMaxSize,
+            @Value("${workflow.cache.role.local.expiration:60}") long localExpiration,
+            LocalCacheInvalidationBroadcaster broadcaster,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable();
+        this.localCache = LocalCacheTier.create("role", localMaxSize, localExpiration, OrgDtoCopies::copy,
+                broadcaster, meterRegistry);
+        // 用户ID列表为不可变 List，不需要复制
+        this.localUsersCache = LocalCacheTier.create("role.users", localMaxSize, localExpiration,
+                UnaryOperator.identity(), broadcaster, meterRegistry);
     }
 
     /**
@@ -50,14 +72,22 @@ public class RoleCacheService {
             return Optional.empty();
         }
         
+        Optional<RoleInfoDto> local = localCache.get(roleId);
+        if (local.isPresent()) {
+            return local;
+        }
+        
         try {
             String key = ROLE_CACHE_PREFIX + roleId;
             String value = redisTemplate.opsForValue().get(key);
             if (value != null) {
                 RoleInfoDto role = objectMapper.readValue(value, RoleInfoDto.class);
+                localCache.recordRedisHit();
+                localCache.put(roleId, role);
                 log.debug("Role cache hit for roleId: {}", roleId);
                 return Optional.of(role);
             }
+            localCache.recordRedisMiss();
             log.debug("Role cache miss for roleId: {}", roleId);
             return Optional.empty();
         } catch (JsonProcessingException e) {
@@ -83,6 +113,7 @@ public class RoleCacheService {
             String key = ROLE_CACHE_PREFIX + role.getId();
             String value = objectMapper.writeValueAsString(role);
             redisTemplate.opsForValue().set(key, value, cacheExpiration, TimeUnit.SECONDS);
+            localCache.put(role.getId(), role);
             log.debug("Role cached for roleId: {}", role.getId());
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize role for cache for roleId: {}", role.getId(), e);
@@ -102,14 +133,22 @@ public class RoleCacheService {
             return Optional.empty();
         }
         
+        Optional<List<Long>> local = localUsersCache.get(roleId);
+        if (local.isPresent()) {
+            return local;
+        }
+        
         try {
             String key = ROLE_USERS_CACHE_PREFIX + roleId;
             String value = redisTemplate.opsForValue().get(key);
             if (value != null) {
-                List<Long> userIds = objectMapper.readValue(value, new TypeReference<List<Long>>() {});
+                List<Long> userIds = List.copyOf(objectMapper.readValue(value, new TypeReference<List<Long>>() {}));
+                localUsersCache.recordRedisHit();
+                localUsersCache.put(roleId, userIds);
                 log.debug("Role users cache hit for roleId: {}", roleId);
                 return Optional.of(userIds);
             }
+            localUsersCache.recordRedisMiss();
             log.debug("Role users cache miss for roleId: {}", roleId);
             return Optional.empty();
         } catch (JsonProcessingException e) {
@@ -136,6 +175,7 @@ public class RoleCacheService {
             String key = ROLE_USERS_CACHE_PREFIX + roleId;
             String value = objectMapper.writeValueAsString(userIds);
             redisTemplate.opsForValue().set(key, value, cacheExpiration, TimeUnit.SECONDS);
+            localUsersCache.put(roleId, List.copyOf(userIds));
             log.debug("Role users cached for roleId: {}", roleId);
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize role users for cache for roleId: {}", roleId, e);
@@ -163,6 +203,8 @@ public class RoleCacheService {
         } catch (Exception e) {
             log.error("Failed to evict role cache for roleId: {}", roleId, e);
         }
+        localCache.invalidate(roleId);
+        localUsersCache.invalidate(roleId);
     }
 }
 
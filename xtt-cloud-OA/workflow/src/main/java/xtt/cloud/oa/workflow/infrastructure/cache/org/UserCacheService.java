@@ -2,15 +2,26 @@ package xtt.cloud.oa.workflow.infrastructure.cache.org;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import xtt.cloud.oa.common.dto.UserInfoDto;
+import xtt.cloud.oa.workflow.infrastructure.cache.LocalCacheInvalidationBroadcaster;
+import xtt.cloud.oa.workflow.infrastructure.cache.LocalCacheTier;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -18,6 +29,9 @@ import java.util.concurrent.TimeUnit;
  * 用户信息缓存服务
  * 使用 Redis 缓存用户信息，减少对 Platform 服务的调用
  * 
+ * 两级缓存：本地 Caffeine（L1）-> Redis（L2），L1 未命中才访问 Redis，
+ * Redis 命中后回填 L1；失效时先删除 Redis，再清理本节点 L1 并广播给其他节点
+ * 
  * @author xtt
  */
 @Service
@@ -26,17 +40,28 @@ public class UserCacheService {
     private static final Logger log = LoggerFactory.getLogger(UserCacheService.class);
     
     private static final String USER_CACHE_PREFIX = "workflow:user:";
-    private static final String USER_BATCH_CACHE_PREFIX = "workflow:user:batch:";
 
     private final StringRedisTemplate redisTemplate;
     private final ObjectMapper objectMapper;
+    private final LocalCacheTier<UserInfoDto> localCache;
 
     @Value("${workflow.cache.user.expiration:3600}")
     private Long cacheExpiration; // 默认1小时
 
-    public UserCacheService(StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+    @Value("${workflow.cache.user.batch-size:500}")
+    private int batchSize; // 单次 MGET / Pipeline 的最大键数
+
+    public UserCacheService(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${workflow.cache.user.local.max-size:10000}") long localMaxSize,
+            @Value("${workflow.cache.user.local.expiration:60}") long localExpiration,
+            LocalCacheInvalidationBroadcaster broadcaster,
+            ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.redisTemplate = redisTemplate;
         this.objectMapper = objectMapper;
+        this.localCache = LocalCacheTier.create("user", localMaxSize, localExpiration, OrgDtoCopies::copy,
+                broadcaster, meterRegistryProvider.getIfAvailable());
     }
 
     /**
@@ -50,14 +75,28 @@ public class UserCacheService {
             return Optional.empty();
         }
         
+        Optional<UserInfoDto> local = localCache.get(userId);
+        if (local.isPresent()) {
+            return local;
+        }
+        return getRemoteUserById(userId);
+    }
+
+    /**
+     * 从 Redis 获取用户信息，命中时回填本地缓存
+     */
+    private Optional<UserInfoDto> getRemoteUserById(Long userId) {
         try {
             String key = USER_CACHE_PREFIX + userId;
             String value = redisTemplate.opsForValue().get(key);
             if (value != null) {
                 UserInfoDto user = objectMapper.readValue(value, UserInfoDto.class);
+                localCache.recordRedisHit();
+                localCache.put(userId, user);
                 log.debug("User cache hit for userId: {}", userId);
                 return Optional.of(user);
             }
+            localCache.recordRedisMiss();
             log.debug("User cache miss for userId: {}", userId);
             return Optional.empty();
         } catch (JsonProcessingException e) {
@@ -73,21 +112,48 @@ public class UserCacheService {
      * 批量从缓存中获取用户信息
      * 
      * @param userIds 用户ID列表
-     * @return 用户信息列表
+     * @return 用户信息列表（只包含缓存命中的用户）
      */
     public List<UserInfoDto> getUsersByIds(List<Long> userIds) {
         if (userIds == null || userIds.isEmpty()) {
             return new ArrayList<>();
         }
+        return new ArrayList<>(multiGetUsers(userIds).getUsers().values());
+    }
+
+    /**
+     * 批量从缓存中获取用户信息，并返回未命中的用户ID
+     * 
+     * 先批量查本地缓存，本地未命中的用户通过 Redis MGET 一次取回（按 batch-size 分批）
+     * 
+     * @param userIds 用户ID列表
+     * @return 命中的用户（按请求顺序，已去重）和未命中的用户ID
+     */
+    public BatchResult multiGetUsers(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            return new BatchResult(Map.of(), List.of());
+        }
         
-        List<UserInfoDto> users = new ArrayList<>();
-        List<Long> missingIds = new ArrayList<>();
+        List<Long> validIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, UserInfoDto> localUsers = localCache.getAllPresent(validIds);
+        
+        List<Long> remoteIds = new ArrayList<>(validIds.size() - localUsers.size());
+        for (Long userId : validIds) {
+            if (!localUsers.containsKey(userId)) {
+                remoteIds.add(userId);
+            }
+        }
+        Map<Long, UserInfoDto> remoteUsers = multiGetRemoteUsers(remoteIds);
         
-        // 先从缓存中获取
-        for (Long userId : userIds) {
-            Optional<UserInfoDto> userOpt = getUserById(userId);
-            if (userOpt.isPresent()) {
-                users.add(userOpt.get());
+        Map<Long, UserInfoDto> users = new LinkedHashMap<>(validIds.size() * 2);
+        List<Long> missingIds = new ArrayList<>();
+        for (Long userId : validIds) {
+            UserInfoDto user = localUsers.get(userId);
+            if (user == null) {
+                user = remoteUsers.get(userId);
+            }
+            if (user != null) {
+                users.put(userId, user);
             } else {
                 missingIds.add(userId);
             }
@@ -98,6 +164,50 @@ public class UserCacheService {
             log.debug("Missing users in cache, userIds: {}", missingIds);
         }
         
+        return new BatchResult(users, missingIds);
+    }
+
+    /**
+     * 通过 MGET 从 Redis 批量获取用户信息，命中的回填本地缓存
+     */
+    private Map<Long, UserInfoDto> multiGetRemoteUsers(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        
+        Map<Long, UserInfoDto> users = new HashMap<>(userIds.size() * 2);
+        int step = Math.max(batchSize, 1);
+        for (int from = 0; from < userIds.size(); from += step) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + step, userIds.size()));
+            try {
+                List<String> keys = chunk.stream().map(userId -> USER_CACHE_PREFIX + userId).toList();
+                List<String> values = redisTemplate.opsForValue().multiGet(keys);
+                if (values == null) {
+                    localCache.recordRedis(0, chunk.size());
+                    continue;
+                }
+                
+                int hits = 0;
+                for (int i = 0; i < chunk.size() && i < values.size(); i++) {
+                    String value = values.get(i);
+                    if (value == null) {
+                        continue;
+                    }
+                    Long userId = chunk.get(i);
+                    try {
+                        UserInfoDto user = objectMapper.readValue(value, UserInfoDto.class);
+                        users.put(userId, user);
+                        localCache.put(userId, user);
+                        hits++;
+                    } catch (JsonProcessingException e) {
+                        log.error("Failed to deserialize user from cache for userId: {}", userId, e);
+                    }
+                }
+                localCache.recordRedis(hits, chunk.size() - hits);
+            } catch (Exception e) {
+                log.error("Failed to multi-get users from cache, userIds: {}", chunk, e);
+            }
+        }
         return users;
     }
 
@@ -115,6 +225,7 @@ public class UserCacheService {
             String key = USER_CACHE_PREFIX + user.getId();
             String value = objectMapper.writeValueAsString(user);
             redisTemplate.opsForValue().set(key, value, cacheExpiration, TimeUnit.SECONDS);
+            localCache.put(user.getId(), user);
             log.debug("User cached for userId: {}", user.getId());
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize user for cache for userId: {}", user.getId(), e);
@@ -126,6 +237,8 @@ public class UserCacheService {
     /**
      * 批量将用户信息存入缓存
      * 
+     * 使用 Redis Pipeline 一次往返写入所有用户（SETEX），按 batch-size 分批
+     * 
      * @param users 用户信息列表
      */
     public void cacheUsers(List<UserInfoDto> users) {
@@ -133,8 +246,38 @@ public class UserCacheService {
             return;
         }
         
+        Map<String, String> values = new LinkedHashMap<>(users.size() * 2);
         for (UserInfoDto user : users) {
-            cacheUser(user);
+            if (user == null || user.getId() == null) {
+                continue;
+            }
+            try {
+                values.put(USER_CACHE_PREFIX + user.getId(), objectMapper.writeValueAsString(user));
+                localCache.put(user.getId(), user);
+            } catch (JsonProcessingException e) {
+                log.error("Failed to serialize user for cache for userId: {}", user.getId(), e);
+            }
+        }
+        if (values.isEmpty()) {
+            return;
+        }
+        
+        List<Map.Entry<String, String>> entries = new ArrayList<>(values.entrySet());
+        int step = Math.max(batchSize, 1);
+        for (int from = 0; from < entries.size(); from += step) {
+            List<Map.Entry<String, String>> chunk = entries.subList(from, Math.min(from + step, entries.size()));
+            try {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                    for (Map.Entry<String, String> entry : chunk) {
+                        stringConnection.setEx(entry.getKey(), cacheExpiration, entry.getValue());
+                    }
+                    return null;
+                });
+                log.debug("Users cached, count: {}", chunk.size());
+            } catch (Exception e) {
+                log.error("Failed to cache users, count: {}", chunk.size(), e);
+            }
         }
     }
 
@@ -155,6 +298,7 @@ public class UserCacheService {
         } catch (Exception e) {
             log.error("Failed to evict user cache for userId: {}", userId, e);
         }
+        localCache.invalidate(userId);
     }
 
     /**
@@ -167,9 +311,41 @@ public class UserCacheService {
             return;
         }
         
-        for (Long userId : userIds) {
-            evictUser(userId);
+        List<Long> validIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        try {
+            List<String> keys = validIds.stream().map(userId -> USER_CACHE_PREFIX + userId).toList();
+            redisTemplate.delete(keys);
+            log.debug("User cache evicted for userIds: {}", validIds);
+        } catch (Exception e) {
+            log.error("Failed to evict user cache for userIds: {}", validIds, e);
         }
+        localCache.invalidateAll(validIds);
     }
-}
 
+    /**
+     * 批量查询结果
+     */
+    public static final class BatchResult {
+        private final Map<Long, UserInfoDto> users;
+        private final List<Long> missingIds;
+
+        public BatchResult(Map<Long, UserInfoDto> users, List<Long> missingIds) {
+            this.users = users;
+            this.missingIds = missingIds;
+        }
+
+        /**
+         * 缓存命中的用户（用户ID -> 用户信息，按请求顺序）
+         */
+        public Map<Long, UserInfoDto> getUsers() {
+            return users;
+        }
+
+        /**
+         * 缓存未命中的用户ID
+         */
+        public List<Long> getMissingIds() {
+            return missingIds;
+        }
+    }
+}
@@ -13,7 +13,10 @@ import xtt.cloud.oa.workflow.infrastructure.cache.org.UserCacheService;
 import xtt.cloud.oa.workflow.infrastructure.external.client.PlatformFeignClient;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -56,20 +59,21 @@ public class PlatformUserServiceAdapter implements ApproverProvider {
         }
         
         try {
-            // 先从缓存中获取
-            List<UserInfoDto> cachedUsers = userCacheService.getUsersByIds(userIds);
-            List<Long> missingUserIds = userIds.stream()
-                    .filter(userId -> cachedUsers.stream().noneMatch(u -> u.getId().equals(userId)))
-                    .collect(Collectors.toList());
-            
-            List<UserInfoDto> users = new ArrayList<>(cachedUsers);
+            // 先从缓存中批量获取（本地缓存 + Redis MGET）
+            UserCacheService.BatchResult cached = userCacheService.multiGetUsers(userIds);
+            Map<Long, UserInfoDto> usersById = new HashMap<>(cached.getUsers());
+            List<Long> missingUserIds = cached.getMissingIds();
             
-            // 如果缓存中有缺失的用户，从远程服务获取并缓存
+            // 如果缓存中有缺失的用户，一次性从远程服务获取并缓存
             if (!missingUserIds.isEmpty()) {
                 try {
                     List<UserInfoDto> remoteUsers = platformFeignClient.getUsersByIds(missingUserIds);
                     if (remoteUsers != null) {
-                        users.addAll(remoteUsers);
+                        for (UserInfoDto user : remoteUsers) {
+                            if (user != null && user.getId() != null) {
+                                usersById.put(user.getId(), user);
+                            }
+                        }
                         // 将新获取的用户存入缓存
                         userCacheService.cacheUsers(remoteUsers);
                     }
@@ -78,6 +82,14 @@ public class PlatformUserServiceAdapter implements ApproverProvider {
                 }
             }
             
+            // 按请求顺序输出（去重）
+            List<UserInfoDto> users = userIds.stream()
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .map(usersById::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            
             return users.stream()
                     .filter(user -> user.getStatus() != null && user.getStatus() == 1) // 只返回启用状态的用户
                     .map(this::convertToApprover)
@@ -1,5 +1,6 @@
 package xtt.cloud.oa.workflow.infrastructure.lock;
 
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
@@ -12,6 +13,26 @@ import java.util.function.Supplier;
  */
 public interface DistributedLockService {
     
+    /**
+     * 获取锁，返回显式的锁句柄
+     * 
+     * 与 tryLock/unlock 不同，锁的归属由句柄表示，可在任意线程中释放
+     * 
+     * @param lockKey 锁的键
+     * @param waitTime 等待时间
+     * @param leaseTime 锁的持有时间
+     * @param timeUnit 时间单位
+     * @return 锁句柄，获取失败返回 empty
+     */
+    Optional<LockHandle> acquire(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit);
+    
+    /**
+     * 释放锁句柄（只释放句柄持有的锁，重复释放无副作用）
+     * 
+     * @param handle 锁句柄
+     */
+    void release(LockHandle handle);
+    
     /**
      * 尝试获取锁
      * 
@@ -0,0 +1,89 @@
+package xtt.cloud.oa.workflow.infrastructure.lock;
+
+import java.util.concurrent.Future;
+
+/**
+ * 锁句柄
+ *
+ * 表示一次成功的加锁，持有锁的唯一令牌。释放锁时必须传入句柄，
+ * 不依赖 ThreadLocal，可以在异步回调、虚拟线程或其他线程中释放
+ *
+ * @author xtt
+ */
+public final class LockHandle {
+
+    private final String lockKey;
+    private final String token;
+    private final long leaseTimeMillis;
+
+    private volatile Future<?> watchdog;
+    private volatile boolean released;
+
+    LockHandle(String lockKey, String token, long leaseTimeMillis) {
+        this.lockKey = lockKey;
+        this.token = token;
+        this.leaseTimeMillis = leaseTimeMillis;
+    }
+
+    /**
+     * 锁的键（不含前缀）
+     */
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    /**
+     * 持有锁的令牌（写入 Redis 的锁值）
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * 锁的持有时间（毫秒），开启看门狗时为续期周期的基准
+     */
+    public long getLeaseTimeMillis() {
+        return leaseTimeMillis;
+    }
+
+    /**
+     * 是否已释放（主动释放或续期失败）
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    synchronized void setWatchdog(Future<?> watchdog) {
+        if (released) {
+            // 设置看门狗之前已被释放，直接取消
+            watchdog.cancel(false);
+            return;
+        }
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * 标记为已释放并停止看门狗
+     *
+     * @return 本次调用是否完成了标记（重复释放返回 false）
+     */
+    synchronized boolean markReleased() {
+        if (released) {
+            return false;
+        }
+        released = true;
+        Future<?> current = watchdog;
+        if (current != null) {
+            current.cancel(false);
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "LockHandle{" +
+                "lockKey='" + lockKey + '\'' +
+                ", released=" + released +
+                '}';
+    }
+}
@@ -4,12 +4,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.UUID;
@@ -18,11 +19,14 @@ import java.util.UUID;
  * 基于 Redis 的分布式锁服务实现
  * 
  * 使用 Redis SETNX 命令实现分布式锁，支持锁超时自动释放
+ * 获取锁失败时轮询重试（每 50ms 一次）
+ * 
+ * 仅在 workflow.lock.mode=polling 时启用，默认使用 {@link RedisPubSubDistributedLockService}
  * 
  * @author xtt
  */
 @Service
-@ConditionalOnProperty(name = "workflow.lock.enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnExpression("${workflow.lock.enabled:true} and '${workflow.lock.mode:pubsub}' == 'polling'")
 public class RedisDistributedLockService implements DistributedLockService {
     
     private static final Logger log = LoggerFactory.getLogger(RedisDistributedLockService.class);
@@ -50,9 +54,9 @@ public class RedisDistributedLockService implements DistributedLockService {
     }
     
     @Override
-    public boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit) {
+    public Optional<LockHandle> acquire(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit) {
         if (lockKey == null || lockKey.isEmpty()) {
-            return false;
+            return Optional.empty();
         }
         
         String fullKey = LOCK_PREFIX + lockKey;
@@ -72,10 +76,8 @@ public class RedisDistributedLockService implements DistributedLockService {
                 );
                 
                 if (Boolean.TRUE.equals(success)) {
-                    // 成功获取锁，保存锁值到 ThreadLocal
-                    lockValueHolder.set(lockValue);
                     log.debug("获取锁成功，锁键: {}", lockKey);
-                    return true;
+                    return Optional.of(new LockHandle(lockKey, lockValue, timeUnit.toMillis(leaseTime)));
                 }
                 
                 // 获取锁失败，等待一小段时间后重试
@@ -84,18 +86,34 @@ public class RedisDistributedLockService implements DistributedLockService {
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
                     log.warn("获取锁被中断，锁键: {}", lockKey);
-                    return false;
+                    return Optional.empty();
                 }
             }
             
             log.debug("获取锁超时，锁键: {}", lockKey);
-            return false;
+            return Optional.empty();
         } catch (Exception e) {
             log.error("获取锁失败，锁键: {}", lockKey, e);
-            return false;
+            return Optional.empty();
         }
     }
     
+    @Override
+    public void release(LockHandle handle) {
+        if (handle == null || !handle.markReleased()) {
+            return;
+        }
+        releaseToken(handle.getLockKey(), handle.getToken());
+    }
+    
+    @Override
+    public boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit) {
+        Optional<LockHandle> handle = acquire(lockKey, waitTime, leaseTime, timeUnit);
+        // 成功获取锁，保存锁值到 ThreadLocal
+        handle.ifPresent(h -> lockValueHolder.set(h.getToken()));
+        return handle.isPresent();
+    }
+    
     @Override
     public boolean tryLock(String lockKey, long leaseTime, TimeUnit timeUnit) {
         return tryLock(lockKey, defaultWaitTime, leaseTime, timeUnit);
@@ -107,7 +125,6 @@ public class RedisDistributedLockService implements DistributedLockService {
             return;
         }
         
-        String fullKey = LOCK_PREFIX + lockKey;
         String lockValue = lockValueHolder.get();
         
         if (lockValue == null) {
@@ -116,7 +133,18 @@ public class RedisDistributedLockService implements DistributedLockService {
         }
         
         try {
-            // 使用 Lua 脚本确保只释放自己持有的锁
+            releaseToken(lockKey, lockValue);
+        } finally {
+            lockValueHolder.remove();
+        }
+    }
+    
+    /**
+     * 使用 Lua 脚本确保只释放自己持有的锁
+     */
+    private void releaseToken(String lockKey, String lockValue) {
+        String fullKey = LOCK_PREFIX + lockKey;
+        try {
             DefaultRedisScript<Long> script = new DefaultRedisScript<>();
             script.setScriptText(LOCK_SCRIPT);
             script.setResultType(Long.class);
@@ -124,15 +152,12 @@ public class RedisDistributedLockService implements DistributedLockService {
             Long result = redisTemplate.execute(script, Collections.singletonList(fullKey), lockValue);
             
             if (result != null && result > 0) {
-                lockValueHolder.remove();
                 log.debug("释放锁成功，锁键: {}", lockKey);
             } else {
                 log.warn("释放锁失败，可能锁已过期或被其他线程释放，锁键: {}", lockKey);
             }
         } catch (Exception e) {
             log.error("释放锁失败，锁键: {}", lockKey, e);
-        } finally {
-            lockValueHolder.remove();
         }
     }
     
@@ -0,0 +1,310 @@
+package xtt.cloud.oa.workflow.infrastructure.lock;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 基于 Redis 发布/订阅的分布式锁服务实现（默认实现）
+ *
+ * 与轮询实现的区别：
+ * 1. 获取锁失败时不轮询，而是等待解锁通知：释放锁时向 workflow:lock:released 频道发布锁键，
+ *    等待者被唤醒后立即重试；通知丢失时最多等待锁的剩余过期时间
+ * 2. 看门狗：持有锁期间每 leaseTime/3 续期一次，业务执行时间超过 leaseTime 也不会丢锁；
+ *    持有者进程退出后锁在 leaseTime 内自动过期
+ * 3. 锁的归属由 {@link LockHandle} 表示，acquire/release 不依赖 ThreadLocal，可以跨线程释放。
+ *    tryLock/unlock(lockKey) 为兼容接口，与轮询实现一样按线程记录句柄，只有加锁的线程可以 unlock
+ *
+ * 通过 workflow.lock.mode=polling 可切换回轮询实现
+ *
+ * @author xtt
+ */
+@Service
+@ConditionalOnExpression("${workflow.lock.enabled:true} and '${workflow.lock.mode:pubsub}' == 'pubsub'")
+public class RedisPubSubDistributedLockService implements DistributedLockService {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisPubSubDistributedLockService.class);
+
+    private static final String LOCK_PREFIX = "workflow:lock:";
+    private static final String RELEASE_CHANNEL = "workflow:lock:released";
+
+    private static final String UNLOCK_SCRIPT =
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+        "    redis.call('del', KEYS[1]) " +
+        "    redis.call('publish', ARGV[2], ARGV[3]) " +
+        "    return 1 " +
+        "else " +
+        "    return 0 " +
+        "end";
+
+    private static final String RENEW_SCRIPT =
+        "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+        "    return redis.call('pexpire', KEYS[1], ARGV[2]) " +
+        "else " +
+        "    return 0 " +
+        "end";
+
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ScheduledExecutorService watchdogExecutor;
+    private final DefaultRedisScript<Long> unlockScript;
+    private final DefaultRedisScript<Long> renewScript;
+
+    /**
+     * 等待解锁通知的 Future（按锁键），同一个锁键的所有等待者共享一个，通知后移除
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> releaseSignals = new ConcurrentHashMap<>();
+
+    /**
+     * 兼容 tryLock/unlock(lockKey) 的句柄记录（按线程、锁键）
+     */
+    private final ThreadLocal<Map<String, LockHandle>> heldLocks = ThreadLocal.withInitial(HashMap::new);
+
+    @Value("${workflow.lock.default-wait-time:3}")
+    private long defaultWaitTime; // 默认等待时间（秒）
+
+    @Value("${workflow.lock.watchdog.enabled:true}")
+    private boolean watchdogEnabled; // 是否开启看门狗续期
+
+    public RedisPubSubDistributedLockService(
+            StringRedisTemplate redisTemplate,
+            RedisConnectionFactory redisConnectionFactory) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = new RedisMessageListenerContainer();
+        this.listenerContainer.setConnectionFactory(redisConnectionFactory);
+        this.watchdogExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "workflow-lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.unlockScript = new DefaultRedisScript<>(UNLOCK_SCRIPT, Long.class);
+        this.renewScript = new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener((message, pattern) ->
+                signalReleased(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(RELEASE_CHANNEL));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+        log.info("分布式锁服务启动（发布/订阅模式），看门狗: {}", watchdogEnabled);
+    }
+
+    @PreDestroy
+    public void stop() {
+        watchdogExecutor.shutdownNow();
+        try {
+            listenerContainer.destroy();
+        } catch (Exception e) {
+            log.warn("关闭锁通知监听失败", e);
+        }
+        releaseSignals.values().forEach(signal -> signal.complete(null));
+    }
+
+    @Override
+    public Optional<LockHandle> acquire(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit) {
+        if (lockKey == null || lockKey.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String fullKey = LOCK_PREFIX + lockKey;
+        String token = UUID.randomUUID().toString();
+        long leaseTimeMillis = Math.max(timeUnit.toMillis(leaseTime), 1);
+        long deadline = System.nanoTime() + timeUnit.toNanos(waitTime);
+
+        try {
+            while (true) {
+                // 先注册等待通知，再尝试加锁，避免在两者之间错过解锁通知
+                CompletableFuture<Void> signal = releaseSignals.computeIfAbsent(lockKey, k -> new CompletableFuture<>());
+
+                if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(
+                        fullKey, token, leaseTimeMillis, TimeUnit.MILLISECONDS))) {
+                    LockHandle handle = new LockHandle(lockKey, token, leaseTimeMillis);
+                    startWatchdog(handle);
+                    log.debug("获取锁成功，锁键: {}", lockKey);
+                    return Optional.of(handle);
+                }
+
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    log.debug("获取锁超时，锁键: {}", lockKey);
+                    return Optional.empty();
+                }
+
+                // 等待解锁通知；通知丢失时（如持有者宕机）最多等待锁的剩余过期时间
+                long waitNanos = remainingNanos;
+                Long ttlMillis = redisTemplate.getExpire(fullKey, TimeUnit.MILLISECONDS);
+                if (ttlMillis != null && ttlMillis >= 0) {
+                    waitNanos = Math.min(waitNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(ttlMillis, 1)));
+                }
+                try {
+                    signal.get(waitNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException | ExecutionException ignored) {
+                    // 超时后重试加锁
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("获取锁被中断，锁键: {}", lockKey);
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("获取锁失败，锁键: {}", lockKey, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void release(LockHandle handle) {
+        if (handle == null || !handle.markReleased()) {
+            return;
+        }
+
+        String lockKey = handle.getLockKey();
+        try {
+            Long result = redisTemplate.execute(unlockScript,
+                    Collections.singletonList(LOCK_PREFIX + lockKey),
+                    handle.getToken(), RELEASE_CHANNEL, lockKey);
+            if (result != null && result > 0) {
+                log.debug("释放锁成功，锁键: {}", lockKey);
+            } else {
+                log.warn("释放锁失败，可能锁已过期或被其他持有者获取，锁键: {}", lockKey);
+            }
+        } catch (Exception e) {
+            log.error("释放锁失败，锁键: {}", lockKey, e);
+        } finally {
+            // 本进程内的等待者直接唤醒，不必等待 Redis 通知
+            signalReleased(lockKey);
+        }
+    }
+
+    @Override
+    public boolean tryLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit) {
+        Optional<LockHandle> handle = acquire(lockKey, waitTime, leaseTime, timeUnit);
+        if (handle.isEmpty()) {
+            return false;
+        }
+        LockHandle previous = heldLocks.get().put(lockKey, handle.get());
+        if (previous != null) {
+            // 本线程之前的句柄对应的锁已过期（否则无法再次获取），不再续期
+            previous.markReleased();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryLock(String lockKey, long leaseTime, TimeUnit timeUnit) {
+        return tryLock(lockKey, defaultWaitTime, leaseTime, timeUnit);
+    }
+
+    @Override
+    public void unlock(String lockKey) {
+        if (lockKey == null || lockKey.isEmpty()) {
+            return;
+        }
+
+        Map<String, LockHandle> held = heldLocks.get();
+        LockHandle handle = held.remove(lockKey);
+        if (held.isEmpty()) {
+            heldLocks.remove();
+        }
+        if (handle == null) {
+            log.warn("当前线程未持有锁，锁键: {}", lockKey);
+            return;
+        }
+        release(handle);
+    }
+
+    @Override
+    public <T> T executeWithLock(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, Supplier<T> supplier) {
+        Optional<LockHandle> handle = acquire(lockKey, waitTime, leaseTime, timeUnit);
+        if (handle.isEmpty()) {
+            log.debug("获取锁失败，锁键: {}", lockKey);
+            return null;
+        }
+
+        try {
+            return supplier.get();
+        } finally {
+            release(handle.get());
+        }
+    }
+
+    @Override
+    public <T> T executeWithLock(String lockKey, long leaseTime, TimeUnit timeUnit, Supplier<T> supplier) {
+        return executeWithLock(lockKey, defaultWaitTime, leaseTime, timeUnit, supplier);
+    }
+
+    @Override
+    public <T> T executeWithLockOrThrow(String lockKey, long waitTime, long leaseTime, TimeUnit timeUnit, Supplier<T> supplier) {
+        LockHandle handle = acquire(lockKey, waitTime, leaseTime, timeUnit)
+                .orElseThrow(() -> new LockAcquisitionException("获取锁失败，锁键: " + lockKey));
+
+        try {
+            return supplier.get();
+        } finally {
+            release(handle);
+        }
+    }
+
+    /**
+     * 唤醒等待指定锁键的所有线程
+     */
+    private void signalReleased(String lockKey) {
+        CompletableFuture<Void> signal = releaseSignals.remove(lockKey);
+        if (signal != null) {
+            signal.complete(null);
+        }
+    }
+
+    /**
+     * 启动看门狗：每 leaseTime/3 续期一次，直到句柄被释放或续期失败
+     */
+    private void startWatchdog(LockHandle handle) {
+        if (!watchdogEnabled) {
+            return;
+        }
+
+        long period = Math.max(handle.getLeaseTimeMillis() / 3, 1);
+        handle.setWatchdog(watchdogExecutor.scheduleAtFixedRate(() -> {
+            if (handle.isReleased()) {
+                return;
+            }
+            try {
+                Long renewed = redisTemplate.execute(renewScript,
+                        Collections.singletonList(LOCK_PREFIX + handle.getLockKey()),
+                        handle.getToken(), String.valueOf(handle.getLeaseTimeMillis()));
+                if (renewed == null || renewed == 0) {
+                    log.warn("锁续期失败，锁已过期或被其他持有者获取，锁键: {}", handle.getLockKey());
+                    handle.markReleased();
+                }
+            } catch (Exception e) {
+                log.error("锁续期异常，锁键: {}", handle.getLockKey(), e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS));
+    }
+}
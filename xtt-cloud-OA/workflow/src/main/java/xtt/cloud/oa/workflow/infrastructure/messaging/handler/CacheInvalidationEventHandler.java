@@ -17,6 +17,7 @@ import java.util.List;
  * 缓存失效事件处理器
  * 
  * 监听缓存失效事件，并执行相应的缓存清理操作
+ * 组织数据（用户/角色/部门）的本地缓存（L1）与 Redis（L2）在 evict 时一并清理
  * 
  * @author xtt
  */
@@ -44,9 +45,9 @@ public class CacheInvalidationEventHandler {
     /**
      * 处理缓存失效事件
      * 
-     * 使用 @Async 异步处理，避免阻塞主流程
+     * 使用独立的缓存失效执行器异步处理，避免阻塞主流程，也不受其他事件处理器积压的影响
      */
-    @Async
+    @Async("workflowCacheInvalidationExecutor")
     @EventListener
     public void handleCacheInvalidation(CacheInvalidationEvent event) {
         if (event == null || event.getEntityIds() == null || event.getEntityIds().isEmpty()) {
@@ -83,9 +84,7 @@ public class CacheInvalidationEventHandler {
         List<Long> userIds = event.getEntityIds();
         log.info("失效用户缓存，用户ID列表: {}", userIds);
         
-        for (Long userId : userIds) {
-            userCacheService.evictUser(userId);
-        }
+        userCacheService.evictUsers(userIds);
         
         // 如果用户角色或部门关系变更，还需要失效相关的角色和部门缓存
         if (event.getOperationType() == CacheInvalidationEvent.OperationType.UPDATE) {
@@ -18,7 +18,7 @@ public class FlowCompletedEventHandler {
     private static final Logger log = LoggerFactory.getLogger(FlowCompletedEventHandler.class);
     
     @EventListener
-    @Async
+    @Async("workflowFlowCompletedExecutor")
     public void handle(FlowCompletedEvent event) {
         log.info("处理流程完成事件，流程实例ID: {}, 文档ID: {}, 开始时间: {}, 结束时间: {}", 
                 event.getFlowInstanceId(), event.getDocumentId(), 
@@ -18,7 +18,7 @@ public class FlowStartedEventHandler {
     private static final Logger log = LoggerFactory.getLogger(FlowStartedEventHandler.class);
     
     @EventListener
-    @Async
+    @Async("workflowFlowStartedExecutor")
     public void handle(FlowStartedEvent event) {
         log.info("处理流程启动事件，流程实例ID: {}, 文档ID: {}, 流程定义ID: {}", 
                 event.getFlowInstanceId(), event.getDocumentId(), event.getFlowDefId());
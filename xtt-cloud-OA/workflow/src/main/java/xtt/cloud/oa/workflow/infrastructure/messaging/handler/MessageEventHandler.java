@@ -23,7 +23,7 @@ import java.time.LocalDateTime;
  * 1. 监听节点实例创建事件，发送待办消息到 RabbitMQ
  * 2. 监听节点完成事件，发送已办消息到 RabbitMQ
  * 
- * 注意：使用 @Async 异步处理，不阻塞主流程
+ * 注意：使用 @Async 在独立执行器中异步处理，不阻塞主流程
  * 
  * @author xtt
  */
@@ -51,7 +51,7 @@ public class MessageEventHandler {
      * @param event 节点实例创建事件
      */
     @EventListener
-    @Async
+    @Async("workflowMessageExecutor")
     public void handleNodeInstanceCreated(NodeInstanceCreatedEvent event) {
         log.info("发送待办消息，节点实例ID: {}, 审批人ID: {}", 
                 event.getNodeInstanceId(), event.getApproverId());
@@ -96,7 +96,7 @@ public class MessageEventHandler {
      * @param event 节点完成事件
      */
     @EventListener
-    @Async
+    @Async("workflowMessageExecutor")
     public void handleNodeCompleted(NodeCompletedEvent event) {
         log.info("发送已办消息，节点实例ID: {}, 审批人ID: {}", 
                 event.getNodeInstanceId(), event.getApproverId());
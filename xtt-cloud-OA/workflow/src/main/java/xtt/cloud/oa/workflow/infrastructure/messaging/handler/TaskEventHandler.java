@@ -22,7 +22,7 @@ import xtt.cloud.oa.workflow.domain.flow.service.TaskService;
  * 1. 监听节点实例创建事件，创建待办任务
  * 2. 监听节点完成事件，创建已办任务
  * 
- * 注意：使用 @Async 异步处理，不阻塞主流程
+ * 注意：使用 @Async 在独立执行器中异步处理，不阻塞主流程
  * 
  * @author xtt
  */
@@ -50,7 +50,7 @@ public class TaskEventHandler {
      * @param event 节点实例创建事件
      */
     @EventListener
-    @Async
+    @Async("workflowTaskEventExecutor")
     @Transactional
     public void handleNodeInstanceCreated(NodeInstanceCreatedEvent event) {
         log.info("处理节点实例创建事件，节点实例ID: {}, 审批人ID: {}", 
@@ -86,7 +86,7 @@ public class TaskEventHandler {
      * @param event 节点完成事件
      */
     @EventListener
-    @Async
+    @Async("workflowTaskEventExecutor")
     @Transactional
     public void handleNodeCompleted(NodeCompletedEvent event) {
         log.info("处理节点完成事件，节点实例ID: {}, 审批人ID: {}", 
@@ -1,8 +1,13 @@
 package xtt.cloud.oa.workflow.infrastructure.persistence.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import xtt.cloud.oa.workflow.infrastructure.persistence.pojo.FlowNodeInstance;
+import xtt.cloud.oa.workflow.infrastructure.persistence.pojo.NodeInstanceStatusCount;
 
 import java.util.List;
 
@@ -21,6 +26,34 @@ public interface FlowNodeInstanceMapper extends BaseMapper<FlowNodeInstance> {
     List<FlowNodeInstance> selectByNodeIdAndFlowInstanceId(Long nodeId, Long flowInstanceId);
 
     List<FlowNodeInstance> selectPendingByApproverId(Long approverId);
+
+    /**
+     * 批量插入节点实例（单条多值 INSERT），自增ID回写到每个对象的 id 属性
+     */
+    @Insert("<script>" +
+            "INSERT INTO flow_node_instance " +
+            "(flow_instance_id, node_id, approver_id, approver_name, approver_dept_id, status, comments, handled_at, created_at, updated_at) " +
+            "VALUES " +
+            "<foreach collection='list' item='item' separator=','>" +
+            "(#{item.flowInstanceId}, #{item.nodeId}, #{item.approverId}, #{item.approverName}, #{item.approverDeptId}, " +
+            "IFNULL(#{item.status}, 0), #{item.comments}, #{item.handledAt}, " +
+            "IFNULL(#{item.createdAt}, NOW()), IFNULL(#{item.updatedAt}, NOW()))" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    int insertBatch(List<FlowNodeInstance> list);
+
+    /**
+     * 按节点统计流程实例下已完成（已完成 2 / 已跳过 4）和未完成的节点实例数量
+     * 使用 idx_flow_instance_node_status 索引，无需回表
+     */
+    @Select("SELECT node_id AS nodeId, " +
+            "SUM(CASE WHEN status IN (2, 4) THEN 1 ELSE 0 END) AS finishedCount, " +
+            "SUM(CASE WHEN status IN (2, 4) THEN 0 ELSE 1 END) AS unfinishedCount " +
+            "FROM flow_node_instance " +
+            "WHERE flow_instance_id = #{flowInstanceId} " +
+            "GROUP BY node_id")
+    List<NodeInstanceStatusCount> countStatusByFlowInstanceId(@Param("flowInstanceId") Long flowInstanceId);
     // 节点实例数据访问接口
 }
 
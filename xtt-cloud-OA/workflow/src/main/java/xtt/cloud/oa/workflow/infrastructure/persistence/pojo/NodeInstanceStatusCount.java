@@ -0,0 +1,24 @@
+package xtt.cloud.oa.workflow.infrastructure.persistence.pojo;
+
+/**
+ * 节点实例状态统计（聚合查询结果，非表实体）
+ * 
+ * 按 node_id 分组统计某个流程实例下已完成 / 未完成的节点实例数量
+ * 
+ * @author xtt
+ */
+public class NodeInstanceStatusCount {
+    private Long nodeId;            // 节点定义ID
+    private Integer finishedCount;   // 已完成数量（已完成 + 已跳过）
+    private Integer unfinishedCount; // 未完成数量
+    
+    // Getters and Setters
+    public Long getNodeId() { return nodeId; }
+    public void setNodeId(Long nodeId) { this.nodeId = nodeId; }
+    
+    public Integer getFinishedCount() { return finishedCount; }
+    public void setFinishedCount(Integer finishedCount) { this.finishedCount = finishedCount; }
+    
+    public Integer getUnfinishedCount() { return unfinishedCount; }
+    public void setUnfinishedCount(Integer unfinishedCount) { this.unfinishedCount = unfinishedCount; }
+}
@@ -2,15 +2,21 @@ package xtt.cloud.oa.workflow.infrastructure.persistence.repository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import xtt.cloud.oa.workflow.domain.flow.model.entity.FlowNodeInstance;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.NodeInstanceProgress;
 import xtt.cloud.oa.workflow.domain.flow.model.valueobject.NodeStatus;
 import xtt.cloud.oa.workflow.domain.flow.repository.FlowNodeInstanceRepository;
 import xtt.cloud.oa.workflow.infrastructure.persistence.converter.FlowNodeInstanceConverter;
 import xtt.cloud.oa.workflow.infrastructure.persistence.mapper.FlowNodeInstanceMapper;
+import xtt.cloud.oa.workflow.infrastructure.persistence.pojo.NodeInstanceStatusCount;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -27,6 +33,9 @@ public class FlowNodeInstanceRepositoryImpl implements FlowNodeInstanceRepositor
     private final FlowNodeInstanceMapper flowNodeInstanceMapper;
     private final FlowNodeInstanceConverter converter;
     
+    @Value("${workflow.persistence.batch-insert-size:500}")
+    private int batchInsertSize; // 单条 INSERT 语句的最大行数
+    
     public FlowNodeInstanceRepositoryImpl(FlowNodeInstanceMapper flowNodeInstanceMapper) {
         this.flowNodeInstanceMapper = flowNodeInstanceMapper;
         this.converter = new FlowNodeInstanceConverter();
@@ -65,9 +74,33 @@ public class FlowNodeInstanceRepositoryImpl implements FlowNodeInstanceRepositor
             return List.of();
         }
         
-        return nodeInstances.stream()
-                .map(this::save)
-                .collect(Collectors.toList());
+        // 新增的节点实例使用多值 INSERT 批量写入，已存在的逐条更新
+        List<FlowNodeInstance> newEntities = new ArrayList<>();
+        List<xtt.cloud.oa.workflow.infrastructure.persistence.pojo.FlowNodeInstance> newPos = new ArrayList<>();
+        for (FlowNodeInstance nodeInstance : nodeInstances) {
+            if (nodeInstance == null) {
+                throw new IllegalArgumentException("Node instance cannot be null");
+            }
+            if (nodeInstance.getId() != null) {
+                save(nodeInstance);
+                continue;
+            }
+            newEntities.add(nodeInstance);
+            newPos.add(converter.toPO(nodeInstance));
+        }
+        
+        int step = Math.max(batchInsertSize, 1);
+        for (int from = 0; from < newPos.size(); from += step) {
+            flowNodeInstanceMapper.insertBatch(newPos.subList(from, Math.min(from + step, newPos.size())));
+        }
+        
+        // 回写自增ID
+        for (int i = 0; i < newEntities.size(); i++) {
+            newEntities.get(i).setId(newPos.get(i).getId());
+        }
+        
+        log.debug("批量保存节点实例成功，新增: {}, 总数: {}", newEntities.size(), nodeInstances.size());
+        return nodeInstances;
     }
     
     @Override
@@ -122,6 +155,30 @@ public class FlowNodeInstanceRepositoryImpl implements FlowNodeInstanceRepositor
                 .collect(Collectors.toList());
     }
     
+    @Override
+    public Map<Long, NodeInstanceProgress> countProgressByFlowInstanceId(Long flowInstanceId) {
+        if (flowInstanceId == null) {
+            return Map.of();
+        }
+        
+        List<NodeInstanceStatusCount> counts = flowNodeInstanceMapper.countStatusByFlowInstanceId(flowInstanceId);
+        if (counts == null || counts.isEmpty()) {
+            return Map.of();
+        }
+        
+        Map<Long, NodeInstanceProgress> result = new HashMap<>(counts.size() * 2);
+        for (NodeInstanceStatusCount count : counts) {
+            if (count.getNodeId() == null) {
+                continue;
+            }
+            result.put(count.getNodeId(), NodeInstanceProgress.of(
+                    count.getNodeId(),
+                    count.getFinishedCount() != null ? count.getFinishedCount() : 0,
+                    count.getUnfinishedCount() != null ? count.getUnfinishedCount() : 0));
+        }
+        return result;
+    }
+    
     @Override
     public List<FlowNodeInstance> findPendingByApproverId(Long approverId) {
         if (approverId == null) {
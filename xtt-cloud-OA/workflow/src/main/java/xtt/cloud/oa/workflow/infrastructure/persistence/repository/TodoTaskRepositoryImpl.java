@@ -5,12 +5,17 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.springframework.stereotype.Repository;
 import xtt.cloud.oa.workflow.domain.flow.model.entity.task.TodoTask;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.CursorPage;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.TaskCursor;
 import xtt.cloud.oa.workflow.domain.flow.repository.TodoTaskRepository;
 import xtt.cloud.oa.workflow.infrastructure.persistence.mapper.TodoTaskMapper;
 import xtt.cloud.oa.workflow.infrastructure.persistence.converter.TodoTaskConverter;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -117,6 +122,81 @@ public class TodoTaskRepositoryImpl implements TodoTaskRepository {
         return entityPage;
     }
     
+    @Override
+    public CursorPage<TodoTask> findPendingByAssigneeIdAfter(Long assigneeId, Integer taskType, TaskCursor cursor, int limit) {
+        if (assigneeId == null || limit <= 0) {
+            return new CursorPage<>(List.of(), null, null);
+        }
+        
+        // 1. 只查询排序键 (created_at, id)：条件和排序都在 (assignee_id, status, [task_type,] created_at, id) 索引内，走覆盖索引
+        LambdaQueryWrapper<xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask> queryWrapper = 
+                new LambdaQueryWrapper<>();
+        queryWrapper.select(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getId,
+                           xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getCreatedAt)
+                   .eq(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getAssigneeId, assigneeId)
+                   .eq(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getStatus, 
+                           xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask.STATUS_PENDING)
+                   .eq(taskType != null, xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getTaskType, taskType);
+        if (cursor != null) {
+            // (created_at, id) < (cursor.createdAt, cursor.id)
+            queryWrapper.and(w -> w
+                    .lt(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getCreatedAt, cursor.getCreatedAt())
+                    .or(o -> o
+                            .eq(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getCreatedAt, cursor.getCreatedAt())
+                            .lt(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getId, cursor.getId())));
+        }
+        queryWrapper.orderByDesc(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getCreatedAt)
+                   .orderByDesc(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getId)
+                   .last("LIMIT " + (limit + 1));  // 多取一条判断是否还有下一页
+        
+        List<xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask> keys = mapper.selectList(queryWrapper);
+        if (keys.isEmpty()) {
+            return new CursorPage<>(List.of(), null, null);
+        }
+        
+        boolean hasMore = keys.size() > limit;
+        List<xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask> pageKeys =
+                hasMore ? keys.subList(0, limit) : keys;
+        List<Long> pageIds = pageKeys.stream()
+                .map(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getId)
+                .collect(Collectors.toList());
+        
+        // 2. 按主键取整行（只回表当前页的记录），并保持索引顺序
+        Map<Long, xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask> rows = mapper.selectBatchIds(pageIds).stream()
+                .collect(Collectors.toMap(
+                        xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getId, Function.identity()));
+        List<TodoTask> records = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask po = rows.get(id);
+            if (po != null) {
+                records.add(TodoTaskConverter.toEntity(po));
+            }
+        }
+        
+        // 游标取自索引扫描结果：回表前后记录可能被处理或删除，不影响下一页的位置
+        TaskCursor nextCursor = null;
+        if (hasMore) {
+            xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask last = pageKeys.get(pageKeys.size() - 1);
+            nextCursor = TaskCursor.of(last.getCreatedAt(), last.getId());
+        }
+        return new CursorPage<>(records, nextCursor, null);
+    }
+    
+    @Override
+    public long countPendingByAssigneeId(Long assigneeId, Integer taskType) {
+        if (assigneeId == null) {
+            return 0L;
+        }
+        Long count = mapper.selectCount(
+            new LambdaQueryWrapper<xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask>()
+                .eq(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getAssigneeId, assigneeId)
+                .eq(xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getStatus, 
+                        xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask.STATUS_PENDING)
+                .eq(taskType != null, xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask::getTaskType, taskType)
+        );
+        return count != null ? count : 0L;
+    }
+    
     @Override
     public TodoTask save(TodoTask task) {
         xtt.cloud.oa.workflow.infrastructure.persistence.pojo.TodoTask po = TodoTaskConverter.toPO(task);
@@ -0,0 +1,68 @@
+package xtt.cloud.oa.workflow.interfaces.rest.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import xtt.cloud.oa.workflow.application.flow.TaskQueryService;
+import xtt.cloud.oa.workflow.application.flow.assembler.TodoTaskAssembler;
+import xtt.cloud.oa.workflow.domain.flow.model.entity.task.TodoTask;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.CursorPage;
+import xtt.cloud.oa.workflow.domain.flow.model.valueobject.task.TaskCursor;
+import xtt.cloud.oa.workflow.interfaces.rest.task.dto.TodoTaskPageResponse;
+
+/**
+ * 待办任务 REST 控制器
+ * 
+ * @author xtt
+ */
+@RestController
+@RequestMapping("/api/workflow/tasks/todo")
+public class TodoTaskController {
+    
+    private static final Logger log = LoggerFactory.getLogger(TodoTaskController.class);
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    private final TaskQueryService taskQueryService;
+    
+    public TodoTaskController(TaskQueryService taskQueryService) {
+        this.taskQueryService = taskQueryService;
+    }
+    
+    /**
+     * 按游标查询待办任务（按创建时间倒序）
+     * 
+     * 第一页不传 cursor，之后传上一页返回的 nextCursor；
+     * withTotal=true 时附带总数（短时间缓存，可能略有延迟）
+     */
+    @GetMapping
+    public ResponseEntity<TodoTaskPageResponse> listTodoTasks(
+            @RequestParam Long assigneeId,
+            @RequestParam(required = false) Integer taskType,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean withTotal) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        TaskCursor taskCursor;
+        try {
+            taskCursor = TaskCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            log.warn("分页游标无效，审批人ID: {}, 游标: {}", assigneeId, cursor);
+            return ResponseEntity.badRequest().build();
+        }
+        
+        CursorPage<TodoTask> page = taskQueryService.getTodoTasksByCursor(
+                assigneeId, taskType, taskCursor, pageSize, withTotal);
+        
+        TodoTaskPageResponse response = new TodoTaskPageResponse(
+                TodoTaskAssembler.toDTOList(page.getRecords()),
+                page.getNextCursor() != null ? page.getNextCursor().encode() : null,
+                page.hasMore(),
+                page.getTotal());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,60 @@
+package xtt.cloud.oa.workflow.interfaces.rest.task.dto;
+
+import xtt.cloud.oa.workflow.application.flow.dto.TodoTaskDTO;
+
+import java.util.List;
+
+/**
+ * 待办任务游标分页响应
+ * 
+ * @author xtt
+ */
+public class TodoTaskPageResponse {
+    
+    private List<TodoTaskDTO> records;
+    private String nextCursor;  // 下一页游标，没有更多数据时为 null
+    private boolean hasMore;
+    private Long total;         // 仅在 withTotal=true 时返回
+    
+    public TodoTaskPageResponse() {
+    }
+    
+    public TodoTaskPageResponse(List<TodoTaskDTO> records, String nextCursor, boolean hasMore, Long total) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+        this.total = total;
+    }
+    
+    public List<TodoTaskDTO> getRecords() {
+        return records;
+    }
+    
+    public void setRecords(List<TodoTaskDTO> records) {
+        this.records = records;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+    
+    public Long getTotal() {
+        return total;
+    }
+    
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+}
@@ -0,0 +1,80 @@
+package xtt.cloud.oa.workflow.domain.flow.model.valueobject.task;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TaskCursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        TaskCursor cursor = TaskCursor.of(LocalDateTime.of(2024, 12, 26, 10, 30, 15, 123_000_000), 42L);
+
+        TaskCursor decoded = TaskCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.getCreatedAt()).isEqualTo(cursor.getCreatedAt());
+        assertThat(decoded.getId()).isEqualTo(42L);
+    }
+
+    @Test
+    void roundTripKeepsWholeMinutesAndLargeIds() {
+        TaskCursor cursor = TaskCursor.of(LocalDateTime.of(2024, 1, 1, 0, 0), Long.MAX_VALUE);
+
+        assertThat(TaskCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        assertThat(TaskCursor.of(LocalDateTime.of(2024, 12, 26, 10, 30), 1L).encode()).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(TaskCursor.decode(null)).isNull();
+        assertThat(TaskCursor.decode("")).isNull();
+        assertThat(TaskCursor.decode("  ")).isNull();
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        for (String cursor : List.of("not base64!", encode("no-separator"), encode("yesterday|1"),
+                encode("2024-12-26T10:30|abc"), encode("2024-12-26T10:30|"), encode("|1"))) {
+            assertThatThrownBy(() -> TaskCursor.decode(cursor))
+                    .as(cursor)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void ofRequiresBothFields() {
+        assertThatThrownBy(() -> TaskCursor.of(null, 1L)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TaskCursor.of(LocalDateTime.now(), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cursorPageHasMoreOnlyWithNextCursor() {
+        TaskCursor next = TaskCursor.of(LocalDateTime.of(2024, 12, 26, 10, 30), 7L);
+
+        CursorPage<String> page = new CursorPage<>(List.of("a", "b"), next, null);
+        CursorPage<String> last = new CursorPage<>(null, null, null);
+
+        assertThat(page.hasMore()).isTrue();
+        assertThat(page.getTotal()).isNull();
+        assertThat(page.withTotal(10L).getTotal()).isEqualTo(10L);
+        assertThat(page.withTotal(10L).getNextCursor()).isEqualTo(next);
+        assertThat(last.hasMore()).isFalse();
+        assertThat(last.getRecords()).isEmpty();
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}